@@ -54,6 +54,14 @@ public interface Dataset extends Data, ImgPlusMetadata, Interval {
 	/** TODO */
 	void setDirty(boolean value);
 
+	/**
+	 * Returns a counter that increases whenever the sample values or structure
+	 * of the dataset are reported changed via {@link #update()} or
+	 * {@link #rebuild()}. Data derived from the samples (e.g. histograms) can
+	 * be cached against it.
+	 */
+	long getVersion();
+
 	/** TODO */
 	ImgPlus<? extends RealType<?>> getImgPlus();
 
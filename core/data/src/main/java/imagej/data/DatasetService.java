@@ -161,9 +161,22 @@ <T extends RealType<T>> Dataset create(
 	 */
 	boolean canSave(String destination);
 
-	/** Loads a dataset from a source (such as a file on disk). */
+	/**
+	 * Loads a dataset from a source (such as a file on disk), reading it into
+	 * memory up front. Use {@link #open(String, boolean)} to open it virtually.
+	 */
 	Dataset open(String source) throws IOException;
 
+	/**
+	 * Loads a dataset from a source (such as a file on disk).
+	 * 
+	 * @param source The source to read.
+	 * @param virtual If true the dataset is backed by a cell image whose cells
+	 *          are read from the source on demand and cached, rather than being
+	 *          read into memory up front.
+	 */
+	Dataset open(String source, boolean virtual) throws IOException;
+
 	/** Reverts the given dataset to its original source. */
 	void revert(Dataset dataset) throws IOException;
 
@@ -38,6 +38,9 @@
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
 import imagej.data.types.DataTypeService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.imglib2.Cursor;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
@@ -88,6 +91,7 @@ public class DefaultDataset extends AbstractData implements Dataset {
 	private ImgPlus<? extends RealType<?>> imgPlus;
 	private boolean rgbMerged;
 	private boolean isDirty;
+	private final AtomicLong version = new AtomicLong();
 
 	public DefaultDataset(final Context context,
 		final ImgPlus<? extends RealType<?>> imgPlus)
@@ -122,6 +126,11 @@ public void setDirty(final boolean value) {
 		isDirty = value;
 	}
 
+	@Override
+	public long getVersion() {
+		return version.get();
+	}
+
 	@Override
 	public ImgPlus<? extends RealType<?>> getImgPlus() {
 		return imgPlus;
@@ -351,6 +360,7 @@ public void update() {
 	@Override
 	public void rebuild() {
 		setDirty(true);
+		version.incrementAndGet();
 		publish(new DatasetRestructuredEvent(this));
 	}
 
@@ -708,6 +718,7 @@ private <T extends RealType<?>> ImgPlus<T> wrapAsImgPlus(final Img<T> newImg,
 
 	private void update(boolean metadataOnly) {
 		setDirty(true);
+		if (!metadataOnly) version.incrementAndGet();
 		publish(new DatasetUpdatedEvent(this, metadataOnly));
 	}
 
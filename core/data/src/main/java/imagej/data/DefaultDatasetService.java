@@ -210,6 +210,8 @@ public <T extends RealType<T>> Dataset create(final ImgPlus<T> imgPlus) {
 
 	@Override
 	public boolean canOpen(final String source) {
+		// NB: try the quick check by file extension before reading the header
+		if (isFormatExtension(source)) return true;
 		try {
 			return formatService.getFormat(source, true) != null;
 		}
@@ -232,25 +234,29 @@ public boolean canSave(final String destination) {
 
 	@Override
 	public Dataset open(final String source) throws IOException {
+		return open(source, false);
+	}
+
+	@Override
+	public Dataset open(final String source, final boolean virtual)
+		throws IOException
+	{
 		final ImgOpener imageOpener = new ImgOpener(getContext());
-		// Restore this when NativeType can be eliminated from this class decl.
-		// TODO BDZ 7-17-12 Lowering reliance on NativeType. This cast is safe but
-		// necessary in the short term to get code to compile. But
-		// imageOpener.openImg() is being modified to have no reference to
-		// NativeType. Later, when that has been accomplished remove this cast.
-		//final ImgPlus<T> imgPlus = (ImgPlus<T>) imageOpener.openImg(source);
-		//
-		final ImgOptions options = 
-				new ImgOptions().setIndex(0)
-												.setCheckMode(CheckMode.DEEP)
-												.setComputeMinMax(false)
-												.setImgModes(ImgMode.PLANAR);
+		// NB: a cell image reads its cells from the source on demand and keeps
+		// them in SCIFIO's cell cache, which holds them softly and saves
+		// modified cells before letting them go.
+		final ImgMode mode = virtual ? ImgMode.CELL : ImgMode.PLANAR;
+		// NB: the file extension nearly always identifies the format, and
+		// trusting it avoids probing the file's header with every format.
+		final CheckMode checkMode;
+		if (isFormatExtension(source)) checkMode = CheckMode.SHALLOW;
+		else {
+			log.warn("No format is known for the extension of " + source +
+				"; probing its contents");
+			checkMode = CheckMode.DEEP;
+		}
 		try {
-			@SuppressWarnings("rawtypes")
-			final ImgPlus imgPlus = imageOpener.openImg(source, options);
-			@SuppressWarnings("unchecked")
-			final Dataset dataset = create(imgPlus);
-			return dataset;
+			return open(imageOpener, source, checkMode, mode);
 		}
 		catch (final ImgIOException exc) {
 			throw new IOException(exc);
@@ -293,6 +299,38 @@ public void save(final Dataset dataset, final String destination)
 
 	// -- Helper methods --
 
+	private Dataset open(final ImgOpener imageOpener, final String source,
+		final CheckMode checkMode, final ImgMode mode) throws ImgIOException
+	{
+		// Restore this when NativeType can be eliminated from this class decl.
+		// TODO BDZ 7-17-12 Lowering reliance on NativeType. This cast is safe but
+		// necessary in the short term to get code to compile. But
+		// imageOpener.openImg() is being modified to have no reference to
+		// NativeType. Later, when that has been accomplished remove this cast.
+		//final ImgPlus<T> imgPlus = (ImgPlus<T>) imageOpener.openImg(source);
+		//
+		final ImgOptions options = 
+				new ImgOptions().setIndex(0)
+												.setCheckMode(checkMode)
+												.setComputeMinMax(false)
+												.setImgModes(mode);
+		@SuppressWarnings("rawtypes")
+		final ImgPlus imgPlus = imageOpener.openImg(source, options);
+		@SuppressWarnings("unchecked")
+		final Dataset dataset = create(imgPlus);
+		return dataset;
+	}
+
+	/** Returns true if a format claims the extension of the given source. */
+	private boolean isFormatExtension(final String source) {
+		try {
+			return formatService.getFormat(source, false) != null;
+		}
+		catch (final FormatException exc) {
+			return false;
+		}
+	}
+
 	private void invalidParams(final int bitsPerPixel,
 		final boolean signed, final boolean floating)
 	{
@@ -32,6 +32,7 @@
 package imagej.data.animation;
 
 import imagej.data.display.ImageDisplay;
+import imagej.data.display.RenderScheduler;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
 
@@ -48,6 +49,9 @@
  */
 public class Animation implements Runnable {
 
+	/** How long to wait for a frame before checking whether to stop, in ms. */
+	private static final long FRAME_WAIT = 50;
+
 	@Parameter
 	private LogService log;
 
@@ -66,6 +70,9 @@ public class Animation implements Runnable {
 	private long delta = 1;
 	private boolean isRelative = true;
 
+	/** Smoothed time between displayed frames, in nanoseconds. */
+	private volatile double frameTime;
+
 	/** Creates an animation for the given {@link ImageDisplay}. */
 	public Animation(final ImageDisplay display) {
 		this.display = display;
@@ -144,6 +151,16 @@ public void setFPS(final double fps) {
 		this.fps = fps;
 	}
 
+	/**
+	 * Gets the frame rate actually achieved by the running animation. This falls
+	 * below {@link #getFPS()} when frames take longer to render than the
+	 * requested rate allows.
+	 */
+	public double getAchievedFPS() {
+		final double time = frameTime;
+		return time == 0 ? 0 : 1e9 / time;
+	}
+
 	public long getFirst() {
 		return first;
 	}
@@ -174,14 +191,31 @@ public void setBackAndForth(final boolean backAndForth) {
 
 	@Override
 	public void run() {
+		final RenderScheduler scheduler = display.getRenderScheduler();
+		frameTime = 0;
+		long frameStart = System.nanoTime();
 		while (active) {
 			updatePosition();
+			scheduler.requestRender();
 			try {
-				Thread.sleep((long) (1000 / fps));
+				// NB - never run ahead of the renderer. A frame which takes longer
+				// than the frame period delays the next one instead of piling up.
+				while (active && !scheduler.awaitIdle(FRAME_WAIT)) {
+					// keep waiting
+				}
+				final long period = (long) (1e9 / fps);
+				final long remaining = period - (System.nanoTime() - frameStart);
+				if (remaining > 0) {
+					Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+				}
 			}
 			catch (final InterruptedException e) {
 				// do nothing
 			}
+			final long now = System.nanoTime();
+			final long time = now - frameStart;
+			frameTime = frameTime == 0 ? time : 0.8 * frameTime + 0.2 * time;
+			frameStart = now;
 		}
 	}
 
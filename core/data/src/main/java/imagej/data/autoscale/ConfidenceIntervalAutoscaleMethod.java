@@ -31,6 +31,7 @@
 
 package imagej.data.autoscale;
 
+import imagej.data.histogram.HistogramService;
 import net.imglib2.IterableInterval;
 import net.imglib2.histogram.Histogram1d;
 import net.imglib2.histogram.Real1dBinMapper;
@@ -57,6 +58,9 @@
 	@Parameter
 	private AutoscaleService autoscaleService;
 
+	@Parameter(required = false)
+	private HistogramService histogramService;
+
 	// -- ConfidenceIntervalAutoscaleMethod methods --
 
 	/**
@@ -124,13 +128,19 @@ public void setTailProportions(double lower, double upper) {
 
 	@Override
 	public DataRange getRange(IterableInterval<T> interval) {
-		// pass one through data
-		DataRange range = autoscaleService.getDefaultIntervalRange(interval);
-		// pass two through data
-		Real1dBinMapper<T> mapper =
-			new Real1dBinMapper<T>(range.getMin(), range.getMax(), 1000, false);
-		Histogram1d<T> histogram = new Histogram1d<T>(mapper);
-		histogram.countData(interval);
+		Histogram1d<T> histogram;
+		if (histogramService != null) {
+			histogram = histogramService.getHistogram(interval, 1000);
+		}
+		else {
+			// pass one through data
+			DataRange range = autoscaleService.getDefaultIntervalRange(interval);
+			// pass two through data
+			Real1dBinMapper<T> mapper =
+				new Real1dBinMapper<T>(range.getMin(), range.getMax(), 1000, false);
+			histogram = new Histogram1d<T>(mapper);
+			histogram.countData(interval);
+		}
 		// calc some sizes
 		long totValues = histogram.distributionCount();
 		long lowerSize = (long) Math.floor(lowerTail * totValues);
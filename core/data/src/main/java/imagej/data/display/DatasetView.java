@@ -55,8 +55,30 @@
  */
 public interface DatasetView extends DataView {
 
+	/** Gets the full resolution screen image of the current plane. */
 	ARGBScreenImage getScreenImage();
 
+	/**
+	 * Gets the screen image of the current plane at the given resolution level.
+	 * Level 0 is the full resolution image; each further level halves the width
+	 * and height. Levels are created on demand and cached until the view is
+	 * rebuilt.
+	 */
+	ARGBScreenImage getScreenImage(int level);
+
+	/** Gets the resolution level rendered by {@link #getProjector()}. */
+	int getResolutionLevel();
+
+	/**
+	 * Sets the resolution level rendered by {@link #getProjector()}, and renders
+	 * it. Showing a zoomed out image from a coarser level avoids converting
+	 * pixels that can never reach the screen.
+	 */
+	void setResolutionLevel(int level);
+
+	/** Gets the coarsest resolution level available for the displayed data. */
+	int getMaxResolutionLevel();
+
 	int getCompositeDimIndex();
 
 	CompositeXYProjector<? extends RealType<?>> getProjector();
@@ -42,9 +42,11 @@
 import imagej.data.event.DatasetRGBChangedEvent;
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.histogram.HistogramService;
 import imagej.util.ColorRGB;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -54,7 +56,6 @@
 import net.imglib2.display.ColorTable;
 import net.imglib2.display.projector.composite.CompositeXYProjector;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
-import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
 import net.imglib2.meta.ImgPlus;
@@ -80,6 +81,9 @@
 public class DefaultDatasetView extends AbstractDataView implements DatasetView
 {
 
+	/** The coarsest resolution level which will ever be created. */
+	private static final int MAX_LEVEL = 30;
+
 	@Parameter
 	private AutoscaleService autoscaleService;
 
@@ -89,6 +93,9 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 	@Parameter(required = false)
 	private EventService eventService;
 
+	@Parameter(required = false)
+	private HistogramService histogramService;
+
 	/** The dimensional index representing channels, for compositing. */
 	private int channelDimIndex;
 
@@ -98,7 +105,11 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 	 */
 	private ArrayList<ColorTable> defaultLUTs;
 
-	private ARGBScreenImage screenImage;
+	/** Screen images and projectors, one per resolution level, built lazily. */
+	private final ArrayList<Level> levels = new ArrayList<Level>();
+
+	/** The resolution level rendered by {@link #projector}. */
+	private int resolutionLevel;
 
 	private CompositeXYProjector<? extends RealType<?>> projector;
 
@@ -115,7 +126,51 @@ public int getChannelCount() {
 
 	@Override
 	public ARGBScreenImage getScreenImage() {
-		return screenImage;
+		return getScreenImage(0);
+	}
+
+	@Override
+	public synchronized ARGBScreenImage getScreenImage(final int level) {
+		if (!isInitialized()) return null;
+
+		final Level l = level(clampLevel(level));
+		if (l.projector != projector && l.stale) {
+			syncLevel(l);
+			l.projector.map();
+			l.stale = false;
+		}
+		return l.screenImage;
+	}
+
+	@Override
+	public int getResolutionLevel() {
+		return resolutionLevel;
+	}
+
+	@Override
+	public synchronized void setResolutionLevel(final int level) {
+		if (!isInitialized()) return;
+
+		final int newLevel = clampLevel(level);
+		if (newLevel == resolutionLevel) return;
+		final Level l = level(newLevel);
+		syncLevel(l);
+		levels.get(resolutionLevel).stale = true;
+		resolutionLevel = newLevel;
+		projector = l.projector;
+		projector.map();
+		l.stale = false;
+	}
+
+	@Override
+	public int getMaxResolutionLevel() {
+		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
+		final long size = Math.max(img.dimension(0), img.dimension(1));
+		int level = 0;
+		while (level < MAX_LEVEL && (size - 1) >> level > 0) {
+			level++;
+		}
+		return level;
 	}
 
 	@Override
@@ -148,6 +203,7 @@ public void setChannelRange(final int c, final double min, final double max) {
 
 		converters.get(c).setMin(min);
 		converters.get(c).setMax(max);
+		invalidateLevels();
 	}
 
 	@Override
@@ -168,8 +224,16 @@ public void autoscale(final int c) {
 			RandomAccessibleInterval<? extends RealType<?>> interval =
 				channelData(data, c);
 			interval = xyPlane(interval);
-			final DataRange result =
-				autoscaleService.getDefaultRandomAccessRange(interval);
+			final DataRange result;
+			if (histogramService != null) {
+				// NB - the histogram service caches ranges until the data changes
+				final long[] mn = new long[interval.numDimensions()];
+				final long[] mx = new long[interval.numDimensions()];
+				interval.min(mn);
+				interval.max(mx);
+				result = histogramService.getRange(data, mn, mx);
+			}
+			else result = autoscaleService.getDefaultRandomAccessRange(interval);
 			min = result.getMin();
 			max = result.getMax();
 			// cache min/max in metadata for next time
@@ -184,6 +248,7 @@ public void setComposite(final boolean composite) {
 		if (!isInitialized()) return;
 
 		projector.setComposite(composite);
+		invalidateLevels();
 	}
 
 	@Override
@@ -342,12 +407,12 @@ public Dataset getData() {
 
 	@Override
 	public int getPreferredWidth() {
-		return getScreenImage().image().getWidth(null);
+		return (int) getData().getImgPlus().dimension(0);
 	}
 
 	@Override
 	public int getPreferredHeight() {
-		return getScreenImage().image().getHeight(null);
+		return (int) getData().getImgPlus().dimension(1);
 	}
 
 	@Override
@@ -365,17 +430,11 @@ public synchronized void rebuild() {
 
 		channelDimIndex = getChannelDimIndex();
 
-		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
-
 		if (defaultLUTs == null || defaultLUTs.size() != getChannelCount()) {
 			defaultLUTs = new ArrayList<ColorTable>();
 			resetColorTables(false);
 		}
 
-		final int width = (int) img.dimension(0);
-		final int height = (int) img.dimension(1);
-		screenImage = new ARGBScreenImage(width, height);
-
 		initializeView(isComposite());
 		updateLUTs();
 		projector.map();
@@ -408,6 +467,7 @@ public void setPosition(final long position, final AxisType axis) {
 			return; // no change
 		}
 		projector.setPosition(position, dim);
+		invalidateLevels();
 
 		// update color tables
 		if (dim != channelDimIndex) {
@@ -462,6 +522,7 @@ protected void onEvent(final DatasetUpdatedEvent event) {
 		}
 		if (getData() == event.getObject()) {
 			if (event.isMetaDataOnly()) return;
+			invalidateLevels();
 			projector.map();
 		}
 	}
@@ -483,6 +544,7 @@ private boolean isInitialized() {
 	/** Uninitializes the view. */
 	private void uninitializeView() {
 		converters.clear();
+		levels.clear();
 		projector = null;
 	}
 
@@ -499,20 +561,75 @@ private void initializeView(final boolean composite) {
 			converters.add(converter);
 		}
 
-		final ImgPlus<?> img = getData().getImgPlus();
+		resolutionLevel = clampLevel(resolutionLevel);
+		final Level level = level(resolutionLevel);
+		level.stale = false;
+		projector = level.projector;
+		projector.setComposite(composite);
+	}
 
-		if (AbstractCellImg.class.isAssignableFrom(img.getImg().getClass())) {
-			projector =
-				new SourceOptimizedCompositeXYProjector(getData().getImgPlus(),
-					screenImage, converters, channelDimIndex);
+	/** Gets the given resolution level, creating it if needed. */
+	private Level level(final int level) {
+		while (levels.size() <= level) {
+			levels.add(null);
 		}
-		else {
-			projector =
-				new CompositeXYProjector(getData().getImgPlus(), screenImage,
+		Level l = levels.get(level);
+		if (l == null) {
+			l = createLevel(level);
+			levels.set(level, l);
+		}
+		return l;
+	}
+
+	/**
+	 * Creates the screen image and projector for the given resolution level.
+	 * Coarser levels project from a subsampled view of the data, so only the
+	 * pixels which are shown get converted.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Level createLevel(final int level) {
+		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
+		final long step = 1L << level;
+		final int width = (int) ((img.dimension(0) - 1) / step + 1);
+		final int height = (int) ((img.dimension(1) - 1) / step + 1);
+		final ARGBScreenImage screenImage = new ARGBScreenImage(width, height);
+
+		final CompositeXYProjector levelProjector;
+		if (level > 0) {
+			final long[] steps = new long[img.numDimensions()];
+			Arrays.fill(steps, 1);
+			steps[0] = steps[1] = step;
+			levelProjector =
+				new CompositeXYProjector(Views.subsample(img, steps), screenImage,
 					converters, channelDimIndex);
 		}
+		else {
+			levelProjector =
+				new SourceOptimizedCompositeXYProjector(img, screenImage, converters,
+					channelDimIndex, threadService);
+		}
+		return new Level(screenImage, levelProjector);
+	}
 
-		projector.setComposite(composite);
+	/** Copies the plane position and composite state to the given level. */
+	private void syncLevel(final Level level) {
+		final CompositeXYProjector<? extends RealType<?>> p = level.projector;
+		if (p == projector) return;
+		for (int d = 2; d < projector.numDimensions(); d++) {
+			p.setPosition(projector.getLongPosition(d), d);
+		}
+		p.setComposite(projector.isComposite());
+	}
+
+	/** Marks the cached levels other than the rendered one as out of date. */
+	private void invalidateLevels() {
+		for (final Level level : levels) {
+			if (level != null && level.projector != projector) level.stale = true;
+		}
+	}
+
+	private int clampLevel(final int level) {
+		return Math.max(0, Math.min(level, getMaxResolutionLevel()));
 	}
 
 	private void updateLUTs() {
@@ -524,6 +641,8 @@ private void updateLUTs() {
 			converters.get(c).setLUT(lut);
 		}
 
+		invalidateLevels();
+
 		final Context context = getContext();
 		if (context == null) return;
 		if (eventService == null) return;
@@ -561,4 +680,24 @@ private RandomAccessibleInterval<? extends RealType<?>> channelData(
 		return Views.interval(imgPlus, mn, mx);
 	}
 
+	// -- Helper classes --
+
+	/** A screen image and the projector which renders into it. */
+	private static class Level {
+
+		private final ARGBScreenImage screenImage;
+		private final CompositeXYProjector<? extends RealType<?>> projector;
+
+		/** Whether the screen image is out of date with the view. */
+		private boolean stale = true;
+
+		public Level(final ARGBScreenImage screenImage,
+			final CompositeXYProjector<? extends RealType<?>> projector)
+		{
+			this.screenImage = screenImage;
+			this.projector = projector;
+		}
+
+	}
+
 }
@@ -43,6 +43,9 @@
 import imagej.display.event.DisplayDeletedEvent;
 import imagej.util.RealRect;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import net.imglib2.Localizable;
@@ -96,6 +99,14 @@ public class DefaultImageDisplay extends AbstractDisplay<DataView> implements
 
 	private ImageCanvas canvas;
 
+	private RenderScheduler renderScheduler;
+
+	/**
+	 * The views of the display and their data, built when first needed after a
+	 * change to the views so that {@link #isDisplaying} need not search them.
+	 */
+	private Set<Object> displayed;
+
 	// NB - older comment - see 12-7-11 note
 	// If pos is a HashMap rather than a ConcurrentHashMap,
 	// the Delete Axis plugin throws a ConcurrentModificationException.
@@ -118,6 +129,7 @@ public DefaultImageDisplay() {
 	protected void rebuild() {
 		// NB: Ensure display flags its structure as changed.
 		super.rebuild();
+		displayed = null;
 
 		// combine constituent views into a single aggregate spatial interval
 		combinedInterval.clear();
@@ -151,6 +163,12 @@ protected void rebuild() {
 		if (getActiveAxis() == null) initActiveAxis();
 	}
 
+	@Override
+	protected void noteStructureChange() {
+		super.noteStructureChange();
+		displayed = null;
+	}
+
 	// -- ImageDisplay methods --
 
 	@Override
@@ -206,6 +224,14 @@ public ImageCanvas getCanvas() {
 		return canvas;
 	}
 
+	@Override
+	public synchronized RenderScheduler getRenderScheduler() {
+		if (renderScheduler == null) {
+			renderScheduler = new RenderScheduler(this, threadService);
+		}
+		return renderScheduler;
+	}
+
 	@Override
 	public RealRect getPlaneExtents() {
 		final int xAxis = dimensionIndex(Axes.X);
@@ -266,14 +292,17 @@ else if (o instanceof ColorTable) {
 
 	@Override
 	public boolean isDisplaying(final Object o) {
-		if (super.isDisplaying(o)) return true;
-
-		// check for wrapped Data objects
-		for (final DataView view : this) {
-			if (o == view.getData()) return true;
+		Set<Object> set = displayed;
+		if (set == null) {
+			// index the views along with their wrapped Data objects
+			set = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+			for (final DataView view : this) {
+				set.add(view);
+				set.add(view.getData());
+			}
+			displayed = set;
 		}
-
-		return false;
+		return set.contains(o);
 	}
 
 	@Override
@@ -285,6 +314,8 @@ public void update() {
 		// run the command, an exception is thrown.
 		// TODO - is this a performance issue?
 		combinedInterval.update();
+		final long[] position = new long[numDimensions()];
+		localize(position);
 		for (final DataView view : this) {
 			for (int i = 0; i < numDimensions(); i++) {
 				AxisType axis = axis(i).type();
@@ -301,6 +332,7 @@ public void update() {
 			view.update();
 		}
 		super.update();
+		getRenderScheduler().updated(position);
 	}
 
 	// -- Interval methods --
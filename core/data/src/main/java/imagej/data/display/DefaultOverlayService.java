@@ -257,11 +257,8 @@ public void fillOverlay(Overlay o, ImageDisplay display, ChannelCollection chann
 	public ImageDisplay getFirstDisplay(Overlay o) {
 		final List<Display<?>> displays = displayService.getDisplays();
 		for (Display<?> display : displays) {
-			if (display instanceof ImageDisplay) {
-				final List<Overlay> displayOverlays = getOverlays((ImageDisplay)display);
-				if (displayOverlays.contains(o))
-					return (ImageDisplay) display;
-			}
+			if (display instanceof ImageDisplay && display.isDisplaying(o))
+				return (ImageDisplay) display;
 		}
 		return null;
 	}
@@ -272,14 +269,8 @@ public List<ImageDisplay> getDisplays(Overlay o) {
 		final List<Display<?>> displays = displayService.getDisplays();
 		for (Display<?> display : displays) {
 			if ( ! (display instanceof ImageDisplay) ) continue;
-			final ImageDisplay imageDisplay = (ImageDisplay) display;
-			for (final DataView view : imageDisplay) {
-				final Data data = view.getData();
-				if ( ! (data instanceof Overlay) ) continue;
-				final Overlay overlay = (Overlay) data;
-				if (overlay == o)
-					containers.add(imageDisplay);
-			}
+			// NB - image displays index the data they show, so no view scan
+			if (display.isDisplaying(o)) containers.add((ImageDisplay) display);
 		}
 		return containers;
 	}
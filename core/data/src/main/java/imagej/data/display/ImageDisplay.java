@@ -73,6 +73,12 @@ public interface ImageDisplay extends Display<DataView>,
 	boolean isVisible(DataView view);
 	
 	ImageCanvas getCanvas();
+
+	/**
+	 * Gets the scheduler which renders this display in the background, dropping
+	 * intermediate positions when they change faster than they can be drawn.
+	 */
+	RenderScheduler getRenderScheduler();
 	
 	/**
 	 * Gets a rectangle defining the extents of the image in the current X/Y
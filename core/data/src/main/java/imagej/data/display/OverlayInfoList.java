@@ -36,8 +36,10 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Stores data that is used by various OverlayManager implementations. There
@@ -47,10 +49,30 @@
  */
 public class OverlayInfoList {
 
-	private final LinkedList<OverlayInfo> list;
+	private final ArrayList<OverlayInfo> list;
+
+	/** The entries of the list, so absent ones are found without a search. */
+	private final Set<OverlayInfo> infos;
+
+	/** How many entries of the list refer to each overlay. */
+	private final Map<Overlay, Integer> overlayCounts;
+
+	/**
+	 * The position of each entry, and of the first entry referring to each
+	 * overlay. Kept up to date when entries are appended or removed from the
+	 * end, and rebuilt on the next search after any other change.
+	 */
+	private final Map<OverlayInfo, Integer> infoIndices;
+	private final Map<Overlay, Integer> overlayIndices;
+	private boolean indicesStale;
 	
 	public OverlayInfoList() {
-		list = new LinkedList<OverlayInfo>();
+		list = new ArrayList<OverlayInfo>();
+		infos =
+			Collections.newSetFromMap(new IdentityHashMap<OverlayInfo, Boolean>());
+		overlayCounts = new IdentityHashMap<Overlay, Integer>();
+		infoIndices = new IdentityHashMap<OverlayInfo, Integer>();
+		overlayIndices = new IdentityHashMap<Overlay, Integer>();
 	}
 
 	public int getOverlayInfoCount() {
@@ -62,8 +84,18 @@ public OverlayInfo getOverlayInfo(int i) {
 	}
 	
 	public boolean addOverlayInfo(int i, OverlayInfo info) {
-		if (findIndex(info) >= 0) return false;
+		if (infos.contains(info)) return false;
+		if (i == list.size()) {
+			infoIndices.put(info, i);
+			if (!overlayIndices.containsKey(info.getOverlay())) {
+				overlayIndices.put(info.getOverlay(), i);
+			}
+		}
+		else indicesStale = true;
 		list.add(i, info);
+		infos.add(info);
+		final Integer count = overlayCounts.get(info.getOverlay());
+		overlayCounts.put(info.getOverlay(), count == null ? 1 : count + 1);
 		//info.overlay.incrementReferences();
 		return true;
 	}
@@ -74,7 +106,7 @@ public boolean addOverlayInfo(OverlayInfo info) {
 	}
 	
 	public boolean addOverlay(int i, Overlay overlay) {
-		if (findIndex(overlay) >= 0) return false;
+		if (overlayCounts.containsKey(overlay)) return false;
 		final OverlayInfo info = new OverlayInfo(overlay);
 		return addOverlayInfo(i,info);
 	}
@@ -98,6 +130,16 @@ public boolean replaceOverlay(int i, Overlay overlay) {
 	public boolean deleteOverlayInfo(int i) {
 		final OverlayInfo info = list.remove(i);
 		if (info == null) return false;
+		if (i == list.size()) {
+			infoIndices.remove(info);
+			final Integer first = overlayIndices.get(info.getOverlay());
+			if (first != null && first == i) overlayIndices.remove(info.getOverlay());
+		}
+		else indicesStale = true;
+		infos.remove(info);
+		final int count = overlayCounts.get(info.getOverlay());
+		if (count == 1) overlayCounts.remove(info.getOverlay());
+		else overlayCounts.put(info.getOverlay(), count - 1);
 		//info.overlay.decrementReferences();
 		return true;
 	}
@@ -115,23 +157,32 @@ public boolean deleteOverlay(Overlay overlay) {
 	}
 
 	public void deleteAll() {
-		final int num = list.size();
-		for (int i = 0; i < num; i++)
-			deleteOverlayInfo(0);
+		list.clear();
+		infos.clear();
+		overlayCounts.clear();
+		infoIndices.clear();
+		overlayIndices.clear();
+		indicesStale = false;
+	}
+
+	public boolean contains(OverlayInfo info) {
+		return infos.contains(info);
+	}
+
+	public boolean contains(Overlay overlay) {
+		return overlayCounts.containsKey(overlay);
 	}
 	
 	public int findIndex(OverlayInfo info) {
-		for (int i = 0; i < list.size(); i++)
-			if (info == list.get(i))
-				return i;
-		return -1;
+		if (!contains(info)) return -1;
+		updateIndices();
+		return infoIndices.get(info);
 	}
 	
 	public int findIndex(Overlay overlay) {
-		for (int i = 0; i < list.size(); i++)
-			if (overlay == list.get(i).getOverlay())
-				return i;
-		return -1;
+		if (!contains(overlay)) return -1;
+		updateIndices();
+		return overlayIndices.get(overlay);
 	}
 
 	public void sort() {
@@ -140,6 +191,7 @@ public void sort() {
 			public int compare(OverlayInfo arg0, OverlayInfo arg1) {
 				return arg0.toString().compareTo(arg1.toString());
 			}});
+		indicesStale = true;
 	}
 	
 	public int[] selectedIndices() {
@@ -170,4 +222,20 @@ public List<Overlay> selectedOverlays() {
 		}
 		return overlays;
 	}
+
+	// -- Helper methods --
+
+	private void updateIndices() {
+		if (!indicesStale) return;
+		infoIndices.clear();
+		overlayIndices.clear();
+		for (int i = 0; i < list.size(); i++) {
+			final OverlayInfo info = list.get(i);
+			infoIndices.put(info, i);
+			if (!overlayIndices.containsKey(info.getOverlay())) {
+				overlayIndices.put(info.getOverlay(), i);
+			}
+		}
+		indicesStale = false;
+	}
 }
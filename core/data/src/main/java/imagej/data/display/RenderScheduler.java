@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import java.util.Arrays;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * Renders an {@link ImageDisplay} off the calling thread. Each render is an
+ * {@link ImageDisplay#update()} at the display's position at that moment.
+ * <p>
+ * Requests which arrive while a render is running are merged into a single
+ * follow-up render, so when positions change faster than they can be drawn the
+ * intermediate ones are skipped rather than queued. A request is also skipped
+ * when the display has already been updated at its current position.
+ * </p>
+ * <p>
+ * Since the update runs on a worker thread, the
+ * {@link imagej.display.event.DisplayUpdatedEvent} it publishes arrives there
+ * too; viewers must hand any UI work to the event dispatch thread themselves.
+ * </p>
+ */
+public class RenderScheduler {
+
+	private final ImageDisplay display;
+	private final ThreadService threadService;
+
+	/** Whether a render has been requested since the last one started. */
+	private boolean requested;
+
+	/** Whether a render thread is currently running. */
+	private boolean running;
+
+	/** The display position at the last update of the display. */
+	private long[] updatedPosition;
+
+	/** Smoothed duration of a render, in nanoseconds. */
+	private double renderTime;
+
+	public RenderScheduler(final ImageDisplay display,
+		final ThreadService threadService)
+	{
+		this.display = display;
+		this.threadService = threadService;
+	}
+
+	// -- RenderScheduler methods --
+
+	/** Requests a render of the display at its current position. */
+	public synchronized void requestRender() {
+		requested = true;
+		if (running) return; // the running render thread will pick it up
+		running = true;
+		threadService.run(new Runnable() {
+
+			@Override
+			public void run() {
+				renderLoop();
+			}
+		});
+	}
+
+	/**
+	 * Waits until no render is requested or running, or until the given number
+	 * of milliseconds have passed.
+	 * 
+	 * @return true if the scheduler is idle
+	 */
+	public synchronized boolean awaitIdle(final long timeout)
+		throws InterruptedException
+	{
+		final long end = System.currentTimeMillis() + timeout;
+		while (requested || running) {
+			final long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) return false;
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the rate at which the display can currently be rendered, in frames
+	 * per second, or 0 if nothing has been rendered yet.
+	 */
+	public synchronized double getFrameRate() {
+		return renderTime == 0 ? 0 : 1e9 / renderTime;
+	}
+
+	/**
+	 * Records that the display has been updated at the given position, by the
+	 * scheduler or otherwise.
+	 */
+	synchronized void updated(final long[] position) {
+		updatedPosition = position;
+	}
+
+	// -- Helper methods --
+
+	private void renderLoop() {
+		while (nextRequest()) {
+			try {
+				render();
+			}
+			catch (final RuntimeException exc) {
+				synchronized (this) {
+					requested = running = false;
+					notifyAll();
+				}
+				throw exc;
+			}
+		}
+	}
+
+	/** Takes the pending request, or marks the render thread done if none. */
+	private synchronized boolean nextRequest() {
+		if (requested) {
+			requested = false;
+			return true;
+		}
+		running = false;
+		notifyAll();
+		return false;
+	}
+
+	private void render() {
+		final long[] position = new long[display.numDimensions()];
+		display.localize(position);
+		synchronized (this) {
+			if (Arrays.equals(position, updatedPosition)) return;
+		}
+		final long start = System.nanoTime();
+		display.update();
+		final long time = System.nanoTime() - start;
+		synchronized (this) {
+			renderTime = renderTime == 0 ? time : 0.8 * renderTime + 0.2 * time;
+		}
+	}
+
+}
@@ -33,36 +33,44 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import net.imglib2.Cursor;
-import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.IterableInterval;
 import net.imglib2.converter.Converter;
 import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
 import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.meta.ImgPlus;
 import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+
+import org.scijava.thread.ThreadService;
 
 /**
  * As {@link CompositeXYProjector} but uses a source that is both a
  * {@link RandomAccessibleInterval} and an {@link IterableInterval}, and a
- * {@link RandomAccessibleInterval} target. This allows the natural iteration
- * order of the source to be used, instead of that of the target.
+ * {@link RandomAccessibleInterval} target.
  * <p>
- * Furthermore, one source cursor is created for each component being
+ * Furthermore, one source random access is created for each component being
  * composited. This optimizes for scenarios where each composited component is
  * not stored conveniently relative to each other (for example - in the case of
  * {@link CellImg} instances where each channel is in a different cell).
  * </p>
  * <p>
- * NB: because N cursors are created, one for each composite component, the
- * memory requirements for this projector are higher than
- * {@link CompositeXYProjector}.
+ * The target is split into horizontal stripes which are projected in parallel
+ * when a {@link ThreadService} is given. Sources of integer types of up to 16
+ * bits are converted through precomputed ARGB tables instead of calling the
+ * converters per pixel, and byte or short {@link PlanarImg} planes are read
+ * directly when the target is an {@link ARGBScreenImage}.
  * </p>
  * <p>
- * NB: Because this is an XY projector, the assumption is the provided source's
- * natural iteration order will cover XY first. If that assumption is false, the
- * projector will fail to produce a correct image.
+ * NB: the converters are shared by all stripes, so they must not keep state
+ * between calls to {@link Converter#convert}.
  * </p>
  * 
  * @see CompositeXYProjector for the code upon which this class was based.
@@ -71,37 +79,63 @@
  */
 public class SourceOptimizedCompositeXYProjector< A, S extends RandomAccessibleInterval< A > & IterableInterval< A >, T extends RandomAccessibleInterval< ARGBType > & IterableInterval< ARGBType > > extends CompositeXYProjector< A >
 {
+	/** The fewest target rows worth projecting in a separate task. */
+	private static final int MIN_STRIPE_ROWS = 32;
+
+	/** The largest integer type range converted through a table. */
+	private static final int MAX_TABLE_SIZE = 65536;
+
   private int dimIndex = 0;
   
 	private T raTarget = null;
 
 	private S iraSource = null;
 
+	private final ArrayList< Converter< A, ARGBType >> converterList;
+
+	private ThreadService threadService;
+
 	public SourceOptimizedCompositeXYProjector( S source, T target, ArrayList< Converter< A, ARGBType >> converters, int dimIndex )
 	{
 		super( source, target, converters, dimIndex );
 		this.dimIndex = dimIndex;
 		raTarget = target;
 		iraSource = source;
+		converterList = converters;
+	}
+
+	public SourceOptimizedCompositeXYProjector( S source, T target, ArrayList< Converter< A, ARGBType >> converters, int dimIndex, ThreadService threadService )
+	{
+		this( source, target, converters, dimIndex );
+		this.threadService = threadService;
 	}
 
 	@Override
+	@SuppressWarnings( "unchecked" )
 	public void map()
 	{
-		boolean noComposite = dimIndex < 0;
-
-		int size = -1;
-
-		if ( !noComposite )
-			size = updateCurrentArrays();
-
-		if ( noComposite || size == 1 )
+		// determine the source planes and converters to composite
+		final int size;
+		final long[] channels;
+		final Converter< A, ARGBType >[] channelConverters;
+		if ( dimIndex < 0 )
 		{
-			super.map();
-			return;
+			size = 1;
+			channels = new long[ 1 ];
+			channelConverters = new Converter[] { converterList.get( 0 ) };
+		}
+		else
+		{
+			size = updateCurrentArrays();
+			channels = new long[ size ];
+			channelConverters = new Converter[ size ];
+			for ( int i = 0; i < size; i++ )
+			{
+				channels[ i ] = currentPositions[ i ];
+				channelConverters[ i ] = currentConverters[ i ];
+			}
 		}
 
-		// System.out.println("    CompositeXYProjector::map() : call #"+(++calls));
 		for ( int d = 2; d < position.length; ++d )
 			min[ d ] = max[ d ] = position[ d ];
 
@@ -110,72 +144,270 @@ public void map()
 		max[ 0 ] = raTarget.max( 0 );
 		max[ 1 ] = raTarget.max( 1 );
 
-		final List< RandomAccess< A >> sourceRandomAccess = new ArrayList< RandomAccess< A >>();
+		final long[] origin = min.clone();
+		final int width = ( int ) ( max[ 0 ] - min[ 0 ] + 1 );
+		final int height = ( int ) ( max[ 1 ] - min[ 1 ] + 1 );
+		final int[][] tables = tables( channelConverters, ( long ) width * height );
+		final Object[] planes = tables == null ? null : planes( channels, tables[ 0 ].length, width, height );
+
+		// split the target rows into stripes, one or more per processor
+		final int threads = threadService == null ? 1 : Runtime.getRuntime().availableProcessors();
+		final int stripeRows = Math.max( MIN_STRIPE_ROWS, ( height + threads - 1 ) / threads );
+		final List< Runnable > stripes = new ArrayList< Runnable >();
+		for ( int y = 0; y < height; y += stripeRows )
+		{
+			final int y0 = y;
+			final int y1 = Math.min( height, y + stripeRows );
+			stripes.add( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					if ( planes != null )
+						mapPlanes( planes, tables, width, y0, y1 );
+					else
+						mapRows( origin, channels, channelConverters, tables, width, y0, y1 );
+				}
+			} );
+		}
+
+		if ( threadService == null || stripes.size() == 1 )
+		{
+			for ( final Runnable stripe : stripes )
+				stripe.run();
+			return;
+		}
 
-		Cursor< A > leadCursor = iraSource.localizingCursor();
+		final List< Future< ? >> futures = new ArrayList< Future< ? >>();
+		for ( final Runnable stripe : stripes )
+			futures.add( threadService.run( stripe ) );
+		try
+		{
+			for ( final Future< ? > future : futures )
+				future.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException( "Projection interrupted", e );
+		}
+		catch ( final ExecutionException e )
+		{
+			throw new IllegalStateException( "Projection failed", e.getCause() );
+		}
+	}
 
-		// Compute how many positions need to be composited in the target
-		int steps = 1;
-		for ( int i = 0; i < min.length; i++ )
-			steps *= ( max[ i ] + 1 - min[ i ] );
+	// -- Helper methods --
 
-		// Generate a RandomAccess for each composite component
+	/**
+	 * Projects the given target rows, reading the source through one random
+	 * access per composited plane.
+	 */
+	private void mapRows( final long[] origin, final long[] channels, final Converter< A, ARGBType >[] channelConverters, final int[][] tables, final int width, final int y0, final int y1 )
+	{
+		final int size = channels.length;
+		final long[] pos = origin.clone();
+		final List< RandomAccess< A >> sourceRandomAccess = new ArrayList< RandomAccess< A >>();
 		for ( int i = 0; i < size; ++i )
 		{
-			RandomAccess< A > randomAccess = iraSource.randomAccess();
-			min[ dimIndex ] = max[ dimIndex ] = currentPositions[ i ];
-			randomAccess.setPosition( min );
+			if ( dimIndex >= 0 )
+				pos[ dimIndex ] = channels[ i ];
+			final RandomAccess< A > randomAccess = iraSource.randomAccess();
+			randomAccess.setPosition( pos );
 			sourceRandomAccess.add( randomAccess );
 		}
 
-		// A random access for populating the target
-		final RandomAccess< ARGBType > targetCursor = raTarget.randomAccess();
-
+		final int[] data = raTarget instanceof ARGBScreenImage ? ( ( ARGBScreenImage ) raTarget ).getData() : null;
+		final RandomAccess< ARGBType > targetCursor = data == null ? raTarget.randomAccess() : null;
+		final long offset = tables == null ? 0 : tableOffset();
 		final ARGBType bi = new ARGBType();
 
-		// Now we will read the composite component values at the first #steps
-		// x,y
-		// positions.
-		while ( leadCursor.hasNext() && ( --steps ) >= 0 )
+		for ( int y = y0; y < y1; y++ )
 		{
-			int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+			for ( int i = 0; i < size; i++ )
+			{
+				final RandomAccess< A > randomAccess = sourceRandomAccess.get( i );
+				randomAccess.setPosition( origin[ 0 ], 0 );
+				randomAccess.setPosition( origin[ 1 ] + y, 1 );
+			}
+			if ( targetCursor != null )
+			{
+				targetCursor.setPosition( origin[ 0 ], 0 );
+				targetCursor.setPosition( origin[ 1 ] + y, 1 );
+			}
+			int index = y * width;
+			for ( int x = 0; x < width; x++ )
+			{
+				int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+				for ( int i = 0; i < size; i++ )
+				{
+					final RandomAccess< A > randomAccess = sourceRandomAccess.get( i );
+					final int value;
+					if ( tables != null )
+					{
+						value = tables[ i ][ ( int ) ( ( ( IntegerType< ? > ) randomAccess.get() ).getIntegerLong() - offset ) ];
+					}
+					else
+					{
+						channelConverters[ i ].convert( randomAccess.get(), bi );
+						value = bi.get();
+					}
+					randomAccess.fwd( 0 );
 
-			leadCursor.fwd();
+					// accumulate converted result
+					aSum += ARGBType.alpha( value );
+					rSum += ARGBType.red( value );
+					gSum += ARGBType.green( value );
+					bSum += ARGBType.blue( value );
+				}
+				final int argb = composite( aSum, rSum, gSum, bSum );
+				if ( data != null )
+				{
+					data[ index++ ] = argb;
+				}
+				else
+				{
+					targetCursor.get().set( argb );
+					targetCursor.fwd( 0 );
+				}
+			}
+		}
+	}
 
+	/**
+	 * Projects the given target rows straight from byte or short plane arrays
+	 * into the {@link ARGBScreenImage} data array.
+	 */
+	private void mapPlanes( final Object[] planes, final int[][] tables, final int width, final int y0, final int y1 )
+	{
+		final int size = planes.length;
+		final int[] data = ( ( ARGBScreenImage ) raTarget ).getData();
+		final int offset = ( int ) -tableOffset();
+		final int end = y1 * width;
+		if ( size == 1 )
+		{
+			// common case of a single plane needs no compositing
+			final int[] table = tables[ 0 ];
+			if ( planes[ 0 ] instanceof byte[] )
+			{
+				final byte[] plane = ( byte[] ) planes[ 0 ];
+				final int mask = offset == 0 ? 0xff : -1;
+				for ( int index = y0 * width; index < end; index++ )
+					data[ index ] = table[ ( plane[ index ] & mask ) + offset ];
+			}
+			else
+			{
+				final short[] plane = ( short[] ) planes[ 0 ];
+				final int mask = offset == 0 ? 0xffff : -1;
+				for ( int index = y0 * width; index < end; index++ )
+					data[ index ] = table[ ( plane[ index ] & mask ) + offset ];
+			}
+			return;
+		}
+		final boolean bytes = planes[ 0 ] instanceof byte[];
+		final int mask = offset != 0 ? -1 : bytes ? 0xff : 0xffff;
+		for ( int index = y0 * width; index < end; index++ )
+		{
+			int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
 			for ( int i = 0; i < size; i++ )
 			{
-				RandomAccess< A > randomAccess = sourceRandomAccess.get( i );
-				randomAccess.setPosition( leadCursor.getLongPosition( 0 ), 0 );
-				randomAccess.setPosition( leadCursor.getLongPosition( 1 ), 1 );
-				randomAccess.setPosition( currentPositions[ i ], dimIndex );
-
-				currentConverters[ i ].convert( randomAccess.get(), bi );
-
-				// accumulate converted result
-				final int value = bi.get();
-				final int a = ARGBType.alpha( value );
-				final int r = ARGBType.red( value );
-				final int g = ARGBType.green( value );
-				final int b = ARGBType.blue( value );
-				aSum += a;
-				rSum += r;
-				gSum += g;
-				bSum += b;
+				final int raw = bytes ? ( ( byte[] ) planes[ i ] )[ index ] : ( ( short[] ) planes[ i ] )[ index ];
+				final int value = tables[ i ][ ( raw & mask ) + offset ];
+				aSum += ARGBType.alpha( value );
+				rSum += ARGBType.red( value );
+				gSum += ARGBType.green( value );
+				bSum += ARGBType.blue( value );
 			}
-			if ( aSum > 255 )
-				aSum = 255;
-			if ( rSum > 255 )
-				rSum = 255;
-			if ( gSum > 255 )
-				gSum = 255;
-			if ( bSum > 255 )
-				bSum = 255;
-
-			targetCursor.setPosition( leadCursor.getLongPosition( 0 ), 0 );
-			targetCursor.setPosition( leadCursor.getLongPosition( 1 ), 1 );
-			targetCursor.get().set( ARGBType.rgba( rSum, gSum, bSum, aSum ) );
+			data[ index ] = composite( aSum, rSum, gSum, bSum );
 		}
+	}
+
+	private static int composite( int aSum, int rSum, int gSum, int bSum )
+	{
+		if ( aSum > 255 )
+			aSum = 255;
+		if ( rSum > 255 )
+			rSum = 255;
+		if ( gSum > 255 )
+			gSum = 255;
+		if ( bSum > 255 )
+			bSum = 255;
+		return ARGBType.rgba( rSum, gSum, bSum, aSum );
+	}
+
+	/**
+	 * Converts every value of a small integer source type through each
+	 * converter, or returns null when the source type is not suited to that or
+	 * there are too few pixels for it to pay off.
+	 */
+	@SuppressWarnings( { "rawtypes", "unchecked" } )
+	private int[][] tables( final Converter< A, ARGBType >[] channelConverters, final long pixelCount )
+	{
+		final Object type = iraSource.firstElement();
+		if ( !( type instanceof IntegerType ) )
+			return null;
+		// NB - never write into the source's own type, which may be linked to it
+		final IntegerType var = ( IntegerType ) ( ( IntegerType ) type ).createVariable();
+		// NB - the range of 64-bit types overflows a long, so compare as doubles
+		final double range = var.getMaxValue() - var.getMinValue() + 1;
+		if ( range > MAX_TABLE_SIZE || range > pixelCount )
+			return null;
+		final long typeMin = ( long ) var.getMinValue();
+		final int tableSize = ( int ) range;
+		final ARGBType bi = new ARGBType();
+		final int[][] tables = new int[ channelConverters.length ][ tableSize ];
+		for ( int i = 0; i < tables.length; i++ )
+		{
+			for ( int j = 0; j < tableSize; j++ )
+			{
+				var.setInteger( typeMin + j );
+				channelConverters[ i ].convert( ( A ) var, bi );
+				tables[ i ][ j ] = bi.get();
+			}
+		}
+		return tables;
+	}
+
+	/** Gets the source value which maps to the first entry of each table. */
+	private long tableOffset()
+	{
+		return ( long ) ( ( IntegerType< ? > ) iraSource.firstElement() ).getMinValue();
+	}
 
+	/**
+	 * Gets the byte or short arrays holding the composited planes, or null when
+	 * the source is not planar or they cannot be read directly.
+	 */
+	private Object[] planes( final long[] channels, final int tableSize, final int width, final int height )
+	{
+		if ( !( raTarget instanceof ARGBScreenImage ) || !( iraSource instanceof ImgPlus ) )
+			return null;
+		final Img< ? > img = ( ( ImgPlus< ? > ) iraSource ).getImg();
+		if ( !( img instanceof PlanarImg ) )
+			return null;
+		if ( min[ 0 ] != 0 || min[ 1 ] != 0 || img.dimension( 0 ) != width || img.dimension( 1 ) != height )
+			return null;
+		final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) img;
+		final Object[] planes = new Object[ channels.length ];
+		for ( int i = 0; i < channels.length; i++ )
+		{
+			long no = 0, stride = 1;
+			for ( int d = 2; d < img.numDimensions(); d++ )
+			{
+				final long p = d == dimIndex ? channels[ i ] : position[ d ];
+				no += p * stride;
+				stride *= img.dimension( d );
+			}
+			final Object plane = planar.getPlane( ( int ) no ).getCurrentStorageArray();
+			// NB - the table must cover every value the storage can hold
+			final int storageSize = plane instanceof byte[] ? 256 : plane instanceof short[] ? 65536 : -1;
+			if ( storageSize != tableSize )
+				return null;
+			if ( i > 0 && plane.getClass() != planes[ 0 ].getClass() )
+				return null;
+			planes[ i ] = plane;
+		}
+		return planes;
 	}
 
 }
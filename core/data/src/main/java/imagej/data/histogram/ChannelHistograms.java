@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.histogram;
+
+import net.imglib2.histogram.Histogram1d;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * The histograms of each channel of a dataset plus the histogram of its
+ * composite values (the average of the channel values at each point). All
+ * histograms share the same bins. The composite histogram is numbered after
+ * the channels, i.e. at index {@link #getChannelCount()}.
+ * 
+ * @see HistogramService#getChannelHistograms
+ */
+public class ChannelHistograms<T extends RealType<T>> {
+
+	// -- instance variables --
+
+	private final Histogram1d<T>[] histograms;
+	private final double[] mins, maxes, means, stdDevs;
+	private final long pixelCount;
+	private final double dataMin, dataMax, binWidth;
+
+	// -- constructor --
+
+	ChannelHistograms(final Histogram1d<T>[] histograms, final double[] mins,
+		final double[] maxes, final double[] sums, final double[] sumsOfSquares,
+		final long pixelCount, final double dataMin, final double dataMax,
+		final double binWidth)
+	{
+		this.histograms = histograms;
+		this.mins = mins;
+		this.maxes = maxes;
+		this.pixelCount = pixelCount;
+		this.dataMin = dataMin;
+		this.dataMax = dataMax;
+		this.binWidth = binWidth;
+		means = new double[histograms.length];
+		stdDevs = new double[histograms.length];
+		for (int i = 0; i < histograms.length; i++) {
+			means[i] = sums[i] / pixelCount;
+			stdDevs[i] =
+				Math.sqrt((sumsOfSquares[i] - ((sums[i] * sums[i]) / pixelCount)) /
+					(pixelCount - 1));
+		}
+	}
+
+	// -- ChannelHistograms methods --
+
+	/** Returns the number of channels. */
+	public int getChannelCount() {
+		return histograms.length - 1;
+	}
+
+	/**
+	 * Returns the histogram of a channel, or the composite histogram when given
+	 * the channel count.
+	 */
+	public Histogram1d<T> getHistogram(final int index) {
+		return histograms[index];
+	}
+
+	/** Returns the histogram of the channel averaged values. */
+	public Histogram1d<T> getCompositeHistogram() {
+		return histograms[histograms.length - 1];
+	}
+
+	/** Returns the smallest value counted by a histogram. */
+	public double getMin(final int index) {
+		return mins[index];
+	}
+
+	/** Returns the largest value counted by a histogram. */
+	public double getMax(final int index) {
+		return maxes[index];
+	}
+
+	/** Returns the mean of the values counted by a histogram. */
+	public double getMean(final int index) {
+		return means[index];
+	}
+
+	/** Returns the sample standard deviation of a histogram's values. */
+	public double getStdDev(final int index) {
+		return stdDevs[index];
+	}
+
+	/** Returns the number of points (not samples) in each channel. */
+	public long getPixelCount() {
+		return pixelCount;
+	}
+
+	/** Returns the smallest value over all channels. */
+	public double getDataMin() {
+		return dataMin;
+	}
+
+	/** Returns the largest value over all channels. */
+	public double getDataMax() {
+		return dataMax;
+	}
+
+	/** Returns the number of bins of each histogram. */
+	public long getBinCount() {
+		return histograms[0].getBinCount();
+	}
+
+	/** Returns the width of each bin. */
+	public double getBinWidth() {
+		return binWidth;
+	}
+
+}
@@ -0,0 +1,685 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.histogram;
+
+import imagej.data.Dataset;
+import imagej.data.autoscale.DataRange;
+import imagej.data.event.DatasetDeletedEvent;
+import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.histogram.BinMapper1d;
+import net.imglib2.histogram.Histogram1d;
+import net.imglib2.histogram.Real1dBinMapper;
+import net.imglib2.img.Img;
+import net.imglib2.meta.Axes;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+import org.scijava.event.EventHandler;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Default service for building histograms of image data.
+ */
+@Plugin(type = Service.class)
+public class DefaultHistogramService extends AbstractService implements
+	HistogramService
+{
+
+	// -- Constants --
+
+	/** Intervals smaller than this are not worth handing to another thread. */
+	private static final long MIN_CHUNK_SIZE = 65536;
+
+	/** Integer types with at most this many values are counted by value. */
+	private static final long MAX_EXACT_VALUES = 65536;
+
+	/** Bin counts used by {@link #getChannelHistograms(Dataset)}. */
+	private static final long MAX_INTEGER_BINS = 65536, FLOAT_BINS = 1000;
+
+	/**
+	 * Approximate number of bytes of results cached per dataset. Results used
+	 * least recently are dropped first, so that requesting the histograms of a
+	 * large stack plane by plane does not keep all of them alive.
+	 */
+	private static final long MAX_CACHED_BYTES = 16 << 20;
+
+	/** Gathers moments only. */
+	private static final Binning NO_BINS = new Binning(0, 1, 0);
+
+	// -- Parameters --
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
+	// -- Fields --
+
+	/** Cached results, dropped when their dataset changes or goes away. */
+	private final Map<Dataset, CacheEntry> cache =
+		new WeakHashMap<Dataset, CacheEntry>();
+
+	// -- HistogramService methods --
+
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public DataRange getRange(
+		final IterableInterval<? extends RealType<?>> interval)
+	{
+		final List list = Collections.singletonList(interval);
+		return range(interval.firstElement(), countAll(list, false, NO_BINS));
+	}
+
+	@Override
+	public <T extends RealType<T>> Histogram1d<T> getHistogram(
+		final IterableInterval<T> interval, final long binCount)
+	{
+		final T type = interval.firstElement();
+		if (!countsByValue(type)) {
+			final DataRange range = getRange(interval);
+			return getHistogram(interval, new Real1dBinMapper<T>(range.getMin(),
+				range.getMax(), binCount, false));
+		}
+		// NB - the counts by value give the range and the histogram in one pass
+		final Partial counts =
+			countAll(Collections.singletonList(interval), false, byValue(type));
+		final DataRange range = range(type, counts);
+		final Real1dBinMapper<T> mapper =
+			new Real1dBinMapper<T>(range.getMin(), range.getMax(), binCount, false);
+		return rebin(counts.bins[0], type.getMinValue(), mapper, type
+			.createVariable());
+	}
+
+	@Override
+	public <T extends RealType<T>> Histogram1d<T> getHistogram(
+		final IterableInterval<T> interval, final BinMapper1d<T> mapper)
+	{
+		final T type = interval.firstElement();
+		if (countsByValue(type)) {
+			final Partial counts =
+				countAll(Collections.singletonList(interval), false, byValue(type));
+			return rebin(counts.bins[0], type.getMinValue(), mapper, type
+				.createVariable());
+		}
+		return histogram(mapper, countMapped(interval, mapper));
+	}
+
+	@Override
+	public DataRange getRange(final Dataset ds, final long[] min,
+		final long[] max)
+	{
+		final CacheEntry entries = entries(ds);
+		final String key = "range" + region(min, max);
+		DataRange range = (DataRange) entries.get(key);
+		if (range == null) {
+			range = range(entries, ds, min, max);
+			entries.put(key, range);
+		}
+		return range;
+	}
+
+	@Override
+	public <T extends RealType<T>> Histogram1d<T> getHistogram(
+		final Dataset ds, final long[] min, final long[] max,
+		final DataRange range, final long binCount)
+	{
+		final CacheEntry entries = entries(ds);
+		final String key =
+			"histogram" + region(min, max) + range.getMin() + ":" + range.getMax() +
+				":" + binCount;
+		@SuppressWarnings("unchecked")
+		Histogram1d<T> histogram = (Histogram1d<T>) entries.get(key);
+		if (histogram == null) {
+			final IterableInterval<T> data = data(ds, min, max);
+			final T type = data.firstElement();
+			final Real1dBinMapper<T> mapper =
+				new Real1dBinMapper<T>(range.getMin(), range.getMax(), binCount,
+					false);
+			if (countsByValue(type)) {
+				histogram =
+					rebin(valueCounts(entries, data, min, max), type.getMinValue(),
+						mapper, type.createVariable());
+			}
+			else histogram = getHistogram(data, mapper);
+			entries.put(key, histogram);
+		}
+		return histogram;
+	}
+
+	@Override
+	public <T extends RealType<T>> ChannelHistograms<T> getChannelHistograms(
+		final Dataset ds)
+	{
+		final CacheEntry entries = entries(ds);
+		@SuppressWarnings("unchecked")
+		ChannelHistograms<T> histograms =
+			(ChannelHistograms<T>) entries.get("channels");
+		if (histograms == null) {
+			histograms = channelHistograms(ds);
+			entries.put("channels", histograms);
+		}
+		return histograms;
+	}
+
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final DatasetUpdatedEvent evt) {
+		if (!evt.isMetaDataOnly()) uncache(evt.getObject());
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetRestructuredEvent evt) {
+		uncache(evt.getObject());
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetDeletedEvent evt) {
+		uncache(evt.getObject());
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T>> ChannelHistograms<T> channelHistograms(
+		final Dataset ds)
+	{
+		@SuppressWarnings("unchecked")
+		final Img<T> img = (Img<T>) ds.getImgPlus();
+		final int chIndex = ds.dimensionIndex(Axes.CHANNEL);
+		final int channels = chIndex < 0 ? 1 : (int) ds.dimension(chIndex);
+		final List<IterableInterval<T>> views =
+			new ArrayList<IterableInterval<T>>();
+		if (chIndex < 0) views.add(img);
+		else {
+			for (int c = 0; c < channels; c++) {
+				views.add(Views.iterable(Views.hyperSlice(img, chIndex, c)));
+			}
+		}
+		final T type = img.firstElement();
+
+		final Partial counts;
+		final long[][] bins = new long[channels + 1][];
+		double dataMin, dataMax;
+		final long binCount;
+		final double binWidth;
+		if (countsByValue(type)) {
+			// one pass: count by value then crop to the data range
+			counts = countAll(views, true, byValue(type));
+			dataMin = min(counts.mins, channels);
+			dataMax = max(counts.maxes, channels);
+			if (dataMin > dataMax) dataMin = dataMax = 0;
+			binCount = (long) (dataMax - dataMin) + 1;
+			binWidth = 1;
+			final int offset = (int) (dataMin - type.getMinValue());
+			for (int i = 0; i < bins.length; i++) {
+				bins[i] =
+					Arrays.copyOfRange(counts.bins[i], offset, offset + (int) binCount);
+			}
+		}
+		else {
+			// two passes: find the data range then count into bins
+			final Partial range = countAll(views, false, NO_BINS);
+			dataMin = min(range.mins, channels);
+			dataMax = max(range.maxes, channels);
+			if (dataMin > dataMax) dataMin = dataMax = 0;
+			double dataRange = dataMax - dataMin;
+			if (ds.isInteger()) {
+				dataRange += 1;
+				if (dataRange <= MAX_INTEGER_BINS) {
+					binCount = (long) dataRange;
+					binWidth = 1;
+				}
+				else {
+					binCount = MAX_INTEGER_BINS;
+					binWidth = dataRange / binCount;
+				}
+			}
+			else {
+				binCount = FLOAT_BINS;
+				binWidth = dataRange / binCount;
+			}
+			counts =
+				countAll(views, true, new Binning(dataMin, binWidth, (int) binCount));
+			for (int i = 0; i < bins.length; i++) {
+				bins[i] = counts.bins[i];
+			}
+		}
+
+		final Real1dBinMapper<T> mapper =
+			new Real1dBinMapper<T>(dataMin, dataMax, binCount, false);
+		@SuppressWarnings("unchecked")
+		final Histogram1d<T>[] histograms = new Histogram1d[bins.length];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = histogram(mapper, bins[i]);
+		}
+		return new ChannelHistograms<T>(histograms, counts.mins, counts.maxes,
+			counts.sums, counts.sumsOfSquares, views.get(0).size(), dataMin,
+			dataMax, binWidth);
+	}
+
+	/**
+	 * Returns the cached results of a dataset, discarding them if the dataset
+	 * has changed since they were computed.
+	 */
+	private CacheEntry entries(final Dataset ds) {
+		synchronized (cache) {
+			final long version = ds.getVersion();
+			CacheEntry entry = cache.get(ds);
+			if (entry == null || entry.version != version) {
+				entry = new CacheEntry(version);
+				cache.put(ds, entry);
+			}
+			return entry;
+		}
+	}
+
+	private void uncache(final Dataset ds) {
+		synchronized (cache) {
+			cache.remove(ds);
+		}
+	}
+
+	private String region(final long[] min, final long[] max) {
+		if (min == null || max == null) return ":all:";
+		return ":" + Arrays.toString(min) + Arrays.toString(max) + ":";
+	}
+
+	private <T extends RealType<T>> IterableInterval<T> data(final Dataset ds,
+		final long[] min, final long[] max)
+	{
+		@SuppressWarnings("unchecked")
+		final Img<T> img = (Img<T>) ds.getImgPlus();
+		if (min == null || max == null) return img;
+		return Views.iterable(Views.interval(img, min, max));
+	}
+
+	private <T extends RealType<T>> DataRange range(
+		final CacheEntry entries, final Dataset ds, final long[] min,
+		final long[] max)
+	{
+		final IterableInterval<T> data = data(ds, min, max);
+		final T type = data.firstElement();
+		if (countsByValue(type)) {
+			return range(type, valueCounts(entries, data, min, max));
+		}
+		return getRange(data);
+	}
+
+	/** Gets the counts by value of a region, counting them if needed. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private long[] valueCounts(final CacheEntry entries,
+		final IterableInterval<? extends RealType<?>> data, final long[] min,
+		final long[] max)
+	{
+		final String key = "counts" + region(min, max);
+		long[] counts = (long[]) entries.get(key);
+		if (counts == null) {
+			final List list = Collections.singletonList(data);
+			counts = countAll(list, false, byValue(data.firstElement())).bins[0];
+			entries.put(key, counts);
+		}
+		return counts;
+	}
+
+	/** Derives the range of a region from its counts by value. */
+	private DataRange range(final RealType<?> type, final long[] counts) {
+		int first = 0;
+		while (first < counts.length && counts[first] == 0) first++;
+		int last = counts.length - 1;
+		while (last > first && counts[last] == 0) last--;
+		if (first >= last) {
+			return new DataRange(type.getMinValue(), type.getMaxValue());
+		}
+		return new DataRange(type.getMinValue() + first, type.getMinValue() +
+			last);
+	}
+
+	private boolean countsByValue(final RealType<?> type) {
+		return type instanceof IntegerType &&
+			type.getMaxValue() - type.getMinValue() + 1 <= MAX_EXACT_VALUES;
+	}
+
+	private Binning byValue(final RealType<?> type) {
+		return new Binning(type.getMinValue(), 1, (int) (type.getMaxValue() -
+			type.getMinValue() + 1));
+	}
+
+	/** Never returns a range of zero extent (as the default autoscaling). */
+	private DataRange range(final RealType<?> type, final Partial counts) {
+		double min = counts.mins[0];
+		double max = counts.maxes[0];
+		if (min >= max) {
+			min = type.getMinValue();
+			max = type.getMaxValue();
+		}
+		return new DataRange(min, max);
+	}
+
+	private double min(final double[] values, final int count) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			if (values[i] < min) min = values[i];
+		}
+		return min;
+	}
+
+	private double max(final double[] values, final int count) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			if (values[i] > max) max = values[i];
+		}
+		return max;
+	}
+
+	/** Maps counts by value into the bins of a mapper. */
+	private <T extends RealType<T>> Histogram1d<T> rebin(
+		final long[] valueCounts, final double origin,
+		final BinMapper1d<T> mapper, final T variable)
+	{
+		final long[] bins = new long[(int) mapper.getBinCount()];
+		for (int i = 0; i < valueCounts.length; i++) {
+			if (valueCounts[i] == 0) continue;
+			variable.setReal(origin + i);
+			final long bin = mapper.map(variable);
+			if (bin >= 0 && bin < bins.length) bins[(int) bin] += valueCounts[i];
+		}
+		return histogram(mapper, bins);
+	}
+
+	private <T> Histogram1d<T> histogram(final BinMapper1d<T> mapper,
+		final long[] bins)
+	{
+		final Histogram1d<T> histogram = new Histogram1d<T>(mapper);
+		final long[] binPos = new long[1];
+		for (int i = 0; i < bins.length; i++) {
+			if (bins[i] == 0) continue;
+			binPos[0] = i;
+			histogram.dfd().setFrequency(binPos, bins[i]);
+		}
+		return histogram;
+	}
+
+	private int chunkCount(final long size) {
+		if (threadService == null) return 1;
+		final long chunks = Math.max(1, size / MIN_CHUNK_SIZE);
+		return (int) Math.min(Runtime.getRuntime().availableProcessors(), chunks);
+	}
+
+	/**
+	 * Counts a set of equally iterated intervals (e.g. the channels of an image)
+	 * and optionally their average, splitting the iteration into one chunk per
+	 * thread. Partial results are merged in chunk order.
+	 */
+	private <T extends RealType<T>> Partial countAll(
+		final List<IterableInterval<T>> intervals, final boolean composite,
+		final Binning binning)
+	{
+		final long size = intervals.get(0).size();
+		final int chunkCount = chunkCount(size);
+		if (chunkCount <= 1) return count(intervals, composite, binning, 0, size);
+		final List<Future<Partial>> futures = new ArrayList<Future<Partial>>();
+		long start = 0;
+		for (int i = 0; i < chunkCount; i++) {
+			final long first = start;
+			final long length = size / chunkCount + (i < size % chunkCount ? 1 : 0);
+			start += length;
+			futures.add(threadService.run(new Callable<Partial>() {
+
+				@Override
+				public Partial call() {
+					return count(intervals, composite, binning, first, length);
+				}
+			}));
+		}
+		Partial result = null;
+		for (final Partial partial : results(futures)) {
+			if (result == null) result = partial;
+			else result.merge(partial);
+		}
+		return result;
+	}
+
+	private <T extends RealType<T>> Partial count(
+		final List<IterableInterval<T>> intervals, final boolean composite,
+		final Binning binning, final long start, final long length)
+	{
+		final int n = intervals.size();
+		final Partial partial = new Partial(composite ? n + 1 : n, binning.binCount);
+		final List<Cursor<T>> cursors = new ArrayList<Cursor<T>>();
+		for (final IterableInterval<T> interval : intervals) {
+			final Cursor<T> cursor = interval.cursor();
+			cursor.jumpFwd(start);
+			cursors.add(cursor);
+		}
+		for (long i = 0; i < length; i++) {
+			double sum = 0;
+			for (int c = 0; c < n; c++) {
+				final double value = cursors.get(c).next().getRealDouble();
+				partial.add(c, value, binning);
+				sum += value;
+			}
+			if (composite) partial.add(n, sum / n, binning);
+		}
+		return partial;
+	}
+
+	/** Counts an interval into the bins of a mapper, one chunk per thread. */
+	private <T extends RealType<T>> long[] countMapped(
+		final IterableInterval<T> interval, final BinMapper1d<T> mapper)
+	{
+		final long size = interval.size();
+		final int chunkCount = chunkCount(size);
+		if (chunkCount <= 1) return countMapped(interval, mapper, 0, size);
+		final List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+		long start = 0;
+		for (int i = 0; i < chunkCount; i++) {
+			final long first = start;
+			final long length = size / chunkCount + (i < size % chunkCount ? 1 : 0);
+			start += length;
+			futures.add(threadService.run(new Callable<long[]>() {
+
+				@Override
+				public long[] call() {
+					return countMapped(interval, mapper, first, length);
+				}
+			}));
+		}
+		final List<long[]> partials = results(futures);
+		final long[] bins = partials.get(0);
+		for (int i = 1; i < partials.size(); i++) {
+			final long[] partial = partials.get(i);
+			for (int b = 0; b < bins.length; b++) {
+				bins[b] += partial[b];
+			}
+		}
+		return bins;
+	}
+
+	private <T extends RealType<T>> long[] countMapped(
+		final IterableInterval<T> interval, final BinMapper1d<T> mapper,
+		final long start, final long length)
+	{
+		final long[] bins = new long[(int) mapper.getBinCount()];
+		final Cursor<T> cursor = interval.cursor();
+		cursor.jumpFwd(start);
+		for (long i = 0; i < length; i++) {
+			final long bin = mapper.map(cursor.next());
+			if (bin >= 0 && bin < bins.length) bins[(int) bin]++;
+		}
+		return bins;
+	}
+
+	private <R> List<R> results(final List<Future<R>> futures) {
+		final List<R> results = new ArrayList<R>();
+		try {
+			for (final Future<R> future : futures) {
+				results.add(future.get());
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("histogram computation interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("histogram computation failed", e
+				.getCause());
+		}
+		return results;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * The results computed from one version of a dataset, limited to
+	 * {@link #MAX_CACHED_BYTES}. The most recent result is always kept.
+	 */
+	private static class CacheEntry {
+
+		private final long version;
+		private final LinkedHashMap<String, Object> values =
+			new LinkedHashMap<String, Object>(16, 0.75f, true);
+		private long bytes;
+
+		public CacheEntry(final long version) {
+			this.version = version;
+		}
+
+		public synchronized Object get(final String key) {
+			return values.get(key);
+		}
+
+		public synchronized void put(final String key, final Object value) {
+			final Object old = values.put(key, value);
+			if (old != null) bytes -= sizeOf(old);
+			bytes += sizeOf(value);
+			final Iterator<Object> iter = values.values().iterator();
+			while (bytes > MAX_CACHED_BYTES && values.size() > 1) {
+				bytes -= sizeOf(iter.next());
+				iter.remove();
+			}
+		}
+
+		/** Estimates the memory held by a cached result. */
+		private static long sizeOf(final Object value) {
+			if (value instanceof long[]) return 8L * ((long[]) value).length;
+			if (value instanceof Histogram1d) {
+				return 8L * ((Histogram1d<?>) value).getBinCount();
+			}
+			if (value instanceof ChannelHistograms) {
+				final ChannelHistograms<?> histograms = (ChannelHistograms<?>) value;
+				return 8L * histograms.getBinCount() *
+					(histograms.getChannelCount() + 1);
+			}
+			return 64;
+		}
+	}
+
+	/** Maps values to bins of equal width starting at an origin. */
+	private static class Binning {
+
+		private final double origin;
+		private final double width;
+		private final int binCount;
+
+		public Binning(final double origin, final double width,
+			final int binCount)
+		{
+			this.origin = origin;
+			this.width = width;
+			this.binCount = binCount;
+		}
+
+		public int bin(final double value) {
+			// NB - the largest value of a float range lands one past the end
+			final long bin = (long) ((value - origin) / width);
+			if (bin >= binCount) return binCount - 1;
+			return bin < 0 ? 0 : (int) bin;
+		}
+	}
+
+	/** The bins and moments of one or more series of values. */
+	private static class Partial {
+
+		private final long[][] bins;
+		private final double[] mins, maxes, sums, sumsOfSquares;
+
+		public Partial(final int series, final int binCount) {
+			bins = new long[series][binCount];
+			mins = new double[series];
+			maxes = new double[series];
+			sums = new double[series];
+			sumsOfSquares = new double[series];
+			Arrays.fill(mins, Double.POSITIVE_INFINITY);
+			Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+		}
+
+		public void add(final int s, final double value, final Binning binning) {
+			if (binning.binCount > 0) bins[s][binning.bin(value)]++;
+			if (value < mins[s]) mins[s] = value;
+			if (value > maxes[s]) maxes[s] = value;
+			sums[s] += value;
+			sumsOfSquares[s] += value * value;
+		}
+
+		public void merge(final Partial other) {
+			for (int s = 0; s < bins.length; s++) {
+				for (int b = 0; b < bins[s].length; b++) {
+					bins[s][b] += other.bins[s][b];
+				}
+				mins[s] = Math.min(mins[s], other.mins[s]);
+				maxes[s] = Math.max(maxes[s], other.maxes[s]);
+				sums[s] += other.sums[s];
+				sumsOfSquares[s] += other.sumsOfSquares[s];
+			}
+		}
+	}
+
+}
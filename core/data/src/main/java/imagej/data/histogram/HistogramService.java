@@ -0,0 +1,105 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.histogram;
+
+import imagej.data.Dataset;
+import imagej.data.autoscale.DataRange;
+import imagej.service.ImageJService;
+import net.imglib2.IterableInterval;
+import net.imglib2.histogram.BinMapper1d;
+import net.imglib2.histogram.Histogram1d;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A service for building histograms of image data. Data is visited in
+ * parallel, each thread counting into its own partial histogram, and the
+ * partial results are merged at the end.
+ * <p>
+ * Integer data with at most 65536 possible values is counted by value in a
+ * single pass. The data range and any binning are then derived from those
+ * counts, so no separate pass is needed to find the minimum and maximum.
+ * </p>
+ * <p>
+ * Results computed from a {@link Dataset} are cached until the dataset's
+ * {@link Dataset#getVersion() version} changes. The cache of each dataset is
+ * bounded, dropping the results used least recently first. Cached histograms
+ * are shared and must not be modified.
+ * </p>
+ */
+public interface HistogramService extends ImageJService {
+
+	/**
+	 * Returns the range of the values of an {@link IterableInterval}. If all
+	 * values are equal the range of the type is returned instead, so the range
+	 * never has zero extent.
+	 */
+	DataRange getRange(IterableInterval<? extends RealType<?>> interval);
+
+	/**
+	 * Builds a histogram of an {@link IterableInterval} with the given number of
+	 * bins evenly spanning the range returned by {@link #getRange}.
+	 */
+	<T extends RealType<T>> Histogram1d<T> getHistogram(
+		IterableInterval<T> interval, long binCount);
+
+	/**
+	 * Builds a histogram of an {@link IterableInterval} whose bins are defined
+	 * by the given {@link BinMapper1d}. Values the mapper does not place in a
+	 * bin are not counted.
+	 */
+	<T extends RealType<T>> Histogram1d<T> getHistogram(
+		IterableInterval<T> interval, BinMapper1d<T> mapper);
+
+	/**
+	 * Returns the range of the values within a region of a {@link Dataset}, as
+	 * {@link #getRange(IterableInterval)}. The region is given by its minimum
+	 * and maximum positions; if they are null the whole dataset is used.
+	 */
+	DataRange getRange(Dataset ds, long[] min, long[] max);
+
+	/**
+	 * Builds a histogram of a region of a {@link Dataset} with the given number
+	 * of bins evenly spanning the given range. The region is given by its
+	 * minimum and maximum positions; if they are null the whole dataset is
+	 * used.
+	 */
+	<T extends RealType<T>> Histogram1d<T> getHistogram(Dataset ds,
+		long[] min, long[] max, DataRange range, long binCount);
+
+	/**
+	 * Builds histograms of each channel of a {@link Dataset} and of its
+	 * composite (channel averaged) values along with their basic moments.
+	 */
+	<T extends RealType<T>> ChannelHistograms<T> getChannelHistograms(
+		Dataset ds);
+
+}
@@ -32,55 +32,52 @@
 package imagej.data.measure;
 
 import imagej.data.Dataset;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.meta.IntervalUtils;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.function.real.RealAlphaTrimmedMeanFunction;
-import net.imglib2.ops.function.real.RealArithmeticMeanFunction;
 import net.imglib2.ops.function.real.RealContraharmonicMeanFunction;
 import net.imglib2.ops.function.real.RealGeometricMeanFunction;
 import net.imglib2.ops.function.real.RealHarmonicMeanFunction;
 import net.imglib2.ops.function.real.RealImageFunction;
-import net.imglib2.ops.function.real.RealMaxFunction;
 import net.imglib2.ops.function.real.RealMedianFunction;
-import net.imglib2.ops.function.real.RealMidpointFunction;
-import net.imglib2.ops.function.real.RealMinFunction;
-import net.imglib2.ops.function.real.RealPopulationKurtosisExcessFunction;
-import net.imglib2.ops.function.real.RealPopulationKurtosisFunction;
-import net.imglib2.ops.function.real.RealPopulationSkewFunction;
-import net.imglib2.ops.function.real.RealPopulationStdDevFunction;
-import net.imglib2.ops.function.real.RealPopulationVarianceFunction;
 import net.imglib2.ops.function.real.RealProductFunction;
-import net.imglib2.ops.function.real.RealSampleKurtosisExcessFunction;
-import net.imglib2.ops.function.real.RealSampleKurtosisFunction;
-import net.imglib2.ops.function.real.RealSampleSkewFunction;
-import net.imglib2.ops.function.real.RealSampleStdDevFunction;
-import net.imglib2.ops.function.real.RealSampleVarianceFunction;
-import net.imglib2.ops.function.real.RealSumFunction;
-import net.imglib2.ops.function.real.RealSumOfSquaredDeviationsFunction;
 import net.imglib2.ops.function.real.RealTrimmedMeanFunction;
 import net.imglib2.ops.function.real.RealWeightedAverageFunction;
 import net.imglib2.ops.function.real.RealWeightedSumFunction;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
 
+import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 
-// TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// NOTE - the individual methods of this service each visit the pixels once.
+// When more than one statistic is desired use statistics() or accumulate()
+// which gather everything in a single pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -96,12 +93,26 @@ public class DefaultStatisticsService extends AbstractService implements
 	StatisticsService
 {
 
+	// -- Constants --
+
+	/**
+	 * Number of samples measured by each task. Tasks are sized independently of
+	 * the thread count so that results do not vary with the number of threads.
+	 */
+	private static final long CHUNK_SIZE = 65536;
+
+	/** Number of coordinates gathered at a time from an arbitrary region. */
+	private static final int BLOCK_SIZE = 16384;
+
 	// -- Parameters --
 
 	// later
 	// @Parameter
 	// private MeasurementService mSrv;
 
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	// -- StatisticsService methods --
 
 	@Override
@@ -121,10 +132,7 @@ public double alphaTrimmedMean(final Dataset ds, final double alpha) {
 
 	@Override
 	public double arithmeticMean(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealArithmeticMeanFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.ARITHMETIC_MEAN);
 	}
 
 	@Override
@@ -175,10 +183,7 @@ public double harmonicMean(final Dataset ds) {
 
 	@Override
 	public double maximum(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealMaxFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.MAXIMUM);
 	}
 
 	@Override
@@ -201,10 +206,7 @@ public double median(final Dataset ds) {
 
 	@Override
 	public double midpoint(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealMidpointFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.MIDPOINT);
 	}
 
 	@Override
@@ -214,10 +216,7 @@ public double midpoint(final Dataset ds) {
 
 	@Override
 	public double minimum(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealMinFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.MINIMUM);
 	}
 
 	@Override
@@ -227,10 +226,7 @@ public double minimum(final Dataset ds) {
 
 	@Override
 	public double populationKurtosis(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealPopulationKurtosisFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.POPULATION_KURTOSIS);
 	}
 
 	@Override
@@ -242,10 +238,7 @@ public double populationKurtosis(final Dataset ds) {
 	public double
 		populationKurtosisExcess(final Dataset ds, final PointSet region)
 	{
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealPopulationKurtosisExcessFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.POPULATION_KURTOSIS_EXCESS);
 	}
 
 	@Override
@@ -255,10 +248,7 @@ public double populationKurtosisExcess(final Dataset ds) {
 
 	@Override
 	public double populationSkew(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealPopulationSkewFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.POPULATION_SKEW);
 	}
 
 	@Override
@@ -268,10 +258,7 @@ public double populationSkew(final Dataset ds) {
 
 	@Override
 	public double populationStdDev(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealPopulationStdDevFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.POPULATION_STD_DEV);
 	}
 
 	@Override
@@ -281,10 +268,7 @@ public double populationStdDev(final Dataset ds) {
 
 	@Override
 	public double populationVariance(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealPopulationVarianceFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.POPULATION_VARIANCE);
 	}
 
 	@Override
@@ -307,10 +291,7 @@ public double product(final Dataset ds) {
 
 	@Override
 	public double sampleKurtosis(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSampleKurtosisFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SAMPLE_KURTOSIS);
 	}
 
 	@Override
@@ -320,10 +301,7 @@ public double sampleKurtosis(final Dataset ds) {
 
 	@Override
 	public double sampleKurtosisExcess(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSampleKurtosisExcessFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SAMPLE_KURTOSIS_EXCESS);
 	}
 
 	@Override
@@ -333,10 +311,7 @@ public double sampleKurtosisExcess(final Dataset ds) {
 
 	@Override
 	public double sampleSkew(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSampleSkewFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SAMPLE_SKEW);
 	}
 
 	@Override
@@ -346,10 +321,7 @@ public double sampleSkew(final Dataset ds) {
 
 	@Override
 	public double sampleStdDev(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSampleStdDevFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SAMPLE_STD_DEV);
 	}
 
 	@Override
@@ -359,10 +331,7 @@ public double sampleStdDev(final Dataset ds) {
 
 	@Override
 	public double sampleVariance(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSampleVarianceFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SAMPLE_VARIANCE);
 	}
 
 	@Override
@@ -372,10 +341,7 @@ public double sampleVariance(final Dataset ds) {
 
 	@Override
 	public double sum(final Dataset ds, final PointSet region) {
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSumFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SUM);
 	}
 
 	@Override
@@ -386,10 +352,7 @@ public double sum(final Dataset ds) {
 	@Override
 	public double sumOfSquaredDeviations(final Dataset ds, final PointSet region)
 	{
-		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
-		final Function<PointSet, DoubleType> func =
-			new RealSumOfSquaredDeviationsFunction<DoubleType>(imgFunc);
-		return measure(func, region);
+		return statistic(ds, region, Statistic.SUM_OF_SQUARED_DEVIATIONS);
 	}
 
 	@Override
@@ -430,6 +393,73 @@ public double weightedSum(final Dataset ds, final PointSet region,
 		return measure(func, region);
 	}
 
+	@Override
+	public Map<Statistic, Double> statistics(final Dataset ds,
+		final PointSet region, final Set<Statistic> stats)
+	{
+		return statistics(ds, region, stats, defaultThreadCount());
+	}
+
+	@Override
+	public Map<Statistic, Double> statistics(final Dataset ds,
+		final Set<Statistic> stats)
+	{
+		return statistics(ds, allOf(ds), stats);
+	}
+
+	@Override
+	public Map<Statistic, Double> statistics(final Dataset ds,
+		final PointSet region, final Set<Statistic> stats, final int numThreads)
+	{
+		final StatisticsAccumulator acc =
+			accumulate(ds, region, stats, numThreads);
+		final Map<Statistic, Double> results =
+			new EnumMap<Statistic, Double>(Statistic.class);
+		for (final Statistic stat : stats) {
+			results.put(stat, acc.get(stat));
+		}
+		return results;
+	}
+
+	@Override
+	public StatisticsAccumulator accumulate(final Dataset ds,
+		final PointSet region, final boolean retainValues)
+	{
+		return accumulate(ds, region, retainValues, defaultThreadCount());
+	}
+
+	@Override
+	public StatisticsAccumulator accumulate(final Dataset ds,
+		final PointSet region, final boolean retainValues, final int numThreads)
+	{
+		return accumulate(ds, region, new StatisticsAccumulator(retainValues)
+			.getStatistics(), numThreads);
+	}
+
+	@Override
+	public StatisticsAccumulator accumulate(final Dataset ds,
+		final PointSet region, final Set<Statistic> stats, final int numThreads)
+	{
+		final Img<? extends RealType<?>> img = ds.getImgPlus();
+		final Iterator<Callable<StatisticsAccumulator>> tasks;
+		if (spansAll(img, region)) tasks = cursorChunks(img, stats);
+		else if (region instanceof HyperVolumePointSet) {
+			tasks = slabs(img, region, stats);
+		}
+		else tasks = blocks(img, region, stats);
+		try {
+			return mergeInOrder(tasks, stats, numThreads);
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("statistics computation interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("statistics computation failed", e
+				.getCause());
+		}
+	}
+
 	@Override
 	public PointSet allOf(final Dataset ds) {
 		return new HyperVolumePointSet(IntervalUtils.getDims(ds));
@@ -437,12 +467,251 @@ public PointSet allOf(final Dataset ds) {
 
 	// -- private helpers --
 
+	private int defaultThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	private double statistic(final Dataset ds, final PointSet region,
+		final Statistic stat)
+	{
+		return accumulate(ds, region, EnumSet.of(stat), defaultThreadCount()).get(
+			stat);
+	}
+
+	/**
+	 * Runs the given tasks on at most {@code numThreads} threads and merges
+	 * their partial results in task order. The tasks themselves never depend
+	 * on the thread count, so neither does the (floating point) outcome.
+	 */
+	private StatisticsAccumulator mergeInOrder(
+		final Iterator<Callable<StatisticsAccumulator>> tasks,
+		final Set<Statistic> stats, final int numThreads)
+		throws InterruptedException, ExecutionException
+	{
+		final StatisticsAccumulator result = new StatisticsAccumulator(stats);
+		if (numThreads <= 1 || threadService == null) {
+			while (tasks.hasNext()) {
+				result.merge(call(tasks.next()));
+			}
+			return result;
+		}
+		final Queue<Future<StatisticsAccumulator>> pending =
+			new LinkedList<Future<StatisticsAccumulator>>();
+		try {
+			while (tasks.hasNext()) {
+				if (pending.size() == numThreads) result.merge(pending.remove().get());
+				pending.add(threadService.run(tasks.next()));
+			}
+			while (!pending.isEmpty()) {
+				result.merge(pending.remove().get());
+			}
+		}
+		finally {
+			for (final Future<StatisticsAccumulator> future : pending) {
+				future.cancel(true);
+			}
+		}
+		return result;
+	}
+
+	private StatisticsAccumulator call(final Callable<StatisticsAccumulator> task)
+	{
+		try {
+			return task.call();
+		}
+		catch (final RuntimeException e) {
+			throw e;
+		}
+		catch (final Exception e) {
+			throw new IllegalStateException("statistics computation failed", e);
+		}
+	}
+
+	/**
+	 * Splits the iteration order of the whole image into contiguous chunks of
+	 * {@link #CHUNK_SIZE} samples.
+	 */
+	private Iterator<Callable<StatisticsAccumulator>> cursorChunks(
+		final Img<? extends RealType<?>> img, final Set<Statistic> stats)
+	{
+		final long size = img.size();
+		return new Iterator<Callable<StatisticsAccumulator>>() {
+
+			private long start = 0;
+
+			@Override
+			public boolean hasNext() {
+				return start < size;
+			}
+
+			@Override
+			public Callable<StatisticsAccumulator> next() {
+				final long chunkStart = start;
+				final long loopSize = Math.min(CHUNK_SIZE, size - chunkStart);
+				start += loopSize;
+				return new Callable<StatisticsAccumulator>() {
+
+					@Override
+					public StatisticsAccumulator call() {
+						final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+						final Cursor<? extends RealType<?>> cursor = img.cursor();
+						cursor.jumpFwd(chunkStart);
+						for (long i = 0; i < loopSize; i++) {
+							acc.add(cursor.next().getRealDouble());
+						}
+						return acc;
+					}
+				};
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Splits a hypervolume region into slabs of roughly {@link #CHUNK_SIZE}
+	 * samples along its outermost dimension that is long enough.
+	 */
+	private Iterator<Callable<StatisticsAccumulator>> slabs(
+		final Img<? extends RealType<?>> img, final PointSet region,
+		final Set<Statistic> stats)
+	{
+		final int numDims = region.numDimensions();
+		final long[] min = new long[numDims];
+		final long[] max = new long[numDims];
+		for (int d = 0; d < numDims; d++) {
+			min[d] = region.min(d);
+			max[d] = region.max(d);
+		}
+		final long wanted = Math.max(1, region.size() / CHUNK_SIZE);
+		int dim = numDims - 1;
+		for (int d = numDims - 1; d >= 0; d--) {
+			final long extent = max[d] - min[d] + 1;
+			if (extent >= wanted) {
+				dim = d;
+				break;
+			}
+			if (extent > max[dim] - min[dim] + 1) dim = d;
+		}
+		final int splitDim = dim;
+		final long extent = max[splitDim] - min[splitDim] + 1;
+		final long slabCount = Math.min(extent, wanted);
+		return new Iterator<Callable<StatisticsAccumulator>>() {
+
+			private long i = 0;
+			private long start = min[splitDim];
+
+			@Override
+			public boolean hasNext() {
+				return i < slabCount;
+			}
+
+			@Override
+			public Callable<StatisticsAccumulator> next() {
+				final long span = extent / slabCount + (i < extent % slabCount ? 1 : 0);
+				final long[] slabMin = min.clone();
+				final long[] slabMax = max.clone();
+				slabMin[splitDim] = start;
+				slabMax[splitDim] = start + span - 1;
+				start += span;
+				i++;
+				final PointSet slab = new HyperVolumePointSet(slabMin, slabMax);
+				return new Callable<StatisticsAccumulator>() {
+
+					@Override
+					public StatisticsAccumulator call() {
+						final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+						final RandomAccess<? extends RealType<?>> accessor =
+							img.randomAccess();
+						final PointSetIterator iter = slab.iterator();
+						while (iter.hasNext()) {
+							accessor.setPosition(iter.next());
+							acc.add(accessor.get().getRealDouble());
+						}
+						return acc;
+					}
+				};
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Splits an arbitrary region into blocks of {@link #BLOCK_SIZE} points.
+	 * Such regions can only be traversed in order, so the blocks' coordinates
+	 * are gathered by the calling thread as tasks are requested, while worker
+	 * threads sample the image at the previously gathered blocks.
+	 */
+	private Iterator<Callable<StatisticsAccumulator>> blocks(
+		final Img<? extends RealType<?>> img, final PointSet region,
+		final Set<Statistic> stats)
+	{
+		final int numDims = region.numDimensions();
+		final PointSetIterator iter = region.iterator();
+		return new Iterator<Callable<StatisticsAccumulator>>() {
+
+			@Override
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+
+			@Override
+			public Callable<StatisticsAccumulator> next() {
+				final long[] coords = new long[BLOCK_SIZE * numDims];
+				int count = 0;
+				while (count < BLOCK_SIZE && iter.hasNext()) {
+					System.arraycopy(iter.next(), 0, coords, count * numDims, numDims);
+					count++;
+				}
+				final int pointCount = count;
+				return new Callable<StatisticsAccumulator>() {
+
+					@Override
+					public StatisticsAccumulator call() {
+						final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+						final RandomAccess<? extends RealType<?>> accessor =
+							img.randomAccess();
+						final long[] pos = new long[numDims];
+						for (int p = 0; p < pointCount; p++) {
+							System.arraycopy(coords, p * numDims, pos, 0, numDims);
+							accessor.setPosition(pos);
+							acc.add(accessor.get().getRealDouble());
+						}
+						return acc;
+					}
+				};
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private RealImageFunction<?, DoubleType> imgFunc(final Dataset ds) {
 		final Img<? extends RealType<?>> imgPlus = ds.getImgPlus();
 		return new RealImageFunction(imgPlus, new DoubleType());
 	}
 
+	private boolean spansAll(final Img<?> img, final PointSet region) {
+		if (!(region instanceof HyperVolumePointSet)) return false;
+		if (region.numDimensions() != img.numDimensions()) return false;
+		for (int d = 0; d < img.numDimensions(); d++) {
+			if (region.min(d) != img.min(d)) return false;
+			if (region.max(d) != img.max(d)) return false;
+		}
+		return true;
+	}
+
 	private double measure(final Function<PointSet, DoubleType> func,
 		final PointSet region)
 	{
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import java.util.Set;
+
+/**
+ * The statistics that the {@link StatisticsService} can compute together in a
+ * single pass over a region of data.
+ * 
+ * @see StatisticsAccumulator
+ */
+public enum Statistic {
+
+	ARITHMETIC_MEAN, GEOMETRIC_MEAN, HARMONIC_MEAN, MAXIMUM, MEDIAN, MIDPOINT,
+		MINIMUM, POPULATION_KURTOSIS, POPULATION_KURTOSIS_EXCESS,
+		POPULATION_SKEW, POPULATION_STD_DEV, POPULATION_VARIANCE, PRODUCT,
+		SAMPLE_KURTOSIS, SAMPLE_KURTOSIS_EXCESS, SAMPLE_SKEW, SAMPLE_STD_DEV,
+		SAMPLE_VARIANCE, SUM, SUM_OF_SQUARED_DEVIATIONS;
+
+	/**
+	 * Returns true if this statistic can only be computed from the complete set
+	 * of sample values (i.e. it is an order statistic rather than a moment).
+	 */
+	public boolean requiresValues() {
+		return this == MEDIAN;
+	}
+
+	/**
+	 * Returns true if any of the given statistics can only be computed from the
+	 * complete set of sample values.
+	 */
+	public static boolean requiresValues(final Set<Statistic> stats) {
+		for (final Statistic stat : stats) {
+			if (stat.requiresValues()) return true;
+		}
+		return false;
+	}
+
+}
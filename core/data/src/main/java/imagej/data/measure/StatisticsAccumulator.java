@@ -0,0 +1,385 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Accumulates the values needed to compute any {@link Statistic} in a single
+ * streaming pass over a set of samples.
+ * <p>
+ * Central moments are updated incrementally using the one pass formulas of
+ * Welford and Pebay, so mean, variance, skew and kurtosis are all available
+ * after one visit of each sample. Accumulators are mergeable: partial results
+ * computed over disjoint subsets of the samples can be combined with
+ * {@link #merge(StatisticsAccumulator)} to give the result for the whole set.
+ * </p>
+ * <p>
+ * Order statistics (i.e. the median) cannot be computed from moments. When
+ * such a statistic is desired the accumulator must be constructed to retain
+ * the sample values. At most {@link #MAX_RETAINED_VALUES} values can be
+ * retained.
+ * </p>
+ * <p>
+ * An accumulator only gathers what its statistics need: the logarithms,
+ * reciprocals and product behind the geometric mean, harmonic mean and
+ * product, and the third and fourth moments behind skew and kurtosis, are
+ * skipped unless one of those statistics was requested.
+ * </p>
+ */
+public class StatisticsAccumulator {
+
+	// -- constants --
+
+	/** The largest number of sample values an accumulator can retain. */
+	public static final int MAX_RETAINED_VALUES = Integer.MAX_VALUE - 8;
+
+	// -- instance variables --
+
+	private final EnumSet<Statistic> stats;
+	private final boolean retainValues;
+	private final boolean higherMoments;
+	private final boolean logs;
+	private final boolean reciprocals;
+	private final boolean products;
+
+	private long n;
+	private double mean;
+	private double m2, m3, m4;
+	private double min, max;
+	private double sum;
+	private double product;
+	private double sumOfLogs;
+	private double sumOfReciprocals;
+
+	private double[] values;
+	private int valueCount;
+	private boolean sorted;
+
+	// -- constructors --
+
+	/**
+	 * Creates an accumulator for every statistic except the median; it does not
+	 * retain sample values.
+	 */
+	public StatisticsAccumulator() {
+		this(false);
+	}
+
+	/**
+	 * Creates an accumulator for every statistic.
+	 * 
+	 * @param retainValues If true the sample values are kept so that order
+	 *          statistics such as the median can be computed.
+	 */
+	public StatisticsAccumulator(final boolean retainValues) {
+		this(allStatistics(retainValues));
+	}
+
+	/**
+	 * Creates an accumulator that gathers only what the given statistics need.
+	 * Asking it for any other statistic throws an
+	 * {@link IllegalStateException}.
+	 * 
+	 * @param stats The statistics of interest
+	 */
+	public StatisticsAccumulator(final Set<Statistic> stats) {
+		this.stats = EnumSet.noneOf(Statistic.class);
+		this.stats.addAll(stats);
+		retainValues = Statistic.requiresValues(stats);
+		higherMoments =
+			needs(Statistic.POPULATION_KURTOSIS, Statistic.POPULATION_KURTOSIS_EXCESS,
+				Statistic.POPULATION_SKEW, Statistic.SAMPLE_KURTOSIS,
+				Statistic.SAMPLE_KURTOSIS_EXCESS, Statistic.SAMPLE_SKEW);
+		logs = needs(Statistic.GEOMETRIC_MEAN);
+		reciprocals = needs(Statistic.HARMONIC_MEAN);
+		products = needs(Statistic.PRODUCT);
+		reset();
+	}
+
+	// -- StatisticsAccumulator methods --
+
+	/** Discards all accumulated samples. */
+	public void reset() {
+		n = 0;
+		mean = m2 = m3 = m4 = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		sum = 0;
+		product = 1;
+		sumOfLogs = 0;
+		sumOfReciprocals = 0;
+		values = retainValues ? new double[16] : null;
+		valueCount = 0;
+		sorted = true;
+	}
+
+	/** Returns true if this accumulator retains its sample values. */
+	public boolean isRetainingValues() {
+		return retainValues;
+	}
+
+	/** Returns the statistics this accumulator can report. */
+	public Set<Statistic> getStatistics() {
+		return stats.clone();
+	}
+
+	/**
+	 * Adds a sample value to the accumulation.
+	 * 
+	 * @throws IllegalStateException if this accumulator retains its values and
+	 *           already holds {@link #MAX_RETAINED_VALUES} of them.
+	 */
+	public void add(final double value) {
+		if (retainValues && valueCount == values.length) grow(valueCount + 1L);
+
+		final long n1 = n;
+		n++;
+		final double delta = value - mean;
+		final double deltaN = delta / n;
+		final double term1 = delta * deltaN * n1;
+		mean += deltaN;
+		if (higherMoments) {
+			final double deltaN2 = deltaN * deltaN;
+			m4 +=
+				term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 *
+					deltaN * m3;
+			m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+		}
+		m2 += term1;
+
+		if (value < min) min = value;
+		if (value > max) max = value;
+		sum += value;
+		if (products) product *= value;
+		if (logs) sumOfLogs += Math.log(value);
+		if (reciprocals) sumOfReciprocals += 1 / value;
+
+		if (retainValues) {
+			values[valueCount++] = value;
+			sorted = false;
+		}
+	}
+
+	/**
+	 * Combines the samples of another accumulator into this one. Afterwards
+	 * this accumulator reports the statistics of the union of both sample sets.
+	 * 
+	 * @throws IllegalArgumentException if the other accumulator does not gather
+	 *           everything this one needs.
+	 * @throws IllegalStateException if the merged values would exceed
+	 *           {@link #MAX_RETAINED_VALUES}.
+	 */
+	public void merge(final StatisticsAccumulator other) {
+		if (!other.stats.containsAll(stats)) {
+			throw new IllegalArgumentException(
+				"cannot merge an accumulator that lacks some of " + stats);
+		}
+		if (other.n == 0) return;
+		if (retainValues) grow((long) valueCount + other.valueCount);
+		if (n == 0) {
+			copyMoments(other);
+		}
+		else {
+			final double na = n;
+			final double nb = other.n;
+			final double nn = na + nb;
+			final double delta = other.mean - mean;
+			final double delta2 = delta * delta;
+			final double delta3 = delta * delta2;
+			final double delta4 = delta2 * delta2;
+
+			if (higherMoments) {
+				final double newM4 =
+					m4 + other.m4 + delta4 * na * nb * (na * na - na * nb + nb * nb) /
+						(nn * nn * nn) + 6 * delta2 *
+						(na * na * other.m2 + nb * nb * m2) / (nn * nn) + 4 * delta *
+						(na * other.m3 - nb * m3) / nn;
+				final double newM3 =
+					m3 + other.m3 + delta3 * na * nb * (na - nb) / (nn * nn) + 3 *
+						delta * (na * other.m2 - nb * m2) / nn;
+				m3 = newM3;
+				m4 = newM4;
+			}
+			m2 += other.m2 + delta2 * na * nb / nn;
+
+			n += other.n;
+			mean += delta * nb / nn;
+			if (other.min < min) min = other.min;
+			if (other.max > max) max = other.max;
+			sum += other.sum;
+			if (products) product *= other.product;
+			if (logs) sumOfLogs += other.sumOfLogs;
+			if (reciprocals) sumOfReciprocals += other.sumOfReciprocals;
+		}
+		if (retainValues) {
+			System.arraycopy(other.values, 0, values, valueCount, other.valueCount);
+			valueCount += other.valueCount;
+			sorted = false;
+		}
+	}
+
+	/** Returns the number of samples accumulated so far. */
+	public long getCount() {
+		return n;
+	}
+
+	/**
+	 * Returns the value of the given statistic for the samples accumulated so
+	 * far. Statistics that are undefined for the current number of samples are
+	 * reported as zero, mirroring {@link BasicStats}.
+	 * 
+	 * @throws IllegalStateException if the statistic was not one this
+	 *           accumulator was created to gather.
+	 */
+	public double get(final Statistic stat) {
+		if (!stats.contains(stat)) {
+			throw new IllegalStateException(stat +
+				" was not gathered by this accumulator");
+		}
+		switch (stat) {
+			case ARITHMETIC_MEAN:
+				return n == 0 ? 0 : mean;
+			case GEOMETRIC_MEAN:
+				return n == 0 ? 0 : Math.exp(sumOfLogs / n);
+			case HARMONIC_MEAN:
+				return n == 0 ? 0 : n / sumOfReciprocals;
+			case MAXIMUM:
+				return n == 0 ? 0 : max;
+			case MEDIAN:
+				return median();
+			case MIDPOINT:
+				return n == 0 ? 0 : (min + max) / 2;
+			case MINIMUM:
+				return n == 0 ? 0 : min;
+			case POPULATION_KURTOSIS:
+				return populationKurtosis();
+			case POPULATION_KURTOSIS_EXCESS:
+				return populationKurtosis() - 3;
+			case POPULATION_SKEW:
+				return populationSkew();
+			case POPULATION_STD_DEV:
+				return Math.sqrt(get(Statistic.POPULATION_VARIANCE));
+			case POPULATION_VARIANCE:
+				return n == 0 ? 0 : m2 / n;
+			case PRODUCT:
+				return product;
+			case SAMPLE_KURTOSIS:
+				return sampleKurtosisExcess() + 3;
+			case SAMPLE_KURTOSIS_EXCESS:
+				return sampleKurtosisExcess();
+			case SAMPLE_SKEW:
+				if (n < 3) return 0;
+				return populationSkew() * Math.sqrt((double) n * (n - 1)) / (n - 2);
+			case SAMPLE_STD_DEV:
+				return Math.sqrt(get(Statistic.SAMPLE_VARIANCE));
+			case SAMPLE_VARIANCE:
+				return n <= 1 ? 0 : m2 / (n - 1);
+			case SUM:
+				return sum;
+			case SUM_OF_SQUARED_DEVIATIONS:
+				return m2;
+			default:
+				throw new IllegalArgumentException("unknown statistic: " + stat);
+		}
+	}
+
+	// -- private helpers --
+
+	private static Set<Statistic> allStatistics(final boolean retainValues) {
+		final Set<Statistic> all = EnumSet.allOf(Statistic.class);
+		if (!retainValues) all.remove(Statistic.MEDIAN);
+		return all;
+	}
+
+	private boolean needs(final Statistic... wanted) {
+		for (final Statistic stat : wanted) {
+			if (stats.contains(stat)) return true;
+		}
+		return false;
+	}
+
+	private void copyMoments(final StatisticsAccumulator other) {
+		n = other.n;
+		mean = other.mean;
+		m2 = other.m2;
+		m3 = other.m3;
+		m4 = other.m4;
+		min = other.min;
+		max = other.max;
+		sum = other.sum;
+		product = other.product;
+		sumOfLogs = other.sumOfLogs;
+		sumOfReciprocals = other.sumOfReciprocals;
+	}
+
+	private void grow(final long minCapacity) {
+		if (minCapacity <= values.length) return;
+		if (minCapacity > MAX_RETAINED_VALUES) {
+			throw new IllegalStateException("cannot retain more than " +
+				MAX_RETAINED_VALUES + " values for the median");
+		}
+		final long capacity =
+			Math.min(MAX_RETAINED_VALUES, Math.max(minCapacity, 2L * values.length));
+		values = Arrays.copyOf(values, (int) capacity);
+	}
+
+	private double populationSkew() {
+		if (n == 0 || m2 == 0) return 0;
+		return Math.sqrt(n) * m3 / Math.pow(m2, 1.5);
+	}
+
+	private double populationKurtosis() {
+		if (n == 0 || m2 == 0) return 0;
+		return n * m4 / (m2 * m2);
+	}
+
+	private double sampleKurtosisExcess() {
+		if (n < 4) return 0;
+		final double g2 = populationKurtosis() - 3;
+		return (n - 1.0) / ((n - 2.0) * (n - 3.0)) * ((n + 1) * g2 + 6);
+	}
+
+	private double median() {
+		if (valueCount == 0) return 0;
+		if (!sorted) {
+			Arrays.sort(values, 0, valueCount);
+			sorted = true;
+		}
+		final int mid = valueCount / 2;
+		if ((valueCount & 1) == 1) return values[mid];
+		return (values[mid - 1] + values[mid]) / 2;
+	}
+
+}
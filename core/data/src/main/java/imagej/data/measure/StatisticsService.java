@@ -33,19 +33,19 @@
 
 import imagej.data.Dataset;
 import imagej.service.ImageJService;
+
+import java.util.Map;
+import java.util.Set;
+
 import net.imglib2.ops.pointset.PointSet;
 
-// TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// NOTE - the individual methods of this service each visit the pixels once.
+// When more than one statistic is desired use statistics() or accumulate()
+// which gather everything in a single pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -531,6 +531,92 @@ public interface StatisticsService extends ImageJService {
 	 */
 	double weightedSum(Dataset ds, PointSet region, double[] weights);
 
+	/**
+	 * Computes a set of statistics of the values within a {@link PointSet}
+	 * region of a {@link Dataset}. All of the statistics are gathered together
+	 * in a single pass over the region.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The statistics of interest
+	 * @return A map from each requested statistic to its measured value
+	 */
+	Map<Statistic, Double> statistics(Dataset ds, PointSet region,
+		Set<Statistic> stats);
+
+	/**
+	 * Computes a set of statistics of the values of a {@link Dataset}. All of
+	 * the statistics are gathered together in a single pass over the data.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param stats The statistics of interest
+	 * @return A map from each requested statistic to its measured value
+	 */
+	Map<Statistic, Double> statistics(Dataset ds, Set<Statistic> stats);
+
+	/**
+	 * Computes a set of statistics of the values within a {@link PointSet}
+	 * region of a {@link Dataset} using a given number of threads. The region is
+	 * divided into pieces independent of the thread count and their partial
+	 * results are merged in a fixed order, so the outcome does not vary with
+	 * the number of threads.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The statistics of interest
+	 * @param numThreads The maximum number of threads to use
+	 * @return A map from each requested statistic to its measured value
+	 */
+	Map<Statistic, Double> statistics(Dataset ds, PointSet region,
+		Set<Statistic> stats, int numThreads);
+
+	/**
+	 * Visits the values within a {@link PointSet} region of a {@link Dataset}
+	 * once and returns a {@link StatisticsAccumulator} from which any
+	 * {@link Statistic} can then be queried.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param retainValues Whether the accumulator should keep the sample values
+	 *          so that order statistics (such as the median) can be computed
+	 * @return The populated accumulator
+	 */
+	StatisticsAccumulator accumulate(Dataset ds, PointSet region,
+		boolean retainValues);
+
+	/**
+	 * Visits the values within a {@link PointSet} region of a {@link Dataset}
+	 * once using a given number of threads and returns a
+	 * {@link StatisticsAccumulator} from which any {@link Statistic} can then be
+	 * queried. Partial results are merged in a fixed order, so the outcome does
+	 * not vary with the number of threads.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param retainValues Whether the accumulator should keep the sample values
+	 *          so that order statistics (such as the median) can be computed
+	 * @param numThreads The maximum number of threads to use
+	 * @return The populated accumulator
+	 */
+	StatisticsAccumulator accumulate(Dataset ds, PointSet region,
+		boolean retainValues, int numThreads);
+
+	/**
+	 * Visits the values within a {@link PointSet} region of a {@link Dataset}
+	 * once using a given number of threads, gathering only what the given
+	 * statistics need. The region is measured in pieces whose size does not
+	 * depend upon the thread count, and their partial results are merged in a
+	 * fixed order, so the outcome is the same for any number of threads.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The statistics of interest
+	 * @param numThreads The maximum number of threads to use
+	 * @return The populated accumulator
+	 */
+	StatisticsAccumulator accumulate(Dataset ds, PointSet region,
+		Set<Statistic> stats, int numThreads);
+
 	/**
 	 * A convenience function for defining a {@link PointSet} that encompasses all
 	 * the points within a {@link Dataset}.
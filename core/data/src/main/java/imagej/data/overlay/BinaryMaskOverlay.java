@@ -70,6 +70,8 @@
 	 */
 	private static final long serialVersionUID = 1L;
 
+	private transient MaskIndex maskIndex;
+
 	//private BinaryMaskRegionOfInterest<? extends BitType, ? extends Img<BitType>> roi;
 
 	/*
@@ -98,20 +100,25 @@ public BinaryMaskOverlay(
 		//this.roi = roi;
 	}
 
+	/**
+	 * Returns a {@link MaskIndex} of the mask's set points, in the coordinates
+	 * of the region of interest. The index is built on first use and kept until
+	 * the overlay is moved, updated or rebuilt.
+	 */
+	public synchronized MaskIndex getMaskIndex() {
+		if (maskIndex == null) maskIndex = buildMaskIndex();
+		return maskIndex;
+	}
+
 	@Override
 	public void writeExternal(final ObjectOutput out) throws IOException {
 		super.writeExternal(out);
 		final BinaryMaskRegionOfInterest<U,V> theRoi = getRegionOfInterest();
-		final BitType b = new BitType();
-		b.set(true);
-		final RandomAccessible<BitType> ra =
-			new ConstantRandomAccessible<BitType>(b, theRoi.numDimensions());
-		final IterableInterval<BitType> ii = theRoi.getIterableIntervalOverROI(ra);
-		final Cursor<BitType> c = ii.localizingCursor();
+		final MaskIndex index = getMaskIndex();
 
 		out.writeInt(theRoi.numDimensions());
 		for (int i = 0; i < theRoi.numDimensions(); i++) {
-			out.writeLong(ii.dimension(i));
+			out.writeLong(index.dimension(i));
 		}
 		double[] maskOrigin = theRoi.getOrigin();
 		for (int i = 0; i < maskOrigin.length; i++)
@@ -122,34 +129,19 @@ public void writeExternal(final ObjectOutput out) throws IOException {
 		final ByteArrayOutputStream s = new ByteArrayOutputStream();
 		final DataOutputStream ds =
 			new DataOutputStream(new DeflaterOutputStream(s));
-		final long initial_position[] = new long[theRoi.numDimensions()];
-		final long next_position[] = new long[theRoi.numDimensions()];
-		Arrays.fill(initial_position, Long.MIN_VALUE);
-		long run = 0;
-		while (c.hasNext()) {
-			c.next();
-			next_position[0] = initial_position[0] + run;
-			for (int i = 0; i < theRoi.numDimensions(); i++) {
-				if (next_position[i] != c.getLongPosition(i)) {
-					if (run > 0) {
-						ds.writeLong(run);
-						for (int j = 0; j < theRoi.numDimensions(); j++) {
-							ds.writeLong(initial_position[j]);
-						}
-					}
-					run = 0;
-					c.localize(initial_position);
-					c.localize(next_position);
-					break;
+		final long position[] = new long[theRoi.numDimensions()];
+		for (int row = 0; row < index.numRows(); row++) {
+			final int[] runs = index.getRuns(row);
+			if (runs.length == 0) continue;
+			index.localizeRow(row, position);
+			final long x = position[0];
+			for (int i = 0; i < runs.length; i += 2) {
+				ds.writeLong(runs[i + 1] - runs[i]);
+				position[0] = x + runs[i];
+				for (int j = 0; j < theRoi.numDimensions(); j++) {
+					ds.writeLong(position[j]);
 				}
 			}
-			run++;
-		}
-		if (run > 0) {
-			ds.writeLong(run);
-			for (int j = 0; j < theRoi.numDimensions(); j++) {
-				ds.writeLong(initial_position[j]);
-			}
 		}
 		/*
 		 * The end is signaled by a run of length 0
@@ -225,6 +217,74 @@ public Overlay duplicate() {
 	@Override
 	public void move(double[] deltas) {
 		getRegionOfInterest().move(deltas);
+		invalidateMaskIndex();
+	}
+
+	@Override
+	public void update() {
+		invalidateMaskIndex();
+		super.update();
+	}
+
+	@Override
+	public void rebuild() {
+		invalidateMaskIndex();
+		super.rebuild();
+	}
+
+	@Override
+	protected void setRegionOfInterest(
+		final BinaryMaskRegionOfInterest<U, V> roi)
+	{
+		super.setRegionOfInterest(roi);
+		invalidateMaskIndex();
+	}
+
+	// -- Helper methods --
+
+	private synchronized void invalidateMaskIndex() {
+		maskIndex = null;
+	}
+
+	/** Collects the runs of set points from a cursor over the mask. */
+	private MaskIndex buildMaskIndex() {
+		final BinaryMaskRegionOfInterest<U,V> theRoi = getRegionOfInterest();
+		final int numDims = theRoi.numDimensions();
+		final BitType b = new BitType();
+		b.set(true);
+		final RandomAccessible<BitType> ra =
+			new ConstantRandomAccessible<BitType>(b, numDims);
+		final IterableInterval<BitType> ii = theRoi.getIterableIntervalOverROI(ra);
+		final long[] min = new long[numDims];
+		final long[] dims = new long[numDims];
+		ii.min(min);
+		ii.dimensions(dims);
+		final MaskIndex index = new MaskIndex(min, dims);
+		final Cursor<BitType> c = ii.localizingCursor();
+		final long[] pos = new long[numDims];
+		int[] runs = new int[16];
+		int n = 0;
+		int row = -1;
+		while (c.hasNext()) {
+			c.next();
+			c.localize(pos);
+			final int r = index.rowIndex(pos);
+			final int x = (int) (pos[0] - min[0]);
+			if (r != row) {
+				if (row >= 0) index.setRow(row, Arrays.copyOf(runs, n));
+				row = r;
+				n = 0;
+			}
+			if (n > 0 && runs[n - 1] == x) {
+				runs[n - 1]++;
+				continue;
+			}
+			if (n + 2 > runs.length) runs = Arrays.copyOf(runs, 2 * runs.length);
+			runs[n++] = x;
+			runs[n++] = x + 1;
+		}
+		if (row >= 0) index.setRow(row, Arrays.copyOf(runs, n));
+		return index;
 	}
 
 }
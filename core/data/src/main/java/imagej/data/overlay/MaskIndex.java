@@ -0,0 +1,372 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.overlay;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import net.imglib2.ops.pointset.PointSetIterator;
+
+/**
+ * A {@link MaskIndex} is a materialized binary mask over a hyperrectangle. The
+ * set points of each row (a line along the first dimension) are stored as
+ * sorted runs, so that iteration, counting, containment tests and boolean
+ * combination work on runs rather than on individual points.
+ * <p>
+ * Rows are numbered in flat order: the second dimension varies fastest, then
+ * the third and so on. Thus the rows of each plane are stored together.
+ * </p>
+ */
+public class MaskIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private static final int AND = 0, OR = 1, AND_NOT = 2;
+
+	// -- instance variables --
+
+	private final long[] min;
+	private final long[] dims;
+	private final int width;
+	private final int[][] rows;
+	private long count;
+
+	// -- constructors --
+
+	/**
+	 * Constructs an empty {@link MaskIndex} whose origin is at zero.
+	 */
+	public MaskIndex(final long[] dims) {
+		this(new long[dims.length], dims);
+	}
+
+	/**
+	 * Constructs an empty {@link MaskIndex} covering the hyperrectangle that
+	 * starts at the given minimum and has the given dimensions.
+	 */
+	public MaskIndex(final long[] min, final long[] dims) {
+		if (min.length != dims.length || dims.length == 0) {
+			throw new IllegalArgumentException("Invalid mask dimensions");
+		}
+		long numRows = 1;
+		for (int d = 1; d < dims.length; d++) {
+			numRows *= dims[d];
+		}
+		if (dims[0] > Integer.MAX_VALUE || numRows > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Mask is too large");
+		}
+		this.min = min.clone();
+		this.dims = dims.clone();
+		this.width = (int) dims[0];
+		this.rows = new int[(int) numRows][];
+		Arrays.fill(rows, EMPTY);
+	}
+
+	// -- MaskIndex methods --
+
+	public int numDimensions() {
+		return dims.length;
+	}
+
+	public long min(final int d) {
+		return min[d];
+	}
+
+	public long dimension(final int d) {
+		return dims[d];
+	}
+
+	/** Returns the number of rows (lines along the first dimension). */
+	public int numRows() {
+		return rows.length;
+	}
+
+	/**
+	 * Returns the number of rows in each plane (the extent of the second
+	 * dimension).
+	 */
+	public int rowsPerPlane() {
+		return dims.length < 2 ? 1 : (int) dims[1];
+	}
+
+	/**
+	 * Replaces the set points of a row. The runs are given as pairs of start
+	 * (inclusive) and end (exclusive) offsets from the mask's minimum along the
+	 * first dimension. Runs must be sorted, disjoint and non-adjacent. The
+	 * array is kept by reference.
+	 */
+	public void setRow(final int row, final int[] runs) {
+		if (runs.length % 2 != 0) {
+			throw new IllegalArgumentException("Runs must come in pairs");
+		}
+		for (int i = 0; i < runs.length; i += 2) {
+			if (runs[i] >= runs[i + 1] || runs[i] < 0 || runs[i + 1] > width ||
+				(i > 0 && runs[i] <= runs[i - 1]))
+			{
+				throw new IllegalArgumentException("Invalid runs for row " + row);
+			}
+		}
+		synchronized (this) {
+			rows[row] = runs.length == 0 ? EMPTY : runs;
+			count = -1;
+		}
+	}
+
+	/**
+	 * Returns the runs of a row as pairs of start (inclusive) and end
+	 * (exclusive) offsets along the first dimension. The returned array must not
+	 * be modified.
+	 */
+	public int[] getRuns(final int row) {
+		return rows[row];
+	}
+
+	/** Fills the given position with the location of a row's first point. */
+	public void localizeRow(final int row, final long[] pos) {
+		pos[0] = min[0];
+		long r = row;
+		for (int d = 1; d < dims.length; d++) {
+			pos[d] = min[d] + r % dims[d];
+			r /= dims[d];
+		}
+	}
+
+	/**
+	 * Returns the row containing the given position, or -1 if the position is
+	 * outside of the mask's bounds.
+	 */
+	public int rowIndex(final long[] pos) {
+		long row = 0;
+		for (int d = dims.length - 1; d >= 1; d--) {
+			final long p = pos[d] - min[d];
+			if (p < 0 || p >= dims[d]) return -1;
+			row = row * dims[d] + p;
+		}
+		return (int) row;
+	}
+
+	/** Returns true if the given position is set in the mask. */
+	public boolean contains(final long[] pos) {
+		final long x = pos[0] - min[0];
+		if (x < 0 || x >= width) return false;
+		final int row = rowIndex(pos);
+		if (row < 0) return false;
+		final int[] runs = rows[row];
+		// find the last run starting at or before x
+		int lo = 0, hi = runs.length / 2 - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (runs[2 * mid] <= x) lo = mid + 1;
+			else hi = mid - 1;
+		}
+		return hi >= 0 && x < runs[2 * hi + 1];
+	}
+
+	/** Returns the number of set points in the mask. */
+	public synchronized long count() {
+		if (count < 0) {
+			long total = 0;
+			for (final int[] runs : rows) {
+				total += count(runs);
+			}
+			count = total;
+		}
+		return count;
+	}
+
+	/** Returns the number of set points in the given plane. */
+	public long countPlane(final int plane) {
+		final int rowsPerPlane = rowsPerPlane();
+		long total = 0;
+		for (int r = plane * rowsPerPlane; r < (plane + 1) * rowsPerPlane; r++) {
+			total += count(rows[r]);
+		}
+		return total;
+	}
+
+	/**
+	 * Computes the bounding box of the set points. Returns false (leaving the
+	 * arrays untouched) if the mask is empty.
+	 */
+	public boolean bounds(final long[] boundMin, final long[] boundMax) {
+		final long[] pos = new long[dims.length];
+		boolean found = false;
+		for (int row = 0; row < rows.length; row++) {
+			final int[] runs = rows[row];
+			if (runs.length == 0) continue;
+			localizeRow(row, pos);
+			final long first = min[0] + runs[0];
+			final long last = min[0] + runs[runs.length - 1] - 1;
+			if (!found) {
+				pos[0] = first;
+				System.arraycopy(pos, 0, boundMin, 0, pos.length);
+				pos[0] = last;
+				System.arraycopy(pos, 0, boundMax, 0, pos.length);
+				found = true;
+				continue;
+			}
+			for (int d = 1; d < pos.length; d++) {
+				boundMin[d] = Math.min(boundMin[d], pos[d]);
+				boundMax[d] = Math.max(boundMax[d], pos[d]);
+			}
+			boundMin[0] = Math.min(boundMin[0], first);
+			boundMax[0] = Math.max(boundMax[0], last);
+		}
+		return found;
+	}
+
+	/** Returns a new mask of the points set in both this mask and another. */
+	public MaskIndex and(final MaskIndex other) {
+		return combine(other, AND);
+	}
+
+	/** Returns a new mask of the points set in this mask or another. */
+	public MaskIndex or(final MaskIndex other) {
+		return combine(other, OR);
+	}
+
+	/**
+	 * Returns a new mask of the points set in this mask but not in another.
+	 */
+	public MaskIndex andNot(final MaskIndex other) {
+		return combine(other, AND_NOT);
+	}
+
+	/** Returns an iterator over the positions of the set points. */
+	public PointSetIterator iterator() {
+		return new PointIterator();
+	}
+
+	// -- helpers --
+
+	private static long count(final int[] runs) {
+		long total = 0;
+		for (int i = 0; i < runs.length; i += 2) {
+			total += runs[i + 1] - runs[i];
+		}
+		return total;
+	}
+
+	private MaskIndex combine(final MaskIndex other, final int op) {
+		if (!Arrays.equals(min, other.min) || !Arrays.equals(dims, other.dims)) {
+			throw new IllegalArgumentException("Masks have different bounds");
+		}
+		final MaskIndex result = new MaskIndex(min, dims);
+		for (int row = 0; row < rows.length; row++) {
+			result.rows[row] = combine(rows[row], other.rows[row], op);
+		}
+		result.count = -1;
+		return result;
+	}
+
+	/** Sweeps the run boundaries of both rows in order. */
+	private static int[] combine(final int[] a, final int[] b, final int op) {
+		if (a.length == 0 && (op != OR || b.length == 0)) return EMPTY;
+		if (b.length == 0 && op != AND) return a;
+		final int[] out = new int[a.length + b.length];
+		int n = 0, i = 0, j = 0;
+		boolean inA = false, inB = false, in = false;
+		while (i < a.length || j < b.length) {
+			final int x =
+				Math.min(i < a.length ? a[i] : Integer.MAX_VALUE, j < b.length ? b[j]
+					: Integer.MAX_VALUE);
+			while (i < a.length && a[i] == x) {
+				inA = !inA;
+				i++;
+			}
+			while (j < b.length && b[j] == x) {
+				inB = !inB;
+				j++;
+			}
+			final boolean set =
+				op == AND ? inA && inB : op == OR ? inA || inB : inA && !inB;
+			if (set != in) {
+				out[n++] = x;
+				in = set;
+			}
+		}
+		return n == 0 ? EMPTY : Arrays.copyOf(out, n);
+	}
+
+	// -- Helper classes --
+
+	private class PointIterator implements PointSetIterator {
+
+		private final long[] pos = new long[dims.length];
+		private int row, run, x;
+
+		public PointIterator() {
+			reset();
+		}
+
+		@Override
+		public void reset() {
+			row = -1;
+			run = 0;
+			x = 0;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return row < rows.length;
+		}
+
+		@Override
+		public long[] next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			localizeRow(row, pos);
+			pos[0] = min[0] + x;
+			x++;
+			if (x == rows[row][run + 1]) {
+				run += 2;
+				if (run < rows[row].length) x = rows[row][run];
+				else advance();
+			}
+			return pos;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance() {
+			do {
+				row++;
+			}
+			while (row < rows.length && rows[row].length == 0);
+			run = 0;
+			if (row < rows.length) x = rows[row][0];
+		}
+	}
+}
@@ -33,9 +33,14 @@
 
 import imagej.data.Dataset;
 import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetUpdatedEvent;
 import imagej.display.Displayable;
 import imagej.util.ColorRGB;
 import imagej.util.Colors;
+
+import java.util.Arrays;
+
+import net.imglib2.RandomAccess;
 import net.imglib2.meta.AxisType;
 import net.imglib2.meta.CalibratedAxis;
 import net.imglib2.meta.ImgPlus;
@@ -84,6 +89,10 @@ public class ThresholdOverlay extends AbstractOverlay
 	private ColorRGB colorWithin;
 	private ColorRGB colorGreater;
 	private String defaultName;
+	private MaskIndex maskLess;
+	private MaskIndex maskWithin;
+	private MaskIndex maskGreater;
+	private MaskIndex maskOutside;
 
 	// -- ThresholdOverlay methods --
 
@@ -152,6 +161,7 @@ public void setRange(double min, double max) {
 		pointsLess.setCondition(conditionLess);
 		pointsWithin.setCondition(conditionWithin);
 		pointsOutside.setCondition(conditionOutside);
+		if (changed) invalidateMasks();
 		setDefaultName(changed);
 	}
 
@@ -215,6 +225,39 @@ public PointSet getPointsOutside() {
 		return pointsOutside;
 	}
 
+	/**
+	 * Returns a {@link MaskIndex} of the points whose data values are within the
+	 * range of interest. Unlike {@link #getPointsWithin()} the mask is computed
+	 * once and reused until the range or the data values change.
+	 */
+	public MaskIndex getMaskWithin() {
+		return masks()[1];
+	}
+
+	/**
+	 * Returns a {@link MaskIndex} of the points whose data values are less than
+	 * the range of interest.
+	 */
+	public MaskIndex getMaskLess() {
+		return masks()[0];
+	}
+
+	/**
+	 * Returns a {@link MaskIndex} of the points whose data values are greater
+	 * than the range of interest.
+	 */
+	public MaskIndex getMaskGreater() {
+		return masks()[2];
+	}
+
+	/**
+	 * Returns a {@link MaskIndex} of the points whose data values are outside
+	 * the range of interest.
+	 */
+	public MaskIndex getMaskOutside() {
+		return masks()[3];
+	}
+
 	/**
 	 * Returns the {@link ThresholdOverlay}'s {@link Condition} used to determine
 	 * which points are within than the threshold.
@@ -371,11 +414,17 @@ public int numDimensions() {
 
 	@Override
 	public double realMin(int d) {
+		final long[] min = new long[numDimensions()];
+		final long[] max = new long[numDimensions()];
+		if (getMaskWithin().bounds(min, max)) return min[d];
 		return pointsWithin.min(d);
 	}
 
 	@Override
 	public double realMax(int d) {
+		final long[] min = new long[numDimensions()];
+		final long[] max = new long[numDimensions()];
+		if (getMaskWithin().bounds(min, max)) return max[d];
 		return pointsWithin.max(d);
 	}
 
@@ -418,6 +467,11 @@ protected void onEvent(DatasetRestructuredEvent evt) {
 		}
 	}
 
+	@EventHandler
+	protected void onEvent(DatasetUpdatedEvent evt) {
+		if (evt.getObject() == dataset && !evt.isMetaDataOnly()) invalidateMasks();
+	}
+
 	// -- helpers --
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
@@ -467,9 +521,69 @@ private void reinit() {
 		pointsGreater.setCondition(conditionGreater);
 		pointsOutside.setCondition(conditionOutside);
 		// regionAdapter does not need any changes
+		invalidateMasks();
 		setDefaultName(false);
 	}
 
+	private synchronized void invalidateMasks() {
+		maskLess = maskWithin = maskGreater = maskOutside = null;
+	}
+
+	/**
+	 * Returns the less, within, greater and outside masks, classifying every
+	 * data point in a single pass if they are not already built.
+	 */
+	private synchronized MaskIndex[] masks() {
+		if (maskWithin == null) buildMasks();
+		return new MaskIndex[] { maskLess, maskWithin, maskGreater, maskOutside };
+	}
+
+	private void buildMasks() {
+		final ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
+		final long[] dims = new long[imgPlus.numDimensions()];
+		imgPlus.dimensions(dims);
+		final MaskIndex less = new MaskIndex(dims);
+		final MaskIndex within = new MaskIndex(dims);
+		final MaskIndex greater = new MaskIndex(dims);
+		final double min = conditionWithin.getMin();
+		final double max = conditionWithin.getMax();
+		final int width = (int) dims[0];
+		final RandomAccess<? extends RealType<?>> accessor =
+			imgPlus.randomAccess();
+		final long[] pos = new long[dims.length];
+		// worst case runs for a row alternate between the three classes
+		final int[][] runs = new int[3][width + 1];
+		final int[] counts = new int[3];
+		for (int row = 0; row < within.numRows(); row++) {
+			within.localizeRow(row, pos);
+			accessor.setPosition(pos);
+			counts[0] = counts[1] = counts[2] = 0;
+			int current = -1;
+			for (int x = 0; x < width; x++) {
+				final double val = accessor.get().getRealDouble();
+				final int c;
+				if (Double.isNaN(val)) c = -1;
+				else if (val < min) c = 0;
+				else if (val > max) c = 2;
+				else c = 1;
+				if (c != current) {
+					if (current >= 0) runs[current][counts[current]++] = x;
+					if (c >= 0) runs[c][counts[c]++] = x;
+					current = c;
+				}
+				accessor.fwd(0);
+			}
+			if (current >= 0) runs[current][counts[current]++] = width;
+			less.setRow(row, Arrays.copyOf(runs[0], counts[0]));
+			within.setRow(row, Arrays.copyOf(runs[1], counts[1]));
+			greater.setRow(row, Arrays.copyOf(runs[2], counts[2]));
+		}
+		maskLess = less;
+		maskWithin = within;
+		maskGreater = greater;
+		maskOutside = less.or(greater);
+	}
+
 	private void initAttributes() {
 		setAlpha(255);
 		setFillColor(Colors.RED);
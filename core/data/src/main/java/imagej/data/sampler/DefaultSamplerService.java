@@ -43,20 +43,34 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.imglib2.RandomAccess;
 import net.imglib2.display.ColorTable;
+import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
 import net.imglib2.meta.CalibratedAxis;
 import net.imglib2.meta.ImgPlus;
 import net.imglib2.meta.IntervalUtils;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
 
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 
 //TODO
 //1) Maintain metadata
@@ -100,6 +114,9 @@ public class DefaultSamplerService extends AbstractService implements
 	@Parameter
 	private ImageDisplayService imgDispService;
 
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	// -- public interface --
 
 	@Override
@@ -184,11 +201,7 @@ private ImageDisplay createOutputImage(final SamplingDefinition def) {
 		final String name = origDisp.getName();
 		final AxisType[] axes = def.getOutputAxes();
 		final CalibratedAxis[] calibAxes = def.getOutputCalibratedAxes();
-		final int bitsPerPixel = origDs.getType().getBitsPerPixel();
-		final boolean signed = origDs.isSigned();
-		final boolean floating = !origDs.isInteger();
-		final Dataset output =
-			datasetService.create(dims, name, axes, bitsPerPixel, signed, floating);
+		final Dataset output = createOutputDataset(origDs, dims, name, axes);
 		output.setAxes(calibAxes);
 		long numPlanes = calcNumPlanes(dims, axes);
 		if (numPlanes > Integer.MAX_VALUE) {
@@ -209,23 +222,79 @@ private ImageDisplay createOutputImage(final SamplingDefinition def) {
 		return (ImageDisplay) displayService.createDisplay(name, output);
 	}
 
+	/**
+	 * Creates an output dataset of the same type as the input. Types such as
+	 * {@link imagej.data.types.UnboundedIntegerType} have no bit depth the
+	 * {@link DatasetService} could recreate them from.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Dataset createOutputDataset(final Dataset input, final long[] dims,
+		final String name, final AxisType[] axes)
+	{
+		final RealType<?> type = input.getType();
+		if (type instanceof NativeType) {
+			return datasetService.create(new PlanarImgFactory(), (RealType) type
+				.createVariable(), dims, name, axes);
+		}
+		final int bitsPerPixel = type.getBitsPerPixel();
+		final boolean signed = input.isSigned();
+		final boolean floating = !input.isInteger();
+		return datasetService.create(dims, name, axes, bitsPerPixel, signed,
+			floating);
+	}
+
 	/**
 	 * Copies all associated data from a SamplingDefinition to an output image.
 	 */
 	private void copyData(final SamplingDefinition def,
 		final ImageDisplay outputImage)
 	{
-		final PositionIterator iter1 = new SparsePositionIterator(def);
-		final PositionIterator iter2 = new DensePositionIterator(def);
 		// TODO - remove evil casts
 		final Dataset input = (Dataset) def.getDisplay().getActiveView().getData();
 		final Dataset output = (Dataset) outputImage.getActiveView().getData();
+		if (!copyPlanes(def, input, output)) copySamples(def, input, output);
+		// TODO - enable this code
+		// List<Overlay> overlays = overlayService.getOverlays(def.getDisplay());
+		// attachOverlays(def.getDisplay(), outputImage, overlays);
+
+		/* TODO
+		setOtherMetadata();  // user defined info that has been added to orig data
+		*/
+
+		// keep composite status in sync
+		setCompositeChannelCount(input, output);
+
+		// keep display color tables in sync
+		updateDisplayColorTables(def, outputImage);
+
+		// Invalidate the cached channel min and max in the output ImgPlus
+		// This may be set to something other than the obvious values
+		// by the autoscale service, I (leek) think.
+		final ImgPlus<? extends RealType<?>> outputImgPlus = output.getImgPlus();
+		for (int channel=0; channel < outputImgPlus.getCompositeChannelCount(); channel++) {
+			outputImgPlus.setChannelMinimum(channel, Double.NaN);
+			outputImgPlus.setChannelMaximum(channel, Double.NaN);
+		}
+
+		// set the display range from input data's view min/max settings
+		setDisplayRanges(def, outputImage);
+	}
+
+	/** Copies the sampled data one sample at a time. */
+	private void copySamples(final SamplingDefinition def, final Dataset input,
+		final Dataset output)
+	{
+		final PositionIterator iter1 = new SparsePositionIterator(def);
+		final PositionIterator iter2 = new DensePositionIterator(def);
 		final long[] inputDims = IntervalUtils.getDims(input);
 		final long[] outputDims = IntervalUtils.getDims(output);
 		final RandomAccess<? extends RealType<?>> inputAccessor =
 			input.getImgPlus().randomAccess();
 		final RandomAccess<? extends RealType<?>> outputAccessor =
 			output.getImgPlus().randomAccess();
+		// NB - values of types wider than a double only survive a typed copy
+		final boolean sameType =
+			input.getType().getClass() == output.getType().getClass();
 		while (iter1.hasNext() && iter2.hasNext()) {
 
 			// determine data positions within datasets
@@ -235,8 +304,11 @@ private void copyData(final SamplingDefinition def,
 			outputAccessor.setPosition(outputPos);
 
 			// copy value
-			final double value = inputAccessor.get().getRealDouble();
-			outputAccessor.get().setReal(value);
+			if (sameType) copy(inputAccessor.get(), outputAccessor.get());
+			else {
+				final double value = inputAccessor.get().getRealDouble();
+				outputAccessor.get().setReal(value);
+			}
 
 			// TODO - notice there is a lot of inefficiency following here.
 			// We are setting color tables once per pixel in image and do a lot of
@@ -249,31 +321,160 @@ private void copyData(final SamplingDefinition def,
 			final int outputPlaneNumber = planeNum(outputDims, outputPos);
 			output.setColorTable(lut, outputPlaneNumber);
 		}
-		// TODO - enable this code
-		// List<Overlay> overlays = overlayService.getOverlays(def.getDisplay());
-		// attachOverlays(def.getDisplay(), outputImage, overlays);
+	}
 
-		/* TODO
-		setOtherMetadata();  // user defined info that has been added to orig data
-		*/
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void copy(final RealType<?> from, final RealType<?> to) {
+		((RealType) to).set(from);
+	}
 
-		// keep composite status in sync
-		setCompositeChannelCount(input, output);
+	/**
+	 * Returns true if the given type stores one pixel per primitive array
+	 * element, the same set of types {@code PrimitivePlanes} converts. Other
+	 * types pack pixels, or keep part of their values outside of the plane
+	 * (such as the overflow table of an
+	 * {@link imagej.data.types.UnboundedIntegerType}), so their planes cannot
+	 * be copied raw.
+	 */
+	private static boolean isPrimitive(final RealType<?> type) {
+		final Class<?> c = type.getClass();
+		return c == ByteType.class || c == UnsignedByteType.class ||
+			c == ShortType.class || c == UnsignedShortType.class ||
+			c == IntType.class || c == UnsignedIntType.class ||
+			c == LongType.class || c == FloatType.class || c == DoubleType.class;
+	}
 
-		// keep display color tables in sync
-		updateDisplayColorTables(def, outputImage);
+	/**
+	 * Copies the sampled data with bulk array copies when both datasets have
+	 * planes of the same primitive type that can be accessed by reference and
+	 * the sampling keeps both the X and Y axes. Runs of consecutive X (and Y)
+	 * values are copied at once and planes are copied in parallel. Returns
+	 * false if the data cannot be copied this way.
+	 */
+	private boolean copyPlanes(final SamplingDefinition def,
+		final Dataset input, final Dataset output)
+	{
+		final List<List<Long>> ranges = def.getInputRanges();
+		if (ranges.size() < 2) return false;
+		if (ranges.get(0).size() < 2 || ranges.get(1).size() < 2) return false;
+		if (input.getType().getClass() != output.getType().getClass()) return false;
+		if (!isPrimitive(input.getType())) return false;
+		final Object firstIn = input.getPlane(0, false);
+		final Object firstOut = output.getPlane(0, false);
+		if (firstIn == null || firstOut == null) return false;
+		if (firstIn.getClass() != firstOut.getClass()) return false;
 
-		// Invalidate the cached channel min and max in the output ImgPlus
-		// This may be set to something other than the obvious values
-		// by the autoscale service, I (leek) think.
-		final ImgPlus<? extends RealType<?>> outputImgPlus = output.getImgPlus();
-		for (int channel=0; channel < outputImgPlus.getCompositeChannelCount(); channel++) {
-			outputImgPlus.setChannelMinimum(channel, Double.NaN);
-			outputImgPlus.setChannelMaximum(channel, Double.NaN);
+		final long[] inputDims = IntervalUtils.getDims(input);
+		final long[] outputDims = IntervalUtils.getDims(output);
+		final int inWidth = (int) inputDims[0];
+		final int outWidth = (int) outputDims[0];
+		final int[][] xRuns = runs(ranges.get(0));
+		final int[][] yRuns = runs(ranges.get(1));
+
+		// pair up the input and output planes
+		final List<int[]> planes = new ArrayList<int[]>();
+		final int[] indexes = new int[ranges.size()];
+		final long[] inputPos = new long[ranges.size()];
+		final long[] outputPos = new long[outputDims.length];
+		while (true) {
+			int d = 0;
+			for (int i = 2; i < ranges.size(); i++) {
+				inputPos[i] = ranges.get(i).get(indexes[i]);
+				if (ranges.get(i).size() > 1) outputPos[2 + d++] = indexes[i];
+			}
+			final int inputPlane = planeNum(inputDims, inputPos);
+			final int outputPlane = planeNum(outputDims, outputPos);
+			planes.add(new int[] { inputPlane, outputPlane });
+			// keep dataset color tables in sync
+			output.setColorTable(input.getColorTable(inputPlane), outputPlane);
+			int i = 2;
+			while (i < ranges.size() && ++indexes[i] == ranges.get(i).size()) {
+				indexes[i++] = 0;
+			}
+			if (i >= ranges.size()) break;
 		}
 
-		// set the display range from input data's view min/max settings
-		setDisplayRanges(def, outputImage);
+		final int threads =
+			threadService == null ? 1 : Math.min(planes.size(), Runtime
+				.getRuntime().availableProcessors());
+		if (threads <= 1) {
+			copyPlanes(input, output, planes, 0, planes.size(), xRuns, yRuns,
+				inWidth, outWidth);
+			return true;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		int start = 0;
+		for (int t = 0; t < threads; t++) {
+			final int first = start;
+			final int count =
+				planes.size() / threads + (t < planes.size() % threads ? 1 : 0);
+			start += count;
+			futures.add(threadService.run(new Runnable() {
+
+				@Override
+				public void run() {
+					copyPlanes(input, output, planes, first, count, xRuns, yRuns,
+						inWidth, outWidth);
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("sampling interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("sampling failed", e.getCause());
+		}
+		return true;
+	}
+
+	private void copyPlanes(final Dataset input, final Dataset output,
+		final List<int[]> planes, final int first, final int count,
+		final int[][] xRuns, final int[][] yRuns, final int inWidth,
+		final int outWidth)
+	{
+		final boolean fullRows =
+			xRuns.length == 1 && xRuns[0][2] == inWidth && inWidth == outWidth;
+		for (int p = first; p < first + count; p++) {
+			final Object in = input.getPlane(planes.get(p)[0], false);
+			final Object out = output.getPlane(planes.get(p)[1], false);
+			for (final int[] yRun : yRuns) {
+				if (fullRows) {
+					// consecutive whole rows are contiguous
+					System.arraycopy(in, yRun[0] * inWidth, out, yRun[1] * outWidth,
+						yRun[2] * inWidth);
+					continue;
+				}
+				for (int r = 0; r < yRun[2]; r++) {
+					final int inRow = (yRun[0] + r) * inWidth;
+					final int outRow = (yRun[1] + r) * outWidth;
+					for (final int[] xRun : xRuns) {
+						System.arraycopy(in, inRow + xRun[0], out, outRow + xRun[1],
+							xRun[2]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Splits a list of axis values into runs of consecutive values. Each run is
+	 * given as its first input value, its first output index and its length.
+	 */
+	private int[][] runs(final List<Long> values) {
+		final List<int[]> runs = new ArrayList<int[]>();
+		int start = 0;
+		for (int i = 1; i <= values.size(); i++) {
+			if (i < values.size() && values.get(i) == values.get(i - 1) + 1) continue;
+			runs.add(new int[] { values.get(start).intValue(), start, i - start });
+			start = i;
+		}
+		return runs.toArray(new int[runs.size()][]);
 	}
 
 	/** Calculates a plane number from a position within a dimensional space. */
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.types;
+
+import java.math.BigInteger;
+
+import net.imglib2.img.basictypeaccess.LongAccess;
+
+/**
+ * Packs arbitrarily large integers into a fixed number of longs per pixel so
+ * that unbounded types can live in ordinary native images rather than holding
+ * a heap object per pixel. The lowest bit of a pixel's first word is a tag: if
+ * clear the words hold the value (shifted left by one) in two's complement,
+ * least significant word first; if set the remaining bits of the first word
+ * are a slot of the image's {@link OverflowTable} holding the value instead.
+ * Words of fresh storage are zero, which decodes to zero.
+ */
+final class BigIntegerPacking {
+
+	private BigIntegerPacking() {
+		// NB: prevent instantiation of utility class.
+	}
+
+	// -- constants --
+
+	/** Smallest value {@link #setSmall} can store. */
+	public static final long MIN_SMALL = -(1L << 62);
+
+	/** Largest value {@link #setSmall} can store. */
+	public static final long MAX_SMALL = (1L << 62) - 1;
+
+	private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(64);
+
+	// -- BigIntegerPacking methods --
+
+	/**
+	 * Returns true if the value starting at the given word is inline and fits
+	 * in a long, i.e. can be read by {@link #getSmall}.
+	 */
+	public static boolean isSmall(final LongAccess access, final int word,
+		final int words)
+	{
+		final long w0 = access.getValue(word);
+		if ((w0 & 1) != 0) return false;
+		final long sign = w0 >> 63;
+		for (int j = 1; j < words; j++) {
+			if (access.getValue(word + j) != sign) return false;
+		}
+		return true;
+	}
+
+	/** Reads a value for which {@link #isSmall} is true. */
+	public static long getSmall(final LongAccess access, final int word) {
+		return access.getValue(word) >> 1;
+	}
+
+	/** Reads the value starting at the given word. */
+	public static BigInteger get(final LongAccess access, final int word,
+		final int words, final OverflowTable table)
+	{
+		final long w0 = access.getValue(word);
+		if ((w0 & 1) != 0) return table.get((int) (w0 >>> 1));
+		if (isSmall(access, word, words)) return BigInteger.valueOf(w0 >> 1);
+		BigInteger x = BigInteger.valueOf(access.getValue(word + words - 1));
+		for (int j = words - 2; j >= 0; j--) {
+			x = x.shiftLeft(64).add(unsigned(access.getValue(word + j)));
+		}
+		return x.shiftRight(1);
+	}
+
+	/**
+	 * Writes a value between {@link #MIN_SMALL} and {@link #MAX_SMALL} starting
+	 * at the given word.
+	 */
+	public static void setSmall(final LongAccess access, final int word,
+		final int words, final OverflowTable table, final long value)
+	{
+		release(access, word, table);
+		access.setValue(word, value << 1);
+		final long sign = value >> 63;
+		for (int j = 1; j < words; j++) {
+			access.setValue(word + j, sign);
+		}
+	}
+
+	/** Writes a value starting at the given word. */
+	public static void set(final LongAccess access, final int word,
+		final int words, final OverflowTable table, final BigInteger value)
+	{
+		final int bitLength = value.bitLength();
+		if (bitLength < 63) {
+			setSmall(access, word, words, table, value.longValue());
+		}
+		else if (bitLength <= 64 * words - 2) {
+			release(access, word, table);
+			final BigInteger x = value.shiftLeft(1);
+			for (int j = 0; j < words; j++) {
+				access.setValue(word + j, x.shiftRight(64 * j).longValue());
+			}
+		}
+		else {
+			final long w0 = access.getValue(word);
+			final int slot;
+			if ((w0 & 1) != 0) {
+				slot = (int) (w0 >>> 1);
+				table.set(slot, value);
+			}
+			else slot = table.add(value);
+			access.setValue(word, ((long) slot << 1) | 1);
+			for (int j = 1; j < words; j++) {
+				access.setValue(word + j, 0);
+			}
+		}
+	}
+
+	// -- helpers --
+
+	/** Frees the overflow slot of the value at the given word, if any. */
+	private static void release(final LongAccess access, final int word,
+		final OverflowTable table)
+	{
+		final long w0 = access.getValue(word);
+		if ((w0 & 1) != 0) table.remove((int) (w0 >>> 1));
+	}
+
+	private static BigInteger unsigned(final long w) {
+		final BigInteger x = BigInteger.valueOf(w);
+		return w < 0 ? x.add(TWO_TO_64) : x;
+	}
+}
@@ -35,6 +35,7 @@
 
 import java.util.List;
 
+import net.imglib2.converter.Converter;
 import net.imglib2.type.numeric.NumericType;
 
 import org.scijava.plugin.SingletonService;
@@ -105,4 +106,30 @@ <U extends NumericType<U>, V extends NumericType<V>> void cast(
 	<U extends NumericType<U>, V extends NumericType<V>> void cast(
 		DataType<U> inputType, U input, DataType<V> outputType, V output,
 		BigComplex tmp);
+
+	/**
+	 * Returns a {@link Converter} which casts values between two DataTypes like
+	 * {@link #cast(DataType, NumericType, DataType, NumericType, BigComplex)}
+	 * does. The conversion path is chosen once, up front: primitive long or
+	 * double transfers whenever both types allow it, and {@link BigComplex} only
+	 * for unbounded or otherwise imprecise types. Converters which use a
+	 * {@link BigComplex} are not thread safe; create one per thread.
+	 * 
+	 * @param inputType The DataType of the input.
+	 * @param outputType The DataType of the output.
+	 */
+	<U extends NumericType<U>, V extends NumericType<V>> Converter<U, V>
+		getConverter(DataType<U> inputType, DataType<V> outputType);
+
+	/**
+	 * Returns a {@link PlaneConverter} which converts whole primitive planes of
+	 * one DataType to another with the same results as {@link #cast}. Returns
+	 * null if either DataType does not store one pixel per primitive array
+	 * element (e.g. bit, 12-bit, complex and unbounded types).
+	 * 
+	 * @param inputType The DataType of the input planes.
+	 * @param outputType The DataType of the output planes.
+	 */
+	PlaneConverter getPlaneConverter(DataType<?> inputType,
+		DataType<?> outputType);
 }
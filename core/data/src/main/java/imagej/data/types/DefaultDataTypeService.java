@@ -38,6 +38,7 @@
 import java.util.List;
 import java.util.Map;
 
+import net.imglib2.converter.Converter;
 import net.imglib2.type.numeric.NumericType;
 
 import org.scijava.plugin.AbstractSingletonService;
@@ -142,24 +143,28 @@ public <U extends NumericType<U>, V extends NumericType<V>> void cast(
 		{
 			long val = inputType.asLong(input);
 			outputType.setLong(output, val);
+			return;
 		}
-		else if (inputType.hasDoubleRepresentation() &&
+		if (inputType.hasDoubleRepresentation() &&
 			outputType.hasDoubleRepresentation())
 		{
 			double val = inputType.asDouble(input);
 			outputType.setDouble(output, val);
+			return;
 		}
-		else if (inputType.hasLongRepresentation() &&
+		if (inputType.hasLongRepresentation() &&
 			outputType.hasDoubleRepresentation())
 		{
 			long val = inputType.asLong(input);
 			outputType.setDouble(output, val);
+			return;
 		}
-		else if (inputType.hasDoubleRepresentation() &&
+		if (inputType.hasDoubleRepresentation() &&
 			outputType.hasLongRepresentation())
 		{
 			double val = inputType.asDouble(input);
 			outputType.setLong(output, (long) val);
+			return;
 		}
 
 		if (tmp == null) {
@@ -172,4 +177,71 @@ else if (inputType.hasDoubleRepresentation() &&
 		inputType.cast(input, tmp);
 		outputType.cast(tmp, output);
 	}
+
+	@Override
+	public <U extends NumericType<U>, V extends NumericType<V>> Converter<U, V>
+		getConverter(final DataType<U> inputType, final DataType<V> outputType)
+	{
+		// NB - same order of preference as cast()
+
+		if (inputType.hasLongRepresentation() && outputType.hasLongRepresentation())
+		{
+			return new Converter<U, V>() {
+
+				@Override
+				public void convert(U input, V output) {
+					outputType.setLong(output, inputType.asLong(input));
+				}
+			};
+		}
+		if (inputType.hasDoubleRepresentation() &&
+			outputType.hasDoubleRepresentation())
+		{
+			return new Converter<U, V>() {
+
+				@Override
+				public void convert(U input, V output) {
+					outputType.setDouble(output, inputType.asDouble(input));
+				}
+			};
+		}
+		if (inputType.hasLongRepresentation() &&
+			outputType.hasDoubleRepresentation())
+		{
+			return new Converter<U, V>() {
+
+				@Override
+				public void convert(U input, V output) {
+					outputType.setDouble(output, inputType.asLong(input));
+				}
+			};
+		}
+		if (inputType.hasDoubleRepresentation() &&
+			outputType.hasLongRepresentation())
+		{
+			return new Converter<U, V>() {
+
+				@Override
+				public void convert(U input, V output) {
+					outputType.setLong(output, (long) inputType.asDouble(input));
+				}
+			};
+		}
+		final BigComplex tmp = new BigComplex();
+		return new Converter<U, V>() {
+
+			@Override
+			public void convert(U input, V output) {
+				inputType.cast(input, tmp);
+				outputType.cast(tmp, output);
+			}
+		};
+	}
+
+	@Override
+	public PlaneConverter getPlaneConverter(DataType<?> inputType,
+		DataType<?> outputType)
+	{
+		return PrimitivePlanes.converter(inputType, outputType);
+	}
 }
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.types;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the values of a natively stored image which are too large to be
+ * packed into its primitive storage. Each such value occupies a slot which is
+ * owned by exactly one pixel; the slot is reused once that pixel is assigned a
+ * smaller value. Thread safe.
+ * 
+ * @see BigIntegerPacking
+ */
+final class OverflowTable {
+
+	// -- fields --
+
+	private final List<BigInteger> values = new ArrayList<BigInteger>();
+	private final List<Integer> freeSlots = new ArrayList<Integer>();
+
+	// -- OverflowTable methods --
+
+	/** Stores a value in a new slot and returns the slot. */
+	public synchronized int add(final BigInteger value) {
+		if (freeSlots.isEmpty()) {
+			values.add(value);
+			return values.size() - 1;
+		}
+		final int slot = freeSlots.remove(freeSlots.size() - 1);
+		values.set(slot, value);
+		return slot;
+	}
+
+	/** Returns the value stored in a slot. */
+	public synchronized BigInteger get(final int slot) {
+		return values.get(slot);
+	}
+
+	/** Replaces the value stored in a slot. */
+	public synchronized void set(final int slot, final BigInteger value) {
+		values.set(slot, value);
+	}
+
+	/** Releases a slot for reuse. */
+	public synchronized void remove(final int slot) {
+		values.set(slot, null);
+		freeSlots.add(slot);
+	}
+
+	/** Returns the number of slots currently holding values. */
+	public synchronized int size() {
+		return values.size() - freeSlots.size();
+	}
+}
@@ -33,41 +33,73 @@
 
 import java.math.BigDecimal;
 
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.ComplexType;
 
 /**
  * A fixed point complex float type. Its real and imaginary components are
- * {@link PreciseFixedFloatType}s.
+ * {@link PreciseFixedFloatType}s. In images both components share one pixel
+ * of four longs.
  * 
  * @author Barry DeZonia
  */
 public class PreciseFixedComplexFloatType implements
-	ComplexType<PreciseFixedComplexFloatType>
+	ComplexType<PreciseFixedComplexFloatType>,
+	NativeType<PreciseFixedComplexFloatType>
 {
 
+	// -- constants --
+
+	private static final int WORDS = 2 * PreciseFixedFloatType.WORDS;
+
 	// -- fields --
 
-	private PreciseFixedFloatType real;
-	private PreciseFixedFloatType imag;
+	private final NativeImg<?, ? extends LongAccess> img;
+	private final OverflowTable table;
+
+	private final PreciseFixedFloatType real;
+	private final PreciseFixedFloatType imag;
 
 	// -- constructors --
 
+	/** Creates a type which is linked to a native image. */
+	PreciseFixedComplexFloatType(final NativeImg<?, ? extends LongAccess> img,
+		final OverflowTable table)
+	{
+		this.img = img;
+		this.table = table;
+		real = new PreciseFixedFloatType(img, table, WORDS, 0);
+		imag =
+			new PreciseFixedFloatType(img, table, WORDS, PreciseFixedFloatType.WORDS);
+	}
+
 	public PreciseFixedComplexFloatType() {
+		img = null;
+		table = null;
 		real = new PreciseFixedFloatType();
 		imag = new PreciseFixedFloatType();
 	}
 
 	public PreciseFixedComplexFloatType(double r, double i) {
+		img = null;
+		table = null;
 		real = new PreciseFixedFloatType(r);
 		imag = new PreciseFixedFloatType(i);
 	}
 
 	public PreciseFixedComplexFloatType(BigDecimal r, BigDecimal i) {
+		img = null;
+		table = null;
 		real = new PreciseFixedFloatType(r);
 		imag = new PreciseFixedFloatType(i);
 	}
 
 	public PreciseFixedComplexFloatType(String r, String i) {
+		img = null;
+		table = null;
 		real = new PreciseFixedFloatType(r);
 		imag = new PreciseFixedFloatType(i);
 	}
@@ -77,6 +109,72 @@ public PreciseFixedComplexFloatType(PreciseFixedComplexFloatType other) {
 		set(other);
 	}
 
+	// -- NativeType methods --
+
+	@Override
+	public int getEntitiesPerPixel() {
+		return WORDS;
+	}
+
+	@Override
+	public NativeImg<PreciseFixedComplexFloatType, ? extends LongAccess>
+		createSuitableNativeImg(
+			final NativeImgFactory<PreciseFixedComplexFloatType> storageFactory,
+			final long[] dim)
+	{
+		final NativeImg<PreciseFixedComplexFloatType, ? extends LongAccess>
+			container = storageFactory.createLongInstance(dim, WORDS);
+		container.setLinkedType(new PreciseFixedComplexFloatType(container,
+			new OverflowTable()));
+		return container;
+	}
+
+	@Override
+	public PreciseFixedComplexFloatType duplicateTypeOnSameNativeImg() {
+		return new PreciseFixedComplexFloatType(img, table);
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		real.updateContainer(c);
+		imag.updateContainer(c);
+	}
+
+	@Override
+	public void updateIndex(final int index) {
+		real.updateIndex(index);
+		imag.updateIndex(index);
+	}
+
+	@Override
+	public int getIndex() {
+		return real.getIndex();
+	}
+
+	@Override
+	public void incIndex() {
+		real.incIndex();
+		imag.incIndex();
+	}
+
+	@Override
+	public void incIndex(final int increment) {
+		real.incIndex(increment);
+		imag.incIndex(increment);
+	}
+
+	@Override
+	public void decIndex() {
+		real.decIndex();
+		imag.decIndex();
+	}
+
+	@Override
+	public void decIndex(final int decrement) {
+		real.decIndex(decrement);
+		imag.decIndex(decrement);
+	}
+
 	// -- accessors --
 
 	public PreciseFixedFloatType getReal() {
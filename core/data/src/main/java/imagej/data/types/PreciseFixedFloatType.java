@@ -34,14 +34,23 @@
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 
 /**
  * A fixed point floating numeric type. Currently 25 decimal places of accuracy.
+ * Images of this type store two longs per pixel, enough for magnitudes up to
+ * about 8.5e12; larger values are kept in a per image {@link OverflowTable}.
  * 
  * @author Barry DeZonia
  */
-public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
+public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType>,
+	NativeType<PreciseFixedFloatType>
+{
 
 	// TODO - use FloatingType rather than RealType but not yet merged to Imglib.
 	// Once merged then implement the exponential and trig methods to a fixed
@@ -55,16 +64,48 @@ public class PreciseFixedFloatType implements RealType<PreciseFixedFloatType> {
 
 	private static final int DECIMAL_PLACES = 25; // TODO - make user configurable
 
+	private static final BigInteger SCALE = BigInteger.TEN.pow(DECIMAL_PLACES);
+
+	/** Number of longs storing one value. */
+	static final int WORDS = 2;
+
 	// -- fields --
 
-	private BigInteger scale;
-	private BigInteger amount;
+	private final NativeImg<?, ? extends LongAccess> img;
+
+	private final OverflowTable table;
+
+	/** Number of longs per pixel in the storage. */
+	private final int stride;
+
+	/** Position of this value's longs within a pixel. */
+	private final int offset;
+
+	private LongAccess dataAccess;
+
+	private int i = 0;
 
 	// -- constructors --
 
+	/**
+	 * Creates a type which is linked to a native image. Several values (e.g. the
+	 * parts of a complex number) can share a pixel at different offsets.
+	 */
+	PreciseFixedFloatType(final NativeImg<?, ? extends LongAccess> img,
+		final OverflowTable table, final int stride, final int offset)
+	{
+		this.img = img;
+		this.table = table;
+		this.stride = stride;
+		this.offset = offset;
+	}
+
 	public PreciseFixedFloatType() {
-		scale = BigInteger.TEN.pow(DECIMAL_PLACES);
-		amount = BigInteger.ZERO;
+		img = null;
+		table = new OverflowTable();
+		stride = WORDS;
+		offset = 0;
+		dataAccess = new LongArray(WORDS);
 	}
 
 	public PreciseFixedFloatType(long v) {
@@ -93,15 +134,75 @@ public PreciseFixedFloatType(String numStr) {
 	}
 
 	public PreciseFixedFloatType(PreciseFixedFloatType other) {
-		this.scale = other.scale;
-		this.amount = other.amount;
+		this();
+		set(other);
+	}
+
+	// -- NativeType methods --
+
+	@Override
+	public int getEntitiesPerPixel() {
+		return stride;
+	}
+
+	@Override
+	public NativeImg<PreciseFixedFloatType, ? extends LongAccess>
+		createSuitableNativeImg(
+			final NativeImgFactory<PreciseFixedFloatType> storageFactory,
+			final long[] dim)
+	{
+		final NativeImg<PreciseFixedFloatType, ? extends LongAccess> container =
+			storageFactory.createLongInstance(dim, WORDS);
+		container.setLinkedType(new PreciseFixedFloatType(container,
+			new OverflowTable(), WORDS, 0));
+		return container;
+	}
+
+	@Override
+	public PreciseFixedFloatType duplicateTypeOnSameNativeImg() {
+		return new PreciseFixedFloatType(img, table, stride, offset);
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		dataAccess = img.update(c);
+	}
+
+	@Override
+	public void updateIndex(final int index) {
+		i = index;
+	}
+
+	@Override
+	public int getIndex() {
+		return i;
+	}
+
+	@Override
+	public void incIndex() {
+		++i;
+	}
+
+	@Override
+	public void incIndex(final int increment) {
+		i += increment;
+	}
+
+	@Override
+	public void decIndex() {
+		--i;
+	}
+
+	@Override
+	public void decIndex(final int decrement) {
+		i -= decrement;
 	}
 
 	// -- RealType methods --
 
 	public BigDecimal get() {
-		BigDecimal numer = new BigDecimal(amount);
-		BigDecimal denom = new BigDecimal(scale);
+		BigDecimal numer = new BigDecimal(amount());
+		BigDecimal denom = new BigDecimal(SCALE);
 		// NB - since denom power of ten we don't need precision limited division
 		return numer.divide(denom);
 	}
@@ -182,11 +283,11 @@ public void complexConjugate() {
 	}
 
 	public void negate() {
-		amount = amount.negate();
+		setAmount(amount().negate());
 	}
 
 	public void abs() {
-		if (amount.compareTo(BigInteger.ZERO) < 0) negate();
+		if (amount().signum() < 0) negate();
 	}
 
 	public void pow(int power) {
@@ -197,7 +298,7 @@ public void pow(int power) {
 			}
 		}
 		else if (power == 0) {
-			amount = scale; // value = ONE
+			setAmount(SCALE); // value = ONE
 		}
 		else { // power > 0
 			PreciseFixedFloatType factor = new PreciseFixedFloatType(this);
@@ -214,7 +315,7 @@ public void add(PreciseFixedFloatType v) {
 	}
 
 	public void add(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.add(b.amount);
+		setAmount(a.amount().add(b.amount()));
 	}
 
 	@Override
@@ -223,7 +324,7 @@ public void sub(PreciseFixedFloatType v) {
 	}
 
 	public void sub(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.subtract(b.amount);
+		setAmount(a.amount().subtract(b.amount()));
 	}
 
 	@Override
@@ -232,7 +333,7 @@ public void mul(PreciseFixedFloatType v) {
 	}
 
 	public void mul(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.multiply(b.amount).divide(scale);
+		setAmount(a.amount().multiply(b.amount()).divide(SCALE));
 	}
 
 	@Override
@@ -241,17 +342,17 @@ public void div(PreciseFixedFloatType v) {
 	}
 
 	public void div(PreciseFixedFloatType a, PreciseFixedFloatType b) {
-		amount = a.amount.multiply(scale).divide(b.amount);
+		setAmount(a.amount().multiply(SCALE).divide(b.amount()));
 	}
 
 	@Override
 	public void setZero() {
-		amount = BigInteger.ZERO;
+		setAmount(BigInteger.ZERO);
 	}
 
 	@Override
 	public void setOne() {
-		this.amount = scale;
+		setAmount(SCALE);
 	}
 
 	@Override
@@ -265,13 +366,13 @@ public void mul(double v) {
 	}
 
 	public void mul(BigInteger v) {
-		amount = amount.multiply(v);
+		setAmount(amount().multiply(v));
 	}
 
 	public void mul(BigDecimal v) {
-		BigDecimal integer = new BigDecimal(amount);
+		BigDecimal integer = new BigDecimal(amount());
 		BigDecimal number = integer.multiply(v);
-		amount = number.toBigInteger();
+		setAmount(number.toBigInteger());
 	}
 
 	@Override
@@ -286,8 +387,7 @@ public PreciseFixedFloatType copy() {
 
 	@Override
 	public void set(PreciseFixedFloatType other) {
-		this.scale = other.scale;
-		this.amount = other.amount;
+		setAmount(other.amount());
 	}
 
 	public void set(double v) {
@@ -299,27 +399,27 @@ public void set(long v) {
 	}
 
 	public void set(BigInteger v) {
-		amount = v.multiply(scale);
+		setAmount(v.multiply(SCALE));
 	}
 
 	public void set(BigDecimal v) {
-		BigDecimal scaled = v.multiply(new BigDecimal(scale));
-		amount = scaled.toBigInteger();
+		BigDecimal scaled = v.multiply(new BigDecimal(SCALE));
+		setAmount(scaled.toBigInteger());
 	}
 
 	@Override
 	public int compareTo(PreciseFixedFloatType other) {
-		return amount.compareTo(other.amount);
+		return amount().compareTo(other.amount());
 	}
 
 	@Override
 	public void inc() {
-		amount = amount.add(scale);
+		setAmount(amount().add(SCALE));
 	}
 
 	@Override
 	public void dec() {
-		amount = amount.subtract(scale);
+		setAmount(amount().subtract(SCALE));
 	}
 
 	@Override
@@ -347,6 +447,19 @@ public String toString() {
 		return get().toString();
 	}
 
+	// -- helpers --
+
+	/** Returns the value scaled by 10^DECIMAL_PLACES. */
+	private BigInteger amount() {
+		return BigIntegerPacking.get(dataAccess, i * stride + offset, WORDS,
+			table);
+	}
+
+	private void setAmount(final BigInteger amount) {
+		BigIntegerPacking.set(dataAccess, i * stride + offset, WORDS, table,
+			amount);
+	}
+
 	private static final PreciseFixedFloatType ZERO = new PreciseFixedFloatType();
 	private static final PreciseFixedFloatType ONE = new PreciseFixedFloatType(1);
 	private static final PreciseFixedFloatType TWO = new PreciseFixedFloatType(2);
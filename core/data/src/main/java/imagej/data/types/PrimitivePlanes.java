@@ -0,0 +1,524 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.types;
+
+import java.lang.reflect.Array;
+
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Plans {@link PlaneConverter}s between the {@link DataType}s whose pixels are
+ * stored one per primitive array element. Values pass through a small long or
+ * double buffer so that each read and write loop is specialized for a single
+ * storage type. Clamping and truncation match the setLong() and setDouble()
+ * methods of the corresponding DataTypes.
+ */
+final class PrimitivePlanes {
+
+	private PrimitivePlanes() {
+		// NB: prevent instantiation of utility class.
+	}
+
+	// -- constants --
+
+	private static final int CHUNK = 4096;
+
+	// -- PrimitivePlanes methods --
+
+	/**
+	 * Returns a converter between the planes of two DataTypes, or null if either
+	 * type does not store one pixel per primitive array element.
+	 */
+	public static PlaneConverter converter(final DataType<?> inType,
+		final DataType<?> outType)
+	{
+		final Storage in = storageOf(inType);
+		final Storage out = storageOf(outType);
+		if (in == null || out == null) return null;
+		if (in == out) return new CopyConverter();
+		// NB: same order of preference as DefaultDataTypeService.cast()
+		final boolean useLongs =
+			inType.hasLongRepresentation() &&
+				(outType.hasLongRepresentation() || !outType
+					.hasDoubleRepresentation());
+		return new BufferedConverter(in, out, useLongs);
+	}
+
+	// -- helpers --
+
+	private static Storage storageOf(final DataType<?> type) {
+		if (type.isComplex()) return null;
+		final Class<?> c = type.getType().getClass();
+		if (c == ByteType.class) return Storage.INT8;
+		if (c == UnsignedByteType.class) return Storage.UINT8;
+		if (c == ShortType.class) return Storage.INT16;
+		if (c == UnsignedShortType.class) return Storage.UINT16;
+		if (c == IntType.class) return Storage.INT32;
+		if (c == UnsignedIntType.class) return Storage.UINT32;
+		if (c == LongType.class) return Storage.INT64;
+		if (c == FloatType.class) return Storage.FLOAT32;
+		if (c == DoubleType.class) return Storage.FLOAT64;
+		return null;
+	}
+
+	private static int length(final Object inPlane, final Object outPlane) {
+		final int length = Array.getLength(inPlane);
+		if (Array.getLength(outPlane) != length) {
+			throw new IllegalArgumentException("Plane lengths differ: " + length +
+				" vs. " + Array.getLength(outPlane));
+		}
+		return length;
+	}
+
+	private static class CopyConverter implements PlaneConverter {
+
+		@Override
+		public void convert(final Object inPlane, final Object outPlane) {
+			System.arraycopy(inPlane, 0, outPlane, 0, length(inPlane, outPlane));
+		}
+	}
+
+	private static class BufferedConverter implements PlaneConverter {
+
+		private final Storage in, out;
+		private final boolean useLongs;
+
+		public BufferedConverter(final Storage in, final Storage out,
+			final boolean useLongs)
+		{
+			this.in = in;
+			this.out = out;
+			this.useLongs = useLongs;
+		}
+
+		@Override
+		public void convert(final Object inPlane, final Object outPlane) {
+			final int length = length(inPlane, outPlane);
+			final int size = Math.min(CHUNK, length);
+			if (useLongs) {
+				final long[] buffer = new long[size];
+				for (int from = 0; from < length; from += size) {
+					final int n = Math.min(size, length - from);
+					in.readLongs(inPlane, from, buffer, n);
+					out.writeLongs(outPlane, from, buffer, n);
+				}
+			}
+			else {
+				final double[] buffer = new double[size];
+				for (int from = 0; from < length; from += size) {
+					final int n = Math.min(size, length - from);
+					in.readDoubles(inPlane, from, buffer, n);
+					out.writeDoubles(outPlane, from, buffer, n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The primitive storage of a plane along with its valid integer range (not
+	 * used by the floating point storages).
+	 */
+	private static enum Storage {
+
+		INT8(Byte.MIN_VALUE, Byte.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (byte) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (byte) clamp((long) buf[i]);
+			}
+		},
+
+		UINT8(0, 0xff) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xff;
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xff;
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (byte) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final byte[] a = (byte[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (byte) clamp((long) buf[i]);
+			}
+		},
+
+		INT16(Short.MIN_VALUE, Short.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (short) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (short) clamp((long) buf[i]);
+			}
+		},
+
+		UINT16(0, 0xffff) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xffff;
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xffff;
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (short) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final short[] a = (short[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (short) clamp((long) buf[i]);
+			}
+		},
+
+		INT32(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (int) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (int) clamp((long) buf[i]);
+			}
+		},
+
+		UINT32(0, 0xffffffffL) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xffffffffL;
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i] & 0xffffffffL;
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (int) clamp(buf[i]);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final int[] a = (int[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (int) clamp((long) buf[i]);
+			}
+		},
+
+		INT64(Long.MIN_VALUE, Long.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				System.arraycopy(plane, from, buf, 0, n);
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final long[] a = (long[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				System.arraycopy(buf, 0, plane, from, n);
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final long[] a = (long[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (long) buf[i];
+			}
+		},
+
+		FLOAT32(Long.MIN_VALUE, Long.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final float[] a = (float[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = (long) a[from + i];
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final float[] a = (float[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = a[from + i];
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final float[] a = (float[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (float) (double) buf[i];
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				final float[] a = (float[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = (float) buf[i];
+			}
+		},
+
+		FLOAT64(Long.MIN_VALUE, Long.MAX_VALUE) {
+
+			@Override
+			void readLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final double[] a = (double[]) plane;
+				for (int i = 0; i < n; i++)
+					buf[i] = (long) a[from + i];
+			}
+
+			@Override
+			void readDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				System.arraycopy(plane, from, buf, 0, n);
+			}
+
+			@Override
+			void writeLongs(final Object plane, final int from, final long[] buf,
+				final int n)
+			{
+				final double[] a = (double[]) plane;
+				for (int i = 0; i < n; i++)
+					a[from + i] = buf[i];
+			}
+
+			@Override
+			void writeDoubles(final Object plane, final int from,
+				final double[] buf, final int n)
+			{
+				System.arraycopy(buf, 0, plane, from, n);
+			}
+		};
+
+		private final long min, max;
+
+		private Storage(final long min, final long max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		long clamp(final long v) {
+			if (v < min) return min;
+			if (v > max) return max;
+			return v;
+		}
+
+		abstract void readLongs(Object plane, int from, long[] buf, int n);
+
+		abstract void readDoubles(Object plane, int from, double[] buf, int n);
+
+		abstract void writeLongs(Object plane, int from, long[] buf, int n);
+
+		abstract void writeDoubles(Object plane, int from, double[] buf, int n);
+	}
+}
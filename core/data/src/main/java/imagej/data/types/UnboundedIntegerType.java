@@ -34,49 +34,141 @@
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.LongAccess;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.IntegerType;
 
 /**
- * A BigInteger backed integral type (unlimited range).
+ * A BigInteger backed integral type (unlimited range). Images of this type
+ * store one long per pixel; values too large for it are kept in a per image
+ * {@link OverflowTable}.
  * 
  * @author Barry DeZonia
  */
-public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType> {
+public class UnboundedIntegerType implements IntegerType<UnboundedIntegerType>,
+	NativeType<UnboundedIntegerType>
+{
 
 	// -- fields --
 
-	private BigInteger v;
+	private final NativeImg<?, ? extends LongAccess> img;
+
+	private final OverflowTable table;
+
+	private LongAccess dataAccess;
+
+	private int i = 0;
 
 	// -- constructors --
 
+	/** Creates a type which is linked to a native image. */
+	UnboundedIntegerType(final NativeImg<?, ? extends LongAccess> img,
+		final OverflowTable table)
+	{
+		this.img = img;
+		this.table = table;
+	}
+
 	public UnboundedIntegerType() {
-		set(BigInteger.ZERO);
+		img = null;
+		table = new OverflowTable();
+		dataAccess = new LongArray(1);
 	}
 
 	public UnboundedIntegerType(UnboundedIntegerType other) {
+		this();
 		set(other);
 	}
 
 	public UnboundedIntegerType(long val) {
+		this();
 		set(val);
 	}
 
 	public UnboundedIntegerType(BigInteger val) {
+		this();
 		set(val);
 	}
 
 	// -- accessors --
 
 	public BigInteger get() {
-		return v;
+		return BigIntegerPacking.get(dataAccess, i, 1, table);
 	}
 
 	public void set(long val) {
-		this.v = BigInteger.valueOf(val);
+		if (val >= BigIntegerPacking.MIN_SMALL && val <= BigIntegerPacking.MAX_SMALL)
+		{
+			BigIntegerPacking.setSmall(dataAccess, i, 1, table, val);
+		}
+		else set(BigInteger.valueOf(val));
 	}
 
 	public void set(BigInteger val) {
-		this.v = val;
+		BigIntegerPacking.set(dataAccess, i, 1, table, val);
+	}
+
+	// -- NativeType methods --
+
+	@Override
+	public int getEntitiesPerPixel() {
+		return 1;
+	}
+
+	@Override
+	public NativeImg<UnboundedIntegerType, ? extends LongAccess>
+		createSuitableNativeImg(
+			final NativeImgFactory<UnboundedIntegerType> storageFactory,
+			final long[] dim)
+	{
+		final NativeImg<UnboundedIntegerType, ? extends LongAccess> container =
+			storageFactory.createLongInstance(dim, 1);
+		container.setLinkedType(new UnboundedIntegerType(container,
+			new OverflowTable()));
+		return container;
+	}
+
+	@Override
+	public UnboundedIntegerType duplicateTypeOnSameNativeImg() {
+		return new UnboundedIntegerType(img, table);
+	}
+
+	@Override
+	public void updateContainer(final Object c) {
+		dataAccess = img.update(c);
+	}
+
+	@Override
+	public void updateIndex(final int index) {
+		i = index;
+	}
+
+	@Override
+	public int getIndex() {
+		return i;
+	}
+
+	@Override
+	public void incIndex() {
+		++i;
+	}
+
+	@Override
+	public void incIndex(final int increment) {
+		i += increment;
+	}
+
+	@Override
+	public void decIndex() {
+		--i;
+	}
+
+	@Override
+	public void decIndex(final int decrement) {
+		i -= decrement;
 	}
 
 	// -- NumericType methods --
@@ -93,37 +185,51 @@ public UnboundedIntegerType copy() {
 
 	@Override
 	public void set(UnboundedIntegerType val) {
-		this.v = val.v;
+		if (val.isSmall()) set(val.small());
+		else set(val.get());
 	}
 
 	@Override
 	public void add(UnboundedIntegerType val) {
-		this.v = v.add(val.v);
+		// NB - small values are below 2^62 in magnitude so cannot overflow a long
+		if (isSmall() && val.isSmall()) set(small() + val.small());
+		else set(get().add(val.get()));
 	}
 
 	@Override
 	public void sub(UnboundedIntegerType val) {
-		this.v = v.subtract(val.v);
+		if (isSmall() && val.isSmall()) set(small() - val.small());
+		else set(get().subtract(val.get()));
 	}
 
 	@Override
 	public void mul(UnboundedIntegerType val) {
-		this.v = v.multiply(val.v);
+		if (isSmall() && val.isSmall()) {
+			final long a = small(), b = val.small();
+			if (Math.abs(a) < Integer.MAX_VALUE && Math.abs(b) < Integer.MAX_VALUE) {
+				set(a * b);
+				return;
+			}
+		}
+		set(get().multiply(val.get()));
 	}
 
 	@Override
 	public void div(UnboundedIntegerType val) {
-		this.v = v.divide(val.v);
+		if (isSmall() && val.isSmall() && val.small() != 0) {
+			set(small() / val.small());
+		}
+		else set(get().divide(val.get()));
 	}
 
 	@Override
 	public void setZero() {
-		this.v = BigInteger.ZERO;
+		set(0);
 	}
 
 	@Override
 	public void setOne() {
-		this.v = BigInteger.ONE;
+		set(1);
 	}
 
 	@Override
@@ -137,7 +243,7 @@ public void mul(double val) {
 	}
 
 	public void mul(BigInteger val) {
-		this.v = v.multiply(val);
+		set(get().multiply(val));
 	}
 
 	public void mul(BigDecimal val) {
@@ -147,9 +253,17 @@ public void mul(BigDecimal val) {
 	// -- helpers --
 
 	private void doMul(BigDecimal factor) {
-		BigDecimal val = new BigDecimal(this.v);
+		BigDecimal val = new BigDecimal(get());
 		BigDecimal result = val.multiply(factor);
-		this.v = result.toBigInteger();
+		set(result.toBigInteger());
+	}
+
+	private boolean isSmall() {
+		return BigIntegerPacking.isSmall(dataAccess, i, 1);
+	}
+
+	private long small() {
+		return BigIntegerPacking.getSmall(dataAccess, i);
 	}
 
 	// -- required IntegerType methods
@@ -158,12 +272,14 @@ private void doMul(BigDecimal factor) {
 
 	@Override
 	public void inc() {
-		this.v = this.v.add(BigInteger.ONE);
+		if (isSmall()) set(small() + 1);
+		else set(get().add(BigInteger.ONE));
 	}
 
 	@Override
 	public void dec() {
-		this.v = this.v.subtract(BigInteger.ONE);
+		if (isSmall()) set(small() - 1);
+		else set(get().subtract(BigInteger.ONE));
 	}
 
 	@Override
@@ -188,12 +304,12 @@ public int getBitsPerPixel() {
 
 	@Override
 	public double getRealDouble() {
-		return this.v.doubleValue();
+		return get().doubleValue();
 	}
 
 	@Override
 	public float getRealFloat() {
-		return this.v.floatValue();
+		return get().floatValue();
 	}
 
 	@Override
@@ -242,12 +358,12 @@ public void setComplexNumber(double r, double i) {
 
 	@Override
 	public float getPowerFloat() {
-		return this.v.floatValue();
+		return get().floatValue();
 	}
 
 	@Override
 	public double getPowerDouble() {
-		return this.v.doubleValue();
+		return get().doubleValue();
 	}
 
 	@Override
@@ -267,17 +383,21 @@ public void complexConjugate() {
 
 	@Override
 	public int compareTo(UnboundedIntegerType o) {
-		return this.v.compareTo(o.v);
+		if (isSmall() && o.isSmall()) {
+			final long a = small(), b = o.small();
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+		return get().compareTo(o.get());
 	}
 
 	@Override
 	public int getInteger() {
-		return this.v.intValue(); // TODO - narrowing
+		return get().intValue(); // TODO - narrowing
 	}
 
 	@Override
 	public long getIntegerLong() {
-		return this.v.longValue(); // TODO -- narrowing
+		return get().longValue(); // TODO -- narrowing
 	}
 
 	@Override
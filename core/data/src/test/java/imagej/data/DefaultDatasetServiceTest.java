@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests opening datasets with {@link DefaultDatasetService}.
+ */
+public class DefaultDatasetServiceTest {
+
+	private static final String SOURCE =
+		"test&pixelType=uint8&sizeX=16&sizeY=12&sizeZ=3.fake";
+
+	private Context context;
+	private DatasetService datasetService;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+		datasetService = context.getService(DatasetService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testOpenInMemoryByDefault() throws IOException {
+		final Dataset dataset = datasetService.open(SOURCE);
+		assertTrue(dataset.getImgPlus().getImg() instanceof PlanarImg);
+		assertArrayEquals(new long[] { 16, 12, 3 }, dims(dataset));
+	}
+
+	@Test
+	public void testOpenVirtual() throws IOException {
+		final Dataset planar = datasetService.open(SOURCE, false);
+		final Dataset virtual = datasetService.open(SOURCE, true);
+		assertFalse(virtual.getImgPlus().getImg() instanceof PlanarImg);
+		assertSameValues(planar, virtual);
+	}
+
+	@Test
+	public void testOpenUnknownExtension() throws IOException {
+		// the contents have to identify the format
+		final Dataset expected = datasetService.open(SOURCE);
+		final File tif = File.createTempFile("dataset-service", ".tif");
+		final File unknown =
+			new File(tif.getParentFile(), tif.getName() + ".unknown-extension");
+		try {
+			datasetService.save(expected, tif.getAbsolutePath());
+			assertTrue(tif.renameTo(unknown));
+			final Dataset actual = datasetService.open(unknown.getAbsolutePath());
+			assertSameValues(expected, actual);
+		}
+		finally {
+			tif.delete();
+			unknown.delete();
+		}
+	}
+
+	// -- Helper methods --
+
+	private static long[] dims(final Dataset dataset) {
+		final long[] dims = new long[dataset.numDimensions()];
+		dataset.dimensions(dims);
+		return dims;
+	}
+
+	private static void assertSameValues(final Dataset expected,
+		final Dataset actual)
+	{
+		assertArrayEquals(dims(expected), dims(actual));
+		final Img<? extends RealType<?>> img = expected.getImgPlus();
+		final Cursor<? extends RealType<?>> cursor = img.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access =
+			actual.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			final double value = cursor.next().getRealDouble();
+			access.setPosition(cursor);
+			assertEquals(value, access.get().getRealDouble(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link SourceOptimizedCompositeXYProjector}.
+ */
+public class SourceOptimizedCompositeXYProjectorTest {
+
+	private Context context;
+	private ThreadService threadService;
+
+	@Before
+	public void setUp() {
+		context = new Context(ThreadService.class);
+		threadService = context.getService(ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testPlanarBytes() {
+		assertMatchesComposite(new PlanarImgFactory<UnsignedByteType>(),
+			new UnsignedByteType(), 32, 80, 0, 0, 150);
+	}
+
+	@Test
+	public void testCellBytes() {
+		assertMatchesComposite(new CellImgFactory<UnsignedByteType>(16),
+			new UnsignedByteType(), 32, 80, 0, 0, 150);
+	}
+
+	@Test
+	public void testPlanarSignedShorts() {
+		assertMatchesComposite(new PlanarImgFactory<ShortType>(), new ShortType(),
+			256, 256, -100, -100, 100);
+	}
+
+	@Test
+	public void testPlanarLongs() {
+		// the range of the type does not fit into a long
+		assertMatchesComposite(new PlanarImgFactory<LongType>(), new LongType(),
+			256, 256, -100, -100, 100);
+	}
+
+	@Test
+	public void testPlanarUnsignedInts() {
+		assertMatchesComposite(new PlanarImgFactory<UnsignedIntType>(),
+			new UnsignedIntType(), 256, 256, 0, 0, 200);
+	}
+
+	@Test
+	public void testPlanarFloats() {
+		assertMatchesComposite(new PlanarImgFactory<FloatType>(), new FloatType(),
+			32, 80, 0, 0, 100);
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T> & NativeType<T>> void assertMatchesComposite(
+		final ImgFactory<T> factory, final T type, final int width,
+		final int height, final int offset, final double min, final double max)
+	{
+		final Img<T> img = factory.create(new long[] { width, height, 3 }, type);
+		int i = 0;
+		for (final T t : img) {
+			t.setReal((i++ * 37) % 200 + offset);
+		}
+		final ImgPlus<T> imgPlus = new ImgPlus<T>(img);
+		final ArrayList<Converter<T, ARGBType>> converters =
+			new ArrayList<Converter<T, ARGBType>>();
+		converters.add(new RealLUTConverter<T>(min, max, ColorTables.RED));
+		converters.add(new RealLUTConverter<T>(min, max, ColorTables.GREEN));
+		converters.add(new RealLUTConverter<T>(min, max, ColorTables.CYAN));
+
+		for (final boolean composite : new boolean[] { true, false }) {
+			final ARGBScreenImage expected = new ARGBScreenImage(width, height);
+			final CompositeXYProjector<T> reference =
+				new CompositeXYProjector<T>(imgPlus, expected, converters, 2);
+			reference.setComposite(composite);
+			reference.setPosition(1, 2);
+			reference.map();
+
+			final ARGBScreenImage actual = new ARGBScreenImage(width, height);
+			final SourceOptimizedCompositeXYProjector<T, ImgPlus<T>, ARGBScreenImage> projector =
+				new SourceOptimizedCompositeXYProjector<T, ImgPlus<T>, ARGBScreenImage>(
+					imgPlus, actual, converters, 2, threadService);
+			projector.setComposite(composite);
+			projector.setPosition(1, 2);
+			projector.map();
+
+			assertArrayEquals(expected.getData(), actual.getData());
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.histogram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.autoscale.DataRange;
+import net.imglib2.histogram.Histogram1d;
+import net.imglib2.histogram.Real1dBinMapper;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link DefaultHistogramService}.
+ */
+public class DefaultHistogramServiceTest {
+
+	private Context context;
+	private HistogramService service;
+
+	@Before
+	public void setUp() {
+		context = new Context(HistogramService.class, DatasetService.class);
+		service = context.getService(HistogramService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testRange() {
+		final DataRange range = service.getRange(bytes());
+		assertEquals(-20, range.getMin(), 0);
+		assertEquals(99, range.getMax(), 0);
+	}
+
+	@Test
+	public void testCountsByValueMatchCountData() {
+		final Img<ByteType> img = bytes();
+		final Real1dBinMapper<ByteType> mapper =
+			new Real1dBinMapper<ByteType>(-20, 99, 37, false);
+		final Histogram1d<ByteType> expected = new Histogram1d<ByteType>(mapper);
+		expected.countData(img);
+		final Histogram1d<ByteType> actual = service.getHistogram(img, mapper);
+		assertArrayEquals(expected.toLongArray(), actual.toLongArray());
+		assertEquals(img.size(), actual.distributionCount());
+	}
+
+	@Test
+	public void testFloatsMatchIntegers() {
+		final Histogram1d<ByteType> ints = service.getHistogram(bytes(), 64);
+		final Histogram1d<FloatType> floats = service.getHistogram(floats(), 64);
+		assertArrayEquals(ints.toLongArray(), floats.toLongArray());
+	}
+
+	@Test
+	public void testCachedUntilUpdated() {
+		final DatasetService datasetService =
+			context.getService(DatasetService.class);
+		final Dataset ds =
+			datasetService.create(new ImgPlus<ByteType>(bytes()));
+		final long[] min = { 0, 0 };
+		final long[] max = { 199, 0 };
+		final DataRange range = service.getRange(ds, null, null);
+		assertSame(range, service.getRange(ds, null, null));
+		final Histogram1d<ByteType> hist =
+			service.getHistogram(ds, min, max, range, 64);
+		assertSame(hist, service.getHistogram(ds, min, max, range, 64));
+		assertNotSame(hist, service.getHistogram(ds, null, null, range, 64));
+
+		ds.update();
+		assertNotSame(range, service.getRange(ds, null, null));
+		assertNotSame(hist, service.getHistogram(ds, min, max, range, 64));
+		assertEquals(range.getMax(), service.getRange(ds, null, null).getMax(), 0);
+	}
+
+	@Test
+	public void testPlaneCacheIsBounded() {
+		// the counts by value of each 16-bit plane take 512 KB
+		final int planes = 64;
+		final Img<UnsignedShortType> img = ArrayImgs.unsignedShorts(16, 16, planes);
+		int i = 0;
+		for (final UnsignedShortType s : img) {
+			s.set(i++ % 1000);
+		}
+		final Dataset ds =
+			context.getService(DatasetService.class).create(
+				new ImgPlus<UnsignedShortType>(img));
+		final long[] min = { 0, 0, 0 };
+		final long[] max = { 15, 15, 0 };
+		final DataRange range = service.getRange(ds, min, max);
+		final Histogram1d<UnsignedShortType> first =
+			service.getHistogram(ds, min, max, range, 256);
+		for (int z = 1; z < planes; z++) {
+			min[2] = max[2] = z;
+			service.getHistogram(ds, min, max, service.getRange(ds, min, max), 256);
+		}
+		min[2] = max[2] = 0;
+		final Histogram1d<UnsignedShortType> again =
+			service.getHistogram(ds, min, max, range, 256);
+		assertNotSame(first, again);
+		assertArrayEquals(first.toLongArray(), again.toLongArray());
+	}
+
+	// -- helpers --
+
+	private Img<ByteType> bytes() {
+		final Img<ByteType> img = ArrayImgs.bytes(200, 300);
+		int i = 0;
+		for (final ByteType b : img) {
+			b.set((byte) (i++ % 120 - 20));
+		}
+		return img;
+	}
+
+	private Img<FloatType> floats() {
+		final Img<FloatType> img = ArrayImgs.floats(200, 300);
+		int i = 0;
+		for (final FloatType f : img) {
+			f.set(i++ % 120 - 20);
+		}
+		return img;
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.condition.Condition;
+import net.imglib2.ops.pointset.ConditionalPointSet;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link DefaultStatisticsService}.
+ */
+public class DefaultStatisticsServiceTest {
+
+	private static final Set<Statistic> ALL = EnumSet.allOf(Statistic.class);
+
+	private Context context;
+	private StatisticsService service;
+	private Dataset ds;
+
+	@Before
+	public void setUp() {
+		context =
+			new Context(StatisticsService.class, DatasetService.class,
+				ThreadService.class);
+		service = context.getService(StatisticsService.class);
+		final Img<FloatType> img = ArrayImgs.floats(600, 500);
+		final Random rng = new Random(42);
+		for (final FloatType f : img) {
+			f.set((float) Math.exp(8 * rng.nextDouble()));
+		}
+		ds =
+			context.getService(DatasetService.class).create(
+				new ImgPlus<FloatType>(img));
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testWholeImageMatchesSerial() {
+		assertThreadCountIndependent(service.allOf(ds));
+	}
+
+	@Test
+	public void testHyperVolumeMatchesSerial() {
+		assertThreadCountIndependent(new HyperVolumePointSet(new long[] { 10, 20 },
+			new long[] { 589, 479 }));
+	}
+
+	@Test
+	public void testArbitraryRegionMatchesSerial() {
+		assertThreadCountIndependent(region(new Condition<long[]>() {
+
+			@Override
+			public boolean isTrue(final long[] pos) {
+				return (pos[0] + pos[1]) % 3 == 0;
+			}
+
+			@Override
+			public Condition<long[]> copy() {
+				return this;
+			}
+		}));
+	}
+
+	@Test
+	public void testEmptyRegion() {
+		final PointSet empty = region(new Condition<long[]>() {
+
+			@Override
+			public boolean isTrue(final long[] pos) {
+				return false;
+			}
+
+			@Override
+			public Condition<long[]> copy() {
+				return this;
+			}
+		});
+		for (final int threads : new int[] { 1, 4 }) {
+			final StatisticsAccumulator acc =
+				service.accumulate(ds, empty, ALL, threads);
+			assertEquals(0, acc.getCount());
+			assertEquals(0, acc.get(Statistic.ARITHMETIC_MEAN), 0);
+			assertEquals(0, acc.get(Statistic.MEDIAN), 0);
+		}
+	}
+
+	@Test
+	public void testSingleStatisticMatchesBatch() {
+		final StatisticsAccumulator acc =
+			service.accumulate(ds, service.allOf(ds), ALL, 4);
+		assertEquals(acc.get(Statistic.ARITHMETIC_MEAN), service
+			.arithmeticMean(ds), 0);
+		assertEquals(acc.get(Statistic.SAMPLE_VARIANCE), service
+			.sampleVariance(ds), 0);
+		assertEquals(acc.get(Statistic.MAXIMUM), service.maximum(ds), 0);
+	}
+
+	// -- helpers --
+
+	private PointSet region(final Condition<long[]> condition) {
+		return new ConditionalPointSet(service.allOf(ds), condition);
+	}
+
+	private void assertThreadCountIndependent(final PointSet region) {
+		final StatisticsAccumulator serial =
+			service.accumulate(ds, region, ALL, 1);
+		assertEquals(region.size(), serial.getCount());
+		for (final int threads : new int[] { 2, 3, 8 }) {
+			final StatisticsAccumulator parallel =
+				service.accumulate(ds, region, ALL, threads);
+			assertEquals(serial.getCount(), parallel.getCount());
+			for (final Statistic stat : ALL) {
+				assertEquals(stat + " with " + threads + " threads", serial.get(stat),
+					parallel.get(stat), 0);
+			}
+		}
+	}
+
+}
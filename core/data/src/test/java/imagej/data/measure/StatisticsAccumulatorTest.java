@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StatisticsAccumulator}.
+ */
+public class StatisticsAccumulatorTest {
+
+	@Test
+	public void testSinglePass() {
+		final double[] data = { 1, 2, 3, 4, 10 };
+		final StatisticsAccumulator acc = new StatisticsAccumulator(true);
+		for (final double v : data)
+			acc.add(v);
+		final BasicStats stats = new BasicStats();
+		stats.calcStats(data);
+		assertEquals(5, acc.getCount());
+		assertEquals(stats.getXBar(), acc.get(Statistic.ARITHMETIC_MEAN), 1e-12);
+		assertEquals(stats.getS2n(), acc.get(Statistic.POPULATION_VARIANCE), 1e-12);
+		assertEquals(stats.getS2n1(), acc.get(Statistic.SAMPLE_VARIANCE), 1e-12);
+		assertEquals(stats.getSn1(), acc.get(Statistic.SAMPLE_STD_DEV), 1e-12);
+		assertEquals(1, acc.get(Statistic.MINIMUM), 0);
+		assertEquals(10, acc.get(Statistic.MAXIMUM), 0);
+		assertEquals(5.5, acc.get(Statistic.MIDPOINT), 0);
+		assertEquals(3, acc.get(Statistic.MEDIAN), 0);
+		assertEquals(20, acc.get(Statistic.SUM), 0);
+		assertEquals(240, acc.get(Statistic.PRODUCT), 0);
+		assertEquals(Math.pow(240, 1.0 / 5), acc.get(Statistic.GEOMETRIC_MEAN),
+			1e-12);
+	}
+
+	@Test
+	public void testMerge() {
+		final Random rng = new Random(1234);
+		final StatisticsAccumulator whole = new StatisticsAccumulator(true);
+		final StatisticsAccumulator part1 = new StatisticsAccumulator(true);
+		final StatisticsAccumulator part2 = new StatisticsAccumulator(true);
+		for (int i = 0; i < 1000; i++) {
+			final double v = 50 * rng.nextGaussian() + 7;
+			whole.add(v);
+			if (i < 317) part1.add(v);
+			else part2.add(v);
+		}
+		part1.merge(part2);
+		assertEquals(whole.getCount(), part1.getCount());
+		for (final Statistic stat : new Statistic[] { Statistic.ARITHMETIC_MEAN,
+			Statistic.SAMPLE_VARIANCE, Statistic.SAMPLE_SKEW,
+			Statistic.SAMPLE_KURTOSIS_EXCESS, Statistic.POPULATION_KURTOSIS,
+			Statistic.MINIMUM, Statistic.MAXIMUM, Statistic.MEDIAN })
+		{
+			assertEquals(stat.toString(), whole.get(stat), part1.get(stat), 1e-9);
+		}
+	}
+
+	@Test
+	public void testRequestedStatistics() {
+		final StatisticsAccumulator acc =
+			new StatisticsAccumulator(EnumSet.of(Statistic.ARITHMETIC_MEAN,
+				Statistic.SAMPLE_VARIANCE));
+		final StatisticsAccumulator full = new StatisticsAccumulator();
+		for (final double v : new double[] { -3, 0, 2, 9 }) {
+			acc.add(v);
+			full.add(v);
+		}
+		assertFalse(acc.isRetainingValues());
+		assertEquals(full.get(Statistic.ARITHMETIC_MEAN), acc
+			.get(Statistic.ARITHMETIC_MEAN), 0);
+		assertEquals(full.get(Statistic.SAMPLE_VARIANCE), acc
+			.get(Statistic.SAMPLE_VARIANCE), 0);
+		try {
+			acc.get(Statistic.GEOMETRIC_MEAN);
+			fail("geometric mean was not requested");
+		}
+		catch (final IllegalStateException e) {
+			// expected
+		}
+		// a narrower accumulator can absorb a wider one, but not vice versa
+		acc.merge(full);
+		assertEquals(8, acc.getCount());
+		try {
+			full.merge(acc);
+			fail("merged an accumulator lacking the product and logs");
+		}
+		catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMergeEmpty() {
+		final StatisticsAccumulator acc = new StatisticsAccumulator(true);
+		acc.merge(new StatisticsAccumulator(true));
+		assertEquals(0, acc.getCount());
+		assertEquals(0, acc.get(Statistic.MEDIAN), 0);
+		for (final double v : new double[] { 4, 1, 7 })
+			acc.add(v);
+		final StatisticsAccumulator copy = new StatisticsAccumulator(true);
+		copy.merge(acc);
+		copy.merge(new StatisticsAccumulator(true));
+		for (final Statistic stat : Statistic.values()) {
+			assertEquals(stat.toString(), acc.get(stat), copy.get(stat), 0);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMedianRequiresValues() {
+		final StatisticsAccumulator acc = new StatisticsAccumulator();
+		acc.add(1);
+		acc.get(Statistic.MEDIAN);
+	}
+
+}
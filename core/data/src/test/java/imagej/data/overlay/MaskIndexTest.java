@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.overlay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import net.imglib2.ops.pointset.PointSetIterator;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MaskIndex}.
+ */
+public class MaskIndexTest {
+
+	@Test
+	public void testContainsAndCount() {
+		final MaskIndex mask = makeMask(new long[] { 10, 2 });
+		assertEquals(6, mask.count());
+		assertTrue(mask.contains(new long[] { 2, 0 }));
+		assertTrue(mask.contains(new long[] { 4, 0 }));
+		assertFalse(mask.contains(new long[] { 5, 0 }));
+		assertTrue(mask.contains(new long[] { 9, 1 }));
+		assertFalse(mask.contains(new long[] { 10, 1 }));
+		assertFalse(mask.contains(new long[] { 2, 2 }));
+	}
+
+	@Test
+	public void testIteration() {
+		final MaskIndex mask = makeMask(new long[] { 10, 2 });
+		final PointSetIterator iter = mask.iterator();
+		int count = 0;
+		while (iter.hasNext()) {
+			assertTrue(mask.contains(iter.next()));
+			count++;
+		}
+		assertEquals(mask.count(), count);
+		iter.reset();
+		assertArrayEquals(new long[] { 2, 0 }, iter.next());
+	}
+
+	@Test
+	public void testBounds() {
+		final MaskIndex mask = makeMask(new long[] { 10, 2 });
+		final long[] min = new long[2];
+		final long[] max = new long[2];
+		assertTrue(mask.bounds(min, max));
+		assertArrayEquals(new long[] { 0, 0 }, min);
+		assertArrayEquals(new long[] { 9, 1 }, max);
+		assertFalse(new MaskIndex(new long[] { 10, 2 }).bounds(min, max));
+	}
+
+	@Test
+	public void testCombination() {
+		final long[] dims = new long[] { 10, 2 };
+		final MaskIndex a = makeMask(dims);
+		final MaskIndex b = new MaskIndex(dims);
+		b.setRow(0, new int[] { 3, 8 });
+		assertEquals(2, a.and(b).count());
+		assertEquals(9, a.or(b).count());
+		assertEquals(4, a.andNot(b).count());
+		assertArrayEquals(new int[] { 2, 8 }, a.or(b).getRuns(0));
+		assertArrayEquals(new int[] { 0, 1, 8, 10 }, a.or(b).getRuns(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRuns() {
+		new MaskIndex(new long[] { 10, 2 }).setRow(0, new int[] { 4, 2 });
+	}
+
+	// -- helpers --
+
+	private MaskIndex makeMask(final long[] dims) {
+		final MaskIndex mask = new MaskIndex(dims);
+		mask.setRow(0, new int[] { 2, 5 });
+		mask.setRow(1, new int[] { 0, 1, 8, 10 });
+		return mask;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.sampler;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.display.ImageDisplay;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.types.UnboundedIntegerType;
+import imagej.display.DisplayService;
+
+import java.math.BigInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.meta.ImgPlus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link DefaultSamplerService}.
+ */
+public class DefaultSamplerServiceTest {
+
+	private static final BigInteger HUGE = BigInteger.TEN.pow(40);
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context();
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testDuplicateOverflowingValues() {
+		final Img<UnboundedIntegerType> img =
+			new PlanarImgFactory<UnboundedIntegerType>().create(new long[] { 5, 4,
+				3 }, new UnboundedIntegerType());
+		final Cursor<UnboundedIntegerType> cursor = img.localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			cursor.get().set(value(cursor.getIntPosition(0),
+				cursor.getIntPosition(1), cursor.getIntPosition(2)));
+		}
+		final Dataset dataset =
+			context.getService(DatasetService.class).create(
+				new ImgPlus<UnboundedIntegerType>(img, "huge", new AxisType[] {
+					Axes.X, Axes.Y, Axes.Z }, null));
+		final ImageDisplay display =
+			(ImageDisplay) context.getService(DisplayService.class).createDisplay(
+				"huge", dataset);
+
+		final ImageDisplay copy =
+			context.getService(SamplerService.class).duplicate(display);
+		final Dataset output =
+			context.getService(ImageDisplayService.class).getActiveDataset(copy);
+
+		assertEquals(UnboundedIntegerType.class, output.getType().getClass());
+		@SuppressWarnings("unchecked")
+		final RandomAccess<UnboundedIntegerType> access =
+			(RandomAccess<UnboundedIntegerType>) output.getImgPlus().randomAccess();
+		for (int z = 0; z < 3; z++) {
+			for (int y = 0; y < 4; y++) {
+				for (int x = 0; x < 5; x++) {
+					access.setPosition(new long[] { x, y, z });
+					assertEquals(value(x, y, z), access.get().get());
+				}
+			}
+		}
+	}
+
+	/** Every other value is too large to be stored within the plane. */
+	private static BigInteger value(final int x, final int y, final int z) {
+		final BigInteger v = BigInteger.valueOf(x + 5 * y + 20 * z);
+		return (x + y + z) % 2 == 0 ? v : HUGE.add(v).negate();
+	}
+
+}
@@ -33,6 +33,12 @@
 
 import static org.junit.Assert.assertEquals;
 
+import java.math.BigDecimal;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.planar.PlanarImgFactory;
+
 import org.junit.Test;
 
 /**
@@ -134,4 +140,37 @@ public void testSqrt() {
 		val = new PreciseFixedComplexFloatType(4, 4);
 		assertEquals(4 * Math.sqrt(2), val.getPowerDouble(), PRECISION);
 	}
+
+	@Test
+	public void testNativeStorage() {
+		final Img<PreciseFixedComplexFloatType> img =
+			new PlanarImgFactory<PreciseFixedComplexFloatType>().create(new long[] {
+				3, 2 }, new PreciseFixedComplexFloatType());
+		// the second value does not fit inline and goes to the overflow table
+		final String big = "123456789012345678901234567890.5";
+		int n = 0;
+		for (final PreciseFixedComplexFloatType v : img) {
+			v.setReal(new BigDecimal(n));
+			v.setImag(new BigDecimal(n % 2 == 0 ? "-0.25" : big));
+			n++;
+		}
+		final Img<PreciseFixedComplexFloatType> copy = img.copy();
+		for (final PreciseFixedComplexFloatType v : img) {
+			v.setZero();
+		}
+		final Cursor<PreciseFixedComplexFloatType> cursor = copy.cursor();
+		n = 0;
+		while (cursor.hasNext()) {
+			final PreciseFixedComplexFloatType v = cursor.next();
+			assertEquals(0, new BigDecimal(n).compareTo(v.getReal().get()));
+			assertEquals(0, new BigDecimal(n % 2 == 0 ? "-0.25" : big).compareTo(v
+				.getImag().get()));
+			n++;
+		}
+		assertEquals(6, n);
+		for (final PreciseFixedComplexFloatType v : img) {
+			assertEquals(0, v.getRealDouble(), 0);
+			assertEquals(0, v.getImaginaryDouble(), 0);
+		}
+	}
 }
@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link PrimitivePlanes}.
+ */
+public class PrimitivePlanesTest {
+
+	@Test
+	public void testWidening() {
+		final short[] in = { 0, 1, -1, Short.MAX_VALUE, Short.MIN_VALUE };
+		final float[] out = new float[in.length];
+		converter(new DataType16BitUnsignedInteger(),
+			new DataType32BitSignedFloat()).convert(in, out);
+		assertArrayEquals(new float[] { 0, 1, 65535, 32767, 32768 }, out, 0);
+	}
+
+	@Test
+	public void testClamping() {
+		final int[] in = { -5, 100, 300, 70000 };
+		final byte[] out = new byte[in.length];
+		converter(new DataType32BitSignedInteger(),
+			new DataType8BitUnsignedInteger()).convert(in, out);
+		assertArrayEquals(new byte[] { 0, 100, (byte) 255, (byte) 255 }, out);
+	}
+
+	@Test
+	public void testTruncation() {
+		final double[] in = { 1.9, -1.9, 40000.5, -40000.5 };
+		final short[] out = new short[in.length];
+		converter(new DataType64BitSignedFloat(),
+			new DataType16BitSignedInteger()).convert(in, out);
+		assertArrayEquals(new short[] { 1, -1, Short.MAX_VALUE, Short.MIN_VALUE },
+			out);
+	}
+
+	@Test
+	public void testUnsignedInt() {
+		final int[] in = { -1, 7 };
+		final long[] out = new long[in.length];
+		converter(new DataType32BitUnsignedInteger(),
+			new DataType64BitSignedInteger()).convert(in, out);
+		assertArrayEquals(new long[] { 0xffffffffL, 7 }, out);
+	}
+
+	@Test
+	public void testLargePlane() {
+		// spans several buffer chunks
+		final byte[] in = new byte[10000];
+		for (int i = 0; i < in.length; i++) {
+			in[i] = (byte) i;
+		}
+		final short[] out = new short[in.length];
+		converter(new DataType8BitSignedInteger(),
+			new DataType16BitSignedInteger()).convert(in, out);
+		for (int i = 0; i < in.length; i++) {
+			assertEquals(in[i], out[i]);
+		}
+	}
+
+	@Test
+	public void testSameType() {
+		final float[] in = { 1.5f, -2.5f };
+		final float[] out = new float[in.length];
+		converter(new DataType32BitSignedFloat(),
+			new DataType32BitSignedFloat()).convert(in, out);
+		assertArrayEquals(in, out, 0);
+	}
+
+	@Test
+	public void testUnsupported() {
+		assertNull(PrimitivePlanes.converter(new DataType12BitUnsignedInteger(),
+			new DataType32BitSignedFloat()));
+		assertNull(PrimitivePlanes.converter(new DataType32BitSignedFloat(),
+			new DataTypeVariableBitSignedInteger()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLengthMismatch() {
+		converter(new DataType8BitSignedInteger(),
+			new DataType8BitUnsignedInteger()).convert(new byte[2], new byte[3]);
+	}
+
+	// -- Helper methods --
+
+	private PlaneConverter converter(final DataType<?> in, final DataType<?> out)
+	{
+		return PrimitivePlanes.converter(in, out);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.data.types;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+
+import org.junit.Test;
+
+/**
+ * Test code for the {@link UnboundedIntegerType} type.
+ */
+public class UnboundedIntegerTypeTest {
+
+	private static final BigInteger HUGE = BigInteger.TEN.pow(40);
+
+	@Test
+	public void testArithmetic() {
+		final UnboundedIntegerType a = new UnboundedIntegerType(Long.MAX_VALUE);
+		final UnboundedIntegerType b = new UnboundedIntegerType(Long.MAX_VALUE);
+		a.add(b);
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1), a.get());
+		a.sub(b);
+		a.sub(b);
+		assertEquals(BigInteger.ZERO, a.get());
+		a.set(3);
+		b.set(-7);
+		a.mul(b);
+		assertEquals(BigInteger.valueOf(-21), a.get());
+		a.div(new UnboundedIntegerType(4));
+		assertEquals(BigInteger.valueOf(-5), a.get());
+		a.set(HUGE);
+		a.inc();
+		assertEquals(HUGE.add(BigInteger.ONE), a.get());
+		assertEquals(1, a.compareTo(b));
+	}
+
+	@Test
+	public void testNativeStorage() {
+		final Img<UnboundedIntegerType> img =
+			new ArrayImgFactory<UnboundedIntegerType>().create(new long[] { 4, 3 },
+				new UnboundedIntegerType());
+		final RandomAccess<UnboundedIntegerType> access = img.randomAccess();
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 4; x++) {
+				access.setPosition(x, 0);
+				access.setPosition(y, 1);
+				access.get().set(value(x, y));
+			}
+		}
+		// overwrite a huge value with a small one and vice versa
+		access.setPosition(1, 0);
+		access.setPosition(0, 1);
+		access.get().set(HUGE.negate());
+		access.get().set(5);
+		access.setPosition(0, 0);
+		access.get().set(HUGE.negate());
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 4; x++) {
+				access.setPosition(x, 0);
+				access.setPosition(y, 1);
+				final BigInteger expected;
+				if (x == 1 && y == 0) expected = BigInteger.valueOf(5);
+				else if (x == 0 && y == 0) expected = HUGE.negate();
+				else expected = value(x, y);
+				assertEquals(expected, access.get().get());
+			}
+		}
+	}
+
+	private BigInteger value(final int x, final int y) {
+		final BigInteger v = BigInteger.valueOf(x + 4 * y);
+		return (x + y) % 2 == 0 ? v : HUGE.add(v);
+	}
+}
@@ -37,7 +37,9 @@
 import imagej.data.Dataset;
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
+import net.imglib2.meta.IntervalUtils;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
 
 /**
  * Supports bidirectional synchronization between color {@link ImagePlus}es and
@@ -51,6 +53,7 @@ public class ColorPixelHarmonizer implements DataHarmonizer {
 
 	private double[] savedPlane;
 	private int savedPos;
+	private final DirtyPlaneTracker tracker = new DirtyPlaneTracker();
 
 	// -- public api --
 
@@ -92,24 +95,72 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		int imagejPlaneNumber = 1;
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
+		final boolean primitivePlanes = hasPrimitivePlanes(ds);
+		final long[] dims = IntervalUtils.getDims(ds);
+		final long[] pos = new long[dims.length];
+		final DirtyPlaneTracker.Planes planes =
+			primitivePlanes ? trackedPlanes(ds, imp, dims) : null;
+		boolean changes = false;
 		int slice = imp.getCurrentSlice();
 		for (int t = 0; t < tSize; t++) {
-			if (tIndex >= 0) accessor.setPosition(t, tIndex);
+			if (tIndex >= 0) {
+				accessor.setPosition(t, tIndex);
+				pos[tIndex] = t;
+			}
 			for (int z = 0; z < zSize; z++) {
-				if (zIndex >= 0) accessor.setPosition(z, zIndex);
+				if (zIndex >= 0) {
+					accessor.setPosition(z, zIndex);
+					pos[zIndex] = z;
+				}
 				for (int c = 0; c < cSize; c++) {
 					final ImageProcessor proc = stack.getProcessor(imagejPlaneNumber++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
+					// NOTE: to propagate a VirtualStack's first plane pixel changes
+					// we save it early in the harmonization process and refer to it
+					// later. This code is part of that process
+					final boolean useSavedPlane = savedPos == imagejPlaneNumber - 1;
+					if (primitivePlanes) {
+						// fast path: unpack the whole plane directly into storage
+						final int rIndex = channelPlaneIndex(ds, dims, pos, 3 * c);
+						final int gIndex = channelPlaneIndex(ds, dims, pos, 3 * c + 1);
+						final int bIndex = channelPlaneIndex(ds, dims, pos, 3 * c + 2);
+						final byte[] r = (byte[]) ds.getPlane(rIndex, false);
+						final byte[] g = (byte[]) ds.getPlane(gIndex, false);
+						final byte[] b = (byte[]) ds.getPlane(bIndex, false);
+						final Object pixels = proc.getPixels();
+						final int stackPosition = imagejPlaneNumber - 1;
+						if (!useSavedPlane && planes != null &&
+							planes.modernUnchanged(ds, rIndex, r) &&
+							planes.modernUnchanged(ds, gIndex, g) &&
+							planes.modernUnchanged(ds, bIndex, b) &&
+							planes.legacyUnchanged(stackPosition, pixels))
+						{
+							continue;
+						}
+						for (int i = 0; i < r.length; i++) {
+							final int value =
+								useSavedPlane ? (int) savedPlane[i] : proc.get(i);
+							r[i] = (byte) (value >> 16);
+							g[i] = (byte) (value >> 8);
+							b[i] = (byte) value;
+						}
+						if (planes != null) {
+							planes.recordLegacy(stackPosition, pixels);
+							planes.recordModern(rIndex, r);
+							planes.recordModern(gIndex, g);
+							planes.recordModern(bIndex, b);
+						}
+						changes = true;
+						continue;
+					}
+					changes = true;
 					for (int y = 0; y < ySize; y++) {
 						accessor.setPosition(y, yIndex);
 						for (int x = 0; x < xSize; x++) {
 							accessor.setPosition(x, xIndex);
-							// NOTE: to propagate a VirtualStack's first plane pixel changes
-							// we save it early in the harmonization process and refer to it
-							// later. This code is part of that process
 							final int value;
-							if (savedPos == imagejPlaneNumber - 1) {
+							if (useSavedPlane) {
 								int index = xSize * y + x;
 								value = (int) savedPlane[index];
 							}
@@ -135,7 +186,8 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		// to correct plane's values
 		stack.getProcessor(slice);
 
-		ds.update();
+		if (changes) ds.update();
+		if (planes != null) planes.recordVersion(ds);
 	}
 
 	/**
@@ -161,15 +213,57 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		int imagejPlaneNumber = 1;
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
+		final boolean primitivePlanes = hasPrimitivePlanes(ds);
+		final long[] dims = IntervalUtils.getDims(ds);
+		final long[] pos = new long[dims.length];
+		final DirtyPlaneTracker.Planes planes =
+			primitivePlanes ? trackedPlanes(ds, imp, dims) : null;
 		int slice = imp.getCurrentSlice();
 		for (int t = 0; t < tSize; t++) {
-			if (tIndex >= 0) accessor.setPosition(t, tIndex);
+			if (tIndex >= 0) {
+				accessor.setPosition(t, tIndex);
+				pos[tIndex] = t;
+			}
 			for (int z = 0; z < zSize; z++) {
-				if (zIndex >= 0) accessor.setPosition(z, zIndex);
+				if (zIndex >= 0) {
+					accessor.setPosition(z, zIndex);
+					pos[zIndex] = z;
+				}
 				for (int c = 0; c < cSize; c++) {
 					final ImageProcessor proc = stack.getProcessor(imagejPlaneNumber++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
+					if (primitivePlanes) {
+						// fast path: pack the whole plane directly from storage
+						final int rIndex = channelPlaneIndex(ds, dims, pos, 3 * c);
+						final int gIndex = channelPlaneIndex(ds, dims, pos, 3 * c + 1);
+						final int bIndex = channelPlaneIndex(ds, dims, pos, 3 * c + 2);
+						final byte[] r = (byte[]) ds.getPlane(rIndex, false);
+						final byte[] g = (byte[]) ds.getPlane(gIndex, false);
+						final byte[] b = (byte[]) ds.getPlane(bIndex, false);
+						final Object pixels = proc.getPixels();
+						final int stackPosition = imagejPlaneNumber - 1;
+						if (planes != null && planes.modernUnchanged(ds, rIndex, r) &&
+							planes.modernUnchanged(ds, gIndex, g) &&
+							planes.modernUnchanged(ds, bIndex, b) &&
+							planes.legacyUnchanged(stackPosition, pixels))
+						{
+							continue;
+						}
+						for (int i = 0; i < r.length; i++) {
+							final int intValue =
+								(0xff << 24) | ((r[i] & 0xff) << 16) | ((g[i] & 0xff) << 8) |
+									(b[i] & 0xff);
+							proc.set(i, intValue);
+						}
+						if (planes != null) {
+							planes.recordLegacy(stackPosition, pixels);
+							planes.recordModern(rIndex, r);
+							planes.recordModern(gIndex, g);
+							planes.recordModern(bIndex, b);
+						}
+						continue;
+					}
 					for (int y = 0; y < ySize; y++) {
 						accessor.setPosition(y, yIndex);
 						for (int x = 0; x < xSize; x++) {
@@ -197,6 +291,50 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		// changed the current plane's pixels for virtual stacks. So reset pixels
 		// to correct plane's values
 		stack.getProcessor(slice);
+
+		if (planes != null) planes.recordVersion(ds);
+	}
+
+	// -- private helpers --
+
+	/**
+	 * Returns true if the channel planes of a color {@link Dataset} can be
+	 * accessed directly as byte arrays.
+	 */
+	private boolean hasPrimitivePlanes(final Dataset ds) {
+		if (!(ds.getType() instanceof UnsignedByteType)) return false;
+		return PlanarPixelUtils.hasPrimitivePlanes(ds);
+	}
+
+	/**
+	 * Returns the index of the plane at a given channel of a color
+	 * {@link Dataset}. Other non-XY coordinates are taken from the given position.
+	 */
+	private int channelPlaneIndex(final Dataset ds, final long[] dims,
+		final long[] pos, final long channel)
+	{
+		pos[ds.dimensionIndex(Axes.CHANNEL)] = channel;
+		return PlanarPixelUtils.planeIndex(dims, pos);
+	}
+
+	/**
+	 * Returns the recorded plane states used to skip unchanged planes, or null
+	 * if planes of the given pair cannot be tracked.
+	 */
+	private DirtyPlaneTracker.Planes trackedPlanes(final Dataset ds,
+		final ImagePlus imp, final long[] dims)
+	{
+		final ImageStack stack = imp.getStack();
+		final int legacyPlaneCount =
+			imp.getNChannels() * imp.getNSlices() * imp.getNFrames();
+		if (stack.isVirtual() || stack.getSize() != legacyPlaneCount) {
+			tracker.forget(imp);
+			return null;
+		}
+		long modernPlaneCount = 1;
+		for (int i = 2; i < dims.length; i++)
+			modernPlaneCount *= dims[i];
+		return tracker.planes(ds, imp, legacyPlaneCount, (int) modernPlaneCount);
 	}
 
 }
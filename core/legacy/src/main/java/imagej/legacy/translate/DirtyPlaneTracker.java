@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import ij.ImagePlus;
+import imagej.data.Dataset;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the state of each plane of paired {@link ImagePlus}es and
+ * {@link Dataset}s as of their last pixel synchronization. This allows the
+ * pixel harmonizers to transfer only those planes that have changed since.
+ * <p>
+ * A plane is unchanged when its storage array is the one recorded and a
+ * 64-bit fingerprint of its contents still matches. Modern planes are
+ * additionally tracked from their write paths: while the
+ * {@link Dataset#getVersion() version} of the Dataset, which
+ * {@link Dataset#update()} and {@link Dataset#setPlane(int, Object)} advance,
+ * is the one a plane was last confirmed at, no pixels are read. Since the
+ * version covers the whole Dataset, a plane is fingerprinted again once it
+ * has advanced, so that an update of one plane does not make every other
+ * plane dirty.
+ * </p>
+ * <p>
+ * Legacy planes are identified by their 1-based stack position and modern
+ * planes by their planar index.
+ * </p>
+ */
+class DirtyPlaneTracker {
+
+	// -- instance variables --
+
+	private final Map<ImagePlus, Planes> pairs =
+		new WeakHashMap<ImagePlus, Planes>();
+
+	// -- DirtyPlaneTracker methods --
+
+	/**
+	 * Returns the recorded plane states of an {@link ImagePlus} and its paired
+	 * {@link Dataset}. If the pairing or the number of planes has changed since
+	 * the last synchronization all planes are considered dirty.
+	 */
+	Planes planes(final Dataset ds, final ImagePlus imp,
+		final int legacyPlaneCount, final int modernPlaneCount)
+	{
+		Planes planes = pairs.get(imp);
+		if (planes == null || !planes.matches(ds, legacyPlaneCount,
+			modernPlaneCount))
+		{
+			planes = new Planes(ds, legacyPlaneCount, modernPlaneCount);
+			pairs.put(imp, planes);
+		}
+		return planes;
+	}
+
+	/** Forgets everything recorded about an {@link ImagePlus}. */
+	void forget(final ImagePlus imp) {
+		pairs.remove(imp);
+	}
+
+	// -- helper classes --
+
+	/** The recorded plane states of one ImagePlus / Dataset pair. */
+	static class Planes {
+
+		private final WeakReference<Dataset> dataset;
+		private final Object[] legacyRefs;
+		private final long[] legacyPrints;
+		private final Object[] modernRefs;
+		private final long[] modernPrints;
+		private final long[] modernVersions;
+
+		private Planes(final Dataset ds, final int legacyPlaneCount,
+			final int modernPlaneCount)
+		{
+			dataset = new WeakReference<Dataset>(ds);
+			legacyRefs = new Object[legacyPlaneCount];
+			legacyPrints = new long[legacyPlaneCount];
+			modernRefs = new Object[modernPlaneCount];
+			modernPrints = new long[modernPlaneCount];
+			modernVersions = new long[modernPlaneCount];
+			Arrays.fill(modernVersions, -1);
+		}
+
+		/**
+		 * Returns true if a legacy plane has the recorded storage array and
+		 * fingerprint. This reads the whole plane.
+		 */
+		boolean legacyUnchanged(final int stackPosition, final Object pixels) {
+			final int i = stackPosition - 1;
+			if (pixels == null || legacyRefs[i] != pixels) return false;
+			return legacyPrints[i] == PlanarPixelUtils.fingerprint(pixels);
+		}
+
+		/**
+		 * Returns true if a modern plane has the recorded storage array and
+		 * contents. This reads the plane only if the Dataset has been written to
+		 * since the plane was last confirmed.
+		 */
+		boolean modernUnchanged(final Dataset ds, final int planeIndex,
+			final Object plane)
+		{
+			if (plane == null || modernRefs[planeIndex] != plane) return false;
+			final long version = ds.getVersion();
+			if (modernVersions[planeIndex] == version) return true;
+			if (modernPrints[planeIndex] != PlanarPixelUtils.fingerprint(plane)) {
+				return false;
+			}
+			modernVersions[planeIndex] = version;
+			return true;
+		}
+
+		/** Records the current state of a legacy plane. */
+		void recordLegacy(final int stackPosition, final Object pixels) {
+			final int i = stackPosition - 1;
+			legacyRefs[i] = pixels;
+			legacyPrints[i] = PlanarPixelUtils.fingerprint(pixels);
+		}
+
+		/** Records the current state of a modern plane. */
+		void recordModern(final int planeIndex, final Object plane) {
+			modernRefs[planeIndex] = plane;
+			modernPrints[planeIndex] = PlanarPixelUtils.fingerprint(plane);
+		}
+
+		/**
+		 * Records the current version of the Dataset for every recorded modern
+		 * plane. Called once every plane has been synchronized, including after
+		 * the harmonizer's own {@link Dataset#update()}.
+		 */
+		void recordVersion(final Dataset ds) {
+			final long version = ds.getVersion();
+			for (int i = 0; i < modernRefs.length; i++) {
+				if (modernRefs[i] != null) modernVersions[i] = version;
+			}
+		}
+
+		private boolean matches(final Dataset ds, final int legacyPlaneCount,
+			final int modernPlaneCount)
+		{
+			return dataset.get() == ds && legacyRefs.length == legacyPlaneCount &&
+				modernRefs.length == modernPlaneCount;
+		}
+	}
+
+}
@@ -41,9 +41,18 @@
 import imagej.display.DisplayService;
 import imagej.legacy.LegacyService;
 import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.meta.ImgPlus;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
 
 import org.scijava.AbstractContextual;
 import org.scijava.log.LogService;
@@ -269,7 +278,14 @@ private void setDatasetGrayDataFromColorImp(final Dataset ds,
 	 * Makes a planar {@link Dataset} whose dimensions match a given
 	 * {@link ImagePlus}. Assumes it will never be called with
 	 * any kind of color ImagePlus. Does not set metadata of Dataset.
+	 * <p>
+	 * The planes of the returned Dataset all refer to a single dummy plane. They
+	 * are expected to be immediately replaced with references to the planes of
+	 * the ImagePlus (see {@link PlaneHarmonizer}). This avoids allocating a full
+	 * copy of the image data only to throw it away.
+	 * </p>
 	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private Dataset makeExactDataset(final ImagePlus imp,
 		final AxisType[] preferredOrder)
 	{
@@ -282,19 +298,52 @@ private Dataset makeExactDataset(final ImagePlus imp,
 		final AxisType[] axes = LegacyUtils.orderedAxes(preferredOrder, inputDims);
 		final long[] dims = LegacyUtils.orderedDims(axes, inputDims);
 		final String name = imp.getTitle();
-		final int bitsPerPixel = imp.getBitDepth();
-		final boolean signed = isSigned(imp);
-		final boolean floating = isFloating(imp);
-		final boolean virtual = imp.getStack().isVirtual();
-		final Dataset ds =
-			datasetService.create(dims, name, axes, bitsPerPixel, signed, floating,
-				virtual);
+		final Img<?> img = makeDummyPlanarImg(imp.getBitDepth(), dims, x * y);
+		final Dataset ds = datasetService.create(new ImgPlus(img, name, axes, null));
 
 		DatasetUtils.initColorTables(ds);
 
 		return ds;
 	}
 
+	/**
+	 * Makes a {@link PlanarImg} of the type that exactly matches a legacy ImageJ
+	 * bit depth. Every plane refers to the same single allocated plane.
+	 */
+	private Img<?> makeDummyPlanarImg(final int bitDepth, final long[] dims,
+		final int planeSize)
+	{
+		if (bitDepth == 8) {
+			final PlanarImg<UnsignedByteType, ByteArray> img =
+				new PlanarImg<UnsignedByteType, ByteArray>(dims, 1);
+			final ByteArray dummyPlane = new ByteArray(planeSize);
+			for (int i = 0; i < img.numSlices(); i++)
+				img.setPlane(i, dummyPlane);
+			img.setLinkedType(new UnsignedByteType(img));
+			return img;
+		}
+		if (bitDepth == 16) {
+			final PlanarImg<UnsignedShortType, ShortArray> img =
+				new PlanarImg<UnsignedShortType, ShortArray>(dims, 1);
+			final ShortArray dummyPlane = new ShortArray(planeSize);
+			for (int i = 0; i < img.numSlices(); i++)
+				img.setPlane(i, dummyPlane);
+			img.setLinkedType(new UnsignedShortType(img));
+			return img;
+		}
+		if (bitDepth == 32) {
+			final PlanarImg<FloatType, FloatArray> img =
+				new PlanarImg<FloatType, FloatArray>(dims, 1);
+			final FloatArray dummyPlane = new FloatArray(planeSize);
+			for (int i = 0; i < img.numSlices(); i++)
+				img.setPlane(i, dummyPlane);
+			img.setLinkedType(new FloatType(img));
+			return img;
+		}
+		throw new IllegalArgumentException("unsupported gray bit depth: " +
+			bitDepth);
+	}
+
 	/**
 	 * Makes a gray {@link Dataset} from a gray {@link ImagePlus}. Assumes it will
 	 * never be given a color RGB Imageplus. Does not populate the data of the
@@ -35,6 +35,7 @@
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 import imagej.data.Dataset;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
@@ -58,6 +59,7 @@ public class GrayPixelHarmonizer implements DataHarmonizer {
 
 	private double[] savedPlane;
 	private int savedPos;
+	private final DirtyPlaneTracker tracker = new DirtyPlaneTracker();
 
 	// -- public api --
 
@@ -105,6 +107,10 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		final int tSize = imp.getNFrames();
 		final int cSize = imp.getNChannels();
 		final ImageStack stack = imp.getStack();
+		final boolean primitivePlanes = PlanarPixelUtils.hasPrimitivePlanes(ds);
+		final double[] values = primitivePlanes ? new double[xSize * ySize] : null;
+		final DirtyPlaneTracker.Planes planes = trackedPlanes(ds, imp, dims);
+		boolean changes = false;
 		int planeNum = 1;
 		final long[] pos = new long[dims.length];
 		int slice = imp.getCurrentSlice();
@@ -117,16 +123,44 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 					ImageProcessor proc = stack.getProcessor(planeNum++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
+					// NOTE: to propagate a VirtualStack's first plane pixel changes
+					// we save it early in the harmonization process and refer to it
+					// later. This code is part of that process
+					final boolean useSavedPlane = savedPos == planeNum - 1;
+					if (primitivePlanes) {
+						// fast path: transform the whole plane and store it directly
+						final int planeIndex = PlanarPixelUtils.planeIndex(dims, pos);
+						final Object plane = ds.getPlane(planeIndex, false);
+						final Object pixels = proc.getPixels();
+						if (!useSavedPlane && planes != null &&
+							planes.modernUnchanged(ds, planeIndex, plane) &&
+							planes.legacyUnchanged(planeNum - 1, pixels))
+						{
+							continue;
+						}
+						for (int i = 0; i < values.length; i++) {
+							double value = useSavedPlane ? savedPlane[i] : proc.getf(i);
+							if (signed16BitData) value -= 32768.0;
+							if (value < typeMin) value = typeMin;
+							else if (value > typeMax) value = typeMax;
+							values[i] = value;
+						}
+						PlanarPixelUtils.setPlaneValues(type, plane, values);
+						if (planes != null) {
+							planes.recordLegacy(planeNum - 1, pixels);
+							planes.recordModern(planeIndex, plane);
+						}
+						changes = true;
+						continue;
+					}
+					changes = true;
+					for (int y = 0; y < ySize; y++) {
+						if (yIndex >= 0) pos[yIndex] = y;
+						for (int x = 0; x < xSize; x++) {
+							if (xIndex >= 0) pos[xIndex] = x;
 							accessor.setPosition(pos);
-							// NOTE: to propagate a VirtualStack's first plane pixel changes
-							// we save it early in the harmonization process and refer to it
-							// later. This code is part of that process
 							double value;
-							if (savedPos == planeNum - 1) {
+							if (useSavedPlane) {
 								int index = xSize * y + x;
 								value = savedPlane[index];
 							}
@@ -147,7 +181,8 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		// to correct plane's values
 		stack.getProcessor(slice);
 
-		ds.update();
+		if (changes) ds.update();
+		if (planes != null) planes.recordVersion(ds);
 	}
 
 	/**
@@ -178,6 +213,9 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		final int tSize = imp.getNFrames();
 		final int cSize = imp.getNChannels();
 		final ImageStack stack = imp.getStack();
+		final boolean primitivePlanes = PlanarPixelUtils.hasPrimitivePlanes(ds);
+		final double[] values = primitivePlanes ? new double[xSize * ySize] : null;
+		final DirtyPlaneTracker.Planes planes = trackedPlanes(ds, imp, dims);
 		int planeNum = 1;
 		final long[] pos = new long[dims.length];
 		int slice = imp.getCurrentSlice();
@@ -190,10 +228,32 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 					final ImageProcessor proc = stack.getProcessor(planeNum++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
+					if (primitivePlanes) {
+						// fast path: read the whole plane directly from storage
+						final int planeIndex = PlanarPixelUtils.planeIndex(dims, pos);
+						final Object plane = ds.getPlane(planeIndex, false);
+						final Object pixels = proc.getPixels();
+						if (planes != null && planes.modernUnchanged(ds, planeIndex, plane) &&
+							planes.legacyUnchanged(planeNum - 1, pixels))
+						{
+							continue;
+						}
+						PlanarPixelUtils.getPlaneValues(type, plane, values);
+						for (int i = 0; i < values.length; i++) {
+							double value = values[i];
+							if (signed16BitData) value += 32768.0;
+							proc.setf(i, (float) value);
+						}
+						if (planes != null) {
+							planes.recordLegacy(planeNum - 1, pixels);
+							planes.recordModern(planeIndex, plane);
+						}
+						continue;
+					}
+					for (int y = 0; y < ySize; y++) {
+						if (yIndex >= 0) pos[yIndex] = y;
+						for (int x = 0; x < xSize; x++) {
+							if (xIndex >= 0) pos[xIndex] = x;
 							accessor.setPosition(pos);
 							double value = accessor.get().getRealDouble();
 							if (signed16BitData) value += 32768.0;
@@ -208,6 +268,33 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		// changed the current plane's pixels for virtual stacks. So reset pixels
 		// to correct plane's values
 		stack.getProcessor(slice);
+
+		if (planes != null) planes.recordVersion(ds);
+	}
+
+	// -- private helpers --
+
+	/**
+	 * Returns the recorded plane states used to skip unchanged planes, or null
+	 * if planes of the given pair cannot be tracked. Only planar Datasets with
+	 * primitive planes paired with nonvirtual stacks are tracked.
+	 */
+	private DirtyPlaneTracker.Planes trackedPlanes(final Dataset ds,
+		final ImagePlus imp, final long[] dims)
+	{
+		final ImageStack stack = imp.getStack();
+		final int legacyPlaneCount =
+			imp.getNChannels() * imp.getNSlices() * imp.getNFrames();
+		if (stack.isVirtual() || stack.getSize() != legacyPlaneCount ||
+			!PlanarPixelUtils.hasPrimitivePlanes(ds))
+		{
+			tracker.forget(imp);
+			return null;
+		}
+		long modernPlaneCount = 1;
+		for (int i = 2; i < dims.length; i++)
+			modernPlaneCount *= dims[i];
+		return tracker.planes(ds, imp, legacyPlaneCount, (int) modernPlaneCount);
 	}
 
 }
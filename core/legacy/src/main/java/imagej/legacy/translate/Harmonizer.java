@@ -427,6 +427,14 @@ else if (ds.getType() instanceof UnsignedShortType) {
 	private void saveCurrentSlice(ImagePlus imp) {
 		ImageProcessor proc = imp.getProcessor();
 		int pos = imp.getCurrentSlice();
+		// NB - when the current processor still shares its pixels with the stack
+		// nothing can be lost. Avoid the cost of copying the plane in that case.
+		final ImageStack stack = imp.getStack();
+		if (!stack.isVirtual() && stack.getPixels(pos) == proc.getPixels()) {
+			colorPixelHarmonizer.savePlane(-1, null);
+			grayPixelHarmonizer.savePlane(-1, null);
+			return;
+		}
 		double[] plane = new double[imp.getWidth() * imp.getHeight()];
 		for (int i = 0; i < plane.length; i++) {
 			plane[i] = proc.getf(i);
@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import imagej.data.Dataset;
+
+import java.lang.reflect.Array;
+
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+
+/**
+ * Static methods that let the pixel harmonizers read and write whole planes of
+ * a planar {@link Dataset} through its primitive storage arrays rather than one
+ * pixel at a time through a {@link net.imglib2.RandomAccess}.
+ */
+class PlanarPixelUtils {
+
+	// -- constants --
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// -- constructor --
+
+	private PlanarPixelUtils() {
+		// do not instantiate utility class
+	}
+
+	// -- package access static methods --
+
+	/**
+	 * Returns true if the planes of a {@link Dataset} can be accessed directly as
+	 * primitive arrays. This requires {@link PlanarAccess} storage, X and Y as
+	 * the first two axes and a type whose storage is one primitive value per
+	 * pixel.
+	 */
+	static boolean hasPrimitivePlanes(final Dataset ds) {
+		if (!(ds.getImgPlus().getImg() instanceof PlanarAccess<?>)) return false;
+		if (ds.dimensionIndex(Axes.X) != 0) return false;
+		if (ds.dimensionIndex(Axes.Y) != 1) return false;
+		final Class<?> arrayClass = arrayClass(ds.getType());
+		if (arrayClass == null) return false;
+		final Object plane = ds.getPlane(0, false);
+		if (plane == null || plane.getClass() != arrayClass) return false;
+		final long planeSize = ds.dimension(0) * ds.dimension(1);
+		return Array.getLength(plane) == planeSize;
+	}
+
+	/**
+	 * Returns the index of the plane of a planar image that contains a given
+	 * position. Planes are rasterized with axis 2 varying fastest.
+	 */
+	static int planeIndex(final long[] dims, final long[] pos) {
+		long index = 0;
+		long multiplier = 1;
+		for (int i = 2; i < dims.length; i++) {
+			index += multiplier * pos[i];
+			multiplier *= dims[i];
+		}
+		return (int) index;
+	}
+
+	/**
+	 * Fills a primitive plane from an array of real values. Values are assumed to
+	 * already lie within the range of the given type. Integral values are
+	 * rounded exactly as {@link RealType#setReal(double)} would.
+	 */
+	static void setPlaneValues(final RealType<?> type, final Object plane,
+		final double[] values)
+	{
+		final int size = values.length;
+		if (type instanceof ByteType || type instanceof UnsignedByteType) {
+			final byte[] p = (byte[]) plane;
+			for (int i = 0; i < size; i++)
+				p[i] = (byte) Util.round(values[i]);
+		}
+		else if (type instanceof ShortType || type instanceof UnsignedShortType) {
+			final short[] p = (short[]) plane;
+			for (int i = 0; i < size; i++)
+				p[i] = (short) Util.round(values[i]);
+		}
+		else if (type instanceof IntType || type instanceof UnsignedIntType) {
+			final int[] p = (int[]) plane;
+			for (int i = 0; i < size; i++)
+				p[i] = (int) Util.round(values[i]);
+		}
+		else if (type instanceof LongType) {
+			final long[] p = (long[]) plane;
+			for (int i = 0; i < size; i++)
+				p[i] = Util.round(values[i]);
+		}
+		else if (type instanceof FloatType) {
+			final float[] p = (float[]) plane;
+			for (int i = 0; i < size; i++)
+				p[i] = (float) values[i];
+		}
+		else if (type instanceof DoubleType) {
+			System.arraycopy(values, 0, plane, 0, size);
+		}
+		else throw new IllegalArgumentException("unsupported type: " +
+			type.getClass().getName());
+	}
+
+	/**
+	 * Fills an array of real values from a primitive plane, honoring the
+	 * signedness of the given type.
+	 */
+	static void getPlaneValues(final RealType<?> type, final Object plane,
+		final double[] values)
+	{
+		final int size = values.length;
+		if (type instanceof UnsignedByteType) {
+			final byte[] p = (byte[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i] & 0xff;
+		}
+		else if (type instanceof ByteType) {
+			final byte[] p = (byte[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i];
+		}
+		else if (type instanceof UnsignedShortType) {
+			final short[] p = (short[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i] & 0xffff;
+		}
+		else if (type instanceof ShortType) {
+			final short[] p = (short[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i];
+		}
+		else if (type instanceof UnsignedIntType) {
+			final int[] p = (int[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i] & 0xffffffffL;
+		}
+		else if (type instanceof IntType) {
+			final int[] p = (int[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i];
+		}
+		else if (type instanceof LongType) {
+			final long[] p = (long[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i];
+		}
+		else if (type instanceof FloatType) {
+			final float[] p = (float[]) plane;
+			for (int i = 0; i < size; i++)
+				values[i] = p[i];
+		}
+		else if (type instanceof DoubleType) {
+			System.arraycopy(plane, 0, values, 0, size);
+		}
+		else throw new IllegalArgumentException("unsupported type: " +
+			type.getClass().getName());
+	}
+
+	/**
+	 * Computes a 64-bit fingerprint of the contents of a primitive array. Used to
+	 * detect planes whose pixels have been changed in place.
+	 */
+	static long fingerprint(final Object array) {
+		long h = 0xcbf29ce484222325L;
+		if (array instanceof byte[]) {
+			final byte[] a = (byte[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ a[i]) * FNV_PRIME;
+		}
+		else if (array instanceof short[]) {
+			final short[] a = (short[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ a[i]) * FNV_PRIME;
+		}
+		else if (array instanceof int[]) {
+			final int[] a = (int[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ a[i]) * FNV_PRIME;
+		}
+		else if (array instanceof long[]) {
+			final long[] a = (long[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ a[i]) * FNV_PRIME;
+		}
+		else if (array instanceof float[]) {
+			final float[] a = (float[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ Float.floatToRawIntBits(a[i])) * FNV_PRIME;
+		}
+		else if (array instanceof double[]) {
+			final double[] a = (double[]) array;
+			for (int i = 0; i < a.length; i++)
+				h = (h ^ Double.doubleToRawLongBits(a[i])) * FNV_PRIME;
+		}
+		else throw new IllegalArgumentException("unsupported array: " + array);
+		return h;
+	}
+
+	// -- private helpers --
+
+	/**
+	 * Returns the class of the primitive storage array of a supported type or
+	 * null if the type is not supported.
+	 */
+	private static Class<?> arrayClass(final RealType<?> type) {
+		if (type instanceof ByteType || type instanceof UnsignedByteType) {
+			return byte[].class;
+		}
+		if (type instanceof ShortType || type instanceof UnsignedShortType) {
+			return short[].class;
+		}
+		if (type instanceof IntType || type instanceof UnsignedIntType) {
+			return int[].class;
+		}
+		if (type instanceof LongType) return long[].class;
+		if (type instanceof FloatType) return float[].class;
+		if (type instanceof DoubleType) return double[].class;
+		return null;
+	}
+
+}
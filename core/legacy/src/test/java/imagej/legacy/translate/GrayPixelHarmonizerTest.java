@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import static org.junit.Assert.assertEquals;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link GrayPixelHarmonizer}.
+ */
+public class GrayPixelHarmonizerTest {
+
+	private Context context;
+	private Dataset ds;
+	private ImagePlus imp;
+	private GrayPixelHarmonizer harmonizer;
+
+	/** How many pixels have been written to each legacy slice. */
+	private final int[] writes = new int[3];
+
+	@Before
+	public void setUp() {
+		context = new Context(DatasetService.class);
+		ds =
+			context.getService(DatasetService.class).create(new long[] { 4, 3, 2 },
+				"test", new AxisType[] { Axes.X, Axes.Y, Axes.Z }, 8, false, false);
+		final ImageStack stack = new ImageStack(4, 3) {
+
+			@Override
+			public ImageProcessor getProcessor(final int n) {
+				final ImageProcessor ip = super.getProcessor(n);
+				return new ByteProcessor(4, 3, (byte[]) ip.getPixels(), null) {
+
+					@Override
+					public void setf(final int index, final float value) {
+						writes[n]++;
+						super.setf(index, value);
+					}
+				};
+			}
+		};
+		stack.addSlice("1", new byte[12]);
+		stack.addSlice("2", new byte[12]);
+		imp = new ImagePlus("test", stack);
+		harmonizer = new GrayPixelHarmonizer();
+		harmonizer.updateLegacyImage(ds, imp);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testModernEditReachesLegacy() {
+		((byte[]) ds.getPlane(1, false))[5] = 42;
+		ds.update();
+		harmonizer.updateLegacyImage(ds, imp);
+		assertEquals(42, legacyPixels(2)[5]);
+		assertEquals(0, legacyPixels(1)[5]);
+	}
+
+	@Test
+	public void testLegacyEditReachesModern() {
+		legacyPixels(1)[7] = 17;
+		final long version = ds.getVersion();
+		harmonizer.updateDataset(ds, imp);
+		assertEquals(17, ((byte[]) ds.getPlane(0, false))[7]);
+		assertEquals(version + 1, ds.getVersion());
+	}
+
+	@Test
+	public void testUnchangedPlanesAreNotRewritten() {
+		final long version = ds.getVersion();
+		harmonizer.updateDataset(ds, imp);
+		assertEquals(version, ds.getVersion());
+	}
+
+	@Test
+	public void testModernEditLeavesOtherPlanesClean() {
+		((byte[]) ds.getPlane(1, false))[5] = 42;
+		ds.update();
+		writes[1] = writes[2] = 0;
+		harmonizer.updateLegacyImage(ds, imp);
+		assertEquals(0, writes[1]);
+		assertEquals(12, writes[2]);
+	}
+
+	// -- helpers --
+
+	private byte[] legacyPixels(final int slice) {
+		return (byte[]) imp.getStack().getPixels(slice);
+	}
+
+}
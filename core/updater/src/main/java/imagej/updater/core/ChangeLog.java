@@ -0,0 +1,215 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import imagej.updater.util.Util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The change log of an update site.
+ * <p>
+ * Next to the full index (<i>db.xml.gz</i>), update sites publish the records
+ * of the files that changed recently (<i>db-changes.xml.gz</i>), each
+ * annotated with the timestamp of the upload that last changed it. Clients
+ * which cached the full index as of a timestamp covered by the change log can
+ * bring it up-to-date by replacing the records changed at or after that
+ * timestamp.
+ * </p>
+ * <p>
+ * The log also records the size and the digest of the <i>db.xml.gz</i> it was
+ * written with, so that clients can tell whether the index was replaced by
+ * other means (e.g. by an older version of the updater which does not know
+ * about change logs).
+ * </p>
+ */
+public class ChangeLog {
+
+	/** The maximal number of records kept in a change log. */
+	public final static int MAX_ENTRIES = 500;
+
+	private long since, timestamp, indexSize;
+	private String indexDigest;
+	private final Map<String, Long> changed = new LinkedHashMap<String, Long>();
+
+	/**
+	 * @param since the log contains all records changed at or after this
+	 *          timestamp
+	 * @param timestamp the timestamp of the upload that wrote the log
+	 * @param indexSize the size of the compressed index written in that upload
+	 * @param indexDigest the SHA-1 digest of that index, as hex string
+	 */
+	public ChangeLog(final long since, final long timestamp,
+		final long indexSize, final String indexDigest)
+	{
+		this.since = since;
+		this.timestamp = timestamp;
+		this.indexSize = indexSize;
+		this.indexDigest = indexDigest;
+	}
+
+	/**
+	 * @param since the log contains all records changed at or after this
+	 *          timestamp
+	 * @param timestamp the timestamp of the upload that wrote the log
+	 * @param index the compressed index written in that upload
+	 */
+	public ChangeLog(final long since, final long timestamp, final byte[] index)
+	{
+		this(since, timestamp, index.length, digest(index));
+	}
+
+	public long getSince() {
+		return since;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getIndexSize() {
+		return indexSize;
+	}
+
+	public String getIndexDigest() {
+		return indexDigest;
+	}
+
+	/**
+	 * Determines whether this log was written together with the given index.
+	 * 
+	 * @param index the compressed index
+	 */
+	public boolean describes(final byte[] index) {
+		return indexDigest != null && index.length == indexSize &&
+			indexDigest.equals(digest(index));
+	}
+
+	/**
+	 * Determines whether this log might have been written together with the
+	 * index, judging by the response headers of the update site.
+	 * <p>
+	 * The index is written before its change log, therefore an index modified
+	 * after the log was replaced by other means.
+	 * </p>
+	 * 
+	 * @param size the size of the compressed index, or -1 if unknown
+	 * @param lastModified the modification time of the index, or 0 if unknown
+	 * @param logLastModified the modification time of the change log, or 0 if
+	 *          unknown
+	 */
+	public boolean mayDescribe(final long size, final long lastModified,
+		final long logLastModified)
+	{
+		if (size >= 0 && size != indexSize) return false;
+		return lastModified > 0 && logLastModified > 0 &&
+			lastModified <= logLastModified;
+	}
+
+	/**
+	 * Determines whether an index as of the given timestamp can be brought
+	 * up-to-date using this log.
+	 */
+	public boolean covers(final long lastSeen) {
+		return since <= lastSeen && lastSeen <= timestamp;
+	}
+
+	/**
+	 * Records that a file was changed.
+	 * 
+	 * @param filename the (possibly versioned) filename
+	 * @param changedAt the timestamp of the upload changing the file
+	 */
+	public void setChanged(final String filename, final long changedAt) {
+		final String key = FileObject.getFilename(filename, true);
+		final Long previous = changed.remove(key);
+		changed.put(key, previous == null ? changedAt : Math.max(previous,
+			changedAt));
+	}
+
+	/**
+	 * Gets the timestamp of the last recorded change to the given file.
+	 * 
+	 * @return the timestamp, or -1 if the file was not changed since
+	 *         {@link #getSince()}
+	 */
+	public long getChanged(final String filename) {
+		final Long result = changed.get(FileObject.getFilename(filename, true));
+		return result == null ? -1 : result;
+	}
+
+	public Iterable<String> getChangedFiles() {
+		return changed.keySet();
+	}
+
+	public int size() {
+		return changed.size();
+	}
+
+	/**
+	 * Drops the oldest records until at most the given number is left, moving
+	 * {@link #getSince()} accordingly.
+	 * <p>
+	 * Records sharing a timestamp are dropped together, and the log only covers
+	 * the time strictly after the dropped ones: an index as of that timestamp
+	 * might lack changes from another upload within the same second.
+	 * </p>
+	 */
+	public void trim(final int maxEntries) {
+		while (changed.size() > maxEntries) {
+			long oldest = Long.MAX_VALUE;
+			for (final long value : changed.values())
+				if (oldest > value) oldest = value;
+			for (final Iterator<Long> iter = changed.values().iterator(); iter
+				.hasNext();)
+			{
+				if (iter.next() <= oldest) iter.remove();
+			}
+			since = Math.max(since, oldest + 1);
+		}
+	}
+
+	private static String digest(final byte[] bytes) {
+		try {
+			final MessageDigest digest = Util.getDigest();
+			digest.update(bytes);
+			return Util.toHex(digest.digest());
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
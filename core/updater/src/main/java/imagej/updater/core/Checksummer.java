@@ -37,6 +37,7 @@
 import imagej.updater.core.FileObject.Status;
 import imagej.updater.util.AbstractProgressable;
 import imagej.updater.util.Progress;
+import imagej.updater.util.UpdateCanceledException;
 import imagej.updater.util.Util;
 
 import java.io.BufferedReader;
@@ -57,10 +58,22 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipException;
 
 /**
  * A class to checksum and timestamp all the files shown in the Updater's UI.
+ * <p>
+ * The files are digested by a bounded pool of worker threads; the results are
+ * cached in the <i>.checksums</i> file, keyed by path, size and modification
+ * time, so that unchanged files need not be read again on the next run.
+ * </p>
  * 
  * @author Johannes Schindelin
  * @author Yap Chin Kiet
@@ -70,7 +83,10 @@ public class Checksummer extends AbstractProgressable {
 	private FilesCollection files;
 	private int counter, total;
 	private Map<String, FileObject.Version> cachedChecksums;
+	private Map<String, Long> cachedSizes;
+	private boolean cachedChecksumsChanged;
 	private boolean isWindows; // time tax for Redmont
+	private int threadCount;
 	private Map<String, List<StringAndFile>> queue;
 
 	public Checksummer(final FilesCollection files, final Progress progress) {
@@ -78,6 +94,18 @@ public Checksummer(final FilesCollection files, final Progress progress) {
 		if (progress != null) addProgress(progress);
 		setTitle("Checksummer");
 		isWindows = Util.getPlatform().startsWith("win");
+		// digesting is mostly I/O bound (think network file systems)
+		threadCount =
+			Math.max(1, Math.min(16, 2 * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Sets the maximal number of files to digest concurrently.
+	 * 
+	 * @param threadCount the number of worker threads (1 digests serially)
+	 */
+	public void setThreadCount(final int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
 	}
 
 	protected static class StringAndFile {
@@ -158,32 +186,13 @@ protected void queue(final String path, final File file) {
 
 	/**
 	 * Handle a single component, adding conflicts if there are multiple
-	 * versions.
+	 * versions. The queued files must have been digested already.
 	 *
 	 * @param unversioned
 	 *            the unversioned name of the component
 	 */
 	protected void handle(final String unversioned) {
 		final List<StringAndFile> pairs = queue.get(unversioned);
-		for (final StringAndFile pair : pairs) {
-			addItem(pair.path);
-
-			if (pair.file.exists()) try {
-				pair.timestamp = Util.getTimestamp(pair.file);
-				pair.checksum = getDigest(pair.path, pair.file, pair.timestamp);
-			}
-			catch (final ZipException e) {
-				files.log.error("Problem digesting " + pair.file);
-			}
-			catch (final Exception e) {
-				files.log.error(e);
-			}
-
-			counter += (int) pair.file.length();
-			itemDone(pair.path);
-			setCount(counter, total);
-		}
-
 		if (pairs.size() == 1) {
 			handle(pairs.get(0));
 			return;
@@ -373,12 +382,94 @@ protected void handleQueue() {
 			for (final StringAndFile pair : queue.get(unversioned))
 				total += (int) pair.file.length();
 		counter = 0;
+		if (cachedChecksums == null) readCachedChecksums();
+		digestQueue();
 		for (final String unversioned : queue.keySet())
 			handle(unversioned);
 		done();
 		writeCachedChecksums();
 	}
 
+	/**
+	 * Timestamps and digests all queued files, using up to {@link #threadCount}
+	 * worker threads. Progress is reported from the calling thread only.
+	 */
+	protected void digestQueue() {
+		final List<StringAndFile> pairs = new ArrayList<StringAndFile>();
+		for (final List<StringAndFile> list : queue.values())
+			pairs.addAll(list);
+
+		final int count = Math.min(threadCount, pairs.size());
+		if (count <= 1) {
+			for (final StringAndFile pair : pairs) {
+				addItem(pair.path);
+				digest(pair);
+				digested(pair);
+			}
+			return;
+		}
+
+		final ExecutorService executor =
+			Executors.newFixedThreadPool(count, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Checksummer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		try {
+			final CompletionService<StringAndFile> completion =
+				new ExecutorCompletionService<StringAndFile>(executor);
+			for (final StringAndFile pair : pairs) {
+				completion.submit(new Callable<StringAndFile>() {
+
+					@Override
+					public StringAndFile call() {
+						digest(pair);
+						return pair;
+					}
+				});
+			}
+			for (int i = 0; i < pairs.size(); i++) {
+				final StringAndFile pair = completion.take().get();
+				addItem(pair.path);
+				digested(pair);
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UpdateCanceledException();
+		}
+		catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/* may be called from a worker thread */
+	protected void digest(final StringAndFile pair) {
+		if (pair.file.exists()) try {
+			pair.timestamp = Util.getTimestamp(pair.file);
+			pair.checksum = getDigest(pair.path, pair.file, pair.timestamp);
+		}
+		catch (final ZipException e) {
+			files.log.error("Problem digesting " + pair.file);
+		}
+		catch (final Exception e) {
+			files.log.error(e);
+		}
+	}
+
+	protected void digested(final StringAndFile pair) {
+		counter += (int) pair.file.length();
+		itemDone(pair.path);
+		setCount(counter, total);
+	}
+
 	public void updateFromLocal(final List<String> files) {
 		queue = new LinkedHashMap<String, List<StringAndFile>>();
 		for (final String file : files)
@@ -470,8 +561,22 @@ public void updateFromLocal() {
 		handleQueue();
 	}
 
+	/**
+	 * Reads the <i>.checksums</i> file.
+	 * <p>
+	 * Each line has the form <code>checksum timestamp path</code>; entries whose
+	 * path starts with a colon map a checksum to its obsolete equivalents. The
+	 * sizes of the files are kept in <i>.checksums.sizes</i>, with lines of the
+	 * form <code>timestamp size path</code>, so that older updaters can still
+	 * read and rewrite <i>.checksums</i>. A size only applies while its
+	 * timestamp matches the cached checksum; otherwise the entry is validated by
+	 * the timestamp alone.
+	 * </p>
+	 */
 	protected void readCachedChecksums() {
 		cachedChecksums = new TreeMap<String, FileObject.Version>();
+		cachedSizes = new HashMap<String, Long>();
+		cachedChecksumsChanged = false;
 		final File file = files.prefix(".checksums");
 		if (!file.exists()) return;
 		try {
@@ -498,41 +603,157 @@ protected void readCachedChecksums() {
 		catch (final IOException e) {
 			// ignore
 		}
+		readCachedSizes();
 	}
 
+	private void readCachedSizes() {
+		final File file = files.prefix(".checksums.sizes");
+		if (!file.exists()) return;
+		try {
+			final BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line;
+			while ((line = reader.readLine()) != null)
+				try {
+					final int space = line.indexOf(' ');
+					if (space < 0) continue;
+					final int space2 = line.indexOf(' ', space + 1);
+					if (space2 < 0) continue;
+					final long timestamp = Long.parseLong(line.substring(0, space));
+					final long size =
+						Long.parseLong(line.substring(space + 1, space2));
+					final String filename = line.substring(space2 + 1);
+					final FileObject.Version version = cachedChecksums.get(filename);
+					// sizes of entries rewritten by an older updater are stale
+					if (version != null && version.timestamp == timestamp) {
+						cachedSizes.put(filename, size);
+					}
+				}
+				catch (final NumberFormatException e) {
+					/* ignore line */
+				}
+			reader.close();
+		}
+		catch (final IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Writes the <i>.checksums</i> and <i>.checksums.sizes</i> files if
+	 * anything changed, including the removal of entries for files that no
+	 * longer exist.
+	 * <p>
+	 * The contents are written to a temporary file first which then replaces
+	 * the previous version, so that concurrent readers never see a partially
+	 * written file.
+	 * </p>
+	 */
 	protected void writeCachedChecksums() {
 		if (cachedChecksums == null) return;
+		pruneCachedChecksums();
 		final File file = files.prefix(".checksums");
+		if (!cachedChecksumsChanged && file.exists()) return;
 		// file.canWrite() not applicable, as the file need not exist
+		final StringBuilder checksums = new StringBuilder();
+		final StringBuilder sizes = new StringBuilder();
+		for (final String filename : cachedChecksums.keySet()) {
+			final FileObject.Version version = cachedChecksums.get(filename);
+			checksums.append(version.checksum).append(' ').append(version.timestamp)
+				.append(' ').append(filename).append('\n');
+			final Long size = cachedSizes.get(filename);
+			if (size != null) {
+				sizes.append(version.timestamp).append(' ').append(size).append(' ')
+					.append(filename).append('\n');
+			}
+		}
+		if (replace(file, checksums) &&
+			replace(files.prefix(".checksums.sizes"), sizes))
+		{
+			cachedChecksumsChanged = false;
+		}
+	}
+
+	/* writes the file via a temporary file, returning whether that worked */
+	private boolean replace(final File file, final CharSequence contents) {
+		File tmp = null;
 		try {
-			final Writer writer = new FileWriter(file);
-			for (final String filename : cachedChecksums.keySet())
-				if (filename.startsWith(":") || files.prefix(filename).exists()) {
-					final FileObject.Version version = cachedChecksums.get(filename);
-					writer.write(version.checksum + " " + version.timestamp + " " +
-						filename + "\n");
-				}
+			tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			final Writer writer = new FileWriter(tmp);
+			writer.append(contents);
 			writer.close();
+			// renameTo() does not replace existing files on Windows
+			if (!tmp.renameTo(file) && (!file.delete() || !tmp.renameTo(file))) {
+				files.log.debug("Could not write " + file);
+				return false;
+			}
+			return true;
 		}
 		catch (final IOException e) {
-			// ignore
+			return false;
+		}
+		finally {
+			if (tmp != null && tmp.exists()) tmp.delete();
 		}
 	}
 
+	/**
+	 * Drops cached entries of files that no longer exist, so that they do not
+	 * accumulate when nothing else changed.
+	 */
+	protected void pruneCachedChecksums() {
+		synchronized (cachedChecksums) {
+			final Iterator<String> iter = cachedChecksums.keySet().iterator();
+			while (iter.hasNext()) {
+				final String filename = iter.next();
+				if (filename.startsWith(":") || files.prefix(filename).exists()) {
+					continue;
+				}
+				iter.remove();
+				cachedSizes.remove(filename);
+				cachedChecksumsChanged = true;
+			}
+		}
+	}
+
+	/* may be called from a worker thread */
 	protected String getDigest(final String path, final File file,
 		final long timestamp) throws IOException, NoSuchAlgorithmException,
 		ZipException
 	{
-		if (cachedChecksums == null) readCachedChecksums();
-		FileObject.Version version = cachedChecksums.get(path);
-		if (version == null || timestamp != version.timestamp) {
+		synchronized (this) {
+			if (cachedChecksums == null) readCachedChecksums();
+		}
+		final long size = file.length();
+		FileObject.Version version;
+		synchronized (cachedChecksums) {
+			version = cachedChecksums.get(path);
+			final Long cachedSize = cachedSizes.get(path);
+			if (version != null &&
+				(timestamp != version.timestamp || (cachedSize != null && cachedSize
+					.longValue() != size))) version = null;
+		}
+		if (version == null) {
 			final String checksum = path.equals("plugins/Fiji_Updater.jar") ?
 				Util.getJarDigest(file, false, false, false) :
 				Util.getDigest(path, file);
 			version = new FileObject.Version(checksum, timestamp);
-			cachedChecksums.put(path, version);
+			synchronized (cachedChecksums) {
+				cachedChecksums.put(path, version);
+				cachedSizes.put(path, size);
+				cachedChecksumsChanged = true;
+			}
+		}
+		else synchronized (cachedChecksums) {
+			if (!cachedSizes.containsKey(path)) {
+				cachedSizes.put(path, size);
+				cachedChecksumsChanged = true;
+			}
 		}
-		if (!cachedChecksums.containsKey(":" + version.checksum)) {
+		final boolean haveObsoletes;
+		synchronized (cachedChecksums) {
+			haveObsoletes = cachedChecksums.containsKey(":" + version.checksum);
+		}
+		if (!haveObsoletes) {
 			final List<String> obsoletes = Util.getObsoleteDigests(path, file);
 			if (obsoletes != null) {
 				final StringBuilder builder = new StringBuilder();
@@ -540,8 +761,11 @@ protected String getDigest(final String path, final File file,
 					if (builder.length() > 0) builder.append(':');
 					builder.append(obsolete);
 				}
-				cachedChecksums.put(":" + version.checksum, new FileObject.Version(
-					builder.toString(), timestamp));
+				synchronized (cachedChecksums) {
+					cachedChecksums.put(":" + version.checksum, new FileObject.Version(
+						builder.toString(), timestamp));
+					cachedChecksumsChanged = true;
+				}
 			}
 		}
 		return version.checksum;
@@ -475,9 +475,8 @@ protected Resolution dependencyResolution(final String description,
 			public void resolve() {
 				if (file != null) replaceDependency(file, removeDependency,
 					addDependency);
-				else for (final FileObject file : files) {
-					if (file.hasDependency(removeDependency)) replaceDependency(file,
-						removeDependency, addDependency);
+				else for (final FileObject file : files.dependencees(removeDependency)) {
+					replaceDependency(file, removeDependency, addDependency);
 				}
 			}
 		};
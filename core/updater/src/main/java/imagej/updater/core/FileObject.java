@@ -35,10 +35,12 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -167,10 +169,23 @@ public Action getNoAction() {
 		}
 	}
 
+	/*
+	 * The collections indexing this file; they are told about changes to its
+	 * status, action, update site, filename and dependencies.
+	 */
+	private transient List<WeakReference<FilesCollection>> owners;
+
 	protected Map<String, FileObject> overriddenUpdateSites = new HashMap<String, FileObject>();
 	private Status status;
 	private Action action;
-	public String updateSite, originalUpdateSite, filename, description;
+	/**
+	 * The update site, and the (possibly versioned) filename, of this file.
+	 * Prefer {@link #setUpdateSite(String)} to change the update site; the
+	 * owning {@link FilesCollection}s pick up direct assignments only when they
+	 * are next queried by update site or filename.
+	 */
+	public String updateSite, filename;
+	public String originalUpdateSite, description;
 	public boolean executable;
 	public Version current;
 	public Set<Version> previous;
@@ -224,6 +239,7 @@ public void merge(final FileObject upstream) {
 			current = upstream.current;
 			status = upstream.status;
 			action = upstream.action;
+			changed();
 		}
 		else {
 			final Version other = upstream.current;
@@ -320,10 +336,11 @@ public void addDependency(final Dependency dependency) {
 				return;
 		}
 		dependencies.put(key, dependency);
+		changed();
 	}
 
 	public void removeDependency(final String other) {
-		dependencies.remove(getFilename(other, true));
+		if (dependencies.remove(getFilename(other, true)) != null) changed();
 	}
 
 	public boolean hasDependency(final String filename) {
@@ -380,6 +397,7 @@ else if (dep.overrides != obsoleted) {
 				newList[i] = dep;
 			}
 			dependencies.clear();
+			changed();
 			for (final Dependency dep : newList)
 				addDependency(dep);
 			return;
@@ -411,6 +429,7 @@ public void addPreviousVersion(final String checksum, final long timestamp, fina
 
 	public void setNoAction() {
 		action = status.getNoAction();
+		changed();
 	}
 
 	public void setAction(final FilesCollection files, final Action action) {
@@ -438,6 +457,7 @@ public void setAction(final FilesCollection files, final Action action) {
 			originalUpdateSite = null;
 		}
 		this.action = action;
+		changed();
 	}
 
 	public boolean setFirstValidAction(final FilesCollection files,
@@ -458,12 +478,14 @@ public void setStatus(final Status status) {
 	public void markUploaded() {
 		if (isLocalOnly()) {
 			status = Status.INSTALLED;
+			changed();
 			localChecksum = current.checksum;
 			localTimestamp = current.timestamp;
 		}
 		else if (isObsolete() || status == Status.UPDATEABLE) {
 			/* force re-upload */
 			status = Status.INSTALLED;
+			changed();
 			setVersion(localChecksum, localTimestamp);
 		}
 		else {
@@ -743,7 +765,7 @@ public void stageForUpload(final FilesCollection files,
 			localChecksum = current.checksum;
 			localTimestamp = current.timestamp;
 		}
-		this.updateSite = updateSite;
+		setUpdateSite(updateSite);
 		if (status == Status.NOT_INSTALLED) {
 			setAction(files, Action.REMOVE);
 		}
@@ -767,6 +789,7 @@ public void stageForUpload(final FilesCollection files,
 				file.dependencies.remove(dependency.filename);
 				dependency.filename = filename;
 				file.dependencies.put(filename, dependency);
+				file.changed();
 			}
 		}
 	}
@@ -788,6 +811,48 @@ public void stageForUninstall(final FilesCollection files) throws IOException
 			? Status.OBSOLETE_UNINSTALLED : Status.NOT_INSTALLED);
 	}
 
+	/**
+	 * Moves this file to another update site.
+	 * 
+	 * @param updateSite the name of the update site, or null
+	 */
+	public void setUpdateSite(final String updateSite) {
+		if (updateSite == null ? this.updateSite == null : updateSite
+			.equals(this.updateSite)) return;
+		this.updateSite = updateSite;
+		changed();
+	}
+
+	/** Tells a collection about changes to this file. */
+	void addOwner(final FilesCollection files) {
+		if (owners == null) owners = new ArrayList<WeakReference<FilesCollection>>(1);
+		for (final WeakReference<FilesCollection> owner : owners)
+			if (owner.get() == files) return;
+		owners.add(new WeakReference<FilesCollection>(files));
+	}
+
+	/** Stops telling a collection about changes to this file. */
+	void removeOwner(final FilesCollection files) {
+		if (owners == null) return;
+		for (final Iterator<WeakReference<FilesCollection>> iter = owners.iterator(); iter.hasNext();) {
+			final FilesCollection owner = iter.next().get();
+			if (owner == null || owner == files) iter.remove();
+		}
+	}
+
+	/**
+	 * Updates the indexes of the owning collections after the status, action,
+	 * update site, filename or dependencies changed.
+	 */
+	protected void changed() {
+		if (owners == null) return;
+		for (final Iterator<WeakReference<FilesCollection>> iter = owners.iterator(); iter.hasNext();) {
+			final FilesCollection owner = iter.next().get();
+			if (owner == null) iter.remove();
+			else owner.fileChanged(this);
+		}
+	}
+
 	public static void touch(final File file) throws IOException {
 		if (file.exists()) {
 			final long now = new Date().getTime();
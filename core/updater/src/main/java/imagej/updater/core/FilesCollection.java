@@ -54,14 +54,18 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.zip.GZIPOutputStream;
 
@@ -73,6 +77,12 @@
 
 /**
  * This class represents the database of available {@link FileObject}s.
+ * <p>
+ * The frequent queries (by status, action, update site, filename prefix and
+ * dependency) are answered from secondary indexes which are built lazily and
+ * then kept up to date as files are added, removed or changed, so that
+ * repeated queries only cost as much as their results.
+ * </p>
  * 
  * @author Johannes Schindelin
  */
@@ -92,6 +102,8 @@ public class FilesCollection extends LinkedHashMap<String, FileObject>
 	private DependencyAnalyzer dependencyAnalyzer;
 	public final Util util;
 
+	private transient Index index;
+
 	/**
 	 * This constructor takes the imagejRoot primarily for testing purposes.
 	 * 
@@ -144,7 +156,7 @@ public void renameUpdateSite(final String oldName, final String newName) {
 
 		// handle all files
 		for (final FileObject file : this)
-			if (oldName.equals(file.updateSite)) file.updateSite = newName;
+			if (oldName.equals(file.updateSite)) file.setUpdateSite(newName);
 
 		// preserve order
 		final Map<String, UpdateSite> oldMap = updateSites;
@@ -165,7 +177,7 @@ public void removeUpdateSite(final String name) {
 			}
 			else {
 				file.setStatus(Status.LOCAL_ONLY);
-				file.updateSite = null;
+				file.setUpdateSite(null);
 			}
 		}
 		updateSites.remove(name);
@@ -390,7 +402,8 @@ public FilesCollection clone(final Iterable<FileObject> iterable) {
 	}
 
 	public Iterable<FileObject> toUploadOrRemove() {
-		return filter(or(is(Action.UPLOAD), is(Action.REMOVE)));
+		return filter(or(is(Action.UPLOAD), is(Action.REMOVE)), Action.UPLOAD,
+			Action.REMOVE);
 	}
 
 	public Iterable<FileObject> toUpload() {
@@ -398,7 +411,7 @@ public Iterable<FileObject> toUpload() {
 	}
 
 	public Iterable<FileObject> toUpload(final boolean includeMetadataChanges) {
-		if (!includeMetadataChanges) return filter(is(Action.UPLOAD));
+		if (!includeMetadataChanges) return filter(is(Action.UPLOAD), Action.UPLOAD);
 		return filter(or(is(Action.UPLOAD), new Filter() {
 
 			@Override
@@ -409,31 +422,33 @@ public boolean matches(final FileObject file) {
 	}
 
 	public Iterable<FileObject> toUpload(final String updateSite) {
-		return filter(and(is(Action.UPLOAD), isUpdateSite(updateSite)));
+		return filter(and(is(Action.UPLOAD), isUpdateSite(updateSite)),
+			Action.UPLOAD);
 	}
 
 	public Iterable<FileObject> toUninstall() {
-		return filter(is(Action.UNINSTALL));
+		return filter(is(Action.UNINSTALL), Action.UNINSTALL);
 	}
 
 	public Iterable<FileObject> toRemove() {
-		return filter(is(Action.REMOVE));
+		return filter(is(Action.REMOVE), Action.REMOVE);
 	}
 
 	public Iterable<FileObject> toUpdate() {
-		return filter(is(Action.UPDATE));
+		return filter(is(Action.UPDATE), Action.UPDATE);
 	}
 
 	public Iterable<FileObject> upToDate() {
-		return filter(is(Action.INSTALLED));
+		return filter(is(Action.INSTALLED), Action.INSTALLED);
 	}
 
 	public Iterable<FileObject> toInstall() {
-		return filter(is(Action.INSTALL));
+		return filter(is(Action.INSTALL), Action.INSTALL);
 	}
 
 	public Iterable<FileObject> toInstallOrUpdate() {
-		return filter(oneOf(Action.INSTALL, Action.UPDATE));
+		return filter(oneOf(Action.INSTALL, Action.UPDATE), Action.INSTALL,
+			Action.UPDATE);
 	}
 
 	public Iterable<FileObject> notHidden() {
@@ -441,17 +456,18 @@ public Iterable<FileObject> notHidden() {
 	}
 
 	public Iterable<FileObject> uninstalled() {
-		return filter(is(Status.NOT_INSTALLED));
+		return filter(is(Status.NOT_INSTALLED), Status.NOT_INSTALLED);
 	}
 
 	public Iterable<FileObject> installed() {
 		return filter(not(oneOf(Status.LOCAL_ONLY,
-			Status.NOT_INSTALLED)));
+			Status.NOT_INSTALLED)), allStatusesBut(Status.LOCAL_ONLY,
+			Status.NOT_INSTALLED));
 	}
 
 	public Iterable<FileObject> locallyModified() {
 		return filter(oneOf(Status.MODIFIED,
-			Status.OBSOLETE_MODIFIED));
+			Status.OBSOLETE_MODIFIED), Status.MODIFIED, Status.OBSOLETE_MODIFIED);
 	}
 
 	public Iterable<FileObject> forUpdateSite(final String name) {
@@ -462,7 +478,14 @@ public Iterable<FileObject> forUpdateSite(final String name, boolean includeObso
 		Filter filter = and(doesPlatformMatch(), isUpdateSite(name));
 		if (!includeObsoletes) {
 			filter = and(not(is(Status.OBSOLETE_UNINSTALLED)), filter);
-			return filter(filter);
+			final Filter filter2 = filter;
+			return new Iterable<FileObject>() {
+
+				@Override
+				public Iterator<FileObject> iterator() {
+					return new FilteredIterator(filter2, getIndex().forUpdateSite(name));
+				}
+			};
 		}
 		// make sure that overridden records are kept
 		List<FileObject> result = new ArrayList<FileObject>();
@@ -479,11 +502,11 @@ public Iterable<FileObject> forUpdateSite(final String name, boolean includeObso
 	}
 
 	public Iterable<FileObject> managedFiles() {
-		return filter(not(is(Status.LOCAL_ONLY)));
+		return filter(not(is(Status.LOCAL_ONLY)), allStatusesBut(Status.LOCAL_ONLY));
 	}
 
 	public Iterable<FileObject> localOnly() {
-		return filter(is(Status.LOCAL_ONLY));
+		return filter(is(Status.LOCAL_ONLY), Status.LOCAL_ONLY);
 	}
 
 	public Iterable<FileObject> shownByDefault() {
@@ -494,7 +517,51 @@ public Iterable<FileObject> shownByDefault() {
 		final Status[] oneOf =
 			{ Status.UPDATEABLE, Status.NEW, Status.OBSOLETE,
 				Status.OBSOLETE_MODIFIED };
-		return filter(or(oneOf(oneOf), is(Action.INSTALL)));
+		final Filter filter = or(oneOf(oneOf), is(Action.INSTALL));
+		return new Iterable<FileObject>() {
+
+			@Override
+			public Iterator<FileObject> iterator() {
+				final Index index = getIndex();
+				return new FilteredIterator(filter, index.union(index
+					.withStatus(oneOf), index.withAction(Action.INSTALL)));
+			}
+		};
+	}
+
+	/**
+	 * Gets the files whose filename starts with the given prefix.
+	 * 
+	 * @param prefix the prefix, e.g. <i>jars/</i>
+	 * @return the matching files, in the order of the collection
+	 */
+	public Iterable<FileObject> withPrefix(final String prefix) {
+		final Filter filter = startsWith(prefix);
+		return new Iterable<FileObject>() {
+
+			@Override
+			public Iterator<FileObject> iterator() {
+				return new FilteredIterator(filter, getIndex().withPrefix(prefix));
+			}
+		};
+	}
+
+	/**
+	 * Gets the files that directly depend on the given file.
+	 * <p>
+	 * Unlike most other queries, the result is a snapshot, i.e. it is safe to
+	 * modify the dependencies of the returned files.
+	 * </p>
+	 * 
+	 * @param filename the (possibly versioned) filename of the dependency
+	 * @return the dependencees, in the order of the collection
+	 */
+	public List<FileObject> dependencees(final String filename) {
+		final String key = FileObject.getFilename(filename, true);
+		final List<FileObject> result = new ArrayList<FileObject>();
+		for (final FileObject file : getIndex().dependencees(key))
+			if (file.hasDependency(key)) result.add(file);
+		return result;
 	}
 
 	public Iterable<FileObject> uploadable() {
@@ -736,6 +803,293 @@ public Iterable<FileObject> filter(final Filter filter) {
 		return filter(filter, this);
 	}
 
+	/**
+	 * Filters the files having one of the given actions, using the index.
+	 * 
+	 * @param filter the filter, which must only match files with one of the
+	 *          given actions
+	 */
+	protected Iterable<FileObject> filter(final Filter filter,
+		final Action... actions)
+	{
+		return new Iterable<FileObject>() {
+
+			@Override
+			public Iterator<FileObject> iterator() {
+				return new FilteredIterator(filter, getIndex().withAction(actions));
+			}
+		};
+	}
+
+	/**
+	 * Filters the files having one of the given states, using the index.
+	 * 
+	 * @param filter the filter, which must only match files with one of the
+	 *          given states
+	 */
+	protected Iterable<FileObject> filter(final Filter filter,
+		final Status... states)
+	{
+		return new Iterable<FileObject>() {
+
+			@Override
+			public Iterator<FileObject> iterator() {
+				return new FilteredIterator(filter, getIndex().withStatus(states));
+			}
+		};
+	}
+
+	private static Status[] allStatusesBut(final Status... exclude) {
+		final Set<Status> set = new HashSet<Status>(Arrays.asList(Status.values()));
+		set.removeAll(Arrays.asList(exclude));
+		return set.toArray(new Status[set.size()]);
+	}
+
+	protected Index getIndex() {
+		if (index == null) index = new Index();
+		return index;
+	}
+
+	/**
+	 * Updates the indexes after the status, action, update site, filename or
+	 * dependencies of a file changed.
+	 * 
+	 * @param file the file that changed
+	 */
+	void fileChanged(final FileObject file) {
+		if (index != null) index.update(file);
+	}
+
+	/**
+	 * Secondary indexes of the files, kept up to date by {@link #add},
+	 * {@link #remove}, {@link #clear} and {@link #fileChanged}.
+	 * <p>
+	 * The queries return snapshots in the order of the collection, i.e. it is
+	 * safe to modify the collection or the returned files while iterating.
+	 * </p>
+	 */
+	protected class Index {
+
+		/* the indexed properties of a file, needed to find its old buckets */
+		private class Entry {
+
+			private final int position;
+			private Status status;
+			private Action action;
+			private String updateSite, filename;
+			private Set<String> dependencies;
+
+			Entry(final int position) {
+				this.position = position;
+			}
+		}
+
+		private int nextPosition;
+		private final Map<FileObject, Entry> entries =
+			new IdentityHashMap<FileObject, Entry>();
+		private final Comparator<FileObject> order = new Comparator<FileObject>() {
+
+			@Override
+			public int compare(final FileObject a, final FileObject b) {
+				final int p1 = entries.get(a).position, p2 = entries.get(b).position;
+				return p1 < p2 ? -1 : p1 > p2 ? 1 : 0;
+			}
+		};
+		private final Map<Status, Set<FileObject>> byStatus =
+			new EnumMap<Status, Set<FileObject>>(Status.class);
+		private final Map<Action, Set<FileObject>> byAction =
+			new EnumMap<Action, Set<FileObject>>(Action.class);
+		private final Map<String, Set<FileObject>> byUpdateSite =
+			new HashMap<String, Set<FileObject>>();
+		private final Map<String, Set<FileObject>> byDependency =
+			new HashMap<String, Set<FileObject>>();
+		private final TreeMap<String, Set<FileObject>> byFilename =
+			new TreeMap<String, Set<FileObject>>();
+
+		Index() {
+			for (final FileObject file : FilesCollection.this) {
+				file.addOwner(FilesCollection.this);
+				add(file);
+			}
+		}
+
+		/* appends a file, or puts it at the position of the file it replaces */
+		void add(final FileObject file, final FileObject replaced) {
+			final Entry old = replaced == null ? null : entries.get(replaced);
+			if (old == null) {
+				add(file);
+				return;
+			}
+			remove(replaced);
+			insert(file, new Entry(old.position));
+		}
+
+		void add(final FileObject file) {
+			insert(file, new Entry(nextPosition++));
+		}
+
+		private void insert(final FileObject file, final Entry entry) {
+			entries.put(file, entry);
+			entry.status = file.getStatus();
+			entry.action = file.getAction();
+			entry.updateSite = file.updateSite;
+			entry.filename = file.filename;
+			entry.dependencies = new HashSet<String>(file.dependencies.keySet());
+			add(byStatus, entry.status, file);
+			add(byAction, entry.action, file);
+			if (entry.updateSite != null) add(byUpdateSite, entry.updateSite, file);
+			for (final String dependency : entry.dependencies)
+				add(byDependency, dependency, file);
+			add(byFilename, entry.filename, file);
+		}
+
+		void remove(final FileObject file) {
+			final Entry entry = entries.get(file);
+			if (entry == null) return;
+			// the buckets need the position, so drop the entry last
+			remove(byStatus, entry.status, file);
+			remove(byAction, entry.action, file);
+			if (entry.updateSite != null) remove(byUpdateSite, entry.updateSite, file);
+			for (final String dependency : entry.dependencies)
+				remove(byDependency, dependency, file);
+			remove(byFilename, entry.filename, file);
+			entries.remove(file);
+		}
+
+		void update(final FileObject file) {
+			final Entry entry = entries.get(file);
+			if (entry == null) return;
+			if (entry.status != file.getStatus()) {
+				remove(byStatus, entry.status, file);
+				entry.status = file.getStatus();
+				add(byStatus, entry.status, file);
+			}
+			if (entry.action != file.getAction()) {
+				remove(byAction, entry.action, file);
+				entry.action = file.getAction();
+				add(byAction, entry.action, file);
+			}
+			if (!equals(entry.updateSite, file.updateSite)) {
+				if (entry.updateSite != null) remove(byUpdateSite, entry.updateSite, file);
+				entry.updateSite = file.updateSite;
+				if (entry.updateSite != null) add(byUpdateSite, entry.updateSite, file);
+			}
+			if (!equals(entry.filename, file.filename)) {
+				remove(byFilename, entry.filename, file);
+				entry.filename = file.filename;
+				add(byFilename, entry.filename, file);
+			}
+			final Set<String> dependencies = file.dependencies.keySet();
+			if (!entry.dependencies.equals(dependencies)) {
+				for (final String dependency : entry.dependencies)
+					if (!dependencies.contains(dependency)) remove(byDependency, dependency, file);
+				for (final String dependency : dependencies)
+					if (!entry.dependencies.contains(dependency)) add(byDependency, dependency, file);
+				entry.dependencies = new HashSet<String>(dependencies);
+			}
+		}
+
+		/*
+		 * The update site and filename of a file are public fields, so they can
+		 * change without notice; re-index the files whose fields were assigned.
+		 */
+		private void refreshNames() {
+			for (final Map.Entry<FileObject, Entry> e : entries.entrySet()) {
+				final FileObject file = e.getKey();
+				final Entry entry = e.getValue();
+				if (!equals(entry.updateSite, file.updateSite) ||
+					!equals(entry.filename, file.filename)) update(file);
+			}
+		}
+
+		private boolean equals(final String a, final String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		private <K> void add(final Map<K, Set<FileObject>> map, final K key,
+			final FileObject file)
+		{
+			Set<FileObject> set = map.get(key);
+			if (set == null) {
+				set = new TreeSet<FileObject>(order);
+				map.put(key, set);
+			}
+			set.add(file);
+		}
+
+		private <K> void remove(final Map<K, Set<FileObject>> map, final K key,
+			final FileObject file)
+		{
+			final Set<FileObject> set = map.get(key);
+			if (set == null) return;
+			set.remove(file);
+			if (set.isEmpty()) map.remove(key);
+		}
+
+		public List<FileObject> withStatus(final Status... states) {
+			final List<Set<FileObject>> sets = new ArrayList<Set<FileObject>>();
+			for (final Status status : states)
+				sets.add(byStatus.get(status));
+			return union(sets);
+		}
+
+		public List<FileObject> withAction(final Action... actions) {
+			final List<Set<FileObject>> sets = new ArrayList<Set<FileObject>>();
+			for (final Action action : actions)
+				sets.add(byAction.get(action));
+			return union(sets);
+		}
+
+		public List<FileObject> forUpdateSite(final String name) {
+			refreshNames();
+			return snapshot(byUpdateSite.get(name));
+		}
+
+		public List<FileObject> dependencees(final String unversionedFilename) {
+			return snapshot(byDependency.get(unversionedFilename));
+		}
+
+		public List<FileObject> withPrefix(final String prefix) {
+			refreshNames();
+			final SortedMap<String, Set<FileObject>> map =
+				byFilename.subMap(prefix, prefix + Character.MAX_VALUE);
+			return union(new ArrayList<Set<FileObject>>(map.values()));
+		}
+
+		public List<FileObject> union(final List<FileObject> a,
+			final List<FileObject> b)
+		{
+			final List<Set<FileObject>> sets = new ArrayList<Set<FileObject>>();
+			final Set<FileObject> set = new TreeSet<FileObject>(order);
+			set.addAll(a);
+			sets.add(set);
+			sets.add(new HashSet<FileObject>(b));
+			return union(sets);
+		}
+
+		/* merges the sets, retaining the order of the collection */
+		private List<FileObject> union(final List<Set<FileObject>> sets) {
+			Set<FileObject> single = null;
+			int count = 0;
+			for (final Set<FileObject> set : sets) {
+				if (set == null || set.isEmpty()) continue;
+				single = set;
+				count++;
+			}
+			if (count == 0) return Collections.emptyList();
+			if (count == 1) return snapshot(single);
+			final Set<FileObject> result = new TreeSet<FileObject>(order);
+			for (final Set<FileObject> set : sets)
+				if (set != null) result.addAll(set);
+			return new ArrayList<FileObject>(result);
+		}
+
+		private List<FileObject> snapshot(final Set<FileObject> set) {
+			if (set == null) return Collections.emptyList();
+			return new ArrayList<FileObject>(set);
+		}
+	}
+
 	public FileObject
 		getFileFromDigest(final String filename, final String digest)
 	{
@@ -775,7 +1129,7 @@ public boolean hasChanges() {
 	}
 
 	public boolean hasUploadOrRemove() {
-		return has(oneOf(Action.UPLOAD, Action.REMOVE));
+		return getIndex().withAction(Action.UPLOAD, Action.REMOVE).size() > 0;
 	}
 
 	public boolean hasForcableUpdates() {
@@ -900,10 +1254,11 @@ int firstChar(final FileObject file) {
 				return index < 0 ? 0x200 + c : index;
 			}
 		});
-		this.clear();
+		super.clear();
 		for (final FileObject file : files) {
 			super.put(file.filename, file);
 		}
+		index = null;
 	}
 
 	String checkForCircularDependency(final FileObject file,
@@ -976,6 +1331,15 @@ public File prefix(final String path) {
 		return new File(imagejRoot, path);
 	}
 
+	/**
+	 * Gets the directory holding the cached indices of the update sites.
+	 * 
+	 * @return the directory, or null if there is no ImageJ directory
+	 */
+	public File getIndexCacheDirectory() {
+		return imagejRoot == null ? null : prefix(".update-site-cache");
+	}
+
 	public File prefixUpdate(final String path) {
 		return prefix("update/" + path);
 	}
@@ -995,7 +1359,11 @@ public FileObject get(final int index) {
 	}
 
 	public void add(final FileObject file) {
-		super.put(file.getFilename(true), file);
+		final FileObject replaced = super.put(file.getFilename(true), file);
+		if (replaced == file) return;
+		if (replaced != null) replaced.removeOwner(this);
+		file.addOwner(this);
+		if (index != null) index.add(file, replaced);
 	}
 
 	@Override
@@ -1010,9 +1378,22 @@ public FileObject put(final String key, final FileObject file) {
 
 	@Override
 	public FileObject remove(final Object file) {
-		if (file instanceof FileObject) super.remove(((FileObject) file).getFilename(true));
-		if (file instanceof String) return super.remove(FileObject.getFilename((String)file, true));
-		return null;
+		FileObject removed = null;
+		if (file instanceof FileObject) removed = super.remove(((FileObject) file).getFilename(true));
+		if (file instanceof String) removed = super.remove(FileObject.getFilename((String)file, true));
+		if (removed != null) {
+			removed.removeOwner(this);
+			if (index != null) index.remove(removed);
+		}
+		return file instanceof String ? removed : null;
+	}
+
+	@Override
+	public void clear() {
+		for (final FileObject file : this)
+			file.removeOwner(this);
+		super.clear();
+		index = null;
 	}
 
 	@Override
@@ -39,12 +39,18 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import org.scijava.Context;
 import org.scijava.log.LogService;
@@ -198,6 +204,19 @@ public String toString() {
 		}
 	}
 
+	protected class ChangesFile extends DbXmlFile {
+
+		@Override
+		public String getFilename() {
+			return Util.XML_CHANGES + ".lock";
+		}
+
+		@Override
+		public String toString() {
+			return Util.XML_CHANGES;
+		}
+	}
+
 	public void upload(final Progress progress) throws Exception {
 		if (uploader == null) throw new RuntimeException("No uploader set for " +
 			site.getHost());
@@ -213,6 +232,7 @@ public void upload(final Progress progress) throws Exception {
 		uploadables = new ArrayList<Uploadable>();
 		final List<String> locks = new ArrayList<String>();
 		uploadables.add(new DbXmlFile());
+		uploadables.add(new ChangesFile());
 		for (final FileObject file : files.toUpload(siteName)) {
 			// remove obsolete/invalid dependencies
 			for (Iterator<Dependency> iter = file.getDependencies().iterator(); iter.hasNext(); ) {
@@ -226,6 +246,8 @@ public void upload(final Progress progress) throws Exception {
 			uploadables.add(new UploadableFile(files, file));
 		}
 
+		// the change log must be in place before the index it describes
+		locks.add(Util.XML_CHANGES);
 		// must be last lock
 		locks.add(Util.XML_COMPRESSED);
 
@@ -298,12 +320,109 @@ protected void updateUploadTimestamp(final long timestamp) throws Exception {
 		final XMLFileWriter writer =
 			new XMLFileWriter(files.clone(files.forUpdateSite(siteName, true)));
 		if (files.size() > 0) writer.validate(false);
-		((DbXmlFile) uploadables.get(0)).bytes =
-			writer.toCompressedByteArray(false);
+		final byte[] bytes = writer.toCompressedByteArray(false);
+		((DbXmlFile) uploadables.get(0)).bytes = bytes;
+
+		final ChangeLog changes = updateChangeLog(timestamp, bytes);
+		((DbXmlFile) uploadables.get(1)).bytes =
+			writer.toCompressedByteArray(changes);
 
 		uploader.calculateTotalSize(uploadables);
 	}
 
+	/**
+	 * Extends the update site's change log by the files changed in this upload.
+	 * <p>
+	 * The changed files are determined by comparing the records of the current
+	 * index with the new one, so that changes made without an upload action
+	 * (e.g. fixed-up dependencies) are logged, too. If the current change log
+	 * does not describe the current index (e.g. when it was uploaded by an
+	 * updater that did not know about change logs), a new log is started.
+	 * </p>
+	 */
+	protected ChangeLog updateChangeLog(final long timestamp,
+		final byte[] index)
+	{
+		ChangeLog previous = null;
+		byte[] currentIndex = null;
+		try {
+			final URLConnection connection =
+				files.util.openConnection(new URL(site.getURL() + Util.XML_COMPRESSED));
+			connection.setUseCaches(false);
+			currentIndex = XMLFileDownloader.readFully(connection.getInputStream());
+
+			final XMLFileReader reader = new XMLFileReader(new FilesCollection(null));
+			final InputStream in =
+				files.util.openConnection(new URL(site.getURL() + Util.XML_CHANGES))
+					.getInputStream();
+			reader.read(siteName, new GZIPInputStream(in), Long.MAX_VALUE);
+			in.close();
+			previous = reader.getChangeLog();
+		}
+		catch (final FileNotFoundException e) {
+			// no change log yet
+		}
+		catch (final Exception e) {
+			files.log.warn("Could not read the change log of " + siteName, e);
+		}
+
+		final ChangeLog result;
+		if (previous == null || currentIndex == null ||
+			!previous.describes(currentIndex))
+		{
+			result = new ChangeLog(timestamp, timestamp, index);
+		}
+		else {
+			result = new ChangeLog(previous.getSince(), timestamp, index);
+			for (final String filename : previous.getChangedFiles()) {
+				result.setChanged(filename, previous.getChanged(filename));
+			}
+		}
+		if (currentIndex != null) try {
+			final Map<String, String> before = getRecords(currentIndex);
+			final Map<String, String> after = getRecords(index);
+			for (final Map.Entry<String, String> entry : after.entrySet()) {
+				if (!entry.getValue().equals(before.get(entry.getKey()))) result
+					.setChanged(entry.getKey(), timestamp);
+			}
+			for (final String filename : before.keySet()) {
+				if (!after.containsKey(filename)) result.setChanged(filename, timestamp);
+			}
+		}
+		catch (final IOException e) {
+			files.log.warn("Could not compare the indexes of " + siteName, e);
+			return new ChangeLog(timestamp, timestamp, index);
+		}
+		result.trim(ChangeLog.MAX_ENTRIES);
+		return result;
+	}
+
+	private final static Pattern RECORD = Pattern.compile(
+		"<plugin\\s[^>]*?filename=\"([^\"]*)\"(?:[^>]*/>|.*?</plugin>)",
+		Pattern.DOTALL);
+
+	/**
+	 * Extracts the XML of the file records from a compressed index.
+	 * 
+	 * @return the records, by filename
+	 */
+	protected static Map<String, String> getRecords(final byte[] index)
+		throws IOException
+	{
+		final String xml =
+			new String(XMLFileDownloader.readFully(new GZIPInputStream(
+				new ByteArrayInputStream(index))), "UTF-8");
+		final Map<String, String> result = new HashMap<String, String>();
+		final Matcher matcher = RECORD.matcher(xml);
+		while (matcher.find()) {
+			final String filename =
+				matcher.group(1).replace("&quot;", "\"").replace("&apos;", "'")
+					.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+			result.put(filename, matcher.group());
+		}
+		return result;
+	}
+
 	/*
 	 * This class serves two purposes:
 	 *
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * A locally cached copy of an update site's index.
+ * <p>
+ * Together with the update site's {@link ChangeLog}, the cached index allows
+ * the updater to bring its view of an update site up-to-date without
+ * downloading the complete index.
+ * </p>
+ */
+class IndexCache {
+
+	private final File index, properties;
+	private final String url;
+	private long timestamp = -1;
+
+	private IndexCache(final File directory, final UpdateSite site) {
+		final String name = site.getName().replaceAll("[^-A-Za-z0-9_.]", "_");
+		index = new File(directory, name + ".xml.gz");
+		properties = new File(directory, name + ".properties");
+		url = site.getURL();
+	}
+
+	/**
+	 * Gets the cache for the given update site.
+	 * 
+	 * @return the cache, or null if the collection has no ImageJ directory
+	 */
+	public static IndexCache get(final FilesCollection files,
+		final UpdateSite site)
+	{
+		final File directory = files.getIndexCacheDirectory();
+		if (directory == null) return null;
+		return new IndexCache(directory, site);
+	}
+
+	/**
+	 * Reads the cached index.
+	 * 
+	 * @return the compressed index, or null if none was cached for this site
+	 */
+	public byte[] read() {
+		if (!index.exists() || !properties.exists()) return null;
+		try {
+			final Properties props = new Properties();
+			final InputStream in = new FileInputStream(properties);
+			try {
+				props.load(in);
+			}
+			finally {
+				in.close();
+			}
+			if (!url.equals(props.getProperty("url"))) return null;
+			final byte[] bytes = readFully(new FileInputStream(index));
+			if (!("" + bytes.length).equals(props.getProperty("size"))) return null;
+			timestamp = Long.parseLong(props.getProperty("timestamp"));
+			return bytes;
+		}
+		catch (final IOException e) {
+			return null;
+		}
+		catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the timestamp as of which the cached index is current.
+	 * <p>
+	 * This is only valid after {@link #read()} returned the cached index.
+	 * </p>
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Stores the index.
+	 * 
+	 * @param bytes the compressed index
+	 * @param timestamp the timestamp as of which the index is current
+	 */
+	public void write(final byte[] bytes, final long timestamp)
+		throws IOException
+	{
+		final File directory = index.getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException(
+			"Could not make directory " + directory);
+		// invalidate first, so that an interrupted write cannot leave a mismatch
+		properties.delete();
+		write(index, bytes);
+		final Properties props = new Properties();
+		props.setProperty("url", url);
+		props.setProperty("size", "" + bytes.length);
+		props.setProperty("timestamp", "" + timestamp);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		props.store(out, null);
+		write(properties, out.toByteArray());
+		this.timestamp = timestamp;
+	}
+
+	public void delete() {
+		properties.delete();
+		index.delete();
+	}
+
+	private static void write(final File file, final byte[] bytes)
+		throws IOException
+	{
+		final File tmp =
+			File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		final OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			// renameTo() does not replace existing files on Windows
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Could not write " + file);
+			}
+		}
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[65536];
+			for (;;) {
+				final int count = in.read(buffer);
+				if (count < 0) break;
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+}
@@ -44,6 +44,7 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -71,6 +72,7 @@ class Download implements Downloadable {
 		protected FileObject file;
 		protected String url;
 		protected File destination;
+		protected MessageDigest digest;
 
 		Download(final FileObject file, final String url, final File destination) {
 			this.file = file;
@@ -99,6 +101,28 @@ public long getFilesize() {
 		}
 	}
 
+	/**
+	 * Digests non-.jar files while they are downloaded; .jar files are digested
+	 * entry by entry in sorted order, which requires the complete file.
+	 */
+	@Override
+	protected MessageDigest createDigest(final Downloadable current) {
+		if (!(current instanceof Download)) return null;
+		final Download download = (Download) current;
+		final String filename = download.file.getFilename();
+		download.digest = null;
+		if (filename.endsWith(".jar")) return null;
+		try {
+			final MessageDigest digest = Util.getDigest();
+			digest.update(filename.getBytes("ASCII"));
+			download.digest = digest;
+		}
+		catch (final Exception e) {
+			files.log.error(e);
+		}
+		return download.digest;
+	}
+
 	public synchronized void start() throws IOException {
 		final Iterable<Conflict> conflicts = new Conflicts(files).getConflicts(false);
 		if (Conflicts.needsFeedback(conflicts)) {
@@ -293,7 +317,11 @@ public void verify(final Download download) {
 		final String digest = download.file.getChecksum();
 		String actualDigest;
 		try {
-			actualDigest = Util.getDigest(file.getFilename(), destination);
+			if (download.digest != null) {
+				actualDigest = Util.toHex(download.digest.digest());
+				download.digest = null;
+			}
+			else actualDigest = Util.getDigest(file.getFilename(), destination);
 			if (!digest.equals(actualDigest)) {
 				List<String> obsoletes = Util.getObsoleteDigests(file.getFilename(), destination);
 				if (obsoletes != null) {
@@ -347,7 +375,13 @@ protected void moveUpdatedIntoPlace(final File sourceDirectory,
 				moveUpdatedIntoPlace(file, targetFile);
 			}
 			else if (file.isFile()) {
-				if (file.length() == 0) {
+				if (file.getName().endsWith(PARTIAL_SUFFIX) ||
+					file.getName().endsWith(VALIDATOR_SUFFIX))
+				{
+					// left over from an interrupted download
+					deleteOrThrowException(file);
+				}
+				else if (file.length() == 0) {
 					if (targetFile.exists()) deleteOrThrowException(targetFile);
 					deleteOrThrowException(file);
 				}
@@ -34,14 +34,19 @@
 import imagej.updater.util.AbstractProgressable;
 import imagej.updater.util.Util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Collection;
 import java.util.zip.GZIPInputStream;
 
+import org.scijava.log.LogService;
+
 /**
  * Directly in charge of downloading and saving start-up files (i.e.: XML file
  * and related).
@@ -83,13 +88,52 @@ public void start(boolean closeProgressAtEnd) {
 			addItem(title);
 			setCount(current, total);
 			try {
-				final URLConnection connection =
-					files.util.openConnection(new URL(updateSite.getURL() + Util.XML_COMPRESSED));
-				final long lastModified = connection.getLastModified();
-				final int fileSize = connection.getContentLength();
+				final IndexCache cache = IndexCache.get(files, updateSite);
+				final ChangeLogRecords changes =
+					cache == null ? null : readChanges(updateSite);
+				final ChangeLog log = changes == null ? null : changes.changeLog;
+				byte[] bytes = null;
+				long lastModified = 0;
+				if (log != null) try {
+					final byte[] cached = cache.read();
+					if (cached != null && log.covers(cache.getTimestamp())) {
+						final URLConnection connection =
+							files.util.openConnection(new URL(updateSite.getURL() +
+								Util.XML_COMPRESSED));
+						if (connection instanceof HttpURLConnection) ((HttpURLConnection) connection)
+							.setRequestMethod("HEAD");
+						connection.setUseCaches(false);
+						lastModified = connection.getLastModified();
+						final int fileSize = connection.getContentLength();
+						connection.getInputStream().close();
+						if (log.mayDescribe(fileSize, lastModified, changes.lastModified)) {
+							bytes =
+								applyChanges(updateSite, cached, changes, cache.getTimestamp());
+							cache.write(bytes, log.getTimestamp());
+						}
+					}
+				}
+				catch (final Exception e) {
+					// fall back to downloading the full index
+					files.log.debug(e);
+				}
+				if (bytes == null) {
+					final URLConnection connection =
+						files.util.openConnection(new URL(updateSite.getURL() + Util.XML_COMPRESSED));
+					lastModified = connection.getLastModified();
+					final int fileSize = connection.getContentLength();
+					bytes = readFully(getInputStream(connection.getInputStream(), fileSize));
+					if (cache != null) try {
+						if (log != null && log.describes(bytes)) cache.write(
+							bytes, log.getTimestamp());
+						else cache.delete();
+					}
+					catch (final IOException e) {
+						files.log.warn("Could not cache the index of " + name, e);
+					}
+				}
 				final InputStream in =
-					getInputStream(new GZIPInputStream(connection.getInputStream()),
-						fileSize);
+					new GZIPInputStream(new ByteArrayInputStream(bytes));
 				reader.read(name, in, updateSite.getTimestamp());
 				in.close();
 				updateSite.setLastModified(lastModified);
@@ -114,6 +158,98 @@ public String getWarnings() {
 		return warnings;
 	}
 
+	/**
+	 * Reads the change log of an update site.
+	 * 
+	 * @return the records of the changed files, or null if the site has no
+	 *         change log
+	 */
+	protected ChangeLogRecords readChanges(final UpdateSite site) {
+		try {
+			final ChangeLogRecords result = new ChangeLogRecords(files.log, site);
+			final XMLFileReader reader = new XMLFileReader(result);
+			final URLConnection connection =
+				files.util.openConnection(new URL(site.getURL() + Util.XML_CHANGES));
+			connection.setUseCaches(false);
+			result.lastModified = connection.getLastModified();
+			final InputStream in = connection.getInputStream();
+			reader.read(site.getName(), new GZIPInputStream(in), Long.MAX_VALUE);
+			in.close();
+			result.changeLog = reader.getChangeLog();
+			return result.changeLog == null ? null : result;
+		}
+		catch (final FileNotFoundException e) {
+			return null;
+		}
+		catch (final Exception e) {
+			files.log.debug(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Brings a cached index up-to-date.
+	 * 
+	 * @param site the update site
+	 * @param cached the compressed index
+	 * @param changes the records of the files changed recently
+	 * @param timestamp the timestamp as of which the cached index is current
+	 * @return the compressed, updated index
+	 */
+	protected byte[] applyChanges(final UpdateSite site, final byte[] cached,
+		final ChangeLogRecords changes, final long timestamp) throws Exception
+	{
+		final FilesCollection index = new ChangeLogRecords(files.log, site);
+		final InputStream in = new GZIPInputStream(new ByteArrayInputStream(cached));
+		new XMLFileReader(index).read(site.getName(), in, Long.MAX_VALUE);
+		in.close();
+
+		// uploads within the same second share the timestamp
+		final ChangeLog log = changes.changeLog;
+		// replace the records in place, to keep the order of the full index
+		for (final FileObject file : changes) {
+			if (log.getChanged(file.filename) >= timestamp) index.add(file);
+		}
+		for (final String filename : log.getChangedFiles()) {
+			if (log.getChanged(filename) >= timestamp && changes.get(filename) == null)
+			{
+				index.remove(filename);
+			}
+		}
+		return new XMLFileWriter(index).toCompressedByteArray(false);
+	}
+
+	/**
+	 * A collection of the records of a single update site, as read from its
+	 * index or change log.
+	 */
+	protected static class ChangeLogRecords extends FilesCollection {
+
+		private ChangeLog changeLog;
+		private long lastModified;
+
+		public ChangeLogRecords(final LogService log, final UpdateSite site) {
+			super(log, null);
+			addUpdateSite(site.getName(), site.getURL(), null, null, 0);
+		}
+	}
+
+	static byte[] readFully(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[65536];
+			for (;;) {
+				final int count = in.read(buffer);
+				if (count < 0) break;
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+
 	public InputStream getInputStream(final InputStream in, final int fileSize) {
 		return new InputStream() {
 
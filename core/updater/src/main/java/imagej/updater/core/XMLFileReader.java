@@ -75,6 +75,9 @@ public class XMLFileReader extends DefaultHandler {
 	// every file newer than this was not seen by the user yet
 	private long newTimestamp;
 
+	// the change log, if we read one
+	private ChangeLog changes;
+
 	// There might have been warnings
 	private StringBuffer warnings = new StringBuffer();
 
@@ -90,6 +93,15 @@ public String getWarnings() {
 		return warnings.toString();
 	}
 
+	/**
+	 * Gets the change log contained in the last-read index.
+	 * 
+	 * @return the change log, or null if the index did not contain any
+	 */
+	public ChangeLog getChangeLog() {
+		return changes;
+	}
+
 	public void read(final String updateSite)
 		throws ParserConfigurationException, IOException, SAXException
 	{
@@ -120,6 +132,7 @@ public void read(final String updateSite, final InputStream in,
 		this.updateSite = updateSite;
 		filesFromThisSite.clear();
 		newTimestamp = timestamp;
+		changes = null;
 
 		final InputSource inputSource = new InputSource(in);
 		final SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -176,6 +189,11 @@ else if (currentTag.equals("dependency")) {
 			current.addDependency(atts.getValue("filename"), getLong(atts,
 				"timestamp"), overrides != null && overrides.equals("true"));
 		}
+		else if (currentTag.equals("changes")) changes =
+			new ChangeLog(getLong(atts, "since"), getLong(atts, "timestamp"),
+				getLong(atts, "index-size"), atts.getValue("index-digest"));
+		else if (currentTag.equals("changed")) changes.setChanged(atts
+			.getValue("filename"), getLong(atts, "timestamp"));
 		else if (updateSite == null &&
 				(currentTag.equals("update-site") || currentTag.equals("disabled-update-site"))) {
 			final UpdateSite site = new UpdateSite(atts.getValue("name"),
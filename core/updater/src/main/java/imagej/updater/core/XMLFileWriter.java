@@ -74,7 +74,9 @@ public class XMLFileWriter {
 	private final String XALAN_INDENT_AMOUNT = "{http://xml.apache.org/xslt}"
 		+ "indent-amount";
 	private final static String dtd = "<!DOCTYPE pluginRecords [\n"
-		+ "<!ELEMENT pluginRecords ((update-site | disabled-update-site)*, plugin*)>\n"
+		+ "<!ELEMENT pluginRecords (changes?, (update-site | disabled-update-site)*, plugin*)>\n"
+		+ "<!ELEMENT changes (changed*)>\n"
+		+ "<!ELEMENT changed EMPTY>\n"
 		+ "<!ELEMENT update-site EMPTY>\n"
 		+ "<!ELEMENT disabled-update-site EMPTY>\n"
 		+ "<!ELEMENT plugin (platform*, category*, version?, previous-version*)>\n"
@@ -83,6 +85,12 @@ public class XMLFileWriter {
 		+ "<!ELEMENT description (#PCDATA)>\n" + "<!ELEMENT dependency EMPTY>\n"
 		+ "<!ELEMENT link (#PCDATA)>\n" + "<!ELEMENT author (#PCDATA)>\n"
 		+ "<!ELEMENT platform (#PCDATA)>\n" + "<!ELEMENT category (#PCDATA)>\n"
+		+ "<!ATTLIST changes since CDATA #REQUIRED>\n"
+		+ "<!ATTLIST changes timestamp CDATA #REQUIRED>\n"
+		+ "<!ATTLIST changes index-size CDATA #REQUIRED>\n"
+		+ "<!ATTLIST changes index-digest CDATA #IMPLIED>\n"
+		+ "<!ATTLIST changed filename CDATA #REQUIRED>\n"
+		+ "<!ATTLIST changed timestamp CDATA #REQUIRED>\n"
 		+ "<!ATTLIST update-site name CDATA #REQUIRED>\n"
 		+ "<!ATTLIST update-site url CDATA #REQUIRED>\n"
 		+ "<!ATTLIST update-site ssh-host CDATA #IMPLIED>\n"
@@ -130,6 +138,21 @@ public byte[] toCompressedByteArray(final boolean local) throws SAXException,
 		return out.toByteArray();
 	}
 
+	/**
+	 * Writes the change log of an update site.
+	 * <p>
+	 * The change log contains the full records of the files listed in the log,
+	 * as far as they are contained in the collection.
+	 * </p>
+	 */
+	public byte[] toCompressedByteArray(final ChangeLog changes)
+		throws SAXException, TransformerConfigurationException, IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(new GZIPOutputStream(out), changes);
+		return out.toByteArray();
+	}
+
 	public void validate(final boolean local) throws SAXException,
 		TransformerConfigurationException, IOException,
 		ParserConfigurationException
@@ -173,6 +196,38 @@ public void write(final OutputStream out, final boolean local)
 		out.close();
 	}
 
+	public void write(final OutputStream out, final ChangeLog changes)
+		throws SAXException, TransformerConfigurationException, IOException
+	{
+		createHandler(out);
+
+		handler.startDocument();
+		final AttributesImpl attr = new AttributesImpl();
+
+		handler.startElement("", "", "pluginRecords", attr);
+		setAttribute(attr, "since", changes.getSince());
+		setAttribute(attr, "timestamp", changes.getTimestamp());
+		setAttribute(attr, "index-size", changes.getIndexSize());
+		if (changes.getIndexDigest() != null) setAttribute(attr, "index-digest",
+			changes.getIndexDigest());
+		handler.startElement("", "", "changes", attr);
+		for (final String filename : changes.getChangedFiles()) {
+			attr.clear();
+			setAttribute(attr, "filename", filename);
+			setAttribute(attr, "timestamp", changes.getChanged(filename));
+			writeSimpleTag("changed", null, attr);
+		}
+		handler.endElement("", "", "changes");
+
+		for (final FileObject file : files.managedFiles()) {
+			if (changes.getChanged(file.filename) >= 0) writeSingle(false, attr, file);
+		}
+		handler.endElement("", "", "pluginRecords");
+		handler.endDocument();
+		out.flush();
+		out.close();
+	}
+
 	protected void writeSingle(final boolean local, final AttributesImpl attr,
 			final FileObject file) throws SAXException {
 		attr.clear();
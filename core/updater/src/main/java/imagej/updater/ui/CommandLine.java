@@ -469,7 +469,7 @@ public void upload(final List<String> list) {
 			if (file.getStatus() == Status.INSTALLED) {
 				if (forceShadow && !updateSite.equals(file.updateSite)) {
 					// TODO: add overridden update site
-					file.updateSite = updateSite;
+					file.setUpdateSite(updateSite);
 					file.setStatus(Status.MODIFIED);
 					log.info("Uploading (force-shadow) '" + name
 							+ "' to site '" + updateSite + "'");
@@ -482,7 +482,8 @@ public void upload(final List<String> list) {
 			if (updateSite == null) {
 				updateSite = file.updateSite;
 				if (updateSite == null) {
-					updateSite = file.updateSite = chooseUploadSite(name);
+					updateSite = chooseUploadSite(name);
+					file.setUpdateSite(updateSite);
 				}
 				if (updateSite == null) {
 					throw die("Canceled");
@@ -490,10 +491,10 @@ public void upload(final List<String> list) {
 			} else if (file.updateSite == null) {
 				log.info("Uploading new file '" + name + "' to  site '"
 						+ updateSite + "'");
-				file.updateSite = updateSite;
+				file.setUpdateSite(updateSite);
 			} else if (!file.updateSite.equals(updateSite)) {
 				if (forceUpdateSite) {
-					file.updateSite = updateSite;
+					file.setUpdateSite(updateSite);
 				} else {
 					throw die("Cannot upload to multiple update sites ("
 							+ list.get(0) + " to " + updateSite + " and "
@@ -610,7 +611,7 @@ public void uploadCompleteSite(final List<String> list) {
 			case OBSOLETE:
 			case OBSOLETE_MODIFIED:
 				if (forceShadow) {
-					file.updateSite = updateSite;
+					file.setUpdateSite(updateSite);
 					file.setAction(files, Action.UPLOAD);
 					if (simulate) {
 						log.info("Would upload " + file.filename);
@@ -638,7 +639,7 @@ public void uploadCompleteSite(final List<String> list) {
 				}
 				//$FALL-THROUGH$
 			case LOCAL_ONLY:
-				file.updateSite = updateSite;
+				file.setUpdateSite(updateSite);
 				file.setAction(files, Action.UPLOAD);
 				if (simulate) {
 					log.info("Would upload new "
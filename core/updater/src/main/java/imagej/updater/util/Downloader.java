@@ -32,30 +32,64 @@
 package imagej.updater.util;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Direct responsibility: Download a list of files given their respective URLs
  * to their respective destinations. Updates its download status to its
  * Observer as well.
+ * <p>
+ * Several files are fetched concurrently. Each file is first written to a
+ * <i>.part</i> file next to its destination which is renamed into place when
+ * the transfer is complete; should a transfer fail (or be canceled), the next
+ * attempt resumes the partial file via an HTTP range request when the server
+ * supports it. The entity tag (or last modification date) of the response
+ * that started the partial file is kept in a <i>.part.validator</i> file and
+ * sent as <i>If-Range</i>, so that a file changed on the server in the
+ * meantime is downloaded anew instead of being spliced onto stale bytes.
+ * Subclasses can ask for the contents to be digested while they
+ * are streamed by overriding {@link #createDigest(Downloadable)}.
+ * </p>
+ * <p>
+ * The {@link Progress} callbacks are serialized, but may be called from
+ * worker threads.
+ * </p>
  * 
  * @author Johannes Schindelin
  */
 public class Downloader extends AbstractProgressable {
 
+	public final static int DEFAULT_CONCURRENCY = 4;
+	public final static String PARTIAL_SUFFIX = ".part";
+	public final static String VALIDATOR_SUFFIX = PARTIAL_SUFFIX + ".validator";
+	protected final static int MAX_ATTEMPTS = 3;
+
 	protected int count, total, itemCount, itemTotal;
 	protected long lastModified;
 
 	protected String error;
-	protected boolean cancelled;
+	protected volatile boolean cancelled;
 
 	private final Util util;
+	private final Object progressLock = new Object();
+	private int concurrency = DEFAULT_CONCURRENCY;
 
 	@Deprecated
 	public Downloader() {
@@ -76,6 +110,16 @@ public synchronized void cancel() {
 		cancelled = true;
 	}
 
+	/**
+	 * Sets the maximal number of files to download at the same time.
+	 * 
+	 * @param concurrency the number of concurrent transfers (1 downloads the
+	 *          files one after another)
+	 */
+	public void setConcurrency(final int concurrency) {
+		this.concurrency = Math.max(1, concurrency);
+	}
+
 	public synchronized void start(final Downloadable justOne) throws IOException
 	{
 		start(Collections.singleton(justOne));
@@ -85,60 +129,323 @@ public void start(final Iterable<Downloadable> files) throws IOException {
 		Util.useSystemProxies();
 		cancelled = false;
 
+		final List<Downloadable> list = new ArrayList<Downloadable>();
 		count = total = itemCount = itemTotal = 0;
 		for (final Downloadable file : files) {
 			total += file.getFilesize();
 			itemTotal++;
+			list.add(file);
 		}
 
 		setTitle("Downloading...");
 
-		for (final Downloadable current : files) {
-			if (cancelled) break;
-			download(current);
+		final int threadCount = Math.min(concurrency, list.size());
+		if (threadCount <= 1) {
+			for (final Downloadable current : list) {
+				if (cancelled) break;
+				download(current);
+			}
+			done();
+			return;
+		}
+
+		final ExecutorService executor =
+			Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Downloader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final Downloadable current : list) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						if (!cancelled) download(current);
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final ExecutionException e) {
+					cancelled = true;
+					final Throwable cause = e.getCause();
+					if (cause instanceof IOException) throw (IOException) cause;
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					if (cause instanceof Error) throw (Error) cause;
+					throw new RuntimeException(cause);
+				}
+			}
+		}
+		catch (final InterruptedException e) {
+			cancelled = true;
+			Thread.currentThread().interrupt();
+			throw new UpdateCanceledException();
+		}
+		finally {
+			executor.shutdownNow();
 		}
 		done();
 	}
 
-	protected synchronized void download(final Downloadable current)
-		throws IOException
-	{
-		final URLConnection connection = util.openConnection(new URL(current.getURL()));
-		connection.setUseCaches(false);
-		lastModified = connection.getLastModified();
-		int currentTotal = connection.getContentLength();
-		if (currentTotal < 0) currentTotal = (int) current.getFilesize();
+	/**
+	 * Returns a digest to be fed with the contents of the given file while it is
+	 * downloaded, or null if the contents need not be digested.
+	 * <p>
+	 * This method is called once per attempt, i.e. it must return a fresh
+	 * digest every time.
+	 * </p>
+	 * 
+	 * @param current the file to download
+	 * @return the digest, or null
+	 */
+	protected MessageDigest createDigest(final Downloadable current) {
+		return null;
+	}
 
+	protected void download(final Downloadable current) throws IOException {
 		final File destination = current.getDestination();
-		addItem(current);
-
 		final File parentDirectory = destination.getParentFile();
 		if (parentDirectory != null) parentDirectory.mkdirs();
+		final File partial =
+			new File(destination.getPath() + PARTIAL_SUFFIX);
+
+		synchronized (progressLock) {
+			addItem(current);
+		}
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				if (!download(current, partial)) return; // canceled
+				break;
+			}
+			catch (final IOException e) {
+				if (attempt >= MAX_ATTEMPTS || cancelled) throw e;
+			}
+		}
+
+		if (destination.exists() && !destination.delete()) {
+			throw new IOException("Could not overwrite " + destination);
+		}
+		if (!partial.renameTo(destination)) {
+			throw new IOException("Could not move " + partial + " to " + destination);
+		}
+		validatorFile(partial).delete();
+		synchronized (progressLock) {
+			itemDone(current);
+		}
+	}
+
+	/**
+	 * Transfers (the rest of) a file into the given partial file.
+	 * 
+	 * @return false if the download was canceled
+	 */
+	protected boolean download(final Downloadable current, final File partial)
+		throws IOException
+	{
+		final File validatorFile = validatorFile(partial);
+		long offset = partial.exists() ? partial.length() : 0;
+		final long expected = current.getFilesize();
+		final String validator = offset > 0 ? readValidator(validatorFile) : null;
+		// without a validator we cannot tell whether the partial file is stale
+		if (validator == null || (expected > 0 && offset >= expected)) offset = 0;
+
+		URLConnection connection = openConnection(current);
+		if (offset > 0 && connection instanceof HttpURLConnection) {
+			final HttpURLConnection http = (HttpURLConnection) connection;
+			http.setRequestProperty("Range", "bytes=" + offset + "-");
+			http.setRequestProperty("If-Range", validator);
+			final int code = http.getResponseCode();
+			if (code == HttpURLConnection.HTTP_PARTIAL) {
+				if (!validator.equals(validator(http))) {
+					// the server ignored If-Range and sent part of a changed file
+					http.disconnect();
+					offset = 0;
+					connection = openConnection(current);
+				}
+			}
+			else if (code == 416) {
+				// Requested Range Not Satisfiable: the partial file is useless
+				http.disconnect();
+				partial.delete();
+				offset = 0;
+				connection = openConnection(current);
+			}
+			else {
+				// e.g. 200 OK: the file changed, and this is all of it
+				offset = 0;
+			}
+		}
+		else offset = 0;
+		if (offset == 0) writeValidator(validatorFile, validator(connection));
+
+		synchronized (progressLock) {
+			lastModified = connection.getLastModified();
+		}
+		long currentTotal = connection.getContentLength();
+		currentTotal = currentTotal < 0 ? expected : offset + currentTotal;
+
+		final MessageDigest digest = createDigest(current);
+		if (digest != null && offset > 0) {
+			Util.updateDigest(new LimitedInputStream(new FileInputStream(partial),
+				offset), digest);
+		}
+
 		final InputStream in = connection.getInputStream();
-		final OutputStream out = new FileOutputStream(destination);
+		final OutputStream out = new FileOutputStream(partial, offset > 0);
 
-		int currentCount = 0;
-		int total = this.total;
-		if (total == 0) total =
-			(count + currentTotal) * itemTotal / (itemCount + 1);
+		long currentCount = offset;
+		synchronized (progressLock) {
+			count += offset;
+		}
 
 		final byte[] buffer = new byte[65536];
-		for (;;) {
-			if (cancelled) break;
-			final int count = in.read(buffer);
-			if (count < 0) break;
-			out.write(buffer, 0, count);
-			currentCount += count;
-			this.count += count;
-			setCount(this.count, total);
-			setItemCount(currentCount, currentTotal);
+		try {
+			for (;;) {
+				if (cancelled) return false;
+				final int count = in.read(buffer);
+				if (count < 0) break;
+				out.write(buffer, 0, count);
+				if (digest != null) digest.update(buffer, 0, count);
+				currentCount += count;
+				synchronized (progressLock) {
+					this.count += count;
+					int total = this.total;
+					if (total == 0) total =
+						(int) ((this.count + currentTotal) * itemTotal / (itemCount + 1));
+					setCount(this.count, total);
+					setItemCount((int) currentCount, (int) currentTotal);
+				}
+			}
 		}
-		in.close();
-		out.close();
-		itemDone(current);
+		catch (final IOException e) {
+			synchronized (progressLock) {
+				// the bytes will be counted again by the next attempt
+				this.count -= currentCount;
+			}
+			throw e;
+		}
+		finally {
+			in.close();
+			out.close();
+		}
+		return true;
 	}
 
 	public long getLastModified() {
 		return lastModified;
 	}
+
+	/** Returns the file holding the validator of a partial file. */
+	private static File validatorFile(final File partial) {
+		return new File(partial.getPath() +
+			VALIDATOR_SUFFIX.substring(PARTIAL_SUFFIX.length()));
+	}
+
+	private URLConnection openConnection(final Downloadable current)
+		throws IOException
+	{
+		final URLConnection connection =
+			util.openConnection(new URL(current.getURL()));
+		connection.setUseCaches(false);
+		return connection;
+	}
+
+	/**
+	 * Returns the strong entity tag of a response, or its last modification
+	 * date if there is none, as suitable for an <i>If-Range</i> header.
+	 */
+	private static String validator(final URLConnection connection) {
+		final String etag = connection.getHeaderField("ETag");
+		// weak entity tags must not be used with If-Range
+		if (etag != null && !etag.startsWith("W/")) return etag;
+		return connection.getHeaderField("Last-Modified");
+	}
+
+	private static String readValidator(final File file) {
+		if (!file.exists()) return null;
+		try {
+			final InputStream in = new FileInputStream(file);
+			try {
+				final byte[] buffer = new byte[(int) Math.min(file.length(), 4096)];
+				int offset = 0;
+				while (offset < buffer.length) {
+					final int count = in.read(buffer, offset, buffer.length - offset);
+					if (count < 0) break;
+					offset += count;
+				}
+				final String validator = new String(buffer, 0, offset, "UTF-8").trim();
+				return validator.length() == 0 ? null : validator;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final IOException e) {
+			return null;
+		}
+	}
+
+	private static void writeValidator(final File file, final String validator)
+		throws IOException
+	{
+		if (validator == null) {
+			file.delete();
+			return;
+		}
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(validator.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads at most a given number of bytes from an {@link InputStream}.
+	 */
+	private static class LimitedInputStream extends InputStream {
+
+		private final InputStream in;
+		private long remaining;
+
+		public LimitedInputStream(final InputStream in, final long limit) {
+			this.in = in;
+			remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) return -1;
+			final int result = in.read();
+			if (result >= 0) remaining--;
+			return result;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length)
+			throws IOException
+		{
+			if (remaining <= 0) return -1;
+			final int count =
+				in.read(buffer, offset, (int) Math.min(length, remaining));
+			if (count > 0) remaining -= count;
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
 }
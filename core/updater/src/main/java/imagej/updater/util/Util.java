@@ -89,6 +89,7 @@ public class Util {
 	public static String SSH_HOST = "update.imagej.net";
 
 	public static final String XML_COMPRESSED = "db.xml.gz";
+	public static final String XML_CHANGES = "db-changes.xml.gz";
 
 	// Prefix for the preference key names
 	public static final String PREFS_USER = "imagej.updater.login";
@@ -45,6 +45,7 @@
 import static imagej.updater.core.UpdaterTestUtils.progress;
 import static imagej.updater.core.UpdaterTestUtils.readDb;
 import static imagej.updater.core.UpdaterTestUtils.readGzippedStream;
+import static imagej.updater.core.UpdaterTestUtils.readStream;
 import static imagej.updater.core.UpdaterTestUtils.touch;
 import static imagej.updater.core.UpdaterTestUtils.update;
 import static imagej.updater.core.UpdaterTestUtils.upload;
@@ -63,6 +64,7 @@
 import imagej.updater.core.FileObject.Status;
 import imagej.updater.test.Dependencee;
 import imagej.updater.test.Dependency;
+import imagej.updater.util.Downloader;
 import imagej.updater.util.Util;
 
 import java.io.File;
@@ -71,6 +73,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
@@ -110,6 +113,70 @@ public void testUtilityMethods() {
 			.timestamp2millis(newTimestamp))));
 	}
 
+	@Test
+	public void testChecksumCache() throws Exception {
+		files = initialize();
+
+		for (int i = 0; i < 10; i++) {
+			writeJar(files.prefix("jars/test-" + i + ".jar"), "README.txt", "Hello " + i);
+		}
+		files.prefix(".checksums").delete();
+		final Checksummer parallel = new Checksummer(files, progress);
+		parallel.setThreadCount(4);
+		parallel.updateFromLocal();
+		assertEquals(10, files.size());
+		for (int i = 0; i < 10; i++) {
+			final String path = "jars/test-" + i + ".jar";
+			assertEquals(Util.getJarDigest(files.prefix(path)), files.get(path).localChecksum);
+		}
+
+		// the size is recorded separately, keeping the format older updaters read
+		final File jar = files.prefix("jars/test-0.jar");
+		final String cache = readStream(new FileInputStream(files.prefix(".checksums")));
+		assertTrue(cache.indexOf(" " + Util.getTimestamp(jar) + " jars/test-0.jar\n") > 0);
+		final String sizes =
+			readStream(new FileInputStream(files.prefix(".checksums.sizes")));
+		assertTrue(sizes.indexOf(" " + jar.length() + " jars/test-0.jar\n") > 0);
+
+		// a different size invalidates the cached checksum, even with the same timestamp
+		final long modified = jar.lastModified();
+		writeJar(jar, "README.txt", "Hello, World!");
+		assertTrue(jar.setLastModified(modified));
+		final Checksummer serial = new Checksummer(files, progress);
+		serial.setThreadCount(1);
+		serial.updateFromLocal();
+		assertEquals(Util.getJarDigest(jar), files.get("jars/test-0.jar").localChecksum);
+
+		// caches written by older updaters have no sizes, but are still used
+		final File jar1 = files.prefix("jars/test-1.jar");
+		assertTrue(files.prefix(".checksums.sizes").delete());
+		final FileOutputStream out = new FileOutputStream(files.prefix(".checksums"));
+		out.write(("cafe " + Util.getTimestamp(jar1) + " jars/test-1.jar\n").getBytes());
+		out.close();
+		final Checksummer old = new Checksummer(files, progress);
+		old.updateFromLocal();
+		assertEquals("cafe", old.getCachedChecksums().get("jars/test-1.jar").checksum);
+	}
+
+	@Test
+	public void testChecksumCachePruned() throws Exception {
+		files = initialize();
+
+		writeJar(files.prefix("jars/keep.jar"), "README.txt", "keep");
+		writeJar(files.prefix("jars/gone.jar"), "README.txt", "gone");
+		new Checksummer(files, progress).updateFromLocal();
+		final File cacheFile = files.prefix(".checksums");
+		assertTrue(readStream(new FileInputStream(cacheFile)).indexOf(
+			" jars/gone.jar\n") > 0);
+
+		// deleting a file changes no other entry, yet its entry must go
+		assertTrue(files.prefix("jars/gone.jar").delete());
+		new Checksummer(files, progress).updateFromLocal();
+		final String cache = readStream(new FileInputStream(cacheFile));
+		assertTrue(cache.indexOf(" jars/keep.jar\n") > 0);
+		assertTrue(cache.indexOf(" jars/gone.jar\n") < 0);
+	}
+
 	@Test
 	public void testInitialUpload() throws Exception {
 
@@ -239,6 +306,82 @@ public void testFilters() throws Exception {
 		assertCount(3, files.uploadable());
 	}
 
+	@Test
+	public void testIndexes() {
+		final FilesCollection collection = new FilesCollection(null);
+		final FileObject a = new FileObject(FilesCollection.DEFAULT_UPDATE_SITE,
+			"jars/a.jar", 1, "0123", 20120101000000l, Status.INSTALLED);
+		final FileObject b = new FileObject(FilesCollection.DEFAULT_UPDATE_SITE,
+			"jars/b.jar", 1, "4567", 20120101000000l, Status.NOT_INSTALLED);
+		final FileObject c = new FileObject(null, "macros/c.ijm", 1, "89ab",
+			20120101000000l, Status.LOCAL_ONLY);
+		b.addDependency("jars/a-1.0.jar", 20120101000000l, false);
+		collection.add(a);
+		collection.add(b);
+		collection.add(c);
+
+		assertCount(1, collection.uninstalled());
+		assertCount(1, collection.installed());
+		assertCount(2, collection.managedFiles());
+		assertCount(2, collection.withPrefix("jars/"));
+		assertCount(1, collection.dependencees("jars/a.jar"));
+		assertSame(b, collection.dependencees("jars/a.jar").get(0));
+
+		// the indexes follow changes to the files and the collection
+		b.setAction(collection, Action.INSTALL);
+		assertCount(1, collection.toInstall());
+		assertCount(1, collection.toInstallOrUpdate());
+		a.setStatus(Status.MODIFIED);
+		assertCount(1, collection.locallyModified());
+		b.removeDependency("jars/a.jar");
+		assertCount(0, collection.dependencees("jars/a.jar"));
+		collection.remove(c);
+		assertCount(0, collection.localOnly());
+		assertCount(0, collection.withPrefix("macros/"));
+
+		// combined queries retain the order of the collection
+		final Iterator<FileObject> iterator = collection.shownByDefault().iterator();
+		assertSame(b, iterator.next());
+		assertFalse(iterator.hasNext());
+		assertCount(2, collection.filter(collection.yes()));
+
+		// moving files between update sites
+		collection.addUpdateSite("Other", "http://other/", null, null, 0);
+		b.setUpdateSite("Other");
+		assertCount(1, collection.forUpdateSite(FilesCollection.DEFAULT_UPDATE_SITE));
+		assertSame(b, collection.forUpdateSite("Other").iterator().next());
+		collection.renameUpdateSite("Other", "Renamed");
+		assertCount(0, collection.forUpdateSite("Other"));
+		assertCount(1, collection.forUpdateSite("Renamed"));
+
+		// the public fields may also be assigned directly
+		b.updateSite = FilesCollection.DEFAULT_UPDATE_SITE;
+		assertCount(0, collection.forUpdateSite("Renamed"));
+		assertCount(2, collection.forUpdateSite(FilesCollection.DEFAULT_UPDATE_SITE));
+		b.filename = "plugins/b.jar";
+		assertCount(1, collection.withPrefix("plugins/"));
+		assertCount(1, collection.withPrefix("jars/"));
+		b.filename = "jars/b.jar";
+
+		// replacing a file keeps its position
+		final FileObject a2 = new FileObject(FilesCollection.DEFAULT_UPDATE_SITE,
+			"jars/a-2.0.jar", 1, "cdef", 20130101000000l, Status.UPDATEABLE);
+		collection.add(a2);
+		assertCount(2, collection.withPrefix("jars/"));
+		assertSame(a2, collection.withPrefix("jars/").iterator().next());
+		a.setStatus(Status.LOCAL_ONLY);
+		assertCount(0, collection.localOnly());
+
+		// the indexes are per collection
+		final FilesCollection other = new FilesCollection(null);
+		other.add(c);
+		assertCount(1, other.localOnly());
+		c.setStatus(Status.INSTALLED);
+		assertCount(0, other.localOnly());
+		assertCount(1, other.installed());
+		assertCount(1, collection.installed());
+	}
+
 	@Test
 	public void testUpdater() throws Exception {
 		final String filename = "macros/hello.ijm";
@@ -285,6 +428,91 @@ public void testUpdater() throws Exception {
 
 	}
 
+	@Test
+	public void testConcurrentDownloads() throws Exception {
+		final String[] filenames = {
+			"macros/hello.ijm", "macros/world.ijm", "jars/narf.jar"
+		};
+		files = initialize(filenames);
+		for (final String filename : filenames) {
+			assertTrue(files.prefix(filename).delete());
+		}
+
+		// a stale partial download must not end up in the installed file
+		final File partial =
+			new File(files.prefixUpdate(filenames[0]).getPath() + Downloader.PARTIAL_SUFFIX);
+		writeFile(partial, "x");
+
+		files.getUpdateSite(FilesCollection.DEFAULT_UPDATE_SITE, false).setTimestamp(19991224134121l);
+		files.write();
+		files = readDb(files);
+
+		update(files);
+		for (final String filename : filenames) {
+			assertTrue(files.prefix(filename).exists());
+			assertFalse(new File(files.prefix(filename).getPath() + Downloader.PARTIAL_SUFFIX).exists());
+			assertStatus(Status.INSTALLED, files, filename);
+		}
+	}
+
+	@Test
+	public void testIndexChangeLog() throws Exception {
+		files = initialize("macros/hello.ijm");
+		final File webRoot = getWebRoot(files);
+		assertTrue(new File(webRoot, Util.XML_CHANGES).exists());
+
+		// the first download populates the cache
+		files = readDb(files);
+		final File cached = new File(files.getIndexCacheDirectory(),
+			FilesCollection.DEFAULT_UPDATE_SITE + ".xml.gz");
+		assertTrue(cached.exists());
+		assertFalse(readGzippedStream(new FileInputStream(cached)).contains("macros/world.ijm"));
+
+		// the next one applies the change log to the cached index
+		final String world = "macros/world.ijm";
+		writeFile(files.prefix(world), "world");
+		files = readDb(files);
+		files.get(world).stageForUpload(files, FilesCollection.DEFAULT_UPDATE_SITE);
+		upload(files);
+
+		files = readDb(files);
+		assertStatus(Status.INSTALLED, files, "macros/hello.ijm");
+		assertStatus(Status.INSTALLED, files, world);
+		assertTrue(readGzippedStream(new FileInputStream(cached)).contains(world));
+
+		// an index not described by the change log is downloaded in full
+		final File remoteDb = new File(webRoot, Util.XML_COMPRESSED);
+		final String db = readGzippedStream(new FileInputStream(remoteDb));
+		writeGZippedFile(webRoot, Util.XML_COMPRESSED, db.replaceAll("(?s)<plugin filename=\"macros/world.ijm\".*?</plugin>", ""));
+
+		files = readDb(files);
+		assertStatus(Status.INSTALLED, files, "macros/hello.ijm");
+		assertStatus(Status.LOCAL_ONLY, files, world);
+	}
+
+	@Test
+	public void testChangeLogBoundaries() throws Exception {
+		final byte[] index = { 1, 2, 3 };
+		final ChangeLog log = new ChangeLog(20130101000000l, 20130103000000l, index);
+		assertTrue(log.describes(index));
+		assertFalse(log.describes(new byte[] { 1, 2, 4 }));
+
+		// an unknown size is not a mismatch, but a newer index is
+		assertTrue(log.mayDescribe(-1, 1000, 2000));
+		assertFalse(log.mayDescribe(4, 1000, 2000));
+		assertFalse(log.mayDescribe(3, 3000, 2000));
+		assertFalse(log.mayDescribe(3, 0, 2000));
+
+		// trimming drops whole seconds and excludes them from the log
+		log.setChanged("macros/a.ijm", 20130102000000l);
+		log.setChanged("macros/b.ijm", 20130102000000l);
+		log.setChanged("macros/c.ijm", 20130103000000l);
+		log.trim(2);
+		assertEquals(1, log.size());
+		assertFalse(log.covers(20130102000000l));
+		assertTrue(log.covers(20130102000001l));
+	}
+
 	@Test
 	public void testUploadConflicts() throws Exception {
 		files = initialize("macros/obsolete.ijm", "macros/dependency.ijm");
@@ -1220,7 +1448,7 @@ public void testShownByDefault() throws Exception {
 		new Checksummer(files, progress).updateFromLocal();
 		final FileObject dependency = files.get("jars/dependency.jar");
 		assertNotNull(dependency);
-		dependency.updateSite = FilesCollection.DEFAULT_UPDATE_SITE;
+		dependency.setUpdateSite(FilesCollection.DEFAULT_UPDATE_SITE);
 		dependency.setAction(files, Action.UPLOAD);
 		assertCount(1, files.toUpload());
 		upload(files);
@@ -1295,7 +1523,7 @@ public void obsoletedDependencies() throws Exception {
 		final FileObject blub = files.get("jars/blub.jar");
 		assertNotNull(blub);
 		blub.addDependency(files, files.get("jars/something-cool.jar"));
-		blub.updateSite = "Second";
+		blub.setUpdateSite("Second");
 		blub.setAction(files, Action.UPLOAD);
 		upload(files, "Second");
 
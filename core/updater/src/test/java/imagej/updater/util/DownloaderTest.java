@@ -0,0 +1,251 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.updater.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests resuming partial downloads over HTTP.
+ */
+public class DownloaderTest {
+
+	private HttpServer server;
+	private File dir;
+
+	/** What the server currently serves. */
+	private byte[] content;
+	private String etag;
+	private boolean honorIfRange;
+
+	/** The status codes of the responses sent, in order. */
+	private final List<Integer> responses = new ArrayList<Integer>();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("downloader", "");
+		assertTrue(dir.delete() && dir.mkdirs());
+		content = bytes(100000, 1);
+		etag = "\"v1\"";
+		honorIfRange = true;
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/file", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		for (final File file : dir.listFiles())
+			file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		writePartial(content, 40000, etag);
+		download(content.length);
+		assertEquals(1, responses.size());
+		assertEquals(206, responses.get(0).intValue());
+		assertDownloaded(content);
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		writePartial(content, 40000, etag);
+		content = bytes(90000, 2);
+		etag = "\"v2\"";
+		download(content.length);
+		assertEquals(1, responses.size());
+		assertEquals(200, responses.get(0).intValue());
+		assertDownloaded(content);
+	}
+
+	@Test
+	public void testChangedFileIgnoringIfRange() throws IOException {
+		writePartial(content, 40000, etag);
+		content = bytes(90000, 2);
+		etag = "\"v2\"";
+		honorIfRange = false;
+		download(content.length);
+		assertEquals(2, responses.size());
+		assertEquals(206, responses.get(0).intValue());
+		assertEquals(200, responses.get(1).intValue());
+		assertDownloaded(content);
+	}
+
+	@Test
+	public void testUnsatisfiableRange() throws IOException {
+		writePartial(bytes(content.length + 10, 3), content.length + 10, etag);
+		download(0);
+		assertEquals(2, responses.size());
+		assertEquals(416, responses.get(0).intValue());
+		assertEquals(200, responses.get(1).intValue());
+		assertDownloaded(content);
+	}
+
+	@Test
+	public void testNoValidatorDownloadsAnew() throws IOException {
+		writePartial(bytes(40000, 3), 40000, null);
+		download(content.length);
+		assertEquals(1, responses.size());
+		assertEquals(200, responses.get(0).intValue());
+		assertDownloaded(content);
+	}
+
+	// -- helpers --
+
+	private void serve(final HttpExchange exchange) throws IOException {
+		final String range = exchange.getRequestHeaders().getFirst("Range");
+		final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		exchange.getResponseHeaders().set("ETag", etag);
+		int start = 0;
+		if (range != null && (!honorIfRange || ifRange == null ||
+			ifRange.equals(etag)))
+		{
+			start = Integer.parseInt(range.substring(6, range.length() - 1));
+			if (start >= content.length) {
+				respond(exchange, 416, 0);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Range",
+				"bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+		}
+		respond(exchange, start > 0 ? 206 : 200, start);
+	}
+
+	private void respond(final HttpExchange exchange, final int code,
+		final int start) throws IOException
+	{
+		responses.add(code);
+		final int length = code == 416 ? 0 : content.length - start;
+		exchange.sendResponseHeaders(code, length == 0 ? -1 : length);
+		final OutputStream out = exchange.getResponseBody();
+		out.write(content, start, length);
+		out.close();
+	}
+
+	private void download(final long filesize) throws IOException {
+		final String url =
+			"http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+		final Downloader downloader = new Downloader(null, null);
+		downloader.start(new Downloadable() {
+
+			@Override
+			public File getDestination() {
+				return destination();
+			}
+
+			@Override
+			public String getURL() {
+				return url;
+			}
+
+			@Override
+			public long getFilesize() {
+				return filesize;
+			}
+		});
+	}
+
+	private File destination() {
+		return new File(dir, "file.bin");
+	}
+
+	private void writePartial(final byte[] data, final int length,
+		final String validator) throws IOException
+	{
+		final String path = destination().getPath();
+		write(new File(path + Downloader.PARTIAL_SUFFIX), data, length);
+		if (validator != null) {
+			final byte[] bytes = validator.getBytes("UTF-8");
+			write(new File(path + Downloader.VALIDATOR_SUFFIX), bytes, bytes.length);
+		}
+	}
+
+	private void assertDownloaded(final byte[] expected) throws IOException {
+		final String path = destination().getPath();
+		assertFalse(new File(path + Downloader.PARTIAL_SUFFIX).exists());
+		assertFalse(new File(path + Downloader.VALIDATOR_SUFFIX).exists());
+		final InputStream in = new FileInputStream(destination());
+		final byte[] actual = new byte[(int) destination().length()];
+		int offset = 0;
+		while (offset < actual.length) {
+			offset += in.read(actual, offset, actual.length - offset);
+		}
+		in.close();
+		assertArrayEquals(expected, actual);
+	}
+
+	private static void write(final File file, final byte[] data,
+		final int length) throws IOException
+	{
+		final OutputStream out = new FileOutputStream(file);
+		out.write(data, 0, length);
+		out.close();
+	}
+
+	private static byte[] bytes(final int length, final int seed) {
+		final byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte) (i * seed + i / 251);
+		}
+		return result;
+	}
+
+}
@@ -97,20 +97,35 @@ public enum NeighborhoodType {RADIAL, RECTANGULAR}
 	public abstract Function<PointSet,DoubleType> getFunction(
 		Function<long[],DoubleType> otherFunc);
 
+	/**
+	 * Returns the order statistic this reducer computes, if any. Integer images
+	 * are then filtered with a sliding histogram rather than by evaluating
+	 * {@link #getFunction} over every neighborhood. Returns null by default.
+	 */
+	public RankStatistic getRankStatistic() {
+		return null;
+	}
+
 	@Override
 	public void run() {
 		Neighborhood neighborhood = determineNeighborhood(input.numDimensions());
 		if (neighborhood == null) return;
 		@SuppressWarnings("unchecked")
 		ImgPlus<U> inputImg = (ImgPlus<U>) input.getImgPlus();
+		RankStatistic statistic = getRankStatistic();
+		if (statistic != null && RankFilter.supports(inputImg)) {
+			RankFilter<U> filter =
+				new RankFilter<U>(getContext(), inputImg, statistic, neighborhood);
+			output = filter.filter(neighborhood.getDescription());
+			return;
+		}
 		OutOfBoundsMirrorFactory<U, RandomAccessibleInterval<U>> oobFactory =
 				new OutOfBoundsMirrorFactory<U,RandomAccessibleInterval<U>>(Boundary.DOUBLE);
 		Function<long[],DoubleType> otherFunc =
 				new RealImageFunction<U,DoubleType>(inputImg, oobFactory, new DoubleType());
-		PointSet ps = neighborhood.getPoints();
 		Reducer<U,DoubleType> reducer =
 			new Reducer<U, DoubleType>(getContext(), inputImg,
-				getFunction(otherFunc), ps);
+				getFunction(otherFunc), neighborhood);
 		output = reducer.reduceNoise(neighborhood.getDescription());
 	}
 
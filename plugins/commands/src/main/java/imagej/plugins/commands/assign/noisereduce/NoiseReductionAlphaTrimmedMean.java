@@ -73,6 +73,11 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealAlphaTrimmedMeanFunction<DoubleType>(otherFunc, alpha);
 	}
 
+	@Override
+	public RankStatistic getRankStatistic() {
+		return new RankStatistic.AlphaTrimmedMean(alpha);
+	}
+
 	public void setAlpha(final double alpha) {
 		this.alpha = alpha;
 	}
@@ -65,4 +65,8 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealMedianFunction<DoubleType>(otherFunc);
 	}
 
+	@Override
+	public RankStatistic getRankStatistic() {
+		return RankStatistic.MEDIAN;
+	}
 }
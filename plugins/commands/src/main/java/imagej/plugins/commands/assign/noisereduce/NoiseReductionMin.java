@@ -65,4 +65,8 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealMinFunction<DoubleType>(otherFunc);
 	}
 
+	@Override
+	public RankStatistic getRankStatistic() {
+		return RankStatistic.MIN;
+	}
 }
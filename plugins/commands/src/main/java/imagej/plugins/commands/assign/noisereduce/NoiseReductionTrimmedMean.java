@@ -73,6 +73,11 @@ public Function<PointSet, DoubleType> getFunction(
 			halfTrimWidth);
 	}
 
+	@Override
+	public RankStatistic getRankStatistic() {
+		return new RankStatistic.TrimmedMean(halfTrimWidth);
+	}
+
 	public void setHalfTrimWidth(final int halfWidth) {
 		halfTrimWidth = halfWidth;
 	}
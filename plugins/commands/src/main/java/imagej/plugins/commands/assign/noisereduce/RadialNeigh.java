@@ -73,4 +73,9 @@ public String getDescription() {
 			" pixel radial neighborhood";
 	}
 
+	/** Creates an independent neighborhood of the same shape. */
+	public RadialNeigh copy() {
+		return new RadialNeigh(numDims, radius);
+	}
+
 }
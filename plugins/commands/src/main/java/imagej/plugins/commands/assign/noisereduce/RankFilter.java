@@ -0,0 +1,337 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.plugins.commands.assign.noisereduce;
+
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.Unsigned12BitType;
+import net.imglib2.view.Views;
+
+import org.scijava.Context;
+import org.scijava.app.StatusService;
+import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Applies a {@link RankStatistic} over a {@link Neighborhood} of an integer
+ * image by sliding a histogram along each row. Moving the window one pixel
+ * only adds the pixels entering it and removes the pixels leaving it, so the
+ * cost per pixel grows with the neighborhood's cross section rather than with
+ * sorting its whole volume. Works for neighborhoods of any shape. Like
+ * {@link Reducer} it mirrors the image at its borders.
+ */
+public class RankFilter<U extends RealType<U>> {
+
+	// -- constants --
+
+	/** Largest range of values the histogram is built for. */
+	private static final long MAX_BINS = 1 << 16;
+
+	// -- instance variables --
+
+	private final Context context;
+
+	private final ImgPlus<U> input;
+
+	private final RankStatistic statistic;
+
+	/** Offsets present in the neighborhood. */
+	private final long[][] offsets;
+
+	/** Offsets of the pixels entering the window when it moves along x. */
+	private final long[][] entering;
+
+	/** Offsets of the pixels leaving the window when it moves along x. */
+	private final long[][] leaving;
+
+	/** Bounding box of the offsets. */
+	private final long[] boxMin, boxDims;
+
+	/** Membership of every offset within the bounding box. */
+	private final boolean[] mask;
+
+	@Parameter(required = false)
+	private StatusService statusService;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
+	// -- constructor --
+
+	public RankFilter(final Context context, final ImgPlus<U> input,
+		final RankStatistic statistic, final Neighborhood neighborhood)
+	{
+		this.context = context;
+		context.inject(this);
+		this.input = input;
+		this.statistic = statistic;
+		offsets = offsets(neighborhood.getPoints());
+		final int numDims = offsets[0].length;
+		boxMin = offsets[0].clone();
+		final long[] boxMax = offsets[0].clone();
+		for (final long[] offset : offsets) {
+			for (int d = 0; d < numDims; d++) {
+				boxMin[d] = Math.min(boxMin[d], offset[d]);
+				boxMax[d] = Math.max(boxMax[d], offset[d]);
+			}
+		}
+		boxDims = new long[numDims];
+		long boxSize = 1;
+		for (int d = 0; d < numDims; d++) {
+			boxDims[d] = boxMax[d] - boxMin[d] + 1;
+			boxSize *= boxDims[d];
+		}
+		mask = new boolean[(int) boxSize];
+		for (final long[] offset : offsets) {
+			mask[maskIndex(offset, 0)] = true;
+		}
+		final List<long[]> in = new ArrayList<long[]>();
+		final List<long[]> out = new ArrayList<long[]>();
+		for (final long[] offset : offsets) {
+			if (!contains(offset, 1)) in.add(offset);
+			if (!contains(offset, -1)) out.add(offset);
+		}
+		entering = in.toArray(new long[in.size()][]);
+		leaving = out.toArray(new long[out.size()][]);
+	}
+
+	// -- public interface --
+
+	/**
+	 * Returns true if the given image holds integer values of a small enough
+	 * range to be filtered by histogram.
+	 */
+	public static boolean supports(final ImgPlus<?> img) {
+		final Object type = img.firstElement();
+		if (!(type instanceof IntegerType)) return false;
+		final IntegerType<?> intType = (IntegerType<?>) type;
+		return intType.getMaxValue() - intType.getMinValue() < MAX_BINS;
+	}
+
+	public Dataset filter(final String neighDescrip) {
+		if (!supports(input)) {
+			throw new IllegalArgumentException(
+				"rank filtering requires an integer image of at most 16 bits");
+		}
+		notifyUserAtStart(neighDescrip);
+		final ImgPlus<U> newImg = input.copy();
+		final long[] dims = new long[newImg.numDimensions()];
+		newImg.dimensions(dims);
+		long numRows = 1;
+		for (int d = 1; d < dims.length; d++)
+			numRows *= dims[d];
+		final int numThreads = (int) Math.min(numRows, threadCount(newImg));
+		try {
+			if (numThreads <= 1) filterRows(newImg, dims, 0, numRows);
+			else filterInParallel(newImg, dims, numRows, numThreads);
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("rank filtering interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("rank filtering failed", e.getCause());
+		}
+		notifyUserAtEnd(neighDescrip);
+		return new DefaultDataset(context, newImg);
+	}
+
+	// -- private interface --
+
+	private int threadCount(final ImgPlus<U> img) {
+		if (threadService == null) return 1;
+		// NB - several pixels of these types share a storage element, so
+		// neighboring rows could not be written concurrently
+		final U type = img.firstElement();
+		if (type instanceof BitType || type instanceof Unsigned12BitType) return 1;
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Splits the rows into contiguous runs, one per thread. If any run fails or
+	 * is interrupted, the others are cancelled.
+	 */
+	private void filterInParallel(final ImgPlus<U> output, final long[] dims,
+		final long numRows, final int numThreads) throws InterruptedException,
+		ExecutionException
+	{
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		long start = 0;
+		for (int i = 0; i < numThreads; i++) {
+			final long span = numRows / numThreads + (i < numRows % numThreads ? 1 : 0);
+			final long first = start;
+			start += span;
+			futures.add(threadService.run(new Callable<Void>() {
+
+				@Override
+				public Void call() throws InterruptedException {
+					filterRows(output, dims, first, span);
+					return null;
+				}
+			}));
+		}
+		boolean done = false;
+		try {
+			for (final Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final ExecutionException e) {
+					if (e.getCause() instanceof InterruptedException) {
+						throw (InterruptedException) e.getCause();
+					}
+					throw e;
+				}
+			}
+			done = true;
+		}
+		finally {
+			if (!done) {
+				for (final Future<Void> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+
+	/** Filters the given run of rows (lines along the first dimension). */
+	private void filterRows(final ImgPlus<U> output, final long[] dims,
+		final long firstRow, final long rowCount) throws InterruptedException
+	{
+		final U type = input.firstElement();
+		final long min = (long) type.getMinValue();
+		final RankHistogram histogram =
+			new RankHistogram(min, (int) ((long) type.getMaxValue() - min + 1));
+		final RandomAccess<U> in = Views.extendMirrorDouble(input).randomAccess();
+		final RandomAccess<U> out = output.randomAccess();
+		final long[] center = new long[dims.length];
+		final long[] pos = new long[dims.length];
+
+		for (long row = firstRow; row < firstRow + rowCount; row++) {
+			if (Thread.interrupted()) throw new InterruptedException();
+			long index = row;
+			for (int d = 1; d < dims.length; d++) {
+				center[d] = index % dims[d];
+				index /= dims[d];
+			}
+			center[0] = 0;
+			for (final long[] offset : offsets) {
+				histogram.add(bin(in, center, offset, pos, min));
+			}
+			for (long x = 0; x < dims[0]; x++) {
+				if (x > 0) {
+					center[0] = x - 1;
+					for (final long[] offset : leaving) {
+						histogram.remove(bin(in, center, offset, pos, min));
+					}
+					center[0] = x;
+					for (final long[] offset : entering) {
+						histogram.add(bin(in, center, offset, pos, min));
+					}
+				}
+				out.setPosition(center);
+				out.get().setReal(statistic.compute(histogram));
+			}
+			// empty the histogram for the next row by removing the last window,
+			// which touches far fewer bins than clearing all of them
+			for (final long[] offset : offsets) {
+				histogram.remove(bin(in, center, offset, pos, min));
+			}
+		}
+	}
+
+	private int bin(final RandomAccess<U> in, final long[] center,
+		final long[] offset, final long[] pos, final long min)
+	{
+		for (int d = 0; d < pos.length; d++)
+			pos[d] = center[d] + offset[d];
+		in.setPosition(pos);
+		return (int) ((long) in.get().getRealDouble() - min);
+	}
+
+	/**
+	 * Returns true if the given offset, shifted by delta along the first
+	 * dimension, is part of the neighborhood.
+	 */
+	private boolean contains(final long[] offset, final long delta) {
+		final long x = offset[0] + delta - boxMin[0];
+		if (x < 0 || x >= boxDims[0]) return false;
+		return mask[maskIndex(offset, delta)];
+	}
+
+	private int maskIndex(final long[] offset, final long delta) {
+		long index = 0;
+		for (int d = offset.length - 1; d >= 0; d--) {
+			index = index * boxDims[d] + offset[d] - boxMin[d];
+		}
+		return (int) (index + delta);
+	}
+
+	/** Collects the points of a neighborhood relative to its origin. */
+	private static long[][] offsets(final PointSet points) {
+		final long[] origin = points.getOrigin();
+		final List<long[]> list = new ArrayList<long[]>();
+		final PointSetIterator iter = points.iterator();
+		while (iter.hasNext()) {
+			final long[] point = iter.next();
+			final long[] offset = new long[point.length];
+			for (int d = 0; d < point.length; d++)
+				offset[d] = point[d] - origin[d];
+			list.add(offset);
+		}
+		return list.toArray(new long[list.size()][]);
+	}
+
+	private void notifyUserAtStart(final String neighDescrip) {
+		if (statusService != null)
+			statusService.showStatus(neighDescrip + " ... beginning processing");
+	}
+
+	private void notifyUserAtEnd(final String neighDescrip) {
+		if (statusService != null)
+			statusService.showStatus(neighDescrip + " ... completed processing");
+	}
+}
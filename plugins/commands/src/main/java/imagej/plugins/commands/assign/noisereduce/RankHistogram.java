@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.plugins.commands.assign.noisereduce;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of integer values which supports fast rank queries while values
+ * are added and removed, as needed by a sliding window rank filter. Counts are
+ * kept at two levels (coarse bins of 256 values over the fine per value bins)
+ * so that a query touches at most a few hundred bins even for 16-bit data.
+ */
+public class RankHistogram {
+
+	// -- constants --
+
+	private static final int SHIFT = 8;
+	private static final int FINE_PER_COARSE = 1 << SHIFT;
+
+	// -- instance variables --
+
+	private final long min;
+	private final int[] fine;
+	private final int[] coarse;
+	private final long[] coarseSums;
+	private long count;
+	private long sum;
+
+	// -- constructor --
+
+	/**
+	 * Creates a histogram for the values min through min + numValues - 1.
+	 */
+	public RankHistogram(final long min, final int numValues) {
+		this.min = min;
+		fine = new int[numValues];
+		final int numCoarse = (numValues + FINE_PER_COARSE - 1) >> SHIFT;
+		coarse = new int[numCoarse];
+		coarseSums = new long[numCoarse];
+	}
+
+	// -- RankHistogram methods --
+
+	/** Adds a value given as its bin index (the value minus the minimum). */
+	public void add(final int bin) {
+		fine[bin]++;
+		coarse[bin >> SHIFT]++;
+		coarseSums[bin >> SHIFT] += bin;
+		count++;
+		sum += bin;
+	}
+
+	/** Removes a value given as its bin index (the value minus the minimum). */
+	public void remove(final int bin) {
+		fine[bin]--;
+		coarse[bin >> SHIFT]--;
+		coarseSums[bin >> SHIFT] -= bin;
+		count--;
+		sum -= bin;
+	}
+
+	/** Empties the histogram. */
+	public void clear() {
+		Arrays.fill(fine, 0);
+		Arrays.fill(coarse, 0);
+		Arrays.fill(coarseSums, 0);
+		count = 0;
+		sum = 0;
+	}
+
+	/** Returns the number of values in the histogram. */
+	public long count() {
+		return count;
+	}
+
+	/** Returns the sum of the values in the histogram. */
+	public double sum() {
+		return sum + count * (double) min;
+	}
+
+	/**
+	 * Returns the value of the given zero based rank (0 is the smallest value).
+	 */
+	public double valueAtRank(final long rank) {
+		if (rank < 0 || rank >= count) {
+			throw new IllegalArgumentException("rank " + rank +
+				" is out of range for " + count + " values");
+		}
+		if (rank < count / 2) return min + lowBin(rank);
+		return min + highBin(count - 1 - rank);
+	}
+
+	/** Returns the sum of the n smallest values. */
+	public double sumOfLowest(final long n) {
+		long remaining = n;
+		long total = 0;
+		int c = 0;
+		while (c < coarse.length && coarse[c] <= remaining) {
+			remaining -= coarse[c];
+			total += coarseSums[c];
+			c++;
+		}
+		for (int bin = c << SHIFT; remaining > 0; bin++) {
+			final long taken = Math.min(fine[bin], remaining);
+			remaining -= taken;
+			total += taken * bin;
+		}
+		return total + n * (double) min;
+	}
+
+	/** Returns the sum of the n largest values. */
+	public double sumOfHighest(final long n) {
+		long remaining = n;
+		long total = 0;
+		int c = coarse.length - 1;
+		while (c >= 0 && coarse[c] <= remaining) {
+			remaining -= coarse[c];
+			total += coarseSums[c];
+			c--;
+		}
+		for (int bin = Math.min(fine.length, (c + 1) << SHIFT) - 1; remaining > 0; bin--)
+		{
+			final long taken = Math.min(fine[bin], remaining);
+			remaining -= taken;
+			total += taken * bin;
+		}
+		return total + n * (double) min;
+	}
+
+	// -- helpers --
+
+	/** Finds the bin holding the value of the given rank from the bottom. */
+	private int lowBin(final long rank) {
+		long remaining = rank;
+		int c = 0;
+		while (coarse[c] <= remaining) {
+			remaining -= coarse[c];
+			c++;
+		}
+		int bin = c << SHIFT;
+		while (fine[bin] <= remaining) {
+			remaining -= fine[bin];
+			bin++;
+		}
+		return bin;
+	}
+
+	/** Finds the bin holding the value of the given rank from the top. */
+	private int highBin(final long rank) {
+		long remaining = rank;
+		int c = coarse.length - 1;
+		while (coarse[c] <= remaining) {
+			remaining -= coarse[c];
+			c--;
+		}
+		int bin = Math.min(fine.length, (c + 1) << SHIFT) - 1;
+		while (fine[bin] <= remaining) {
+			remaining -= fine[bin];
+			bin--;
+		}
+		return bin;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.plugins.commands.assign.noisereduce;
+
+/**
+ * Computes an order statistic (median, min, trimmed mean, etc.) from the
+ * histogram of a neighborhood. Noise reducers which provide one can be run by
+ * the sliding histogram {@link RankFilter} rather than by sorting every
+ * neighborhood anew.
+ */
+public interface RankStatistic {
+
+	/** Returns the statistic of the values in the given histogram. */
+	double compute(RankHistogram histogram);
+
+	// -- predefined statistics --
+
+	/** Median; averages the two central values of an even count. */
+	public static final RankStatistic MEDIAN = new RankStatistic() {
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			final long n = histogram.count();
+			if (n % 2 == 1) return histogram.valueAtRank(n / 2);
+			return (histogram.valueAtRank(n / 2 - 1) + histogram
+				.valueAtRank(n / 2)) / 2.0;
+		}
+	};
+
+	/** Minimum value. */
+	public static final RankStatistic MIN = new RankStatistic() {
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			return histogram.valueAtRank(0);
+		}
+	};
+
+	/** Maximum value. */
+	public static final RankStatistic MAX = new RankStatistic() {
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			return histogram.valueAtRank(histogram.count() - 1);
+		}
+	};
+
+	/** Midpoint of the minimum and maximum values. */
+	public static final RankStatistic MIDPOINT = new RankStatistic() {
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			return (histogram.valueAtRank(0) + histogram.valueAtRank(histogram
+				.count() - 1)) / 2.0;
+		}
+	};
+
+	/** Mean of the values left after trimming a count from each end. */
+	public static class TrimmedMean implements RankStatistic {
+
+		private final int halfTrimWidth;
+
+		public TrimmedMean(final int halfTrimWidth) {
+			this.halfTrimWidth = halfTrimWidth;
+		}
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			return trimmedMean(histogram, halfTrimWidth);
+		}
+
+		static double trimmedMean(final RankHistogram histogram,
+			final long halfTrimWidth)
+		{
+			final long kept = histogram.count() - 2 * halfTrimWidth;
+			if (kept <= 0) {
+				throw new IllegalArgumentException("cannot trim " + halfTrimWidth +
+					" values from each end of a neighborhood of " + histogram.count());
+			}
+			final double sum =
+				histogram.sum() - histogram.sumOfLowest(halfTrimWidth) -
+					histogram.sumOfHighest(halfTrimWidth);
+			return sum / kept;
+		}
+	}
+
+	/** Mean of the values left after trimming a proportion from each end. */
+	public static class AlphaTrimmedMean implements RankStatistic {
+
+		private final double alpha;
+
+		public AlphaTrimmedMean(final double alpha) {
+			this.alpha = alpha;
+		}
+
+		@Override
+		public double compute(final RankHistogram histogram) {
+			final long halfTrimWidth = (long) Math.floor(alpha * histogram.count());
+			return TrimmedMean.trimmedMean(histogram, halfTrimWidth);
+		}
+	}
+}
@@ -70,4 +70,9 @@ public String getDescription() {
 		return builder.toString();
 	}
 
+	/** Creates an independent neighborhood of the same shape. */
+	public RectangularNeigh copy() {
+		return new RectangularNeigh(posOffsets.clone(), negOffsets.clone());
+	}
+
 }
@@ -33,17 +33,26 @@
 
 import imagej.data.Dataset;
 import imagej.data.DefaultDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import net.imglib2.meta.ImgPlus;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.img.SerialImageAssignment;
 import net.imglib2.ops.input.PointSetInputIterator;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.Unsigned12BitType;
 
 import org.scijava.Context;
 import org.scijava.app.StatusService;
 import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * Reduces noise in an {@link ImgPlus} using a given reduction func across a
@@ -58,58 +67,167 @@
 	private final Function<PointSet,V> inputFunction;
 	
 	private final PointSet neighborhood;
+
+	private final Neighborhood neighborhoodSpec;
 	
 	private final ImgPlus<U> input;
 
 	@Parameter(required = false)
 	private StatusService statusService;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
 	
 	// -- public interface --
 
-	
+	/**
+	 * Creates a reducer which runs on a single thread. Use
+	 * {@link #Reducer(Context, ImgPlus, Function, Neighborhood)} to reduce noise
+	 * in parallel.
+	 */
 	public Reducer(Context context, ImgPlus<U> input, Function<PointSet,V> func,
 		PointSet neighborhood)
+	{
+		this(context, input, func, neighborhood, null);
+	}
+
+	/**
+	 * Creates a reducer which splits the image into slabs and reduces noise in
+	 * each slab on its own thread.
+	 */
+	public Reducer(Context context, ImgPlus<U> input, Function<PointSet,V> func,
+		Neighborhood neighborhood)
+	{
+		this(context, input, func, neighborhood.getPoints(), neighborhood);
+	}
+
+	private Reducer(Context context, ImgPlus<U> input, Function<PointSet,V> func,
+		PointSet neighborhood, Neighborhood neighborhoodSpec)
 	{
 		this.context = context;
 		context.inject(this);
 		this.input = input;
 		this.inputFunction = func;
 		this.neighborhood = neighborhood;
+		this.neighborhoodSpec = neighborhoodSpec;
 	}
 
-	// NOTE - because the neighborhood could be a spherical neighborhood that
-	// relies on a WithinRadiusOfPointCondition we cannot parallelize this
-	// algorithm. If we did we'd get one point per Thread with only one being
-	// updated correctly. One can see by trial that using a regular
-	// ImageAssignment here results in only a portion of the image getting noise
-	// reduced.
+	// NOTE - a spherical neighborhood relies on a
+	// WithinRadiusOfPointSetOriginCondition which refers to the point set it was
+	// created for, even when copied. A regular ImageAssignment duplicates the
+	// neighborhood for each thread, resulting in only one thread's neighborhood
+	// being updated correctly. Instead, each worker here gets its own
+	// neighborhood (created from scratch by the Neighborhood), its own copy of
+	// the function, and a disjoint slab of the output image.
 	
 	public Dataset reduceNoise(String neighDescrip) {
 		notifyUserAtStart(neighDescrip);
 		ImgPlus<U> newImg = input.copy();
 		long[] dims = new long[newImg.numDimensions()];
 		newImg.dimensions(dims);
-		PointSet space = new HyperVolumePointSet(dims);
-		PointSetInputIterator inputIterator =
-				new PointSetInputIterator(space, neighborhood);
-		long[] outputOrigin = new long[input.numDimensions()];
-		long[] outputSpan = outputOrigin.clone();
-		input.dimensions(outputSpan);
-		// NB - regular ImageAssignement won't work here for radial neighborhood due
-		// to the duplication of neighborhoods for parallelization and its
-		// interference with the WithinRadiusOfPointSetOriginCondition.
-		SerialImageAssignment<U,V,PointSet> assigner =
-				new SerialImageAssignment<U,V,PointSet>(
-					newImg,
-					inputFunction,
-					inputIterator,
-					null);
-		assigner.assign();
+		final int numThreads = threadCount(newImg);
+		if (numThreads <= 1) {
+			assign(newImg, new HyperVolumePointSet(dims), inputFunction,
+				neighborhood);
+		}
+		else {
+			try {
+				assignSlabs(newImg, dims, numThreads);
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("noise reduction interrupted", e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException("noise reduction failed", e
+					.getCause());
+			}
+		}
 		notifyUserAtEnd(neighDescrip);
 		return new DefaultDataset(context, newImg);
 	}
 
 	// -- private interface --
+
+	private int threadCount(final ImgPlus<U> img) {
+		if (threadService == null || copy(neighborhoodSpec) == null) return 1;
+		// NB - several pixels of these types share a storage element, so
+		// neighboring slabs could not be written concurrently
+		final U type = img.firstElement();
+		if (type instanceof BitType || type instanceof Unsigned12BitType) return 1;
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Creates an independent neighborhood of the same shape, or returns null if
+	 * the kind of neighborhood is unknown, in which case noise is reduced on a
+	 * single thread.
+	 */
+	private static Neighborhood copy(final Neighborhood neighborhood) {
+		if (neighborhood instanceof RectangularNeigh) {
+			return ((RectangularNeigh) neighborhood).copy();
+		}
+		if (neighborhood instanceof RadialNeigh) {
+			return ((RadialNeigh) neighborhood).copy();
+		}
+		return null;
+	}
+
+	private void assign(final ImgPlus<U> output, final PointSet region,
+		final Function<PointSet, V> function, final PointSet neigh)
+	{
+		final PointSetInputIterator inputIterator =
+			new PointSetInputIterator(region, neigh);
+		final SerialImageAssignment<U, V, PointSet> assigner =
+			new SerialImageAssignment<U, V, PointSet>(output, function,
+				inputIterator, null);
+		assigner.assign();
+	}
+
+	/**
+	 * Splits the image into slabs along its outermost dimension that can feed
+	 * every thread (the planes of a stack, or bands of rows of a single plane)
+	 * and assigns each slab on its own thread.
+	 */
+	private void assignSlabs(final ImgPlus<U> output, final long[] dims,
+		final int numThreads) throws InterruptedException, ExecutionException
+	{
+		int splitDim = dims.length - 1;
+		for (int d = dims.length - 1; d >= 0; d--) {
+			if (dims[d] >= numThreads) {
+				splitDim = d;
+				break;
+			}
+			if (dims[d] > dims[splitDim]) splitDim = d;
+		}
+		final long extent = dims[splitDim];
+		final int slabCount = (int) Math.min(extent, numThreads);
+
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		long start = 0;
+		for (int i = 0; i < slabCount; i++) {
+			final long span = extent / slabCount + (i < extent % slabCount ? 1 : 0);
+			final long[] slabMin = new long[dims.length];
+			final long[] slabMax = new long[dims.length];
+			for (int d = 0; d < dims.length; d++)
+				slabMax[d] = dims[d] - 1;
+			slabMin[splitDim] = start;
+			slabMax[splitDim] = start + span - 1;
+			start += span;
+			final PointSet slab = new HyperVolumePointSet(slabMin, slabMax);
+			futures.add(threadService.run(new Runnable() {
+
+				@Override
+				public void run() {
+					assign(output, slab, inputFunction.copy(), copy(neighborhoodSpec)
+						.getPoints());
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+	}
 	
 	private void notifyUserAtStart(String neighDescrip) {
 		if (statusService != null)
@@ -35,20 +35,18 @@
 import imagej.command.ContextCommand;
 import imagej.data.Dataset;
 import imagej.data.DatasetService;
-import imagej.data.autoscale.AutoscaleService;
 import imagej.data.autoscale.DataRange;
 import imagej.data.display.ImageDisplayService;
+import imagej.data.histogram.HistogramService;
 import imagej.data.threshold.ThresholdMethod;
 import imagej.data.threshold.ThresholdService;
 import imagej.menu.MenuConstants;
 
 import java.util.Arrays;
 
-import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.display.ColorTable8;
 import net.imglib2.histogram.Histogram1d;
-import net.imglib2.histogram.Real1dBinMapper;
 import net.imglib2.img.Img;
 import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.meta.Axes;
@@ -61,8 +59,6 @@
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
-import net.imglib2.view.IntervalView;
-import net.imglib2.view.Views;
 
 import org.scijava.ItemIO;
 import org.scijava.plugin.Menu;
@@ -141,7 +137,7 @@
 	private DatasetService datasetSrv;
 
 	@Parameter
-	private AutoscaleService autoscaleSrv;
+	private HistogramService histogramService;
 
 	// -- accessors --
 
@@ -350,7 +346,7 @@ public void run() {
 			PointSetIterator pIter = new HyperVolumePointSet(planeSpace).iterator();
 			while (pIter.hasNext()) {
 				long[] planePos = pIter.next();
-				histogram = buildHistogram(inputData, planePos, minMax, histogram);
+				histogram = buildHistogram(inputData, planePos, minMax);
 				double cutoffVal = cutoff(histogram, method, testLess, val);
 				PointSet planeData = planeData(inputData, planePos);
 				PointSetIterator iter = planeData.iterator();
@@ -361,7 +357,7 @@ public void run() {
 			}
 		}
 		else { // threshold entire dataset once
-			histogram = buildHistogram(inputData, null, minMax, null);
+			histogram = buildHistogram(inputData, null, minMax);
 			double cutoffVal = cutoff(histogram, method, testLess, val);
 			PointSet fullData = fullData(dims);
 			PointSetIterator iter = fullData.iterator();
@@ -396,7 +392,7 @@ private boolean isVirtual(Dataset ds) {
 	// gets the range of the pixel values in a dataset
 
 	private DataRange calcDataRange(Dataset ds) {
-		return autoscaleSrv.getDefaultIntervalRange(ds.getImgPlus());
+		return histogramService.getRange(ds, null, null);
 	}
 
 	// returns the number of planes in a dataset
@@ -429,7 +425,7 @@ long[] planeSpace(Dataset ds) {
 	// the region is the entire dataset. Otherwise it is the single plane.
 
 	private Histogram1d<T> buildHistogram(Dataset ds, long[] planePos,
-		DataRange minMax, Histogram1d<T> existingHist)
+		DataRange minMax)
 	{
 		long[] min = new long[ds.numDimensions()];
 		long[] max = min.clone();
@@ -449,48 +445,23 @@ private Histogram1d<T> buildHistogram(Dataset ds, long[] planePos,
 				i++;
 			}
 		}
-		@SuppressWarnings("unchecked")
-		Img<T> img = (Img<T>) ds.getImgPlus();
-		IntervalView<T> view = Views.interval(img, min, max);
-		IterableInterval<T> data = Views.iterable(view);
-		final Histogram1d<T> histogram;
-		if (existingHist == null) {
-			histogram = allocateHistogram(ds.isInteger(), minMax);
-		}
-		else {
-			existingHist.resetCounters();
-			histogram = existingHist;
-		}
-		histogram.countData(data);
-		return histogram;
+		return histogramService.getHistogram(ds, min, max, minMax, binCount(ds
+			.isInteger(), minMax));
 	}
 
-	// allocates a histogram after determining a good size
+	// chooses the number of histogram bins for the given data range
 
-	private Histogram1d<T> allocateHistogram(boolean dataIsIntegral,
-		DataRange dataRange)
-	{
+	private long binCount(boolean dataIsIntegral, DataRange dataRange) {
 		double range = dataRange.getExtent();
 		if (dataIsIntegral) range++;
-		Real1dBinMapper<T> binMapper = null;
 		// TODO - size of histogram affects speed of all autothresh methods
 		// What is the best way to determine size?
 		// Do we want some power of two as size? For now yes.
 		final int maxBinCount = 16384;
 		for (int binCount = 256; binCount <= maxBinCount; binCount *= 2) {
-			if (range <= binCount) {
-				binMapper =
-					new Real1dBinMapper<T>(dataRange.getMin(), dataRange.getMax(),
-						binCount, false);
-				break;
-			}
-		}
-		if (binMapper == null) {
-			binMapper =
-				new Real1dBinMapper<T>(dataRange.getMin(), dataRange.getMax(),
-					maxBinCount, false);
+			if (range <= binCount) return binCount;
 		}
-		return new Histogram1d<T>(binMapper);
+		return maxBinCount;
 	}
 
 	// determines the data value that delineates the threshold point
@@ -34,6 +34,7 @@
 import imagej.data.Dataset;
 import imagej.plugins.commands.neigh.Neighborhood3x3Operation;
 import imagej.plugins.commands.neigh.Neighborhood3x3Watcher;
+import imagej.plugins.commands.neigh.Neighborhood3x3WatcherFactory;
 import imagej.util.RealRect;
 
 /**
@@ -72,7 +73,13 @@ public Correlation3x3Operation(final Dataset input, final RealRect selection,
 		this.kernel = kernel;
 		this.neighOperation =
 			new Neighborhood3x3Operation(input, selection,
-				new CorrelateWatcher(input));
+				new Neighborhood3x3WatcherFactory() {
+
+					@Override
+					public Neighborhood3x3Watcher createWatcher() {
+						return new CorrelateWatcher(input);
+					}
+				});
 
 		if (kernel.length != 9) throw new IllegalArgumentException(
 			"kernel must contain nine elements (shaped 3x3)");
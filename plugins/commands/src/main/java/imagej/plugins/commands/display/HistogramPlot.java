@@ -39,19 +39,16 @@
 import imagej.data.display.OverlayService;
 import imagej.data.event.DatasetRestructuredEvent;
 import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.histogram.ChannelHistograms;
+import imagej.data.histogram.HistogramService;
 import imagej.data.widget.HistogramBundle;
 import imagej.module.MutableModuleItem;
 import imagej.ui.UIService;
 import imagej.widget.Button;
 import net.imglib2.Cursor;
-import net.imglib2.RandomAccess;
 import net.imglib2.histogram.DiscreteFrequencyDistribution;
 import net.imglib2.histogram.Histogram1d;
 import net.imglib2.histogram.Real1dBinMapper;
-import net.imglib2.meta.Axes;
-import net.imglib2.meta.IntervalUtils;
-import net.imglib2.ops.pointset.HyperVolumePointSet;
-import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.LongType;
 
@@ -69,10 +66,6 @@
 // [++] The horizontal LUT bar below the X-axis is scaled to reflect the display
 // range of the image.
 // [++] The modal gray value is displayed
-//
-// TODO This does lots of its own calcs. Rely on the final Histogram
-// implementation when it's settled. Grant's impl used Larry's histogram. It
-// also had a multithreaded stat calc method.
 
 /**
  * Histogram plotter.
@@ -96,6 +89,9 @@
 	@Parameter
 	private OverlayService overlayService;
 
+	@Parameter
+	private HistogramService histogramService;
+
 	@Parameter
 	private ImageDisplay display;
 
@@ -147,8 +143,6 @@
 	private double[] stdDevs;
 	private double[] mins;
 	private double[] maxes;
-	private double[] sum1s;
-	private double[] sum2s;
 	private long sampleCount;
 	private double binWidth;
 	private double dataMin;
@@ -344,122 +338,30 @@ private void setTitle(int histNum) {
 		*/
 	}
 
-	private void calcBinInfo() {
-		// calc the data ranges - 1st pass thru data
-		dataMin = Double.POSITIVE_INFINITY;
-		dataMax = Double.NEGATIVE_INFINITY;
-		Cursor<? extends RealType<?>> cursor = dataset.getImgPlus().cursor();
-		while (cursor.hasNext()) {
-			double val = cursor.next().getRealDouble();
-			if (val < dataMin) dataMin = val;
-			if (val > dataMax) dataMax = val;
-		}
-		if (dataMin > dataMax) {
-			dataMin = 0;
-			dataMax = 0;
-		}
-		double dataRange = dataMax - dataMin;
-		if (dataset.isInteger()) {
-			dataRange += 1;
-			if (dataRange <= 65536) {
-				binCount = (long) dataRange;
-				binWidth = 1;
-			}
-			else {
-				binCount = 65536;
-				binWidth = dataRange / binCount;
-			}
-		}
-		else { // float dataset
-			binCount = 1000;
-			binWidth = dataRange / binCount;
-		}
-	}
-
-	// NB : this plugin uses low level access. Histograms are
-	// designed to be fed an iterable data source. But in the case of this
-	// plugin we do direct computations on the histograms' bins for efficency
-	// reasons (so we can calc stats from the same data). Histograms thus have
-	// both a high level generic API and a low level nongeneric API.
-
-	@SuppressWarnings("unchecked")
-	private void allocateDataStructures() {
-		// initialize data structures
-		int chIndex = dataset.dimensionIndex(Axes.CHANNEL);
-		channels = (chIndex < 0) ? 1 : dataset.dimension(chIndex);
-		histograms = new Histogram1d[(int) channels + 1]; // +1 for chan compos
-		Real1dBinMapper<T> mapper =
-			new Real1dBinMapper<T>(dataMin, dataMax, binCount, false);
-		for (int i = 0; i < histograms.length; i++)
-			histograms[i] = new Histogram1d<T>(mapper);
+	private void build() {
+		dataset = imageDisplayService.getActiveDataset(display);
+		final ChannelHistograms<T> stats =
+			histogramService.getChannelHistograms(dataset);
+		channels = stats.getChannelCount();
+		@SuppressWarnings("unchecked")
+		final Histogram1d<T>[] hists = new Histogram1d[(int) channels + 1];
+		histograms = hists;
 		means = new double[histograms.length];
 		stdDevs = new double[histograms.length];
-		sum1s = new double[histograms.length];
-		sum2s = new double[histograms.length];
 		mins = new double[histograms.length];
 		maxes = new double[histograms.length];
 		for (int i = 0; i < histograms.length; i++) {
-			mins[i] = Double.POSITIVE_INFINITY;
-			maxes[i] = Double.NEGATIVE_INFINITY;
-		}
-	}
-
-	private void computeStats() {
-		// calc stats - 2nd pass thru data
-		int chIndex = dataset.dimensionIndex(Axes.CHANNEL);
-		int composH = histograms.length - 1;
-		RandomAccess<? extends RealType<?>> accessor =
-			dataset.getImgPlus().randomAccess();
-		long[] span = IntervalUtils.getDims(dataset);
-		if (chIndex >= 0) span[chIndex] = 1; // iterate channels elsewhere
-		HyperVolumePointSet pixelSpace = new HyperVolumePointSet(span);
-		PointSetIterator pixelSpaceIter = pixelSpace.iterator();
-		sampleCount = 0;
-		while (pixelSpaceIter.hasNext()) {
-			long[] pos = pixelSpaceIter.next();
-			accessor.setPosition(pos);
-			// count values by channel. also determine composite pixel value (by
-			// channel averaging)
-			double composVal = 0;
-			for (long chan = 0; chan < channels; chan++) {
-				if (chIndex >= 0) accessor.setPosition(chan, chIndex);
-				double val = accessor.get().getRealDouble();
-				composVal += val;
-				long index = (long) ((val - dataMin) / binWidth);
-				// NB in float case the max data point overflows the index range
-				if (index >= binCount) index = binCount - 1;
-				int c = (int) chan;
-				histograms[c].increment(index);
-				sum1s[c] += val;
-				sum2s[c] += val * val;
-				if (val < mins[c]) mins[c] = val;
-				if (val > maxes[c]) maxes[c] = val;
-				sampleCount++;
-			}
-			composVal /= channels;
-			long index = (long) ((composVal - dataMin) / binWidth);
-			// NB in float case the max data point overflows the index range
-			if (index >= binCount) index = binCount - 1;
-			histograms[composH].increment(index);
-			sum1s[composH] += composVal;
-			sum2s[composH] += composVal * composVal;
-			if (composVal < mins[composH]) mins[composH] = composVal;
-			if (composVal > maxes[composH]) maxes[composH] = composVal;
-		}
-		// calc means etc.
-		long pixels = sampleCount / channels;
-		for (int i = 0; i < histograms.length; i++) {
-			means[i] = sum1s[i] / pixels;
-			stdDevs[i] =
-				Math.sqrt((sum2s[i] - ((sum1s[i] * sum1s[i]) / pixels)) / (pixels - 1));
+			histograms[i] = stats.getHistogram(i);
+			means[i] = stats.getMean(i);
+			stdDevs[i] = stats.getStdDev(i);
+			mins[i] = stats.getMin(i);
+			maxes[i] = stats.getMax(i);
 		}
-	}
-
-	private void build() {
-		dataset = imageDisplayService.getActiveDataset(display);
-		calcBinInfo();
-		allocateDataStructures();
-		computeStats();
+		sampleCount = stats.getPixelCount() * channels;
+		dataMin = stats.getDataMin();
+		dataMax = stats.getDataMax();
+		binCount = stats.getBinCount();
+		binWidth = stats.getBinWidth();
 		// Maybe?
 		// setValues(currHistNum);
 	}
@@ -40,7 +40,6 @@
 import imagej.data.threshold.ThresholdService;
 import imagej.menu.MenuConstants;
 import net.imglib2.RandomAccess;
-import net.imglib2.ops.pointset.PointSet;
 import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
 
@@ -123,8 +122,7 @@ private boolean inputBad() {
 
 	private void assignPixels() {
 		ThresholdOverlay thresh = threshSrv.getThreshold(display);
-		PointSet ps = thresh.getPointsOutside();
-		PointSetIterator iter = ps.iterator();
+		PointSetIterator iter = thresh.getMaskOutside().iterator();
 		RandomAccess<? extends RealType<?>> accessor =
 			input.getImgPlus().randomAccess();
 		while (iter.hasNext()) {
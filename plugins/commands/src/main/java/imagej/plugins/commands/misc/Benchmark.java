@@ -32,22 +32,68 @@
 package imagej.plugins.commands.misc;
 
 import imagej.command.Command;
-import imagej.command.UnimplementedCommand;
+import imagej.command.CommandService;
+import imagej.command.ContextCommand;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.display.DataView;
+import imagej.data.display.DatasetView;
 import imagej.data.display.ImageDisplay;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.minmax.MinMaxMethod;
+import imagej.data.table.DefaultResultsTable;
+import imagej.data.table.ResultsTable;
+import imagej.data.threshold.ThresholdMethod;
+import imagej.data.threshold.ThresholdService;
+import imagej.data.types.DataType;
+import imagej.data.types.DataTypeService;
 import imagej.menu.MenuConstants;
+import imagej.module.Module;
+import imagej.module.ModuleService;
+import imagej.plugins.commands.assign.noisereduce.AbstractNoiseReducerPlugin;
+import imagej.plugins.commands.assign.noisereduce.NoiseReductionMean;
+import imagej.plugins.commands.assign.noisereduce.NoiseReductionMedian;
+import imagej.plugins.commands.assign.noisereduce.RectangularNeigh;
+import imagej.plugins.commands.imglib.GaussianBlur;
+import imagej.plugins.commands.neigh.Neighborhood3x3Operation;
+import imagej.plugins.commands.neigh.Neighborhood3x3Watcher;
+import imagej.plugins.commands.neigh.Neighborhood3x3WatcherFactory;
+import imagej.plugins.commands.typechange.TypeChanger;
+import imagej.util.MersenneTwisterFast;
+import imagej.util.RealRect;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.histogram.Histogram1d;
+import net.imglib2.histogram.Real1dBinMapper;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.scijava.ItemIO;
+import org.scijava.app.StatusService;
+import org.scijava.log.LogService;
 import org.scijava.plugin.Menu;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
-
-// TODO - replace the kind of functionality that IJ1's Benchmark command has.
-// It needs to display changes as they happen (something the legacy plugin can't
-// do inside modern ImageJ).
+import org.scijava.plugin.PluginService;
 
 /**
- * This is a placeholder command for as yet unfinished Benchmark command. The
- * associated legacy command does not work in ImageJ2 and will need to be
- * rewritten.
+ * Times the performance critical operations of ImageJ on synthetic images of
+ * several types and sizes (and on the active image, if there is one), and
+ * reports the timings in a {@link ResultsTable}.
+ * <p>
+ * The synthetic images are generated from a fixed seed, so that results of
+ * different builds can be compared. Every operation is run a number of times
+ * untimed first, to give the JIT a chance to compile the hot paths.
+ * </p>
  * 
  * @author Barry DeZonia
  */
@@ -56,14 +102,97 @@
 		@Menu(label = MenuConstants.PLUGINS_LABEL,
 			weight = MenuConstants.PLUGINS_WEIGHT,
 			mnemonic = MenuConstants.PLUGINS_MNEMONIC), @Menu(label = "Utilities"),
-		@Menu(label = "Benchmark") })
-public class Benchmark extends UnimplementedCommand {
+		@Menu(label = "Benchmark") }, headless = true)
+public class Benchmark extends ContextCommand {
+
+	// -- constants --
+
+	private static final long SEED = 0x1234567890abcdefL;
+
+	private static final int MIN_SIZE = 256;
+
+	private static final String[] COLUMNS = { "Pixels", "Iterations",
+		"Mean (ms)", "Min (ms)", "Max (ms)", "Std dev (ms)", "MPixels/s" };
 
 	// -- Parameters --
 
-	@Parameter
+	@Parameter(required = false)
 	private ImageDisplay display;
 
+	@Parameter(label = "Largest image size",
+		choices = { "256", "512", "1024", "2048" })
+	private String maxSize = "1024";
+
+	@Parameter(label = "Warm-up iterations", min = "0")
+	private int warmUps = 2;
+
+	@Parameter(label = "Timed iterations", min = "1")
+	private int iterations = 5;
+
+	@Parameter(label = "Benchmark Results", type = ItemIO.OUTPUT)
+	private ResultsTable results;
+
+	@Parameter
+	private DatasetService datasetService;
+
+	@Parameter
+	private ImageDisplayService imageDisplayService;
+
+	@Parameter
+	private ThresholdService thresholdService;
+
+	@Parameter
+	private DataTypeService dataTypeService;
+
+	@Parameter
+	private PluginService pluginService;
+
+	@Parameter
+	private CommandService commandService;
+
+	@Parameter
+	private ModuleService moduleService;
+
+	@Parameter
+	private LogService log;
+
+	@Parameter(required = false)
+	private StatusService statusService;
+
+	// -- Command methods --
+
+	@Override
+	public void run() {
+		final List<Dataset> datasets = new ArrayList<Dataset>();
+		final int max = Integer.parseInt(maxSize);
+		for (int size = MIN_SIZE; size <= max; size *= 2) {
+			datasets.add(createDataset(8, false, size));
+			datasets.add(createDataset(16, false, size));
+			datasets.add(createDataset(32, true, size));
+		}
+		if (display != null) {
+			final Dataset active = imageDisplayService.getActiveDataset(display);
+			if (active != null) datasets.add(active);
+		}
+
+		results = new DefaultResultsTable(COLUMNS.length, 0);
+		for (int col = 0; col < COLUMNS.length; col++) {
+			results.setColumnHeader(col, COLUMNS[col]);
+		}
+
+		for (int i = 0; i < datasets.size(); i++) {
+			final Dataset dataset = datasets.get(i);
+			for (final Trial trial : createTrials(dataset)) {
+				if (statusService != null) {
+					statusService.showStatus(i, datasets.size(), "Benchmarking " +
+						trial.name + " on " + dataset.getName());
+				}
+				measure(trial, dataset);
+			}
+		}
+		if (statusService != null) statusService.clearStatus();
+	}
+
 	// -- accessors --
 
 	public void setImageDisplay(final ImageDisplay disp) {
@@ -74,4 +203,377 @@ public ImageDisplay getImageDisplay() {
 		return display;
 	}
 
+	public void setMaxSize(final int size) {
+		maxSize = "" + size;
+	}
+
+	public void setIterations(final int warmUps, final int iterations) {
+		this.warmUps = warmUps;
+		this.iterations = iterations;
+	}
+
+	public ResultsTable getResults() {
+		return results;
+	}
+
+	// -- private helpers --
+
+	/**
+	 * Creates an image of the given type, filled with a ramp plus uniform noise
+	 * so that filters and threshold methods see some structure.
+	 */
+	private Dataset createDataset(final int bitsPerPixel,
+		final boolean floating, final int size)
+	{
+		final String name =
+			(floating ? "32-bit float" : bitsPerPixel + "-bit") + " " + size + "x" +
+				size;
+		final Dataset dataset =
+			datasetService.create(new long[] { size, size }, name, new AxisType[] {
+				Axes.X, Axes.Y }, bitsPerPixel, floating, floating);
+		final double max = floating ? 1000 : (1L << bitsPerPixel) - 1;
+		final MersenneTwisterFast random = new MersenneTwisterFast(SEED);
+		final Cursor<? extends RealType<?>> cursor =
+			dataset.getImgPlus().localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			final double ramp =
+				(cursor.getDoublePosition(0) + cursor.getDoublePosition(1)) /
+					(2 * size);
+			cursor.get().setReal(Math.floor(max * (ramp + random.nextDouble()) / 2));
+		}
+		return dataset;
+	}
+
+	/** Runs the given trial, and records its timings in the results table. */
+	private void measure(final Trial trial, final Dataset dataset) {
+		final long pixels = dataset.getImgPlus().size();
+		final double[] millis = new double[iterations];
+		try {
+			for (int i = -warmUps; i < iterations; i++) {
+				trial.setup();
+				final long start, end;
+				try {
+					start = System.nanoTime();
+					trial.run();
+					end = System.nanoTime();
+				}
+				finally {
+					trial.teardown();
+				}
+				if (i >= 0) millis[i] = (end - start) / 1e6;
+			}
+		}
+		catch (final Exception e) {
+			log.warn("Could not benchmark " + trial.name + " on " +
+				dataset.getName(), e);
+			return;
+		}
+
+		double min = Double.MAX_VALUE, max = 0, sum = 0, sumSquares = 0;
+		for (final double value : millis) {
+			if (min > value) min = value;
+			if (max < value) max = value;
+			sum += value;
+			sumSquares += value * value;
+		}
+		final double mean = sum / iterations;
+		final double stdDev =
+			Math.sqrt(Math.max(0, sumSquares / iterations - mean * mean));
+
+		results.appendRow(trial.name + " / " + dataset.getName());
+		final int row = results.getRowCount() - 1;
+		results.setValue(0, row, pixels);
+		results.setValue(1, row, iterations);
+		results.setValue(2, row, mean);
+		results.setValue(3, row, min);
+		results.setValue(4, row, max);
+		results.setValue(5, row, stdDev);
+		results.setValue(6, row, mean > 0 ? pixels / mean / 1e3 : Double.NaN);
+	}
+
+	/** Creates the trials for the given image. */
+	private List<Trial> createTrials(final Dataset dataset) {
+		final List<Trial> trials = new ArrayList<Trial>();
+		final ImgPlus<? extends RealType<?>> img = dataset.getImgPlus();
+
+		trials.add(new Trial("Min/max") {
+
+			@SuppressWarnings("rawtypes")
+			private MinMaxMethod method;
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void setup() {
+				method = pluginService.createInstancesOfType(MinMaxMethod.class).get(0);
+				method.initialize((IterableInterval<?>) img);
+			}
+
+			@Override
+			public void run() {
+				method.process();
+			}
+		});
+
+		trials.add(new Trial("Histogram") {
+
+			@Override
+			public void run() {
+				histogram(dataset);
+			}
+		});
+
+		final Histogram1d<?> histogram = histogram(dataset);
+		for (final Map.Entry<String, ThresholdMethod> entry : thresholdService
+			.getThresholdMethods().entrySet())
+		{
+			final ThresholdMethod method = entry.getValue();
+			trials.add(new Trial("Threshold (" + entry.getKey() + ")") {
+
+				@Override
+				public void run() {
+					method.getThreshold(histogram);
+				}
+			});
+		}
+
+		trials.add(new Trial("3x3 mean") {
+
+			private Dataset copy;
+
+			@Override
+			public void setup() {
+				copy = dataset.duplicate();
+			}
+
+			@Override
+			public void run() {
+				new Neighborhood3x3Operation(copy, new RealRect(0, 0, copy
+					.dimension(0), copy.dimension(1)),
+					new Neighborhood3x3WatcherFactory() {
+
+						@Override
+						public Neighborhood3x3Watcher createWatcher() {
+							return new MeanWatcher();
+						}
+					}).run();
+			}
+		});
+
+		trials.add(new NoiseReductionTrial("Noise reduction (mean 3x3)", dataset,
+			NoiseReductionMean.class));
+		trials.add(new NoiseReductionTrial("Noise reduction (median 3x3)",
+			dataset, NoiseReductionMedian.class));
+
+		trials.add(new CommandTrial("Gaussian blur (sigma 2)", dataset,
+			GaussianBlur.class, "dataset")
+		{
+
+			@Override
+			protected void setInputs(final Module module) {
+				module.setInput("sigma", 2.0);
+				module.setInput("useUnits", false);
+			}
+		});
+
+		final boolean isFloat = img.firstElement() instanceof FloatType;
+		final DataType<?> target =
+			dataTypeService.getTypeByClass(isFloat ? UnsignedShortType.class
+				: FloatType.class);
+		if (target != null) {
+			trials.add(new CommandTrial("Type change (to " + target.shortName() +
+				")", dataset, TypeChanger.class, "data")
+			{
+
+				@Override
+				protected void setInputs(final Module module) {
+					module.setInput("typeName", target.longName());
+					module.setInput("combineChannels", false);
+				}
+			});
+		}
+
+		trials.add(new Trial("View rebuild") {
+
+			private DatasetView view;
+
+			@Override
+			public void setup() {
+				final DataView dataView = imageDisplayService.createDataView(dataset);
+				view = (DatasetView) dataView;
+			}
+
+			@Override
+			public void run() {
+				view.rebuild();
+			}
+
+			@Override
+			public void teardown() {
+				view.dispose();
+			}
+		});
+
+		return trials;
+	}
+
+	/** Computes a 256-bin histogram spanning the type's or the data's range. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Histogram1d<?> histogram(final Dataset dataset) {
+		final ImgPlus img = dataset.getImgPlus();
+		double min, max;
+		if (dataset.isInteger()) {
+			min = dataset.getType().getMinValue();
+			max = dataset.getType().getMaxValue();
+		}
+		else {
+			min = Double.MAX_VALUE;
+			max = -Double.MAX_VALUE;
+			final Cursor<? extends RealType<?>> cursor = img.cursor();
+			while (cursor.hasNext()) {
+				final double value = cursor.next().getRealDouble();
+				if (min > value) min = value;
+				if (max < value) max = value;
+			}
+		}
+		final Histogram1d histogram =
+			new Histogram1d(new Real1dBinMapper(min, max, 256, false));
+		histogram.countData(img);
+		return histogram;
+	}
+
+	/** A single timed operation. */
+	private abstract class Trial {
+
+		private final String name;
+
+		public Trial(final String name) {
+			this.name = name;
+		}
+
+		/** Prepares a single run of the operation; not timed. */
+		public void setup() throws Exception {
+			// nothing to do by default
+		}
+
+		/** Runs the operation; timed. */
+		public abstract void run() throws Exception;
+
+		/** Cleans up after a single run of the operation; not timed. */
+		public void teardown() {
+			// nothing to do by default
+		}
+	}
+
+	/**
+	 * Times a noise reducer with a rectangular neighborhood. Each run gets its
+	 * own reducer, which is dropped afterwards together with its output.
+	 */
+	private class NoiseReductionTrial extends Trial {
+
+		private final Dataset dataset;
+		@SuppressWarnings("rawtypes")
+		private final Class<? extends AbstractNoiseReducerPlugin> reducerClass;
+		private AbstractNoiseReducerPlugin<?> reducer;
+
+		@SuppressWarnings("rawtypes")
+		public NoiseReductionTrial(final String name, final Dataset dataset,
+			final Class<? extends AbstractNoiseReducerPlugin> reducerClass)
+		{
+			super(name);
+			this.dataset = dataset;
+			this.reducerClass = reducerClass;
+		}
+
+		@Override
+		public void setup() throws Exception {
+			reducer = reducerClass.newInstance();
+			reducer.setContext(getContext());
+			final long[] offsets = new long[dataset.numDimensions()];
+			offsets[0] = offsets[1] = 1;
+			reducer.setNeighborhood(new RectangularNeigh(offsets, offsets.clone()));
+			// the reducer works on a copy of its input
+			reducer.setInput(dataset);
+		}
+
+		@Override
+		public void run() {
+			reducer.run();
+		}
+
+		@Override
+		public void teardown() {
+			// the output is never registered, so letting go of it suffices
+			reducer = null;
+		}
+	}
+
+	/** Times a command running on a fresh copy of the image. */
+	private class CommandTrial extends Trial {
+
+		private final Dataset dataset;
+		private final Class<? extends Command> commandClass;
+		private final String datasetInput;
+		private Module instance;
+
+		public CommandTrial(final String name, final Dataset dataset,
+			final Class<? extends Command> commandClass, final String datasetInput)
+		{
+			super(name);
+			this.dataset = dataset;
+			this.commandClass = commandClass;
+			this.datasetInput = datasetInput;
+		}
+
+		/** Sets the inputs other than the image. */
+		protected void setInputs(final Module module) {
+			// nothing to do by default
+		}
+
+		@Override
+		public void setup() throws Exception {
+			instance =
+				moduleService.createModule(commandService.getCommand(commandClass));
+			instance.setInput(datasetInput, dataset.duplicate());
+			instance.initialize();
+			setInputs(instance);
+		}
+
+		@Override
+		public void run() {
+			instance.run();
+		}
+
+		@Override
+		public void teardown() {
+			// drop the copy of the image and the outputs before the next run
+			instance = null;
+		}
+	}
+
+	/** A 3x3 mean filter. */
+	private static class MeanWatcher implements Neighborhood3x3Watcher {
+
+		private double sum;
+
+		@Override
+		public void setup() {
+			// nothing to do
+		}
+
+		@Override
+		public void initializeNeighborhood(final long[] position) {
+			sum = 0;
+		}
+
+		@Override
+		public void visitLocation(final int dx, final int dy, final double value) {
+			sum += value;
+		}
+
+		@Override
+		public double calcOutputValue() {
+			return sum / 9;
+		}
+	}
 }
@@ -35,48 +35,96 @@
 import imagej.data.Extents;
 import imagej.data.Position;
 import imagej.util.RealRect;
-import net.imglib2.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.imglib2.RandomAccess;
-import net.imglib2.RandomAccessible;
 import net.imglib2.img.Img;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.RealType;
-import net.imglib2.view.Views;
+import net.imglib2.type.numeric.integer.Unsigned12BitType;
+
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
 
 /**
  * Neighborhood3x3Operation - a helper class for 3x3 neighborhood operation
  * plugins such as SmoothDataValues, SharpenDataValues, and FindEdges. Does the
  * work of communicating with a Neighborhood3x3Watcher.
+ * <p>
+ * Each plane is processed row by row, keeping the original values of the
+ * previous, current and next row in a rolling buffer, so that the output can
+ * be written in place without copying the image. Out of bounds values are
+ * mirrored (the border pixel itself is not repeated). When constructed with a
+ * {@link Neighborhood3x3WatcherFactory}, planes and bands of rows are
+ * processed in parallel on the dataset's {@link ThreadService}. Types which
+ * pack several pixels into one storage word (such as {@link BitType}) are
+ * always processed sequentially, as neighboring bands could otherwise
+ * overwrite each other's pixels.
+ * </p>
  * 
  * @author Barry DeZonia
  */
 public class Neighborhood3x3Operation {
 
+	// -- constants --
+
+	/** The minimal number of rows a plane is split into for parallelization. */
+	private static final int MIN_BAND_HEIGHT = 32;
+
 	// -- instance variables --
 
 	private final Dataset input;
 	private Img<? extends RealType<?>> inputImage;
-	private Img<? extends RealType<?>> inputImageCopy;
 	private final RealRect selection;
 	private final Neighborhood3x3Watcher watcher;
+	private final Neighborhood3x3WatcherFactory factory;
 
-	// -- constructor --
+	// -- constructors --
 
+	/**
+	 * Creates an operation which processes the image sequentially, using the
+	 * given watcher.
+	 */
 	public Neighborhood3x3Operation(final Dataset input,
 		final RealRect selection, final Neighborhood3x3Watcher watcher)
 	{
 		this.input = input;
 		this.watcher = watcher;
+		this.factory = null;
 		this.selection = selection;
 
 		if (watcher == null) throw new IllegalArgumentException(
 			"neighborhood watcher cannot be null!");
 	}
 
+	/**
+	 * Creates an operation which processes the image in parallel, using one
+	 * watcher per thread. Falls back to sequential processing if the dataset
+	 * has no {@link ThreadService} or its type is bit-packed.
+	 */
+	public Neighborhood3x3Operation(final Dataset input,
+		final RealRect selection, final Neighborhood3x3WatcherFactory factory)
+	{
+		this.input = input;
+		this.watcher = null;
+		this.factory = factory;
+		this.selection = selection;
+
+		if (factory == null) throw new IllegalArgumentException(
+			"neighborhood watcher factory cannot be null!");
+	}
+
 	// -- public interface --
 
 	public void run() {
 		checkInput();
-		setupWorkingData();
+		inputImage = input.getImgPlus();
 		runAssignment();
 	}
 
@@ -97,114 +145,254 @@ private void checkInput() {
 		// input.getImage().numDimensions() + " dimensions");
 	}
 
-	private void setupWorkingData() {
-		inputImage = input.getImgPlus();
-		inputImageCopy = cloneImage(inputImage);
-	}
-
 	private void runAssignment() {
+		final int imageWidth = (int) inputImage.dimension(0);
+		final int imageHeight = (int) inputImage.dimension(1);
+
+		final int minX = Math.max(0, (int) selection.x);
+		final int minY = Math.max(0, (int) selection.y);
+		final int maxX =
+			selection.width == 0 ? imageWidth : Math.min(imageWidth,
+				(int) (selection.x + selection.width));
+		final int maxY =
+			selection.height == 0 ? imageHeight : Math.min(imageHeight,
+				(int) (selection.y + selection.height));
+		if (minX >= maxX || minY >= maxY) return;
+
+		// enumerate the planes
 		final long[] planeDims = new long[inputImage.numDimensions() - 2];
 		for (int i = 0; i < planeDims.length; i++)
 			planeDims[i] = inputImage.dimension(i + 2);
-		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
+		final List<long[]> planes = new ArrayList<long[]>();
 		if (planeDims.length == 0) { // dataset is 2d only
-			applyOperationToPlane(planePos);
+			planes.add(new long[inputImage.numDimensions()]);
 		}
 		else { // 3 or more dimensions
+			final Extents extents = new Extents(planeDims);
+			final Position planePos = extents.createPosition();
 			while (planePos.hasNext()) {
 				planePos.fwd();
-				applyOperationToPlane(planePos);
+				final long[] position = new long[inputImage.numDimensions()];
+				for (int i = 2; i < position.length; i++)
+					position[i] = planePos.getLongPosition(i - 2);
+				planes.add(position);
 			}
 		}
-		input.update();
-	}
-
-	private void applyOperationToPlane(final Position planePos) {
-
-		final long[] imageDims = new long[inputImage.numDimensions()];
-		inputImage.dimensions(imageDims);
-
-		if (selection.width == 0) selection.width = (int) imageDims[0];
-
-		if (selection.height == 0) selection.height = (int) imageDims[1];
-
-		// output is done by changin input image in place
-		final RandomAccess<? extends RealType<?>> outputAccessor =
-			inputImage.randomAccess();
-
-		// input is a copy of the original data with out of bounds access enabled
-		final RandomAccessible<? extends RealType<?>> inputInterval =
-			Views.extendMirrorSingle(inputImageCopy);
 
-		final RandomAccess<? extends RealType<?>> extendedInput =
-			inputInterval.randomAccess();
-
-		// initialize the watcher
-		watcher.setup();
-
-		final long[] inputPosition = new long[imageDims.length];
-		final long[] localInputPosition = new long[imageDims.length];
-
-		for (int i = 2; i < inputPosition.length; i++) {
-			inputPosition[i] = planePos.getLongPosition(i - 2);
-			localInputPosition[i] = planePos.getLongPosition(i - 2);
+		// split the planes into bands of rows if there are fewer planes than
+		// threads
+		final ThreadService threadService = threadService();
+		final int threadCount =
+			threadService == null ? 1 : Runtime.getRuntime().availableProcessors();
+		final int height = maxY - minY;
+		final int bandsPerPlane =
+			Math.max(1, Math.min((threadCount + planes.size() - 1) / planes.size(),
+				height / MIN_BAND_HEIGHT));
+		final int bandHeight = (height + bandsPerPlane - 1) / bandsPerPlane;
+
+		// NB: the rows adjacent to each band are copied before any output is
+		// written, as they belong to the neighboring bands
+		final RowReader reader =
+			new RowReader(inputImage.randomAccess(), imageWidth, imageHeight, minX,
+				maxX);
+		final List<Band> bands = new ArrayList<Band>();
+		for (final long[] plane : planes) {
+			for (int y = minY; y < maxY; y += bandHeight) {
+				final int endY = Math.min(maxY, y + bandHeight);
+				bands.add(new Band(plane, y, endY, reader.read(plane, y - 1, null),
+					reader.read(plane, endY, null)));
+			}
 		}
 
-		final long minX = (long) selection.x;
-		final long minY = (long) selection.y;
-		final long width = (long) selection.width;
-		final long height = (long) selection.height;
-		for (long y = minY; y < minY + height; y++) {
-			inputPosition[1] = y;
-			for (long x = minX; x < minX + width; x++) {
-				inputPosition[0] = x;
-				watcher.initializeNeighborhood(inputPosition);
-
-				for (int dy = -1; dy <= 1; dy++) {
-					localInputPosition[1] = inputPosition[1] + dy;
-					for (int dx = -1; dx <= 1; dx++) {
-						localInputPosition[0] = inputPosition[0] + dx;
-						extendedInput.setPosition(localInputPosition);
-						final double localValue = extendedInput.get().getRealDouble();
-						watcher.visitLocation(dx, dy, localValue);
+		if (threadCount == 1 || bands.size() == 1) {
+			final Neighborhood3x3Watcher w =
+				watcher != null ? watcher : factory.createWatcher();
+			for (final Band band : bands)
+				band.process(w, reader);
+		}
+		else {
+			final AtomicInteger next = new AtomicInteger();
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			final int taskCount = Math.min(threadCount, bands.size());
+			for (int i = 0; i < taskCount; i++) {
+				futures.add(threadService.run(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						final Neighborhood3x3Watcher threadWatcher =
+							factory.createWatcher();
+						final RowReader threadReader =
+							new RowReader(inputImage.randomAccess(), imageWidth, imageHeight,
+								minX, maxX);
+						try {
+							for (;;) {
+								final int index = next.getAndIncrement();
+								if (index >= bands.size()) break;
+								bands.get(index).process(threadWatcher, threadReader);
+							}
+						}
+						catch (final RuntimeException e) {
+							// let the other tasks stop early
+							next.set(bands.size());
+							throw e;
+						}
+						return null;
 					}
+				}));
+			}
+			try {
+				for (final Future<Void> future : futures) {
+					future.get();
 				}
-				// assign output
-				outputAccessor.setPosition(inputPosition);
-				outputAccessor.get().setReal(watcher.calcOutputValue());
+			}
+			catch (final InterruptedException e) {
+				next.set(bands.size());
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("neighborhood operation interrupted", e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException("neighborhood operation failed", e
+					.getCause());
 			}
 		}
+		input.update();
 	}
 
-	// TODO - eliminate when ImgLib allows ability to duplicate/clone an Img
-	// TODO - find a way to eliminate use of raw types here
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private Img<? extends RealType<?>> cloneImage(final Img image) {
-		// TODO - used to be able to call Image::clone()
-		// For now copy data by hand
+	/**
+	 * Gets the thread service to process the image in parallel with, or null if
+	 * it has to be processed sequentially.
+	 */
+	private ThreadService threadService() {
+		if (factory == null || isBitPacked()) return null;
+		final Context context = input.getContext();
+		return context == null ? null : context.getService(ThreadService.class);
+	}
 
-		final long[] dimensions = new long[image.numDimensions()];
-		image.dimensions(dimensions);
+	/**
+	 * Tells whether several pixels share a storage word, making concurrent
+	 * writes to neighboring pixels unsafe.
+	 */
+	private boolean isBitPacked() {
+		final RealType<?> type = input.getType();
+		return type instanceof BitType || type instanceof Unsigned12BitType;
+	}
 
-		final Img<? extends RealType<?>> copyOfImg =
-			image.factory().create(dimensions, image.firstElement());
+	/**
+	 * Reads rows of a plane into primitive buffers. A buffer holds the columns
+	 * {@code minX - 1} through {@code maxX}, mirrored at the image borders.
+	 */
+	private static class RowReader {
+
+		private final RandomAccess<? extends RealType<?>> access;
+		private final int imageWidth, imageHeight;
+		private final int minX, maxX;
+
+		public RowReader(final RandomAccess<? extends RealType<?>> access,
+			final int imageWidth, final int imageHeight, final int minX,
+			final int maxX)
+		{
+			this.access = access;
+			this.imageWidth = imageWidth;
+			this.imageHeight = imageHeight;
+			this.minX = minX;
+			this.maxX = maxX;
+		}
 
-		final long[] position = new long[dimensions.length];
+		public double[] read(final long[] plane, final int y, double[] buffer) {
+			final int length = maxX - minX + 2;
+			if (buffer == null) buffer = new double[length];
+			access.setPosition(plane);
+			access.setPosition(mirror(y, imageHeight), 1);
+
+			// the columns inside the image
+			final int first = Math.max(0, minX - 1);
+			final int last = Math.min(imageWidth - 1, maxX);
+			access.setPosition(first, 0);
+			for (int x = first; x <= last; x++) {
+				buffer[x - minX + 1] = access.get().getRealDouble();
+				access.fwd(0);
+			}
 
-		final Cursor<? extends RealType<?>> cursor = image.localizingCursor();
+			// the columns outside the image
+			if (minX == 0) buffer[0] = buffer[mirror(-1, imageWidth) + 1];
+			if (maxX == imageWidth) {
+				buffer[length - 1] = buffer[mirror(imageWidth, imageWidth) - minX + 1];
+			}
+			return buffer;
+		}
 
-		final RandomAccess<? extends RealType<?>> access =
-			copyOfImg.randomAccess();
+		private static int mirror(final int position, final int size) {
+			if (size == 1) return 0;
+			if (position < 0) return -position;
+			if (position >= size) return 2 * size - 2 - position;
+			return position;
+		}
+	}
 
-		while (cursor.hasNext()) {
-			cursor.next();
-			final double currValue = cursor.get().getRealDouble();
-			cursor.localize(position);
-			access.setPosition(position);
-			access.get().setReal(currValue);
+	/** A band of rows of a single plane. */
+	private class Band {
+
+		private final long[] plane;
+		private final int minY, maxY;
+		private final double[] above, below;
+
+		public Band(final long[] plane, final int minY, final int maxY,
+			final double[] above, final double[] below)
+		{
+			this.plane = plane;
+			this.minY = minY;
+			this.maxY = maxY;
+			this.above = above;
+			this.below = below;
 		}
 
-		return copyOfImg;
+		public void process(final Neighborhood3x3Watcher w, final RowReader reader)
+		{
+			final int minX = reader.minX, maxX = reader.maxX;
+			final RandomAccess<? extends RealType<?>> output =
+				inputImage.randomAccess();
+			final long[] position = plane.clone();
+
+			// initialize the watcher
+			w.setup();
+
+			double[] previous = above;
+			double[] current = reader.read(plane, minY, null);
+			double[] next =
+				minY + 1 < maxY ? reader.read(plane, minY + 1, null) : below;
+			double[] spare = null;
+
+			output.setPosition(plane);
+			for (int y = minY; y < maxY; y++) {
+				position[1] = y;
+				output.setPosition(y, 1);
+				output.setPosition(minX, 0);
+				for (int x = minX; x < maxX; x++) {
+					position[0] = x;
+					w.initializeNeighborhood(position);
+					final int i = x - minX + 1;
+					w.visitLocation(-1, -1, previous[i - 1]);
+					w.visitLocation(0, -1, previous[i]);
+					w.visitLocation(1, -1, previous[i + 1]);
+					w.visitLocation(-1, 0, current[i - 1]);
+					w.visitLocation(0, 0, current[i]);
+					w.visitLocation(1, 0, current[i + 1]);
+					w.visitLocation(-1, 1, next[i - 1]);
+					w.visitLocation(0, 1, next[i]);
+					w.visitLocation(1, 1, next[i + 1]);
+					// assign output
+					output.get().setReal(w.calcOutputValue());
+					output.fwd(0);
+				}
+
+				// roll the buffers; only the rows read by this band are reused
+				if (previous != above) spare = previous;
+				previous = current;
+				current = next;
+				if (y + 2 < maxY) next = reader.read(plane, y + 2, spare);
+				else next = below;
+				spare = null;
+			}
+		}
 	}
 }
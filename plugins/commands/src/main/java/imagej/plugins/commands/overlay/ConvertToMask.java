@@ -147,7 +147,7 @@ public void run() {
 			return;
 		}
 		ThresholdOverlay thresh = threshSrv.getThreshold(input);
-		PointSetIterator iter = thresh.getPointsWithin().iterator();
+		PointSetIterator iter = thresh.getMaskWithin().iterator();
 		if (!iter.hasNext()) {
 			cancel("No pixels are within the threshold");
 			return;
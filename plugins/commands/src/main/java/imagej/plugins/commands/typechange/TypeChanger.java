@@ -39,14 +39,18 @@
 import imagej.data.types.BigComplex;
 import imagej.data.types.DataType;
 import imagej.data.types.DataTypeService;
+import imagej.data.types.PlaneConverter;
 import imagej.menu.MenuConstants;
 import imagej.module.MutableModuleItem;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.imglib2.Cursor;
 import net.imglib2.RandomAccess;
+import net.imglib2.converter.Converter;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
 import net.imglib2.meta.ImgPlus;
@@ -61,6 +65,7 @@
 import org.scijava.plugin.Menu;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
 
 /**
  * TypeChanger changes the type of the data in a {@link Dataset}. The
@@ -100,6 +105,9 @@
 	@Parameter
 	private DataTypeService dataTypeService;
 
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	@Parameter
 	private Dataset data;
 
@@ -156,12 +164,6 @@ protected void init() {
 	private Dataset channelAveragingCase(DataType<U> inType, DataType<V> outType,
 		int chAxis, int count)
 	{
-		BigComplex[] temps = new BigComplex[count];
-		for (int i = 0; i < count; i++) {
-			temps[i] = new BigComplex();
-		}
-		BigComplex combined = new BigComplex();
-		BigComplex divisor = new BigComplex(count, 0);
 		long[] dims = calcDims(IntervalUtils.getDims(data), chAxis);
 		AxisType[] axes = calcAxes(SpaceUtils.getAxisTypes(data), chAxis);
 		Dataset newData =
@@ -175,9 +177,38 @@ private Dataset channelAveragingCase(DataType<U> inType, DataType<V> outType,
 			(RandomAccess<U>) data.getImgPlus().randomAccess();
 		RandomAccess<V> outAccessor =
 			(RandomAccess<V>) newData.getImgPlus().randomAccess();
+		// average in doubles when both types allow it: BigDecimal math per pixel
+		// is only needed for the unbounded and complex types
+		boolean useDoubles =
+			inType.hasDoubleRepresentation() && outType.hasDoubleRepresentation();
+		BigComplex[] temps = null;
+		BigComplex combined = null;
+		BigComplex divisor = null;
+		if (!useDoubles) {
+			temps = new BigComplex[count];
+			for (int i = 0; i < count; i++) {
+				temps[i] = new BigComplex();
+			}
+			combined = new BigComplex();
+			divisor = new BigComplex(count, 0);
+		}
 		while (iter.hasNext()) {
 			long[] pos = iter.next();
 			inAccessor.setPosition(pos);
+			int d = 0;
+			for (int i = 0; i < pos.length; i++) {
+				if (i == chAxis) continue;
+				outAccessor.setPosition(pos[i], d++);
+			}
+			if (useDoubles) {
+				double sum = 0;
+				for (int i = 0; i < count; i++) {
+					inAccessor.setPosition(i, chAxis);
+					sum += inType.asDouble(inAccessor.get());
+				}
+				outType.setDouble(outAccessor.get(), sum / count);
+				continue;
+			}
 			for (int i = 0; i < count; i++) {
 				inAccessor.setPosition(i, chAxis);
 				inType.cast(inAccessor.get(), temps[i]);
@@ -186,11 +217,6 @@ private Dataset channelAveragingCase(DataType<U> inType, DataType<V> outType,
 			for (int i = 0; i < count; i++) {
 				combined.add(temps[i]);
 			}
-			int d = 0;
-			for (int i = 0; i < count; i++) {
-				if (i == chAxis) continue;
-				outAccessor.setPosition(pos[i], d++);
-			}
 			combined.div(divisor);
 			outType.cast(combined, outAccessor.get());
 		}
@@ -204,20 +230,86 @@ private Dataset channelAveragingCase(DataType<U> inType, DataType<V> outType,
 		Dataset newData =
 			datasetService.create(outType.createVariable(), IntervalUtils
 				.getDims(data), "Converted Image", SpaceUtils.getAxisTypes(data));
-		Cursor<U> inCursor = (Cursor<U>) data.getImgPlus().cursor();
-		RandomAccess<V> outAccessor =
-			(RandomAccess<V>) newData.getImgPlus().randomAccess();
-		BigComplex tmp = new BigComplex();
-		while (inCursor.hasNext()) {
-			inCursor.fwd();
-			outAccessor.setPosition(inCursor);
-			dataTypeService.cast(inType, inCursor.get(), outType, outAccessor.get(),
-				tmp);
+		if (!convertPlanes(inType, outType, newData)) {
+			Cursor<U> inCursor = (Cursor<U>) data.getImgPlus().cursor();
+			RandomAccess<V> outAccessor =
+				(RandomAccess<V>) newData.getImgPlus().randomAccess();
+			Converter<U, V> converter = dataTypeService.getConverter(inType, outType);
+			while (inCursor.hasNext()) {
+				inCursor.fwd();
+				outAccessor.setPosition(inCursor);
+				converter.convert(inCursor.get(), outAccessor.get());
+			}
 		}
 		copyMetaDataDefaultCase(data.getImgPlus(), newData.getImgPlus());
 		return newData;
 	}
 
+	/**
+	 * Converts the data plane by plane with primitive loops when both images
+	 * are planar and both types store one pixel per array element. Planes are
+	 * converted in parallel. Returns false if the data cannot be converted this
+	 * way.
+	 */
+	private boolean convertPlanes(DataType<U> inType, DataType<V> outType,
+		final Dataset newData)
+	{
+		final PlaneConverter converter =
+			dataTypeService.getPlaneConverter(inType, outType);
+		if (converter == null) return false;
+		long planes = 1;
+		for (int d = 2; d < data.numDimensions(); d++) {
+			planes *= data.dimension(d);
+		}
+		if (planes > Integer.MAX_VALUE) return false;
+		if (data.getPlane(0, false) == null) return false;
+		if (newData.getPlane(0, false) == null) return false;
+		final int planeCount = (int) planes;
+		int threads = threadService == null ? 1 :
+			Runtime.getRuntime().availableProcessors();
+		threads = Math.min(threads, planeCount);
+		if (threads <= 1) {
+			convertPlanes(converter, newData, 0, planeCount);
+			return true;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		int start = 0;
+		for (int i = 0; i < threads; i++) {
+			final int first = start;
+			final int count =
+				planeCount / threads + (i < planeCount % threads ? 1 : 0);
+			start += count;
+			futures.add(threadService.run(new Runnable() {
+
+				@Override
+				public void run() {
+					convertPlanes(converter, newData, first, count);
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("type conversion interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("type conversion failed", e.getCause());
+		}
+		return true;
+	}
+
+	private void convertPlanes(PlaneConverter converter, Dataset newData,
+		int first, int count)
+	{
+		for (int p = first; p < first + count; p++) {
+			converter.convert(data.getPlane(p, false), newData.getPlane(p, false));
+		}
+	}
+
 	private void copyMetaDataDefaultCase(ImgPlus<?> src, ImgPlus<?> dest) {
 
 		// dims and axes already correct
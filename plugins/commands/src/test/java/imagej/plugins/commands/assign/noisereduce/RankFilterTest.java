@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2014 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package imagej.plugins.commands.assign.noisereduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link RankFilter} against the statistics of every neighborhood
+ * computed directly.
+ */
+public class RankFilterTest {
+
+	private Context context;
+
+	@Before
+	public void setUp() {
+		context = new Context(ThreadService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testRectangular() {
+		final Neighborhood neigh = rectangular(1, 1);
+		final ImgPlus<UnsignedByteType> img = random(7, 5);
+		assertFiltered(img, neigh, RankStatistic.MEDIAN);
+		assertFiltered(img, neigh, RankStatistic.MIN);
+		assertFiltered(img, neigh, RankStatistic.MAX);
+	}
+
+	@Test
+	public void testRadial() {
+		final Neighborhood neigh = new RadialNeigh(2, 3);
+		final ImgPlus<UnsignedByteType> img = random(9, 8);
+		assertFiltered(img, neigh, RankStatistic.MEDIAN);
+		assertFiltered(img, neigh, RankStatistic.MIN);
+		assertFiltered(img, neigh, RankStatistic.MAX);
+	}
+
+	@Test
+	public void testSmallImages() {
+		// the neighborhood reaches past both borders of every dimension
+		final Neighborhood neigh = rectangular(2, 2);
+		for (final long[] dims : new long[][] { { 1, 1 }, { 1, 4 }, { 4, 1 },
+			{ 2, 3 } })
+		{
+			final ImgPlus<UnsignedByteType> img = random(dims);
+			assertFiltered(img, neigh, RankStatistic.MEDIAN);
+			assertFiltered(img, neigh, RankStatistic.MIN);
+			assertFiltered(img, neigh, RankStatistic.MAX);
+		}
+	}
+
+	@Test
+	public void testMultiPlane() {
+		final ImgPlus<UnsignedByteType> img = random(6, 5, 4);
+		final Neighborhood planar = rectangular(1, 1, 0);
+		assertFiltered(img, planar, RankStatistic.MEDIAN);
+		assertFiltered(img, planar, RankStatistic.MAX);
+		final Neighborhood cube = rectangular(1, 1, 1);
+		assertFiltered(img, cube, RankStatistic.MEDIAN);
+		assertFiltered(img, cube, RankStatistic.MIN);
+	}
+
+	@Test
+	public void testInterrupted() {
+		final RankFilter<UnsignedByteType> filter =
+			new RankFilter<UnsignedByteType>(context, random(16, 16),
+				RankStatistic.MEDIAN, rectangular(1, 1));
+		Thread.currentThread().interrupt();
+		try {
+			filter.filter("interrupted");
+			fail("interruption was swallowed");
+		}
+		catch (final IllegalStateException e) {
+			assertTrue(Thread.interrupted());
+		}
+		finally {
+			Thread.interrupted();
+		}
+	}
+
+	// -- Helper methods --
+
+	private static Neighborhood rectangular(final long... radius) {
+		return new RectangularNeigh(radius.clone(), radius.clone());
+	}
+
+	private static ImgPlus<UnsignedByteType> random(final long... dims) {
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(dims);
+		final Random rng = new Random(Arrays.hashCode(dims));
+		for (final UnsignedByteType t : img) {
+			t.set(rng.nextInt(256));
+		}
+		return new ImgPlus<UnsignedByteType>(img);
+	}
+
+	private <U extends RealType<U>> void assertFiltered(final ImgPlus<U> img,
+		final Neighborhood neigh, final RankStatistic statistic)
+	{
+		final long[][] offsets = offsets(neigh.getPoints());
+		final ImgPlus<? extends RealType<?>> actual =
+			new RankFilter<U>(context, img, statistic, neigh).filter("test")
+				.getImgPlus();
+		final long[] dims = new long[img.numDimensions()];
+		img.dimensions(dims);
+		final RandomAccess<U> in = img.randomAccess();
+		final long[] center = new long[dims.length];
+		final long[] pos = new long[dims.length];
+		final Cursor<? extends RealType<?>> cursor = actual.localizingCursor();
+		while (cursor.hasNext()) {
+			final RealType<?> value = cursor.next();
+			cursor.localize(center);
+			final List<Double> values = new ArrayList<Double>();
+			for (final long[] offset : offsets) {
+				for (int d = 0; d < dims.length; d++) {
+					pos[d] = mirror(center[d] + offset[d], dims[d]);
+				}
+				in.setPosition(pos);
+				values.add(in.get().getRealDouble());
+			}
+			assertEquals(Arrays.toString(center),
+				expected(values, statistic), value.getRealDouble(), 0);
+		}
+	}
+
+	/** Mirrors a position into the image, repeating the border pixel. */
+	private static long mirror(final long position, final long size) {
+		final long period = 2 * size;
+		final long p = (position % period + period) % period;
+		return p < size ? p : period - 1 - p;
+	}
+
+	private static double expected(final List<Double> values,
+		final RankStatistic statistic)
+	{
+		final double[] sorted = new double[values.size()];
+		for (int i = 0; i < sorted.length; i++)
+			sorted[i] = values.get(i);
+		Arrays.sort(sorted);
+		final int n = sorted.length;
+		if (statistic == RankStatistic.MIN) return sorted[0];
+		if (statistic == RankStatistic.MAX) return sorted[n - 1];
+		// NB: the neighborhoods used here all have an odd number of points
+		assertEquals(1, n % 2);
+		return sorted[n / 2];
+	}
+
+	private static long[][] offsets(final PointSet points) {
+		final long[] origin = points.getOrigin();
+		final List<long[]> list = new ArrayList<long[]>();
+		final PointSetIterator iter = points.iterator();
+		while (iter.hasNext()) {
+			final long[] point = iter.next();
+			final long[] offset = new long[point.length];
+			for (int d = 0; d < point.length; d++)
+				offset[d] = point[d] - origin[d];
+			list.add(offset);
+		}
+		return list.toArray(new long[list.size()][]);
+	}
+
+}
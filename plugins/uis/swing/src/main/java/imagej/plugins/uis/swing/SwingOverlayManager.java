@@ -73,6 +73,7 @@
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -340,19 +341,10 @@ public int getSize() {
 	*/
 	private void populateOverlayList() {
 		// Populate the list with all overlays
+		final OverlayInfoList overlayInfo = overlayService.getOverlayInfo();
 		for (final Overlay overlay : overlayService.getOverlays()) {
-			boolean found = false;
-			int totOverlays = overlayService.getOverlayInfo().getOverlayInfoCount();
-			for (int i = 0; i < totOverlays; i++) {
-				OverlayInfo info = overlayService.getOverlayInfo().getOverlayInfo(i);
-				if (overlay == info.getOverlay()) {
-					found = true;
-					break;
-				}
-			}
-			if (!found) {
-				OverlayInfo info = new OverlayInfo(overlay);
-				overlayService.getOverlayInfo().addOverlayInfo(info);
+			if (!overlayInfo.contains(overlay)) {
+				overlayInfo.addOverlayInfo(new OverlayInfo(overlay));
 			}
 		}
 		jlist.updateUI();
@@ -512,7 +504,7 @@ private void and() {
 	
 	private void delete() {
 		if (overlayService.getOverlayInfo().getOverlayInfoCount() == 0) return;
-		List<Overlay> overlaysToDelete = new LinkedList<Overlay>();
+		LinkedList<Overlay> overlaysToDelete = new LinkedList<Overlay>();
 		final int[] selectedIndices = overlayService.getOverlayInfo().selectedIndices();
 		if (selectedIndices.length == 0) {
 			final int result =
@@ -529,11 +521,13 @@ private void delete() {
 				overlaysToDelete.add(overlayService.getOverlayInfo().getOverlayInfo(index).getOverlay());
 			}
 		}
-		for (Overlay overlay : overlaysToDelete) {
-			// NB - removeOverlay() can indirectly change our infoList contents.
-			// Thus we first collect overlays from the infoList and then delete
-			// them all afterwards to avoid interactions.
-			overlayService.removeOverlay(overlay);
+		// NB - removeOverlay() can indirectly change our infoList contents.
+		// Thus we first collect overlays from the infoList and then delete
+		// them all afterwards to avoid interactions. Deleting from the end of
+		// the list keeps the infoList from reindexing after every removal.
+		final Iterator<Overlay> iter = overlaysToDelete.descendingIterator();
+		while (iter.hasNext()) {
+			overlayService.removeOverlay(iter.next());
 		}
 	}
 	
@@ -33,13 +33,18 @@
 
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.display.ImageCanvas;
 import imagej.data.display.event.DataViewUpdatedEvent;
+import imagej.data.display.event.PanZoomEvent;
 import imagej.util.awt.AWTImageTools;
 
 import java.awt.Image;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.ImageFigure;
@@ -47,6 +52,7 @@
 import org.scijava.event.EventHandler;
 import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * A figure view that links an ImageJ {@link DatasetView} to a JHotDraw
@@ -59,16 +65,24 @@ public class DatasetFigureView extends AbstractContextual implements FigureView
 {
 
 	private final DatasetView datasetView;
+	private final ImageCanvas imageCanvas;
 	private final ImageFigure figure;
 
+	/** Whether a refresh of the figure is already queued. */
+	private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
 	@Parameter
 	private LogService log;
 
+	@Parameter
+	private ThreadService threadService;
+
 	public DatasetFigureView(final SwingImageDisplayViewer displayViewer,
 		final DatasetView datasetView)
 	{
 		setContext(datasetView.getContext());
 		this.datasetView = datasetView;
+		imageCanvas = displayViewer.getDisplay().getCanvas();
 		final JHotDrawImageCanvas canvas = displayViewer.getCanvas();
 		final Drawing drawing = canvas.getDrawing();
 		figure = new ImageFigure();
@@ -89,14 +103,25 @@ protected void onDataViewUpdatedEvent(final DataViewUpdatedEvent event) {
 		if (event.getView() == datasetView) update();
 	}
 
+	@EventHandler
+	protected void onEvent(final PanZoomEvent event) {
+		if (event.getCanvas() != imageCanvas) return;
+		if (resolutionLevel() != datasetView.getResolutionLevel()) update();
+	}
+
 	@Override
 	public void update() {
-		log.debug("Updating image figure: " + this);
-		final Image image = datasetView.getScreenImage().image();
-		final BufferedImage bufImage = AWTImageTools.makeBuffered(image);
-		figure.setBounds(new Rectangle2D.Double(0, 0, bufImage.getWidth(),
-			bufImage.getHeight()));
-		figure.setBufferedImage(bufImage);
+		// NB - updates which arrive before the queued refresh runs are coalesced
+		// into it, so a burst of plane changes repaints once.
+		if (refreshQueued.getAndSet(true)) return;
+		threadService.queue(new Runnable() {
+
+			@Override
+			public void run() {
+				refreshQueued.set(false);
+				refresh();
+			}
+		});
 	}
 
 	// -- FigureView methods --
@@ -116,4 +141,50 @@ public void dispose() {
 		getFigure().requestRemove();
 	}
 
+	// -- Helper methods --
+
+	private void refresh() {
+		log.debug("Updating image figure: " + this);
+		datasetView.setResolutionLevel(resolutionLevel());
+		final ARGBScreenImage screenImage =
+			datasetView.getScreenImage(datasetView.getResolutionLevel());
+		if (screenImage == null) return; // view is not initialized
+
+		// NB - the screen image is a BufferedImage over the projector's own int[]
+		// raster, so the figure draws the latest pixels without any copying.
+		final Image image = screenImage.image();
+		final BufferedImage bufImage = AWTImageTools.makeBuffered(image);
+		// NB - a coarser level is stretched over the full extent of the plane
+		final Rectangle2D.Double bounds =
+			new Rectangle2D.Double(0, 0, datasetView.getPreferredWidth(),
+				datasetView.getPreferredHeight());
+		if (bufImage != figure.getBufferedImage() ||
+			!bounds.equals(figure.getBounds()))
+		{
+			figure.setBounds(bounds);
+			figure.setBufferedImage(bufImage);
+		}
+		else {
+			// same raster with new pixels; just repaint the area of the figure
+			figure.willChange();
+			figure.changed();
+		}
+	}
+
+	/**
+	 * Chooses the coarsest resolution level which still has at least one data
+	 * pixel per screen pixel at the current zoom.
+	 */
+	private int resolutionLevel() {
+		final double zoom = imageCanvas.getZoomFactor();
+		if (!(zoom > 0)) return 0;
+		int level = 0;
+		while (level < datasetView.getMaxResolutionLevel() &&
+			zoom * (2L << level) <= 1)
+		{
+			level++;
+		}
+		return level;
+	}
+
 }
@@ -73,7 +73,10 @@
 import java.awt.event.ComponentListener;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.JPanel;
@@ -85,12 +88,12 @@
 import net.imglib2.meta.AxisType;
 import net.imglib2.type.numeric.RealType;
 
-import org.jhotdraw.draw.DefaultDrawing;
 import org.jhotdraw.draw.DefaultDrawingEditor;
 import org.jhotdraw.draw.DefaultDrawingView;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingEditor;
 import org.jhotdraw.draw.Figure;
+import org.jhotdraw.draw.QuadTreeDrawing;
 import org.jhotdraw.draw.event.FigureSelectionEvent;
 import org.jhotdraw.draw.event.FigureSelectionListener;
 import org.scijava.event.EventHandler;
@@ -123,6 +126,10 @@ public class JHotDrawImageCanvas extends JPanel implements AdjustmentListener,
 
 	private final List<FigureView> figureViews = new ArrayList<FigureView>();
 
+	/** The {@link #figureViews} indexed by their data views. */
+	private final Map<DataView, FigureView> figureViewIndex =
+		new IdentityHashMap<DataView, FigureView>();
+
 	private final List<EventSubscriber<?>> subscribers;
 
 	@Parameter
@@ -150,7 +157,9 @@ public JHotDrawImageCanvas(final SwingImageDisplayViewer displayViewer) {
 		displayViewer.getDisplay().getContext().inject(this);
 		this.displayViewer = displayViewer;
 
-		drawing = new DefaultDrawing(); // or QuadTreeDrawing?
+		// NB - a quad tree keeps hit testing, rubber band selection and repaint
+		// clipping fast when there are many overlays.
+		drawing = new QuadTreeDrawing();
 
 		drawingView = new DefaultDrawingView() {
 
@@ -407,7 +416,7 @@ protected void onEvent(final FigureCreatedEvent event) {
 		}
 		final OverlayFigureView figureView =
 			new OverlayFigureView(displayViewer, overlay, event.getFigure());
-		figureViews.add(figureView);
+		addFigureView(figureView);
 		display.add(overlay);
 		display.update();
 	}
@@ -431,20 +440,24 @@ else if (dataView instanceof OverlayView) {
 						dataView.getClass().getName());
 					continue;
 				}
-				figureViews.add(figureView);
+				addFigureView(figureView);
 			}
 		}
-		int idx = 0;
-		while (idx < figureViews.size()) {
-			final FigureView figureView = figureViews.get(idx);
-			if (!getDisplay().contains(figureView.getDataView())) {
-				figureViews.remove(idx);
-				figureView.dispose();
+		final Set<DataView> dataViews =
+			Collections.newSetFromMap(new IdentityHashMap<DataView, Boolean>());
+		dataViews.addAll(getDisplay());
+		final List<FigureView> remaining = new ArrayList<FigureView>();
+		for (final FigureView figureView : figureViews) {
+			if (dataViews.contains(figureView.getDataView())) {
+				remaining.add(figureView);
 			}
 			else {
-				idx++;
+				figureViewIndex.remove(figureView.getDataView());
+				figureView.dispose();
 			}
 		}
+		figureViews.clear();
+		figureViews.addAll(remaining);
 	}
 
 	void update() {
@@ -460,10 +473,12 @@ private ImageDisplay getDisplay() {
 	}
 
 	private FigureView getFigureView(final DataView dataView) {
-		for (final FigureView figureView : figureViews) {
-			if (figureView.getDataView() == dataView) return figureView;
-		}
-		return null;
+		return figureViewIndex.get(dataView);
+	}
+
+	private void addFigureView(final FigureView figureView) {
+		figureViews.add(figureView);
+		figureViewIndex.put(figureView.getDataView(), figureView);
 	}
 
 	/** Updates the {@link ImageCanvas} to match the UI. */
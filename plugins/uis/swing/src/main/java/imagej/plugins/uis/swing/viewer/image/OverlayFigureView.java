@@ -71,6 +71,12 @@ public class OverlayFigureView extends AbstractContextual implements FigureView
 
 	private boolean updatingOverlay = false;
 
+	/**
+	 * Whether the figure is in the drawing. Tracked here because asking the
+	 * drawing is a linear search over all of its figures.
+	 */
+	private boolean inDrawing = true;
+
 	/**
 	 * Constructor to use to discover the figure to use for an overlay
 	 * 
@@ -140,8 +146,14 @@ public void figureChanged(final FigureEvent e) {
 				}
 			}
 
+			@Override
+			public void figureAdded(final FigureEvent e) {
+				inDrawing = true;
+			}
+
 			@Override
 			public void figureRemoved(final FigureEvent e) {
+				inDrawing = false;
 				final ImageDisplay d = getDisplay();
 				if (d.isVisible(overlayView)) {
 					DataView view = getDataView();
@@ -170,12 +182,12 @@ private void show(final boolean doShow) {
 		final Drawing drawing = canvas.getDrawing();
 		final Figure fig = getFigure();
 		if (doShow) {
-			if (!drawing.contains(fig)) {
+			if (!inDrawing) {
 				drawing.add(fig);
 			}
 		}
 		else {
-			if (drawing.contains(fig)) {
+			if (inDrawing) {
 				drawing.remove(fig);
 			}
 		}
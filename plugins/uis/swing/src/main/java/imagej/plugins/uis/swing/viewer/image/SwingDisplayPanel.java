@@ -56,6 +56,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -72,6 +73,7 @@
 import org.scijava.event.EventHandler;
 import org.scijava.event.EventService;
 import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * Swing implementation of image display panel. Contains a label, a graphics
@@ -100,12 +102,18 @@ public class SwingDisplayPanel extends JPanel implements ImageDisplayPanel {
 	private final Map<AxisType, JLabel> axisLabels =
 		new HashMap<AxisType, JLabel>();
 
+	/** Whether an update of the canvas figures is already queued. */
+	private final AtomicBoolean canvasUpdateQueued = new AtomicBoolean();
+
 	@Parameter
 	private ImageDisplayService imageDisplayService;
 
 	@Parameter
 	private EventService eventService;
 
+	@Parameter
+	private ThreadService threadService;
+
 	// -- constructors --
 
 	public SwingDisplayPanel(final SwingImageDisplayViewer displayViewer,
@@ -202,7 +210,22 @@ public void redraw() {
 		final DatasetView view = imageDisplayService.getActiveDatasetView(display);
 		if (view == null || view.getProjector() == null) return; // no active dataset
 		view.getProjector().map();
-		displayViewer.getCanvas().update();
+
+		// NB - displays are also redrawn from render threads; the projection
+		// above may run there, but the JHotDraw figures belong to the EDT.
+		if (threadService.isDispatchThread()) {
+			displayViewer.getCanvas().update();
+			return;
+		}
+		if (canvasUpdateQueued.getAndSet(true)) return;
+		threadService.queue(new Runnable() {
+
+			@Override
+			public void run() {
+				canvasUpdateQueued.set(false);
+				displayViewer.getCanvas().update();
+			}
+		});
 	}
 
 	// -- Event handlers --
@@ -313,7 +336,9 @@ private void updateAxis(final AxisType axis) {
 		if (axis == Axes.CHANNEL) updateColorBar(value);
 		final JScrollBar scrollBar = axisSliders.get(axis);
 		if (scrollBar != null) scrollBar.setValue(value);
-		getDisplay().update();
+		// NB - render off the event thread; while rendering, further position
+		// changes are merged into one follow-up render.
+		getDisplay().getRenderScheduler().requestRender();
 	}
 
 	private double findFullyVisibleScale() {
@@ -276,7 +276,7 @@ public boolean chooseUpdateSite(final FilesCollection files,
 		if (list.size() == 1 &&
 			list.get(0).equals(FilesCollection.DEFAULT_UPDATE_SITE))
 		{
-			file.updateSite = FilesCollection.DEFAULT_UPDATE_SITE;
+			file.setUpdateSite(FilesCollection.DEFAULT_UPDATE_SITE);
 			return true;
 		}
 		final String updateSite =
@@ -284,7 +284,7 @@ public boolean chooseUpdateSite(final FilesCollection files,
 				"To which upload site do you want to upload " + file.filename + "?",
 				"Upload site");
 		if (updateSite == null) return false;
-		file.updateSite = updateSite;
+		file.setUpdateSite(updateSite);
 		return true;
 	}
 
@@ -347,7 +347,7 @@ private void deactivateUpdateSite(final UpdateSite site) {
 			"These files will not be deleted automatically.\n" +
 			"Note: even if marked as 'Local-only', they might be available from other sites.");
 		for (final FileObject file : list) {
-			file.updateSite = null;
+			file.setUpdateSite(null);
 			// TODO: unshadow
 			file.setStatus(FileObject.Status.LOCAL_ONLY);
 		}